@@ -0,0 +1,140 @@
+package com.banque.eurobank.autorisation;
+
+import com.banque.eurobank.dto.*;
+import com.banque.eurobank.entity.Carte;
+import com.banque.eurobank.entity.Transaction;
+import com.banque.eurobank.exception.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Service d'autorisation des paiements et retraits carte.
+ *
+ * La décision est prise entièrement en mémoire, à partir de la liste des oppositions
+ * (propagée entre nœuds) puis du registre des cartes :
+ * aucun accès base sur le chemin d'une carte connue, la réservation sur le
+ * cumul journalier est atomique et l'écriture en base est différée. Le code
+ * confidentiel, obligatoire pour un retrait au DAB, est vérifié après les
+ * contrôles de la carte.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AutorisationCarteService {
+
+    private static final String PAYS_DOMESTIQUE = "FRA";
+
+    private final RegistreCartes registreCartes;
+    private final ListeOppositions listeOppositions;
+    private final VerificationCodeService verificationCodeService;
+
+    /**
+     * Décide d'une demande d'autorisation
+     */
+    public ReponseAutorisationDTO autoriser(DemandeAutorisationDTO demande) {
+        boolean retrait;
+        if (demande.getTypeOperation() == Transaction.TypeOperation.RETRAIT_DAB) {
+            retrait = true;
+        } else if (demande.getTypeOperation() == Transaction.TypeOperation.PAIEMENT_CARTE) {
+            retrait = false;
+        } else {
+            throw new OperationNonAutoriseeException(
+                    "Type d'opération non autorisable par carte: " + demande.getTypeOperation());
+        }
+        if (retrait != (demande.getCanal() == CanalAutorisation.DAB)) {
+            throw new OperationNonAutoriseeException("Canal " + demande.getCanal()
+                    + " incompatible avec " + demande.getTypeOperation());
+        }
+
+        long jour = LocalDate.now().toEpochDay();
+        MotifOpposition opposition = listeOppositions.motif(demande.getNumeroCarteHash());
+        if (opposition != null) {
+            return refus(opposition == MotifOpposition.OPPOSITION ? CodeReponseAutorisation.CARTE_OPPOSEE
+                    : CodeReponseAutorisation.CARTE_RESTREINTE, null, retrait, jour);
+        }
+
+        EtatCarte etat = registreCartes.get(demande.getNumeroCarteHash());
+        if (etat == null) {
+            return refus(CodeReponseAutorisation.CARTE_INCONNUE, null, retrait, jour);
+        }
+
+        CodeReponseAutorisation controle = controler(etat, demande, retrait, jour);
+        if (controle != null) {
+            return refus(controle, etat, retrait, jour);
+        }
+
+        if (retrait && demande.getCodePin() == null) {
+            return refus(CodeReponseAutorisation.CODE_ERRONE, etat, retrait, jour);
+        }
+        if (demande.getCodePin() != null) {
+            CodeReponseAutorisation code = verificationCodeService.verifier(etat, demande.getNumeroCarteHash(),
+                    demande.getCodePin());
+            if (code != null) {
+                return refus(code, etat, retrait, jour);
+            }
+        }
+
+        if (!etat.reserver(retrait, RegistreCartes.centimes(demande.getMontant()), jour)) {
+            return refus(CodeReponseAutorisation.PLAFOND_DEPASSE, etat, retrait, jour);
+        }
+        registreCartes.signalerUtilisation(etat);
+
+        return ReponseAutorisationDTO.builder()
+                .autorisee(true)
+                .codeReponse(CodeReponseAutorisation.APPROUVEE.getCode())
+                .motif(CodeReponseAutorisation.APPROUVEE.getLibelle())
+                .numeroAutorisation(String.format("%06d", ThreadLocalRandom.current().nextInt(1_000_000)))
+                .disponibleJour(disponible(etat, retrait, jour))
+                .build();
+    }
+
+    /**
+     * Contrôles de statut, de validité et d'options ; null si la carte peut être débitée
+     */
+    private CodeReponseAutorisation controler(EtatCarte etat, DemandeAutorisationDTO demande, boolean retrait, long jour) {
+        if (etat.option(EtatCarte.OPPOSITION) || etat.getStatut() == Carte.StatutCarte.OPPOSITION) {
+            return CodeReponseAutorisation.CARTE_OPPOSEE;
+        }
+        if (etat.getStatut() == Carte.StatutCarte.EXPIREE || etat.getExpiration() < jour) {
+            return CodeReponseAutorisation.CARTE_EXPIREE;
+        }
+        if (etat.getStatut() != Carte.StatutCarte.ACTIVE) {
+            return CodeReponseAutorisation.CARTE_RESTREINTE;
+        }
+
+        boolean etranger = demande.getPaysOperation() != null
+                && !PAYS_DOMESTIQUE.equalsIgnoreCase(demande.getPaysOperation());
+        if (etranger && !etat.option(retrait ? EtatCarte.RETRAIT_ETRANGER : EtatCarte.PAIEMENT_ETRANGER)) {
+            return CodeReponseAutorisation.OPERATION_NON_PERMISE;
+        }
+        if (demande.getCanal() == CanalAutorisation.INTERNET && !etat.option(EtatCarte.PAIEMENT_INTERNET)) {
+            return CodeReponseAutorisation.OPERATION_NON_PERMISE;
+        }
+        if (demande.getCanal() == CanalAutorisation.SANS_CONTACT && !etat.option(EtatCarte.SANS_CONTACT)) {
+            return CodeReponseAutorisation.OPERATION_NON_PERMISE;
+        }
+        return null;
+    }
+
+    private ReponseAutorisationDTO refus(CodeReponseAutorisation code, EtatCarte etat, boolean retrait, long jour) {
+        if (log.isDebugEnabled()) {
+            log.debug("Autorisation refusée: {} ({})", code, etat != null ? etat.getCarteId() : "hors registre");
+        }
+        return ReponseAutorisationDTO.builder()
+                .autorisee(false)
+                .codeReponse(code.getCode())
+                .motif(code.getLibelle())
+                .disponibleJour(etat != null ? disponible(etat, retrait, jour) : null)
+                .build();
+    }
+
+    private static BigDecimal disponible(EtatCarte etat, boolean retrait, long jour) {
+        long disponible = etat.disponible(retrait, jour);
+        return disponible == EtatCarte.SANS_PLAFOND ? null : BigDecimal.valueOf(disponible, 2);
+    }
+}
@@ -0,0 +1,11 @@
+package com.banque.eurobank.autorisation;
+
+/**
+ * Canal de présentation d'une demande d'autorisation carte
+ */
+public enum CanalAutorisation {
+    PROXIMITE,      // Terminal de paiement avec contact
+    SANS_CONTACT,   // Terminal de paiement sans contact
+    INTERNET,       // Vente à distance
+    DAB             // Distributeur automatique de billets
+}
@@ -0,0 +1,32 @@
+package com.banque.eurobank.autorisation;
+
+/**
+ * Codes réponse d'autorisation (ISO 8583, champ 39)
+ */
+public enum CodeReponseAutorisation {
+    APPROUVEE("00", "Autorisation accordée"),
+    CARTE_INCONNUE("14", "Carte inconnue"),
+    CARTE_OPPOSEE("41", "Carte en opposition"),
+    CARTE_EXPIREE("54", "Carte expirée"),
+    CODE_ERRONE("55", "Code confidentiel erroné"),
+    OPERATION_NON_PERMISE("57", "Opération non permise pour cette carte"),
+    PLAFOND_DEPASSE("61", "Plafond dépassé"),
+    CARTE_RESTREINTE("62", "Carte bloquée ou inactive"),
+    ESSAIS_CODE_DEPASSES("75", "Nombre d'essais du code confidentiel dépassé");
+
+    private final String code;
+    private final String libelle;
+
+    CodeReponseAutorisation(String code, String libelle) {
+        this.code = code;
+        this.libelle = libelle;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+}
@@ -0,0 +1,72 @@
+package com.banque.eurobank.autorisation;
+
+import com.banque.eurobank.exception.TechnicalException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * Empreinte des codes confidentiels, telle que stockée (en hexadécimal) dans
+ * EB_CARTES.code_pin_hash : HMAC-SHA256, avec la clé secrète du serveur, du hash
+ * du numéro de carte suivi du code.
+ *
+ * Les codes n'ayant que 10^4 à 10^6 valeurs, une empreinte sans clé se retrouve
+ * par essais en quelques millisecondes : sans la clé, la table des cartes seule
+ * ne permet pas de retrouver un code.
+ */
+@Component
+public class EmpreinteCode {
+
+    private static final String ALGORITHME = "HmacSHA256";
+
+    private final SecureRandom aleatoire = new SecureRandom();
+    private final ThreadLocal<Mac> macs;
+
+    public EmpreinteCode(@Value("${app.autorisations.cle-code}") String cle) {
+        SecretKeySpec spec = new SecretKeySpec(cle.getBytes(StandardCharsets.UTF_8), ALGORITHME);
+        // Mac n'est pas partageable entre threads : une instance initialisée par thread
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHME);
+                mac.init(spec);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new TechnicalException(ALGORITHME + " indisponible", e);
+            }
+        });
+        macs.get();
+    }
+
+    /**
+     * Empreinte (32 octets) du code présenté pour une carte
+     */
+    byte[] calculer(String numeroCarteHash, String code) {
+        Mac mac = macs.get();
+        mac.update(numeroCarteHash.getBytes(StandardCharsets.US_ASCII));
+        return mac.doFinal(code.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Empreinte en hexadécimal, à enregistrer dans code_pin_hash
+     */
+    public String hexadecimal(String numeroCarteHash, String code) {
+        byte[] empreinte = calculer(numeroCarteHash, code);
+        StringBuilder hex = new StringBuilder(empreinte.length * 2);
+        for (byte b : empreinte) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Nouveau code confidentiel à 4 chiffres, tiré au hasard
+     */
+    public String nouveauCode() {
+        return String.format("%04d", aleatoire.nextInt(10_000));
+    }
+}
@@ -0,0 +1,392 @@
+package com.banque.eurobank.autorisation;
+
+import com.banque.eurobank.entity.Carte;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * État d'autorisation d'une carte en mémoire.
+ *
+ * Montants en centimes (long), options en bits, expiration en jour epoch :
+ * pas d'objet intermédiaire par carte. Les cumuls sont mis à jour par
+ * compare-and-set sans verrou ; le paramétrage (statut, options, plafonds)
+ * est remplacé d'un bloc lors d'une modification de la carte.
+ *
+ * Chaque cumul est horodaté du jour auquel il s'applique (jour epoch dans les
+ * bits de poids fort, centimes dans les bits de poids faible) : un cumul d'un
+ * jour passé vaut zéro et la première autorisation du jour le remet à zéro
+ * dans le même compare-and-set, sans traitement de minuit. Le cumul remplacé
+ * est alors versé dans les fenêtres glissantes de la carte (paiements sur 30
+ * jours, retraits sur 7 jours), qui ne sont allouées que si la carte a le
+ * plafond correspondant ; une réservation soumise à un plafond glissant se fait
+ * sous le verrou de la fenêtre.
+ *
+ * Le compteur d'essais du code confidentiel n'est tenu qu'en mémoire entre deux
+ * transitions écrites en base (blocage, remise à zéro) ; il est protégé par un
+ * verrou partagé entre les cartes d'une même bande plutôt que par un verrou par carte.
+ */
+public final class EtatCarte {
+
+    static final int PAIEMENT_ETRANGER = 1;
+    static final int RETRAIT_ETRANGER = 1 << 1;
+    static final int PAIEMENT_INTERNET = 1 << 2;
+    static final int SANS_CONTACT = 1 << 3;
+    static final int OPPOSITION = 1 << 4;
+
+    /** Plafond non renseigné : pas de limite */
+    static final long SANS_PLAFOND = Long.MAX_VALUE;
+
+    static final int JOURS_FENETRE_PAIEMENT = 30;
+    static final int JOURS_FENETRE_RETRAIT = 7;
+
+    /** Bandes de verrous du code confidentiel (puissance de 2) */
+    private static final int BANDES_CODE = 64;
+    private static final Object[] VERROUS_CODE = new Object[BANDES_CODE];
+
+    static {
+        for (int i = 0; i < BANDES_CODE; i++) {
+            VERROUS_CODE[i] = new Object();
+        }
+    }
+
+    /** Centimes sur 44 bits (plus de 175 milliards d'euros), jour epoch sur les 20 bits restants */
+    private static final int BITS_MONTANT = 44;
+    private static final long MASQUE_MONTANT = (1L << BITS_MONTANT) - 1;
+
+    private static final AtomicLongFieldUpdater<EtatCarte> CUMUL_PAIEMENT =
+            AtomicLongFieldUpdater.newUpdater(EtatCarte.class, "cumulPaiementJour");
+    private static final AtomicLongFieldUpdater<EtatCarte> CUMUL_RETRAIT =
+            AtomicLongFieldUpdater.newUpdater(EtatCarte.class, "cumulRetraitJour");
+    private static final AtomicLongFieldUpdater<EtatCarte> PAIEMENT_CLOS =
+            AtomicLongFieldUpdater.newUpdater(EtatCarte.class, "paiementClos");
+    private static final AtomicLongFieldUpdater<EtatCarte> RETRAIT_CLOS =
+            AtomicLongFieldUpdater.newUpdater(EtatCarte.class, "retraitClos");
+    private static final AtomicIntegerFieldUpdater<EtatCarte> MODIFIE =
+            AtomicIntegerFieldUpdater.newUpdater(EtatCarte.class, "modifie");
+
+    private final long carteId;
+
+    private volatile Carte.StatutCarte statut;
+    private volatile int options;
+    private volatile long expiration;
+    private volatile long plafondPaiementJour;
+    private volatile long plafondRetraitJour;
+    private volatile long plafondPaiementMois;
+    private volatile long plafondRetraitSemaine;
+
+    /** Cumuls horodatés, voir {@link #cumul(long, long)} */
+    private volatile long cumulPaiementJour;
+    private volatile long cumulRetraitJour;
+    private volatile long derniereUtilisation;
+
+    /** Dernier cumul journalier remplacé par un jour plus récent, horodaté, en attente d'écriture */
+    private volatile long paiementClos;
+    private volatile long retraitClos;
+
+    private volatile FenetreGlissante fenetrePaiement;
+    private volatile FenetreGlissante fenetreRetrait;
+
+    /** 1 si des cumuls restent à écrire en base */
+    private volatile int modifie;
+
+    /** Empreinte du code confidentiel (null si la carte n'en a pas) et essais erronés, sous le verrou de la bande */
+    private byte[] empreinteCode;
+    private int tentativesCode;
+    /** Essais erronés tels qu'écrits en base */
+    private int tentativesCodeEnBase;
+
+    EtatCarte(long carteId, long jourCumul, long cumulPaiementJour, long cumulRetraitJour) {
+        this.carteId = carteId;
+        this.cumulPaiementJour = horodater(jourCumul, cumulPaiementJour);
+        this.cumulRetraitJour = horodater(jourCumul, cumulRetraitJour);
+    }
+
+    /**
+     * Remplace le paramétrage de la carte (les cumuls sont conservés) ;
+     * vrai si une fenêtre glissante vient d'être allouée et doit être chargée
+     */
+    boolean parametrer(Carte.StatutCarte statut, int options, long expiration,
+                       long plafondPaiementJour, long plafondRetraitJour,
+                       long plafondPaiementMois, long plafondRetraitSemaine) {
+        boolean nouvelleFenetre = false;
+        if (plafondPaiementMois != SANS_PLAFOND && fenetrePaiement == null) {
+            fenetrePaiement = new FenetreGlissante(JOURS_FENETRE_PAIEMENT);
+            nouvelleFenetre = true;
+        }
+        if (plafondRetraitSemaine != SANS_PLAFOND && fenetreRetrait == null) {
+            fenetreRetrait = new FenetreGlissante(JOURS_FENETRE_RETRAIT);
+            nouvelleFenetre = true;
+        }
+        this.options = options;
+        this.expiration = expiration;
+        this.plafondPaiementJour = plafondPaiementJour;
+        this.plafondRetraitJour = plafondRetraitJour;
+        this.plafondPaiementMois = plafondPaiementMois;
+        this.plafondRetraitSemaine = plafondRetraitSemaine;
+        this.statut = statut;
+        return nouvelleFenetre;
+    }
+
+    /**
+     * Remplace l'empreinte du code et le compteur d'essais lu en base. Le compteur en
+     * mémoire peut être en avance sur la base : il n'est ramené à la valeur lue que si
+     * celle-ci a baissé (déblocage de la carte) ou si le code a changé.
+     */
+    void parametrerCode(byte[] empreinte, int tentativesEnBase) {
+        synchronized (verrouCode()) {
+            if (tentativesEnBase < tentativesCodeEnBase || !Arrays.equals(empreinte, empreinteCode)) {
+                tentativesCode = tentativesEnBase;
+            } else {
+                tentativesCode = Math.max(tentativesCode, tentativesEnBase);
+            }
+            tentativesCodeEnBase = tentativesEnBase;
+            empreinteCode = empreinte;
+        }
+    }
+
+    /**
+     * Vérifie un code présenté : comparaison des empreintes en temps constant et mise à
+     * jour du compteur d'un bloc, sous le verrou de la bande (des essais simultanés ne
+     * peuvent pas dépasser le maximum). Le maximum atteint, le code n'est plus comparé.
+     */
+    VerificationCode verifierCode(byte[] empreinte, int maximum) {
+        synchronized (verrouCode()) {
+            if (empreinteCode == null) {
+                return VerificationCode.SANS_CODE;
+            }
+            if (tentativesCode >= maximum) {
+                return VerificationCode.ESSAIS_EPUISES;
+            }
+            if (MessageDigest.isEqual(empreinteCode, empreinte)) {
+                tentativesCode = 0;
+                if (tentativesCodeEnBase == 0) {
+                    return VerificationCode.CORRECT;
+                }
+                tentativesCodeEnBase = 0;
+                return VerificationCode.CORRECT_A_ECRIRE;
+            }
+            if (++tentativesCode < maximum) {
+                return VerificationCode.ERRONE;
+            }
+            tentativesCodeEnBase = tentativesCode;
+            return VerificationCode.ERRONE_BLOCAGE;
+        }
+    }
+
+    private Object verrouCode() {
+        return VERROUS_CODE[(int) carteId & (BANDES_CODE - 1)];
+    }
+
+    /**
+     * Réserve le montant sur le cumul du jour si les plafonds journalier et
+     * glissant le permettent ; un cumul d'un jour précédent repart de zéro
+     */
+    boolean reserver(boolean retrait, long montant, long jour) {
+        FenetreGlissante fenetre = retrait ? fenetreRetrait : fenetrePaiement;
+        long plafondGlissant = retrait ? plafondRetraitSemaine : plafondPaiementMois;
+        if (fenetre == null || plafondGlissant == SANS_PLAFOND) {
+            return reserver(retrait, montant, jour, null, SANS_PLAFOND);
+        }
+        synchronized (fenetre) {
+            return reserver(retrait, montant, jour, fenetre, plafondGlissant);
+        }
+    }
+
+    private boolean reserver(boolean retrait, long montant, long jour,
+                             FenetreGlissante fenetre, long plafondGlissant) {
+        AtomicLongFieldUpdater<EtatCarte> cumul = retrait ? CUMUL_RETRAIT : CUMUL_PAIEMENT;
+        long plafond = retrait ? plafondRetraitJour : plafondPaiementJour;
+        while (true) {
+            long actuel = cumul.get(this);
+            // Une autorisation concurrente a pu passer au jour suivant : jamais de retour en arrière
+            long jourCumul = Math.max(jour, jour(actuel));
+            long utilise = cumul(actuel, jourCumul);
+            if (fenetre != null && jour(actuel) != jourCumul) {
+                // Le cumul de la veille doit être dans la fenêtre avant d'évaluer le plafond glissant
+                if (cumul.compareAndSet(this, actuel, horodater(jourCumul, 0))) {
+                    cloturer(retrait, actuel);
+                }
+                continue;
+            }
+            if (montant > plafond - utilise || montant > MASQUE_MONTANT - utilise) {
+                return false;
+            }
+            if (fenetre != null && montant > plafondGlissant - utilise - fenetre.total(jourCumul)) {
+                return false;
+            }
+            if (cumul.compareAndSet(this, actuel, horodater(jourCumul, utilise + montant))) {
+                if (jour(actuel) != jourCumul) {
+                    cloturer(retrait, actuel);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Verse un cumul journalier remplacé dans la fenêtre et le programme pour écriture
+     */
+    private void cloturer(boolean retrait, long cumulHorodate) {
+        if (montant(cumulHorodate) == 0) {
+            return;
+        }
+        (retrait ? RETRAIT_CLOS : PAIEMENT_CLOS).set(this, cumulHorodate);
+        FenetreGlissante fenetre = retrait ? fenetreRetrait : fenetrePaiement;
+        if (fenetre != null) {
+            synchronized (fenetre) {
+                fenetre.ajouter(jour(cumulHorodate), montant(cumulHorodate));
+            }
+        }
+    }
+
+    /**
+     * Fenêtres vides aux dimensions de celles de la carte (null si absente), à remplir
+     * par {@link #ajouterHistorique} puis installer par {@link #installerFenetres}
+     */
+    FenetreGlissante[] nouvellesFenetres() {
+        return new FenetreGlissante[]{
+                fenetrePaiement != null ? new FenetreGlissante(JOURS_FENETRE_PAIEMENT) : null,
+                fenetreRetrait != null ? new FenetreGlissante(JOURS_FENETRE_RETRAIT) : null};
+    }
+
+    /**
+     * Ajoute une journée d'historique aux fenêtres en construction ; la journée
+     * du cumul courant est ignorée, elle y sera versée à sa clôture
+     */
+    void ajouterHistorique(FenetreGlissante[] fenetres, long jour, long aujourdhui,
+                           long paiement, long retrait) {
+        if (jour >= aujourdhui) {
+            return;
+        }
+        if (fenetres[0] != null && jour != jour(cumulPaiementJour)) {
+            fenetres[0].ajouter(jour, paiement);
+        }
+        if (fenetres[1] != null && jour != jour(cumulRetraitJour)) {
+            fenetres[1].ajouter(jour, retrait);
+        }
+    }
+
+    boolean aFenetres() {
+        return fenetrePaiement != null || fenetreRetrait != null;
+    }
+
+    void installerFenetres(FenetreGlissante[] fenetres) {
+        if (fenetres[0] != null) {
+            fenetrePaiement = fenetres[0];
+        }
+        if (fenetres[1] != null) {
+            fenetreRetrait = fenetres[1];
+        }
+    }
+
+    /**
+     * Libère les cumuls clos une fois écrits, sauf s'ils ont été remplacés entre-temps
+     */
+    void acquitterClotures(long paiementEcrit, long retraitEcrit) {
+        if (paiementEcrit != 0) {
+            PAIEMENT_CLOS.compareAndSet(this, paiementEcrit, 0);
+        }
+        if (retraitEcrit != 0) {
+            RETRAIT_CLOS.compareAndSet(this, retraitEcrit, 0);
+        }
+    }
+
+    /**
+     * Marque la carte à écrire ; vrai si elle ne l'était pas déjà
+     */
+    boolean marquerModifiee(long instant) {
+        derniereUtilisation = instant;
+        return modifie == 0 && MODIFIE.compareAndSet(this, 0, 1);
+    }
+
+    /**
+     * Acquitte le marquage avant lecture des valeurs à écrire :
+     * une autorisation concurrente marquera à nouveau la carte
+     */
+    void acquitter() {
+        modifie = 0;
+    }
+
+    boolean option(int option) {
+        return (options & option) != 0;
+    }
+
+    long disponible(boolean retrait, long jour) {
+        long plafond = retrait ? plafondRetraitJour : plafondPaiementJour;
+        return plafond == SANS_PLAFOND ? SANS_PLAFOND
+                : Math.max(0, plafond - cumul(retrait ? cumulRetraitJour : cumulPaiementJour, jour));
+    }
+
+    static long horodater(long jour, long montant) {
+        return (jour << BITS_MONTANT) | montant;
+    }
+
+    static long jour(long cumulHorodate) {
+        return cumulHorodate >>> BITS_MONTANT;
+    }
+
+    static long montant(long cumulHorodate) {
+        return cumulHorodate & MASQUE_MONTANT;
+    }
+
+    /**
+     * Montant d'un cumul horodaté pour le jour donné : zéro s'il date d'un jour précédent
+     */
+    static long cumul(long cumulHorodate, long jour) {
+        return jour(cumulHorodate) == jour ? montant(cumulHorodate) : 0L;
+    }
+
+    long getCarteId() {
+        return carteId;
+    }
+
+    Carte.StatutCarte getStatut() {
+        return statut;
+    }
+
+    long getExpiration() {
+        return expiration;
+    }
+
+    /** Cumul horodaté des paiements */
+    long getCumulPaiementJour() {
+        return cumulPaiementJour;
+    }
+
+    /** Cumul horodaté des retraits */
+    long getCumulRetraitJour() {
+        return cumulRetraitJour;
+    }
+
+    long getDerniereUtilisation() {
+        return derniereUtilisation;
+    }
+
+    /** Cumul clos horodaté des paiements, 0 si aucun en attente */
+    long getPaiementClos() {
+        return paiementClos;
+    }
+
+    /** Cumul clos horodaté des retraits, 0 si aucun en attente */
+    long getRetraitClos() {
+        return retraitClos;
+    }
+
+    /**
+     * Résultat d'une vérification de code ; les valeurs _A_ECRIRE et _BLOCAGE sont
+     * les transitions à reporter en base, rendues une seule fois
+     */
+    enum VerificationCode {
+        CORRECT,
+        /** Code correct après des essais erronés connus de la base */
+        CORRECT_A_ECRIRE,
+        ERRONE,
+        /** Dernier essai autorisé erroné : la carte doit être bloquée */
+        ERRONE_BLOCAGE,
+        ESSAIS_EPUISES,
+        SANS_CODE
+    }
+}
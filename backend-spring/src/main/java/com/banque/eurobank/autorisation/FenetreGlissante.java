@@ -0,0 +1,66 @@
+package com.banque.eurobank.autorisation;
+
+import java.util.Arrays;
+
+/**
+ * Anneau de cumuls journaliers d'une carte sur une fenêtre glissante de N jours.
+ *
+ * Seules les journées closes y figurent (le jour courant reste dans le cumul
+ * journalier de {@link EtatCarte}). La case d'un jour est jour % N ; le total
+ * est tenu à jour à l'ajout et à l'expiration des jours sortis de la fenêtre,
+ * d'où un coût constant par autorisation. Non thread-safe : l'appelant
+ * synchronise sur l'instance.
+ */
+final class FenetreGlissante {
+
+    private final long[] montants;
+    private long total;
+
+    /** Les cases couvrent les jours ]jourCourant - N, jourCourant] */
+    private long jourCourant;
+
+    FenetreGlissante(int jours) {
+        this.montants = new long[jours];
+    }
+
+    int getJours() {
+        return montants.length;
+    }
+
+    /**
+     * Ajoute le cumul d'une journée close ; ignoré s'il est déjà sorti de la fenêtre
+     */
+    void ajouter(long jour, long montant) {
+        avancer(jour);
+        if (jour <= jourCourant - montants.length) {
+            return;
+        }
+        montants[(int) (jour % montants.length)] += montant;
+        total += montant;
+    }
+
+    /**
+     * Total des journées closes de la fenêtre se terminant au jour donné (exclu)
+     */
+    long total(long jour) {
+        avancer(jour);
+        return total;
+    }
+
+    private void avancer(long jour) {
+        if (jour <= jourCourant) {
+            return;
+        }
+        if (jour - jourCourant >= montants.length) {
+            Arrays.fill(montants, 0L);
+            total = 0;
+        } else {
+            for (long j = jourCourant + 1; j <= jour; j++) {
+                int i = (int) (j % montants.length);
+                total -= montants[i];
+                montants[i] = 0;
+            }
+        }
+        jourCourant = jour;
+    }
+}
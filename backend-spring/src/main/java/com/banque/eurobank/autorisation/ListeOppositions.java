@@ -0,0 +1,289 @@
+package com.banque.eurobank.autorisation;
+
+import com.banque.eurobank.diffusion.ScrutationEvenements;
+import com.banque.eurobank.entity.Carte;
+import com.banque.eurobank.entity.EvenementOpposition;
+import com.banque.eurobank.exception.TechnicalException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Liste des cartes en opposition ou bloquées (« hot-list »), en mémoire sur chaque nœud.
+ *
+ * Chargée au démarrage depuis EB_CARTES, puis tenue à jour par scrutation de
+ * EB_EVENEMENTS_OPPOSITION au-delà d'une marque haute ({@link ScrutationEvenements}) :
+ * un changement fait sur un nœud est vu par les autres en moins d'une seconde. Le
+ * nœud d'origine l'applique dès la validation de sa transaction.
+ *
+ * Pour une même carte, l'ordre des identifiants suit celui des validations (verrou
+ * de la ligne EB_CARTES) : un événement arrivé en retard derrière un trou n'est
+ * jamais plus ancien qu'un événement déjà appliqué pour la même carte.
+ */
+@Component
+@Slf4j
+public class ListeOppositions {
+
+    /** Format du fichier exporté : en-tête, entrées triées de 33 octets, CRC32 */
+    private static final byte[] ENTETE_FICHIER = "EBHL".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION_FICHIER = 1;
+    private static final int TAILLE_HASH = 32;
+
+    private static final String SQL_HAUTE_MARQUE = "SELECT COALESCE(MAX(id), 0) FROM EB_EVENEMENTS_OPPOSITION";
+
+    private static final String SQL_CARTES =
+            "SELECT numero_carte_hash, statut, opposition, date_expiration FROM EB_CARTES " +
+            "WHERE (statut IN ('OPPOSITION', 'BLOQUEE') OR opposition = ?) AND date_expiration >= ?";
+
+    private static final String SQL_EVENEMENTS =
+            "SELECT id, numero_carte_hash, type_evenement, date_expiration FROM EB_EVENEMENTS_OPPOSITION " +
+            "WHERE id > ? ORDER BY id";
+
+    private static final String SQL_PURGE = "DELETE FROM EB_EVENEMENTS_OPPOSITION WHERE date_evenement < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RegistreCartes registreCartes;
+    private final ScrutationEvenements<Object[]> scrutation;
+    private final int retentionJours;
+    private final String fichierExport;
+
+    private final Map<String, Inscription> inscriptions = new ConcurrentHashMap<>();
+
+    public ListeOppositions(JdbcTemplate jdbcTemplate,
+                            RegistreCartes registreCartes,
+                            @Value("${app.oppositions.taille-lot:1000}") int tailleLot,
+                            @Value("${app.oppositions.delai-trou-ms:30000}") long delaiTrouMs,
+                            @Value("${app.oppositions.retention-jours:7}") int retentionJours,
+                            @Value("${app.oppositions.fichier-export:}") String fichierExport) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.registreCartes = registreCartes;
+        this.scrutation = new ScrutationEvenements<>("Liste des oppositions", jdbcTemplate,
+                SQL_HAUTE_MARQUE, SQL_EVENEMENTS,
+                (rs, i) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3), rs.getDate(4)},
+                evenement -> (Long) evenement[0], this::appliquer, tailleLot, delaiTrouMs);
+        this.retentionJours = retentionJours;
+        this.fichierExport = fichierExport;
+    }
+
+    /**
+     * Chargement initial depuis EB_CARTES ; les événements validés pendant ou après
+     * la lecture sont appliqués par la scrutation
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void charger() {
+        scrutation.demarrer(() -> jdbcTemplate.query(SQL_CARTES, rs -> {
+            boolean opposition = rs.getBoolean(3) || Carte.StatutCarte.OPPOSITION.name().equals(rs.getString(2));
+            inscriptions.put(rs.getString(1), new Inscription(
+                    opposition ? MotifOpposition.OPPOSITION : MotifOpposition.BLOCAGE,
+                    rs.getDate(4).toLocalDate().toEpochDay()));
+        }, true, Date.valueOf(LocalDate.now())));
+        log.info("Liste des oppositions chargée: {} carte(s), marque haute {}", inscriptions.size(),
+                scrutation.getHauteMarque());
+    }
+
+    /**
+     * Motif d'inscription de la carte, null si elle n'est pas sur la liste
+     */
+    public MotifOpposition motif(String numeroCarteHash) {
+        Inscription inscription = inscriptions.get(numeroCarteHash);
+        return inscription != null ? inscription.motif : null;
+    }
+
+    public int taille() {
+        return inscriptions.size();
+    }
+
+    public long getHauteMarque() {
+        return scrutation.getHauteMarque();
+    }
+
+    /**
+     * Applique localement un événement de la transaction en cours, après sa validation ;
+     * il ne sera pas réappliqué à sa relecture
+     */
+    public void signaler(EvenementOpposition evenement) {
+        Runnable application = () -> {
+            appliquer(evenement.getNumeroCarteHash(), evenement.getTypeEvenement(), evenement.getDateExpiration());
+            scrutation.signalerApplique(evenement.getId());
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    application.run();
+                }
+            });
+        } else {
+            application.run();
+        }
+    }
+
+    /**
+     * Scrutation des événements au-delà de la marque haute
+     */
+    @Scheduled(fixedDelayString = "${app.oppositions.scrutation-ms:250}")
+    public void scruter() {
+        scrutation.scruter();
+    }
+
+    private void appliquer(Object[] evenement) {
+        String hash = (String) evenement[1];
+        Date expiration = (Date) evenement[3];
+        appliquer(hash, EvenementOpposition.TypeEvenement.valueOf((String) evenement[2]),
+                expiration != null ? expiration.toLocalDate() : null);
+        // Statut à jour dans le registre d'autorisation des autres nœuds
+        registreCartes.recharger(hash);
+    }
+
+    private void appliquer(String hash, EvenementOpposition.TypeEvenement type, LocalDate dateExpiration) {
+        long expiration = dateExpiration != null ? dateExpiration.toEpochDay() : Long.MAX_VALUE;
+        switch (type) {
+            case OPPOSITION:
+                inscriptions.put(hash, new Inscription(MotifOpposition.OPPOSITION, expiration));
+                break;
+            case BLOCAGE:
+                inscriptions.merge(hash, new Inscription(MotifOpposition.BLOCAGE, expiration),
+                        (actuelle, nouvelle) -> actuelle.motif == MotifOpposition.OPPOSITION ? actuelle : nouvelle);
+                break;
+            case DEBLOCAGE:
+                inscriptions.computeIfPresent(hash,
+                        (cle, actuelle) -> actuelle.motif == MotifOpposition.BLOCAGE ? null : actuelle);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Purge des événements anciens (le chargement initial repart de EB_CARTES)
+     */
+    @Scheduled(cron = "${app.oppositions.purge-cron:0 45 0 * * *}")
+    public void purger() {
+        int nombre = jdbcTemplate.update(SQL_PURGE,
+                Timestamp.valueOf(LocalDateTime.now().minusDays(retentionJours)));
+        log.info("Événements d'opposition purgés: {}", nombre);
+        long aujourdhui = LocalDate.now().toEpochDay();
+        inscriptions.values().removeIf(inscription -> inscription.expiration < aujourdhui);
+    }
+
+    /**
+     * Écrit la liste au format compact des terminaux hors ligne :
+     * "EBHL", version (2 octets), marque haute (8), date de génération en ms (8),
+     * nombre d'entrées (4), puis les entrées triées (SHA-256 sur 32 octets et motif
+     * sur 1 octet, recherche dichotomique possible) et le CRC32 de ce qui précède (4).
+     *
+     * @return nombre d'entrées écrites
+     */
+    public int exporter(OutputStream sortie) throws IOException {
+        long marque = scrutation.getHauteMarque();
+        long aujourdhui = LocalDate.now().toEpochDay();
+        List<byte[]> entrees = new ArrayList<>(inscriptions.size());
+        int ignorees = 0;
+        for (Map.Entry<String, Inscription> inscription : inscriptions.entrySet()) {
+            if (inscription.getValue().expiration < aujourdhui) {
+                continue;
+            }
+            byte[] entree = entree(inscription.getKey(), inscription.getValue().motif);
+            if (entree == null) {
+                ignorees++;
+                continue;
+            }
+            entrees.add(entree);
+        }
+        if (ignorees > 0) {
+            log.warn("Export de la liste des oppositions: {} hash de carte non conforme(s) ignoré(s)", ignorees);
+        }
+        entrees.sort(Arrays::compareUnsigned);
+
+        CheckedOutputStream controle = new CheckedOutputStream(new BufferedOutputStream(sortie), new CRC32());
+        DataOutputStream donnees = new DataOutputStream(controle);
+        donnees.write(ENTETE_FICHIER);
+        donnees.writeShort(VERSION_FICHIER);
+        donnees.writeLong(marque);
+        donnees.writeLong(System.currentTimeMillis());
+        donnees.writeInt(entrees.size());
+        for (byte[] entree : entrees) {
+            donnees.write(entree);
+        }
+        donnees.flush();
+        donnees.writeInt((int) controle.getChecksum().getValue());
+        donnees.flush();
+        return entrees.size();
+    }
+
+    /**
+     * Export périodique vers le fichier configuré (remplacement atomique)
+     */
+    @Scheduled(cron = "${app.oppositions.export-cron:0 */5 * * * *}")
+    public void exporterFichier() {
+        if (fichierExport == null || fichierExport.isBlank()) {
+            return;
+        }
+        Path cible = Paths.get(fichierExport);
+        try {
+            Path temporaire = Files.createTempFile(cible.toAbsolutePath().getParent(), "hotlist", ".tmp");
+            int nombre;
+            try (OutputStream sortie = Files.newOutputStream(temporaire)) {
+                nombre = exporter(sortie);
+            }
+            Files.move(temporaire, cible, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Liste des oppositions exportée: {} carte(s) dans {}", nombre, cible);
+        } catch (IOException e) {
+            throw new TechnicalException("Export de la liste des oppositions impossible: " + cible, e);
+        }
+    }
+
+    private static byte[] entree(String hash, MotifOpposition motif) {
+        if (hash.length() != 2 * TAILLE_HASH) {
+            return null;
+        }
+        byte[] entree = new byte[TAILLE_HASH + 1];
+        for (int i = 0; i < TAILLE_HASH; i++) {
+            int fort = Character.digit(hash.charAt(2 * i), 16);
+            int faible = Character.digit(hash.charAt(2 * i + 1), 16);
+            if (fort < 0 || faible < 0) {
+                return null;
+            }
+            entree[i] = (byte) ((fort << 4) | faible);
+        }
+        entree[TAILLE_HASH] = motif.getCode();
+        return entree;
+    }
+
+    private static final class Inscription {
+        private final MotifOpposition motif;
+        private final long expiration;
+
+        private Inscription(MotifOpposition motif, long expiration) {
+            this.motif = motif;
+            this.expiration = expiration;
+        }
+    }
+}
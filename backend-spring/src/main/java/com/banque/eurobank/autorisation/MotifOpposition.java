@@ -0,0 +1,20 @@
+package com.banque.eurobank.autorisation;
+
+/**
+ * Motif d'inscription d'une carte sur la liste des oppositions,
+ * avec son code dans le fichier exporté
+ */
+public enum MotifOpposition {
+    OPPOSITION((byte) 1),
+    BLOCAGE((byte) 2);
+
+    private final byte code;
+
+    MotifOpposition(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+}
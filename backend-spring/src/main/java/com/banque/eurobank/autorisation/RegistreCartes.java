@@ -0,0 +1,445 @@
+package com.banque.eurobank.autorisation;
+
+import com.banque.eurobank.entity.Carte;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Registre en mémoire des états d'autorisation des cartes, indexé par numeroCarteHash.
+ *
+ * Chargé au démarrage puis à la demande pour une carte inconnue du registre.
+ * Les cumuls modifiés par les autorisations sont écrits dans EB_CARTES de façon
+ * asynchrone, par lots, avec le jour auquel ils s'appliquent (date_cumul) ; le
+ * paramétrage est rafraîchi après chaque modification de la carte par CarteService.
+ *
+ * Les cumuls journaliers sont aussi historisés dans EB_CUMULS_CARTES, d'où sont
+ * rechargées les fenêtres glissantes (plafonds hebdomadaire et mensuel).
+ */
+@Component
+@Slf4j
+public class RegistreCartes {
+
+    private static final String COLONNES =
+            "SELECT id, numero_carte_hash, statut, opposition, date_expiration, " +
+            "plafond_paiement_jour, plafond_retrait_jour, cumul_paiement_jour, cumul_retrait_jour, " +
+            "paiement_etranger_actif, retrait_etranger_actif, paiement_internet_actif, sans_contact_actif, date_cumul, " +
+            "plafond_paiement_mois, plafond_retrait_semaine, code_pin_hash, tentatives_pin_erronees " +
+            "FROM EB_CARTES ";
+
+    private static final String SQL_CARTES = COLONNES + "WHERE statut NOT IN ('ANNULEE', 'EN_FABRICATION')";
+
+    private static final String SQL_CARTE = COLONNES + "WHERE numero_carte_hash = ?";
+
+    // Jamais de retour à un jour antérieur : une écriture tardive ne remplace pas les cumuls d'un jour plus récent
+    private static final String SQL_ECRITURE_CUMULS =
+            "UPDATE EB_CARTES SET cumul_paiement_jour = ?, cumul_retrait_jour = ?, date_cumul = ?, " +
+            "date_derniere_utilisation = ? WHERE id = ? AND (date_cumul IS NULL OR date_cumul <= ?)";
+
+    private static final String SQL_MAJ_HISTORIQUE =
+            "UPDATE EB_CUMULS_CARTES SET montant_paiement = ?, montant_retrait = ?, date_maj = ? " +
+            "WHERE carte_id = ? AND jour = ?";
+
+    private static final String SQL_CREATION_HISTORIQUE =
+            "INSERT INTO EB_CUMULS_CARTES (montant_paiement, montant_retrait, date_maj, carte_id, jour) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SQL_HISTORIQUE =
+            "SELECT carte_id, jour, montant_paiement, montant_retrait FROM EB_CUMULS_CARTES " +
+            "WHERE jour >= ? AND jour < ? ORDER BY carte_id";
+
+    private static final String SQL_HISTORIQUE_CARTE =
+            "SELECT carte_id, jour, montant_paiement, montant_retrait FROM EB_CUMULS_CARTES " +
+            "WHERE carte_id = ? AND jour >= ? AND jour < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int tailleLot;
+
+    private final Map<String, EtatCarte> cartes = new ConcurrentHashMap<>(1 << 16);
+    private final ConcurrentLinkedQueue<EtatCarte> aEcrire = new ConcurrentLinkedQueue<>();
+
+    public RegistreCartes(JdbcTemplate jdbcTemplate,
+                          @Value("${app.autorisations.taille-lot-ecriture:500}") int tailleLot) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tailleLot = tailleLot;
+    }
+
+    /**
+     * Chargement initial des cartes utilisables
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void charger() {
+        long debut = System.currentTimeMillis();
+        int[] nombre = {0};
+        jdbcTemplate.query(SQL_CARTES, rs -> {
+            // Une carte déjà chargée à la demande est plus à jour que la lecture en cours
+            cartes.putIfAbsent(rs.getString(2), lireEtat(rs));
+            nombre[0]++;
+        });
+        int fenetres = rechargerFenetres();
+        log.info("Registre des cartes chargé: {} carte(s), {} avec plafond glissant, en {} ms",
+                nombre[0], fenetres, System.currentTimeMillis() - debut);
+    }
+
+    /**
+     * Reconstruit les fenêtres glissantes de toutes les cartes à partir de EB_CUMULS_CARTES
+     *
+     * @return nombre de cartes ayant au moins une fenêtre
+     */
+    public int rechargerFenetres() {
+        Map<Long, EtatCarte> parId = new HashMap<>();
+        for (EtatCarte etat : cartes.values()) {
+            if (etat.aFenetres()) {
+                parId.put(etat.getCarteId(), etat);
+            }
+        }
+        if (parId.isEmpty()) {
+            return 0;
+        }
+        long aujourdhui = LocalDate.now().toEpochDay();
+        ChargementFenetres chargement = new ChargementFenetres(parId, aujourdhui);
+        jdbcTemplate.query(SQL_HISTORIQUE, chargement,
+                debutFenetres(aujourdhui), Date.valueOf(LocalDate.ofEpochDay(aujourdhui)));
+        chargement.terminer();
+        return parId.size();
+    }
+
+    private void chargerFenetres(EtatCarte etat) {
+        long aujourdhui = LocalDate.now().toEpochDay();
+        ChargementFenetres chargement = new ChargementFenetres(Map.of(etat.getCarteId(), etat), aujourdhui);
+        jdbcTemplate.query(SQL_HISTORIQUE_CARTE, chargement, etat.getCarteId(),
+                debutFenetres(aujourdhui), Date.valueOf(LocalDate.ofEpochDay(aujourdhui)));
+        chargement.terminer();
+    }
+
+    private static Date debutFenetres(long aujourdhui) {
+        return Date.valueOf(LocalDate.ofEpochDay(aujourdhui - EtatCarte.JOURS_FENETRE_PAIEMENT + 1));
+    }
+
+    /**
+     * État d'autorisation d'une carte, chargé à la demande ; null si la carte n'existe pas
+     */
+    public EtatCarte get(String numeroCarteHash) {
+        EtatCarte etat = cartes.get(numeroCarteHash);
+        if (etat != null) {
+            return etat;
+        }
+        List<EtatCarte> lus = jdbcTemplate.query(SQL_CARTE, (rs, i) -> lireEtat(rs), numeroCarteHash);
+        if (lus.isEmpty()) {
+            return null;
+        }
+        EtatCarte existant = cartes.putIfAbsent(numeroCarteHash, lus.get(0));
+        if (existant != null) {
+            return existant;
+        }
+        if (lus.get(0).aFenetres()) {
+            chargerFenetres(lus.get(0));
+        }
+        return lus.get(0);
+    }
+
+    /**
+     * Relit le paramétrage d'une carte présente dans le registre (modification faite
+     * par un autre nœud) ; les cumuls en mémoire sont conservés
+     */
+    public void recharger(String numeroCarteHash) {
+        EtatCarte etat = cartes.get(numeroCarteHash);
+        if (etat == null) {
+            return;
+        }
+        boolean[] nouvelleFenetre = {false};
+        jdbcTemplate.query(SQL_CARTE, rs -> {
+            nouvelleFenetre[0] = lireParametrage(etat, rs);
+        }, numeroCarteHash);
+        if (nouvelleFenetre[0]) {
+            chargerFenetres(etat);
+        }
+    }
+
+    /**
+     * Programme l'écriture des cumuls de la carte
+     */
+    void signalerUtilisation(EtatCarte etat) {
+        if (etat.marquerModifiee(System.currentTimeMillis())) {
+            aEcrire.add(etat);
+        }
+    }
+
+    /**
+     * Reporte le paramétrage de la carte dans le registre, après validation de la transaction en cours
+     */
+    public void rafraichir(Carte carte) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    appliquer(carte);
+                }
+            });
+        } else {
+            appliquer(carte);
+        }
+    }
+
+    private void appliquer(Carte carte) {
+        EtatCarte etat = cartes.computeIfAbsent(carte.getNumeroCarteHash(), hash ->
+                new EtatCarte(carte.getId(), jour(carte.getDateCumul()),
+                        centimes(carte.getCumulPaiementJour()), centimes(carte.getCumulRetraitJour())));
+        boolean nouvelleFenetre = etat.parametrer(carte.getStatut(),
+                options(carte.getOpposition(), carte.getPaiementEtrangerActif(), carte.getRetraitEtrangerActif(),
+                        carte.getPaiementInternetActif(), carte.getSansContactActif()),
+                carte.getDateExpiration().toEpochDay(),
+                plafond(carte.getPlafondPaiementJour()),
+                plafond(carte.getPlafondRetraitJour()),
+                plafond(carte.getPlafondPaiementMois()),
+                plafond(carte.getPlafondRetraitSemaine()));
+        etat.parametrerCode(empreinte(carte.getCodePinHash()),
+                carte.getTentativesPinErronees() != null ? carte.getTentativesPinErronees() : 0);
+        if (nouvelleFenetre) {
+            chargerFenetres(etat);
+        }
+    }
+
+    /**
+     * Écriture asynchrone, par lots, des cumuls modifiés
+     */
+    @Scheduled(fixedDelayString = "${app.autorisations.ecriture-ms:500}")
+    @PreDestroy
+    public void ecrireModifications() {
+        List<EtatCarte> lot = new ArrayList<>(tailleLot);
+        EtatCarte etat;
+        while ((etat = aEcrire.poll()) != null) {
+            etat.acquitter();
+            lot.add(etat);
+            if (lot.size() == tailleLot) {
+                ecrireLot(lot);
+                lot.clear();
+            }
+        }
+        if (!lot.isEmpty()) {
+            ecrireLot(lot);
+        }
+    }
+
+    private void ecrireLot(List<EtatCarte> lot) {
+        List<long[]> historique = new ArrayList<>(lot.size());
+        long[] clotures = new long[lot.size() * 2];
+        for (int i = 0; i < lot.size(); i++) {
+            clotures[2 * i] = lot.get(i).getPaiementClos();
+            clotures[2 * i + 1] = lot.get(i).getRetraitClos();
+            ajouterHistorique(historique, lot.get(i), clotures[2 * i], clotures[2 * i + 1]);
+        }
+        try {
+            jdbcTemplate.batchUpdate(SQL_ECRITURE_CUMULS, lot, lot.size(), (ps, e) -> {
+                long paiement = e.getCumulPaiementJour();
+                long retrait = e.getCumulRetraitJour();
+                long jour = Math.max(EtatCarte.jour(paiement), EtatCarte.jour(retrait));
+                Date dateCumul = Date.valueOf(LocalDate.ofEpochDay(jour));
+                ps.setBigDecimal(1, BigDecimal.valueOf(EtatCarte.cumul(paiement, jour), 2));
+                ps.setBigDecimal(2, BigDecimal.valueOf(EtatCarte.cumul(retrait, jour), 2));
+                ps.setDate(3, dateCumul);
+                ps.setTimestamp(4, new Timestamp(e.getDerniereUtilisation()));
+                ps.setLong(5, e.getCarteId());
+                ps.setDate(6, dateCumul);
+            });
+            ecrireHistorique(historique);
+            for (int i = 0; i < lot.size(); i++) {
+                lot.get(i).acquitterClotures(clotures[2 * i], clotures[2 * i + 1]);
+            }
+        } catch (RuntimeException ex) {
+            log.error("Écriture des cumuls de {} carte(s) reportée: {}", lot.size(), ex.getMessage());
+            lot.forEach(this::signalerUtilisation);
+        }
+    }
+
+    /**
+     * Journées à historiser pour une carte : {carteId, jour, paiement, retrait}, une par jour
+     * distinct parmi les cumuls courants et les cumuls clos en attente
+     */
+    private static void ajouterHistorique(List<long[]> historique, EtatCarte etat, long paiementClos, long retraitClos) {
+        long paiement = etat.getCumulPaiementJour();
+        long retrait = etat.getCumulRetraitJour();
+        long[] jours = {EtatCarte.jour(paiement), EtatCarte.jour(retrait),
+                EtatCarte.jour(paiementClos), EtatCarte.jour(retraitClos)};
+        for (int i = 0; i < jours.length; i++) {
+            long jour = jours[i];
+            boolean dejaVu = false;
+            for (int j = 0; j < i; j++) {
+                dejaVu |= jours[j] == jour;
+            }
+            if (jour == 0 || dejaVu) {
+                continue;
+            }
+            historique.add(new long[]{etat.getCarteId(), jour,
+                    montantDuJour(paiement, paiementClos, jour), montantDuJour(retrait, retraitClos, jour)});
+        }
+    }
+
+    private static long montantDuJour(long cumul, long clos, long jour) {
+        return EtatCarte.jour(cumul) == jour ? EtatCarte.montant(cumul) : EtatCarte.cumul(clos, jour);
+    }
+
+    private void ecrireHistorique(List<long[]> historique) {
+        Timestamp maintenant = new Timestamp(System.currentTimeMillis());
+        ParameterizedPreparedStatementSetter<long[]> setter = (ps, ligne) -> {
+            ps.setBigDecimal(1, BigDecimal.valueOf(ligne[2], 2));
+            ps.setBigDecimal(2, BigDecimal.valueOf(ligne[3], 2));
+            ps.setTimestamp(3, maintenant);
+            ps.setLong(4, ligne[0]);
+            ps.setDate(5, Date.valueOf(LocalDate.ofEpochDay(ligne[1])));
+        };
+        int[][] resultats = jdbcTemplate.batchUpdate(SQL_MAJ_HISTORIQUE, historique, historique.size(), setter);
+        List<long[]> nouvelles = new ArrayList<>();
+        int n = 0;
+        for (int[] lotResultats : resultats) {
+            for (int nombre : lotResultats) {
+                if (nombre == 0) {
+                    nouvelles.add(historique.get(n));
+                }
+                n++;
+            }
+        }
+        if (!nouvelles.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_CREATION_HISTORIQUE, nouvelles, nouvelles.size(), setter);
+        }
+    }
+
+    public int taille() {
+        return cartes.size();
+    }
+
+    private static EtatCarte lireEtat(ResultSet rs) throws SQLException {
+        Date dateCumul = rs.getDate(14);
+        EtatCarte etat = new EtatCarte(rs.getLong(1), jour(dateCumul != null ? dateCumul.toLocalDate() : null),
+                centimes(rs.getBigDecimal(8)), centimes(rs.getBigDecimal(9)));
+        lireParametrage(etat, rs);
+        return etat;
+    }
+
+    private static boolean lireParametrage(EtatCarte etat, ResultSet rs) throws SQLException {
+        etat.parametrerCode(empreinte(rs.getString(17)), rs.getInt(18));
+        return etat.parametrer(Carte.StatutCarte.valueOf(rs.getString(3)),
+                options(rs.getBoolean(4), rs.getBoolean(10), rs.getBoolean(11),
+                        rs.getBoolean(12), rs.getBoolean(13)),
+                rs.getDate(5).toLocalDate().toEpochDay(),
+                plafond(rs.getBigDecimal(6)),
+                plafond(rs.getBigDecimal(7)),
+                plafond(rs.getBigDecimal(15)),
+                plafond(rs.getBigDecimal(16)));
+    }
+
+    private static int options(Boolean opposition, Boolean paiementEtranger, Boolean retraitEtranger,
+                               Boolean paiementInternet, Boolean sansContact) {
+        return (Boolean.TRUE.equals(opposition) ? EtatCarte.OPPOSITION : 0)
+                | (Boolean.TRUE.equals(paiementEtranger) ? EtatCarte.PAIEMENT_ETRANGER : 0)
+                | (Boolean.TRUE.equals(retraitEtranger) ? EtatCarte.RETRAIT_ETRANGER : 0)
+                | (Boolean.TRUE.equals(paiementInternet) ? EtatCarte.PAIEMENT_INTERNET : 0)
+                | (Boolean.TRUE.equals(sansContact) ? EtatCarte.SANS_CONTACT : 0);
+    }
+
+    private static long plafond(BigDecimal montant) {
+        return montant != null ? centimes(montant) : EtatCarte.SANS_PLAFOND;
+    }
+
+    /**
+     * Empreinte du code en octets, null si absente ou si ce n'est pas une empreinte de 32 octets en hexadécimal
+     */
+    private static byte[] empreinte(String codePinHash) {
+        if (codePinHash == null || codePinHash.length() != 64) {
+            return null;
+        }
+        byte[] octets = new byte[32];
+        for (int i = 0; i < octets.length; i++) {
+            int fort = Character.digit(codePinHash.charAt(2 * i), 16);
+            int faible = Character.digit(codePinHash.charAt(2 * i + 1), 16);
+            if (fort < 0 || faible < 0) {
+                return null;
+            }
+            octets[i] = (byte) ((fort << 4) | faible);
+        }
+        return octets;
+    }
+
+    /** Jour epoch d'un cumul ; un cumul sans date est considéré comme périmé */
+    private static long jour(LocalDate dateCumul) {
+        return dateCumul != null ? dateCumul.toEpochDay() : 0L;
+    }
+
+    static long centimes(BigDecimal montant) {
+        return montant != null ? montant.movePointRight(2).longValue() : 0L;
+    }
+
+    /**
+     * Lecture de l'historique trié par carte : les fenêtres d'une carte sont
+     * construites à part puis installées d'un bloc ; les cartes sans historique
+     * reçoivent des fenêtres vides
+     */
+    private static final class ChargementFenetres implements RowCallbackHandler {
+
+        private final Map<Long, EtatCarte> parId;
+        private final long aujourdhui;
+        private final Set<Long> chargees = new HashSet<>();
+        private EtatCarte etat;
+        private FenetreGlissante[] fenetres;
+
+        ChargementFenetres(Map<Long, EtatCarte> parId, long aujourdhui) {
+            this.parId = parId;
+            this.aujourdhui = aujourdhui;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long carteId = rs.getLong(1);
+            if (etat == null || etat.getCarteId() != carteId) {
+                installer();
+                etat = parId.get(carteId);
+                fenetres = etat != null ? etat.nouvellesFenetres() : null;
+            }
+            if (etat != null) {
+                etat.ajouterHistorique(fenetres, rs.getDate(2).toLocalDate().toEpochDay(), aujourdhui,
+                        centimes(rs.getBigDecimal(3)), centimes(rs.getBigDecimal(4)));
+            }
+        }
+
+        void terminer() {
+            installer();
+            parId.forEach((carteId, vide) -> {
+                if (!chargees.contains(carteId)) {
+                    vide.installerFenetres(vide.nouvellesFenetres());
+                }
+            });
+        }
+
+        private void installer() {
+            if (etat != null) {
+                etat.installerFenetres(fenetres);
+                chargees.add(etat.getCarteId());
+                etat = null;
+            }
+        }
+    }
+}
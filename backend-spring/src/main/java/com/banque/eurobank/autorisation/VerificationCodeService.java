@@ -0,0 +1,65 @@
+package com.banque.eurobank.autorisation;
+
+import com.banque.eurobank.service.CarteService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Vérification du code confidentiel présenté au terminal.
+ *
+ * La comparaison et le compteur d'essais sont tenus par l'état de la carte en
+ * mémoire ; la base n'est écrite qu'aux transitions : blocage de la carte au
+ * dernier essai erroné, remise à zéro d'un compteur non nul connu de la base.
+ * Le compteur est propre à chaque nœud, le blocage est diffusé par la liste
+ * des oppositions.
+ */
+@Service
+@Slf4j
+public class VerificationCodeService {
+
+    private final CarteService carteService;
+    private final EmpreinteCode empreinteCode;
+    private final int essaisMaximum;
+
+    public VerificationCodeService(CarteService carteService,
+                                   EmpreinteCode empreinteCode,
+                                   @Value("${app.autorisations.essais-code:3}") int essaisMaximum) {
+        this.carteService = carteService;
+        this.empreinteCode = empreinteCode;
+        this.essaisMaximum = essaisMaximum;
+    }
+
+    /**
+     * Vérifie le code présenté pour une carte du registre ; null si correct,
+     * sinon le code réponse de refus
+     */
+    CodeReponseAutorisation verifier(EtatCarte etat, String numeroCarteHash, String code) {
+        switch (etat.verifierCode(empreinteCode.calculer(numeroCarteHash, code), essaisMaximum)) {
+            case CORRECT:
+                return null;
+            case CORRECT_A_ECRIRE:
+                carteService.reinitialiserTentativesPin(etat.getCarteId());
+                return null;
+            case ERRONE:
+                return CodeReponseAutorisation.CODE_ERRONE;
+            case ERRONE_BLOCAGE:
+                bloquer(etat);
+                return CodeReponseAutorisation.ESSAIS_CODE_DEPASSES;
+            case ESSAIS_EPUISES:
+                return CodeReponseAutorisation.ESSAIS_CODE_DEPASSES;
+            default:
+                return CodeReponseAutorisation.OPERATION_NON_PERMISE;
+        }
+    }
+
+    private void bloquer(EtatCarte etat) {
+        try {
+            carteService.bloquerCodeEpuise(etat.getCarteId(), essaisMaximum);
+        } catch (RuntimeException e) {
+            // La carte reste refusée par ce nœud, le compteur en mémoire étant au maximum
+            log.error("Blocage de la carte {} après codes erronés non enregistré: {}",
+                    etat.getCarteId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.banque.eurobank.batch;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Accumulateur compact des intérêts d'une partition : tableaux primitifs
+ * (identifiant de compte, intérêts en millionièmes d'euro, jours couverts) plutôt qu'un
+ * objet par compte.
+ */
+class AccumulateurInterets {
+
+    private long[] compteIds;
+    private long[] micros;
+    private int[] jours;
+    private final BitSet nouveaux = new BitSet();
+    private int taille;
+
+    AccumulateurInterets(int capaciteInitiale) {
+        this.compteIds = new long[capaciteInitiale];
+        this.micros = new long[capaciteInitiale];
+        this.jours = new int[capaciteInitiale];
+    }
+
+    void ajouter(long compteId, long interetsMicros, int joursCouverts, boolean nouveau) {
+        if (taille == compteIds.length) {
+            compteIds = Arrays.copyOf(compteIds, taille * 2);
+            micros = Arrays.copyOf(micros, taille * 2);
+            jours = Arrays.copyOf(jours, taille * 2);
+        }
+        compteIds[taille] = compteId;
+        micros[taille] = interetsMicros;
+        jours[taille] = joursCouverts;
+        if (nouveau) {
+            nouveaux.set(taille);
+        }
+        taille++;
+    }
+
+    int taille() {
+        return taille;
+    }
+
+    long compteId(int index) {
+        return compteIds[index];
+    }
+
+    long micros(int index) {
+        return micros[index];
+    }
+
+    int jours(int index) {
+        return jours[index];
+    }
+
+    boolean estNouveau(int index) {
+        return nouveaux.get(index);
+    }
+
+    long totalMicros() {
+        long total = 0;
+        for (int i = 0; i < taille; i++) {
+            total += micros[i];
+        }
+        return total;
+    }
+
+    /**
+     * Indices des comptes existants (nouveau = false) ou à créer (nouveau = true)
+     */
+    int[] indices(boolean nouveau) {
+        int[] resultat = new int[taille];
+        int n = 0;
+        for (int i = 0; i < taille; i++) {
+            if (nouveaux.get(i) == nouveau) {
+                resultat[n++] = i;
+            }
+        }
+        return Arrays.copyOf(resultat, n);
+    }
+}
@@ -0,0 +1,78 @@
+package com.banque.eurobank.batch;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Apurement des cumuls journaliers périmés dans EB_CARTES.
+ *
+ * Les autorisations ignorent déjà un cumul d'un jour passé (date_cumul) :
+ * ce traitement ne fait qu'aligner la table pour les restitutions. Il avance
+ * par tranches d'identifiants, une courte transaction par tranche, et ne
+ * réécrit que les lignes dont le cumul est non nul ; une tranche en échec est
+ * journalisée et reprise au passage suivant.
+ *
+ * Les journées de EB_CUMULS_CARTES sorties de la fenêtre mensuelle sont purgées
+ * dans la même tranche.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ApurementCumulsCartesJob {
+
+    private static final String SQL_BORNES = "SELECT MIN(id), MAX(id) FROM EB_CARTES";
+
+    private static final String SQL_APUREMENT =
+            "UPDATE EB_CARTES SET cumul_paiement_jour = 0, cumul_retrait_jour = 0, date_cumul = ? " +
+            "WHERE id BETWEEN ? AND ? AND (date_cumul IS NULL OR date_cumul < ?) " +
+            "AND (cumul_paiement_jour <> 0 OR cumul_retrait_jour <> 0)";
+
+    private static final String SQL_PURGE_HISTORIQUE =
+            "DELETE FROM EB_CUMULS_CARTES WHERE carte_id BETWEEN ? AND ? AND jour < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.autorisations.taille-tranche-apurement:1000}")
+    private int tailleTranche;
+
+    @Scheduled(cron = "${app.autorisations.apurement-cron:0 15 1 * * *}")
+    public void apurer() {
+        long debut = System.currentTimeMillis();
+        Long[] bornes = jdbcTemplate.queryForObject(SQL_BORNES, (rs, i) -> new Long[]{
+                rs.getObject(1, Long.class), rs.getObject(2, Long.class)});
+        if (bornes[0] == null) {
+            return;
+        }
+        Date jour = Date.valueOf(LocalDate.now());
+        Date debutHistorique = Date.valueOf(
+                LocalDate.now().minusDays(ReconstructionCumulsCartesBatch.JOURS_HISTORIQUE - 1));
+
+        long apurees = 0;
+        long purgees = 0;
+        int echecs = 0;
+        for (PartitionIds tranche : ExecuteurPartitions.decouper(bornes[0], bornes[1], tailleTranche)) {
+            try {
+                apurees += jdbcTemplate.update(SQL_APUREMENT, jour, tranche.getDebut(), tranche.getFin(), jour);
+                purgees += jdbcTemplate.update(SQL_PURGE_HISTORIQUE, tranche.getDebut(), tranche.getFin(), debutHistorique);
+            } catch (RuntimeException e) {
+                echecs++;
+                log.error("Apurement des cumuls cartes - échec de la tranche {}: {}", tranche, e.getMessage());
+            }
+        }
+
+        if (echecs > 0) {
+            log.warn("Apurement des cumuls cartes: {} carte(s) apurée(s), {} journée(s) purgée(s), " +
+                    "{} tranche(s) en échec, en {} ms", apurees, purgees, echecs, System.currentTimeMillis() - debut);
+        } else {
+            log.info("Apurement des cumuls cartes: {} carte(s) apurée(s), {} journée(s) purgée(s) en {} ms",
+                    apurees, purgees, System.currentTimeMillis() - debut);
+        }
+    }
+}
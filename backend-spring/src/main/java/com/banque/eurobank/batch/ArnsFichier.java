@@ -0,0 +1,61 @@
+package com.banque.eurobank.batch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Ensemble des ARN vus dans un fichier de compensation, pour repérer avant le
+ * partitionnement les doublons internes au fichier.
+ *
+ * Un ARN de 23 chiffres est rangé exactement sous forme de 2 longs (11 et 12
+ * chiffres) dans une table à adressage ouvert : l'ajout depuis un enregistrement
+ * du fichier ne crée aucun objet. Un ARN non numérique, hors norme, est rangé
+ * dans un ensemble de chaînes.
+ */
+final class ArnsFichier {
+
+    private static final int CHIFFRES_HAUTS = 11;
+    /** Distingue une alvéole occupée d'une alvéole libre (partie haute < 10^11) */
+    private static final long OCCUPEE = 1L << 62;
+
+    private final long[] cles;
+    private final int masqueAlveoles;
+    private final Set<String> autres = new HashSet<>();
+
+    ArnsFichier(int capacite) {
+        int nombreAlveoles = Integer.highestOneBit(Math.max(16, capacite) * 2 - 1) << 1;
+        this.cles = new long[nombreAlveoles * 2];
+        this.masqueAlveoles = nombreAlveoles - 1;
+    }
+
+    /**
+     * Ajoute l'ARN (23 octets ASCII) commençant à l'offset donné du tampon
+     *
+     * @return faux s'il était déjà présent
+     */
+    boolean ajouter(ByteBuffer tampon, int offset) {
+        long haut = FichierCompensation.nombre(tampon, offset, CHIFFRES_HAUTS);
+        long bas = FichierCompensation.nombre(tampon, offset + CHIFFRES_HAUTS,
+                FichierCompensation.LONGUEUR_ARN - CHIFFRES_HAUTS);
+        if (haut < 0 || bas < 0) {
+            byte[] octets = new byte[FichierCompensation.LONGUEUR_ARN];
+            for (int i = 0; i < octets.length; i++) {
+                octets[i] = tampon.get(offset + i);
+            }
+            return autres.add(new String(octets, StandardCharsets.US_ASCII));
+        }
+        haut |= OCCUPEE;
+        int alveole = (int) (((haut * 31 + bas) * 0x9E3779B97F4A7C15L) >>> 32) & masqueAlveoles;
+        while (cles[2 * alveole] != 0) {
+            if (cles[2 * alveole] == haut && cles[2 * alveole + 1] == bas) {
+                return false;
+            }
+            alveole = (alveole + 1) & masqueAlveoles;
+        }
+        cles[2 * alveole] = haut;
+        cles[2 * alveole + 1] = bas;
+        return true;
+    }
+}
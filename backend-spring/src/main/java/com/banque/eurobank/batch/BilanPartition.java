@@ -0,0 +1,40 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.dto.BilanBatchDTO;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.stream.Collectors;
+
+/**
+ * Bilan d'une partition : nombre d'éléments traités et montant cumulé
+ */
+@Value
+public class BilanPartition {
+
+    public static final BilanPartition VIDE = new BilanPartition(0, BigDecimal.ZERO);
+
+    long nombre;
+    BigDecimal montant;
+
+    /**
+     * Consolide les bilans des partitions d'un traitement
+     */
+    public static BilanBatchDTO consolider(String traitement, LocalDate dateTraitement,
+                                           ResultatPartitions<BilanPartition> resultat, long debutMs) {
+        return BilanBatchDTO.builder()
+                .traitement(traitement)
+                .dateTraitement(dateTraitement)
+                .nombreElements(resultat.getResultats().stream().mapToLong(BilanPartition::getNombre).sum())
+                .montantTotal(resultat.getResultats().stream()
+                        .map(BilanPartition::getMontant)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add))
+                .partitionsTraitees(resultat.getResultats().size())
+                .partitionsEnEchec(resultat.getEchecs().stream()
+                        .map(PartitionIds::toString)
+                        .collect(Collectors.toList()))
+                .dureeMs(System.currentTimeMillis() - debutMs)
+                .build();
+    }
+}
@@ -0,0 +1,445 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.dto.RapportCompensationDTO;
+import com.banque.eurobank.entity.Compte;
+import com.banque.eurobank.entity.SuiviPartition;
+import com.banque.eurobank.entity.Transaction;
+import com.banque.eurobank.exception.OperationNonAutoriseeException;
+import com.banque.eurobank.exception.TechnicalException;
+import com.banque.eurobank.repository.SuiviPartitionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Intégration des fichiers de compensation carte des réseaux (PAIEMENT_CARTE, RETRAIT_DAB).
+ *
+ * Les cartes sont indexées en mémoire par numeroCarteHash, puis le fichier est
+ * projeté une première fois pour repérer les ARN répétés, et traité par partitions
+ * d'enregistrements en parallèle. Chaque partition, dans sa transaction :
+ * - rapproche ses enregistrements des cartes et écarte doublons (ARN déjà passé
+ *   ou déjà présent plus haut dans le fichier) et cartes inconnues ;
+ * - verrouille ses comptes (dans l'ordre des identifiants) et chaîne les soldes ;
+ * - insère les écritures en batch et applique une seule variation par compte ;
+ * - s'enregistre comme traitée : une relance du même fichier reprend là où elle s'est arrêtée.
+ *
+ * Un fichier entièrement intégré est déplacé dans le sous-répertoire des fichiers traités.
+ */
+@Component
+@Slf4j
+public class CompensationCartesBatch {
+
+    public static final String TRAITEMENT = "COMPENSATION_CARTES";
+
+    private static final String EXTENSION = ".clr";
+    private static final String REPERTOIRE_TRAITES = "traites";
+    private static final int TAILLE_LOT_IN = 500;
+
+    private static final String SQL_NOMBRE_CARTES = "SELECT COUNT(*) FROM EB_CARTES";
+
+    private static final String SQL_CARTES =
+            "SELECT id, numero_carte_hash, compte_id, numero_carte_masque FROM EB_CARTES";
+
+    private static final String SQL_COMPTES =
+            "SELECT id, client_id, solde, statut, agence_code FROM EB_COMPTES WHERE id IN (%s) ORDER BY id FOR UPDATE";
+
+    private static final String SQL_REFERENCES =
+            "SELECT reference FROM EB_TRANSACTIONS WHERE reference IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecuteurPartitions executeurPartitions;
+    private final EcrituresJdbc ecrituresJdbc;
+    private final SuiviPartitionRepository suiviPartitionRepository;
+    private final long taillePartition;
+    private final Path repertoire;
+
+    public CompensationCartesBatch(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   ExecuteurPartitions executeurPartitions,
+                                   EcrituresJdbc ecrituresJdbc,
+                                   SuiviPartitionRepository suiviPartitionRepository,
+                                   @Value("${app.compensation.taille-partition:20000}") long taillePartition,
+                                   @Value("${app.compensation.repertoire:compensation}") String repertoire) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executeurPartitions = executeurPartitions;
+        this.ecrituresJdbc = ecrituresJdbc;
+        this.suiviPartitionRepository = suiviPartitionRepository;
+        this.taillePartition = taillePartition;
+        this.repertoire = Paths.get(repertoire).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Intégration des fichiers déposés par les réseaux
+     */
+    @Scheduled(cron = "${app.compensation.cron:0 0 5 * * *}")
+    public void integrationQuotidienne() {
+        for (RapportCompensationDTO rapport : integrerRepertoire()) {
+            if (!rapport.getBilan().getPartitionsEnEchec().isEmpty()) {
+                log.error("Compensation {}: partitions à relancer {}", rapport.getFichier(),
+                        rapport.getBilan().getPartitionsEnEchec());
+            }
+        }
+    }
+
+    /**
+     * Intègre tous les fichiers en attente du répertoire de dépôt
+     */
+    public List<RapportCompensationDTO> integrerRepertoire() {
+        List<Path> fichiers = new ArrayList<>();
+        if (Files.isDirectory(repertoire)) {
+            try (DirectoryStream<Path> flux = Files.newDirectoryStream(repertoire, "*" + EXTENSION)) {
+                flux.forEach(fichiers::add);
+            } catch (IOException e) {
+                throw new TechnicalException("Lecture du répertoire de compensation impossible: " + repertoire, e);
+            }
+        }
+        if (fichiers.isEmpty()) {
+            return List.of();
+        }
+        fichiers.sort(null);
+
+        IndexCartes index = indexerCartes();
+        List<RapportCompensationDTO> rapports = new ArrayList<>();
+        for (Path fichier : fichiers) {
+            rapports.add(integrer(fichier, index));
+        }
+        return rapports;
+    }
+
+    /**
+     * Intègre (ou reprend) un fichier du répertoire de dépôt
+     */
+    public RapportCompensationDTO integrer(String nomFichier) {
+        Path fichier = repertoire.resolve(nomFichier).normalize();
+        if (!fichier.getParent().equals(repertoire)) {
+            throw new OperationNonAutoriseeException("Fichier hors du répertoire de compensation: " + nomFichier);
+        }
+        if (!Files.isRegularFile(fichier)) {
+            throw new TechnicalException("Fichier de compensation absent: " + nomFichier);
+        }
+        return integrer(fichier, indexerCartes());
+    }
+
+    private IndexCartes indexerCartes() {
+        long debut = System.currentTimeMillis();
+        // Estimation de la capacité : l'index s'agrandit pour les cartes créées entre-temps
+        Integer nombre = jdbcTemplate.queryForObject(SQL_NOMBRE_CARTES, Integer.class);
+        IndexCartes index = new IndexCartes(nombre != null ? nombre : 0);
+        int[] ignorees = {0};
+        jdbcTemplate.query(SQL_CARTES, rs -> {
+            if (!index.ajouter(rs.getString(2), rs.getLong(1), rs.getLong(3), rs.getString(4))) {
+                ignorees[0]++;
+            }
+        });
+        log.info("Index des cartes: {} carte(s), {} ignorée(s), en {} ms",
+                index.taille(), ignorees[0], System.currentTimeMillis() - debut);
+        return index;
+    }
+
+    private RapportCompensationDTO integrer(Path chemin, IndexCartes index) {
+        long debut = System.currentTimeMillis();
+        try (FichierCompensation fichier = FichierCompensation.ouvrir(chemin)) {
+            // Réseau (initiale), date et numéro de fichier : 15 caractères
+            String periode = fichier.getReseau().name().charAt(0)
+                    + fichier.getDateCompensation().format(DateTimeFormatter.BASIC_ISO_DATE) + fichier.getNumero();
+            BitSet doublons = doublonsFichier(fichier, index);
+            ResultatPartitions<ResultatCompensation> resultat = executeurPartitions.executer(
+                    "Compensation " + chemin.getFileName(), 0L, fichier.getNombreDetails() - 1, taillePartition,
+                    partition -> traiterPartition(fichier, periode, index, doublons, partition));
+
+            ResultatCompensation total = new ResultatCompensation();
+            List<BilanPartition> bilans = new ArrayList<>();
+            for (ResultatCompensation partition : resultat.getResultats()) {
+                total.ajouter(partition);
+                bilans.add(new BilanPartition(partition.passees, partition.montant));
+            }
+
+            if (resultat.isComplet()) {
+                Path traites = repertoire.resolve(REPERTOIRE_TRAITES);
+                Files.createDirectories(traites);
+                Files.move(chemin, traites.resolve(chemin.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            return RapportCompensationDTO.builder()
+                    .fichier(chemin.getFileName().toString())
+                    .reseau(fichier.getReseau())
+                    .dateCompensation(fichier.getDateCompensation())
+                    .enregistrements(fichier.getNombreDetails())
+                    .operationsPassees(total.passees)
+                    .cartesInconnues(total.cartesInconnues)
+                    .rejetsFormat(total.rejetsFormat)
+                    .doublons(total.doublons)
+                    .bilan(BilanPartition.consolider(TRAITEMENT, fichier.getDateCompensation(),
+                            new ResultatPartitions<>(bilans, resultat.getEchecs()), debut))
+                    .build();
+        } catch (IOException e) {
+            throw new TechnicalException("Lecture du fichier de compensation impossible: " + chemin, e);
+        }
+    }
+
+    /**
+     * Enregistrements à passer (conformes, carte connue) dont l'ARN figure plus haut
+     * dans le fichier : seule la première occurrence est passée. Sans ce repérage, deux
+     * partitions parallèles inséreraient la même référence et l'une échouerait en
+     * entier sur l'index unique de EB_TRANSACTIONS.
+     */
+    private BitSet doublonsFichier(FichierCompensation fichier, IndexCartes index) throws IOException {
+        int nombre = Math.toIntExact(fichier.getNombreDetails());
+        ArnsFichier arns = new ArnsFichier(nombre);
+        BitSet doublons = new BitSet(nombre);
+        for (long debut = 0; debut < nombre; debut += taillePartition) {
+            PartitionIds tranche = new PartitionIds(debut, Math.min(nombre, debut + taillePartition) - 1);
+            MappedByteBuffer tampon = fichier.projeter(tranche);
+            int taille = (int) (tranche.getFin() - debut + 1);
+            for (int i = 0; i < taille; i++) {
+                int base = i * FichierCompensation.TAILLE_ENREGISTREMENT;
+                if (conforme(tampon, base) && index.chercher(tampon, base + FichierCompensation.POS_HASH) >= 0
+                        && !arns.ajouter(tampon, base + FichierCompensation.POS_ARN)) {
+                    doublons.set((int) debut + i);
+                }
+            }
+        }
+        return doublons;
+    }
+
+    private ResultatCompensation traiterPartition(FichierCompensation fichier, String periode, IndexCartes index,
+                                                  BitSet doublons, PartitionIds partition) {
+        return transactionTemplate.execute(status -> {
+            if (suiviPartitionRepository.existsByTraitementAndPeriodeAndDebutId(
+                    TRAITEMENT, periode, partition.getDebut())) {
+                log.debug("Compensation {} - partition {} déjà traitée", periode, partition);
+                return new ResultatCompensation();
+            }
+
+            MappedByteBuffer tampon;
+            try {
+                tampon = fichier.projeter(partition);
+            } catch (IOException e) {
+                throw new TechnicalException("Projection du fichier de compensation impossible", e);
+            }
+
+            ResultatCompensation resultat = new ResultatCompensation();
+            int nombre = (int) (partition.getFin() - partition.getDebut() + 1);
+            int[] cartes = new int[nombre];
+            Set<Long> compteIds = new TreeSet<>();
+            for (int i = 0; i < nombre; i++) {
+                int base = i * FichierCompensation.TAILLE_ENREGISTREMENT;
+                cartes[i] = -1;
+                if (!conforme(tampon, base)) {
+                    resultat.rejetsFormat++;
+                    continue;
+                }
+                int carte = index.chercher(tampon, base + FichierCompensation.POS_HASH);
+                if (carte < 0) {
+                    resultat.cartesInconnues++;
+                    continue;
+                }
+                cartes[i] = carte;
+                compteIds.add(index.compteId(carte));
+            }
+            if (compteIds.isEmpty()) {
+                enregistrerPartition(periode, partition, 0);
+                return resultat;
+            }
+
+            char prefixe = fichier.getReseau().name().charAt(0);
+            String[] references = new String[nombre];
+            for (int i = 0; i < nombre; i++) {
+                if (cartes[i] >= 0) {
+                    references[i] = prefixe + FichierCompensation.texte(tampon,
+                            i * FichierCompensation.TAILLE_ENREGISTREMENT + FichierCompensation.POS_ARN,
+                            FichierCompensation.LONGUEUR_ARN);
+                }
+            }
+            Set<String> dejaPassees = referencesExistantes(references);
+            Map<Long, EtatCompte> comptes = verrouillerComptes(compteIds);
+
+            List<EcritureComptable> ecritures = new ArrayList<>();
+            for (int i = 0; i < nombre; i++) {
+                if (cartes[i] < 0) {
+                    continue;
+                }
+                if (doublons.get((int) partition.getDebut() + i) || !dejaPassees.add(references[i])) {
+                    resultat.doublons++;
+                    continue;
+                }
+                EtatCompte compte = comptes.get(index.compteId(cartes[i]));
+                ecritures.add(ecriture(tampon, i * FichierCompensation.TAILLE_ENREGISTREMENT,
+                        references[i], index.masque(cartes[i]), compte));
+                resultat.montant = resultat.montant.add(ecritures.get(ecritures.size() - 1).getMontant());
+            }
+
+            List<MouvementSolde> actifs = new ArrayList<>();
+            List<MouvementSolde> autres = new ArrayList<>();
+            for (EtatCompte compte : comptes.values()) {
+                // Un compte actif dont crédits et débits s'annulent garde son mouvement : ses flux sont comptés
+                if (compte.actif ? compte.ecritures > 0 : compte.delta.signum() != 0) {
+                    (compte.actif ? actifs : autres).add(new MouvementSolde(compte.id, compte.clientId, compte.agenceCode, compte.delta));
+                }
+            }
+            ecrituresJdbc.insererTransactions(ecritures);
+            ecrituresJdbc.appliquerMouvements(actifs, ecritures);
+            ecrituresJdbc.appliquerSoldes(autres);
+            enregistrerPartition(periode, partition, ecritures.size());
+
+            resultat.passees = ecritures.size();
+            return resultat;
+        });
+    }
+
+    static boolean conforme(ByteBuffer tampon, int base) {
+        byte type = tampon.get(base + FichierCompensation.POS_TYPE);
+        byte sens = tampon.get(base + FichierCompensation.POS_SENS);
+        return tampon.get(base) == 'D'
+                && (type == FichierCompensation.TYPE_PAIEMENT || type == FichierCompensation.TYPE_RETRAIT)
+                && (sens == 'D' || sens == FichierCompensation.SENS_CREDIT)
+                && FichierCompensation.nombre(tampon, base + FichierCompensation.POS_MONTANT, 12) > 0
+                && FichierCompensation.date(tampon, base + FichierCompensation.POS_DATE) != null;
+    }
+
+    private static EcritureComptable ecriture(MappedByteBuffer tampon, int base, String reference,
+                                              String masque, EtatCompte compte) {
+        boolean retrait = tampon.get(base + FichierCompensation.POS_TYPE) == FichierCompensation.TYPE_RETRAIT;
+        boolean credit = tampon.get(base + FichierCompensation.POS_SENS) == FichierCompensation.SENS_CREDIT;
+        BigDecimal montant = BigDecimal.valueOf(
+                FichierCompensation.nombre(tampon, base + FichierCompensation.POS_MONTANT, 12), 2);
+        LocalDate dateOperation = FichierCompensation.date(tampon, base + FichierCompensation.POS_DATE);
+        String commercant = FichierCompensation.texte(tampon, base + FichierCompensation.POS_COMMERCANT,
+                FichierCompensation.LONGUEUR_COMMERCANT);
+
+        BigDecimal soldeAvant = compte.solde;
+        BigDecimal delta = credit ? montant : montant.negate();
+        compte.solde = compte.solde.add(delta);
+        compte.delta = compte.delta.add(delta);
+        compte.ecritures++;
+
+        String libelle = retrait ? "RETRAIT DAB" : "PAIEMENT CARTE";
+        return EcritureComptable.builder()
+                .compteId(compte.id)
+                .reference(reference)
+                .typeOperation(retrait ? Transaction.TypeOperation.RETRAIT_DAB : Transaction.TypeOperation.PAIEMENT_CARTE)
+                .sens(credit ? Transaction.SensOperation.CREDIT : Transaction.SensOperation.DEBIT)
+                .montant(montant)
+                .libelle(commercant != null ? libelle + " " + commercant : libelle)
+                .dateOperation(dateOperation)
+                .soldeAvant(soldeAvant)
+                .soldeApres(compte.solde)
+                .numeroCarteMasque(masque)
+                .nomCommercant(commercant)
+                .mccCode(FichierCompensation.texte(tampon, base + FichierCompensation.POS_MCC, 4))
+                .paysOperation(FichierCompensation.texte(tampon, base + FichierCompensation.POS_PAYS, 3))
+                .build();
+    }
+
+    /**
+     * Références déjà présentes dans EB_TRANSACTIONS (fichier rejoué ou ARN déjà reçu)
+     */
+    private Set<String> referencesExistantes(String[] references) {
+        List<String> aControler = new ArrayList<>();
+        for (String reference : references) {
+            if (reference != null) {
+                aControler.add(reference);
+            }
+        }
+        Set<String> existantes = new HashSet<>();
+        for (int debut = 0; debut < aControler.size(); debut += TAILLE_LOT_IN) {
+            List<String> lot = aControler.subList(debut, Math.min(aControler.size(), debut + TAILLE_LOT_IN));
+            jdbcTemplate.query(String.format(SQL_REFERENCES, marqueurs(lot.size())),
+                    rs -> {
+                        existantes.add(rs.getString(1));
+                    }, lot.toArray());
+        }
+        return existantes;
+    }
+
+    /**
+     * Verrouille les comptes de la partition dans l'ordre des identifiants
+     * (pas d'interblocage entre partitions parallèles)
+     */
+    private Map<Long, EtatCompte> verrouillerComptes(Set<Long> compteIds) {
+        List<Long> ids = new ArrayList<>(compteIds);
+        Map<Long, EtatCompte> comptes = new LinkedHashMap<>();
+        for (int debut = 0; debut < ids.size(); debut += TAILLE_LOT_IN) {
+            List<Long> lot = ids.subList(debut, Math.min(ids.size(), debut + TAILLE_LOT_IN));
+            jdbcTemplate.query(String.format(SQL_COMPTES, marqueurs(lot.size())), rs -> {
+                comptes.put(rs.getLong(1), new EtatCompte(rs.getLong(1), rs.getLong(2), rs.getString(5),
+                        rs.getBigDecimal(3), Compte.StatutCompte.ACTIF.name().equals(rs.getString(4))));
+            }, lot.toArray());
+        }
+        return comptes;
+    }
+
+    private void enregistrerPartition(String periode, PartitionIds partition, long nombre) {
+        suiviPartitionRepository.save(SuiviPartition.builder()
+                .traitement(TRAITEMENT)
+                .periode(periode)
+                .debutId(partition.getDebut())
+                .finId(partition.getFin())
+                .nombreElements(nombre)
+                .build());
+    }
+
+    private static String marqueurs(int nombre) {
+        return String.join(", ", Collections.nCopies(nombre, "?"));
+    }
+
+    /**
+     * Compte verrouillé : solde courant chaîné, variation cumulée et nombre
+     * d'écritures de la partition
+     */
+    private static final class EtatCompte {
+        private final long id;
+        private final long clientId;
+        private final String agenceCode;
+        private final boolean actif;
+        private BigDecimal solde;
+        private BigDecimal delta = BigDecimal.ZERO;
+        private int ecritures;
+
+        private EtatCompte(long id, long clientId, String agenceCode, BigDecimal solde, boolean actif) {
+            this.id = id;
+            this.clientId = clientId;
+            this.agenceCode = agenceCode;
+            this.solde = solde;
+            this.actif = actif;
+        }
+    }
+
+    /**
+     * Résultat d'une partition
+     */
+    private static final class ResultatCompensation {
+        private long passees;
+        private long cartesInconnues;
+        private long rejetsFormat;
+        private long doublons;
+        private BigDecimal montant = BigDecimal.ZERO;
+
+        void ajouter(ResultatCompensation autre) {
+            passees += autre.passees;
+            cartesInconnues += autre.cartesInconnues;
+            rejetsFormat += autre.rejetsFormat;
+            doublons += autre.doublons;
+            montant = montant.add(autre.montant);
+        }
+    }
+}
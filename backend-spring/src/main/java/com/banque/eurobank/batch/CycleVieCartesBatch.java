@@ -0,0 +1,390 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.autorisation.EmpreinteCode;
+import com.banque.eurobank.batch.FichierFabricationCartes.CarteFabrication;
+import com.banque.eurobank.dto.RapportCycleVieCartesDTO;
+import com.banque.eurobank.entity.Carte;
+import com.banque.eurobank.entity.SuiviPartition;
+import com.banque.eurobank.exception.TechnicalException;
+import com.banque.eurobank.repository.SuiviPartitionRepository;
+import com.banque.eurobank.service.NumerotationService;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cycle de vie des cartes : expiration, renouvellement et fichier de fabrication.
+ *
+ * Les cartes sont parcourues par partitions d'identifiants traitées en parallèle.
+ * Chaque partition, dans sa transaction :
+ * - crée en EN_FABRICATION (insertion JDBC batch) le remplaçant des cartes actives
+ *   arrivant à échéance ou déjà échues (jours sans traitement), avec un nouveau
+ *   numéro, un nouveau code confidentiel et les mêmes plafonds et options ;
+ * - passe ensuite en EXPIREE les cartes dont la date d'expiration est dépassée ;
+ * - écrit son fragment du fichier de fabrication et s'enregistre comme traitée.
+ *
+ * Une relance ignore les partitions déjà passées ; le fichier de fabrication est
+ * assemblé dès que toutes les partitions du jour sont passées, y compris par une
+ * relance.
+ */
+@Component
+@Slf4j
+public class CycleVieCartesBatch {
+
+    public static final String TRAITEMENT = "CYCLE_VIE_CARTES";
+
+    private static final String SQL_BORNES_CARTES = "SELECT MIN(id), MAX(id) FROM EB_CARTES";
+
+    private static final String SQL_EXPIRATION =
+            "UPDATE EB_CARTES SET statut = 'EXPIREE', date_modification = ? " +
+            "WHERE id BETWEEN ? AND ? AND statut IN ('ACTIVE', 'INACTIVE', 'BLOQUEE') AND date_expiration < ?";
+
+    private static final String SQL_A_RENOUVELER =
+            "SELECT c.id, c.titulaire, c.type_carte, c.reseau, c.date_expiration, " +
+            "c.plafond_paiement_jour, c.plafond_paiement_mois, c.plafond_retrait_jour, c.plafond_retrait_semaine, " +
+            "c.paiement_etranger_actif, c.retrait_etranger_actif, c.paiement_internet_actif, " +
+            "c.sans_contact_actif, c.debit_differe, c.compte_id " +
+            "FROM EB_CARTES c JOIN EB_COMPTES co ON co.id = c.compte_id " +
+            "WHERE c.id BETWEEN ? AND ? AND c.statut = 'ACTIVE' AND c.date_expiration <= ? " +
+            "AND co.statut = 'ACTIF' " +
+            "AND NOT EXISTS (SELECT 1 FROM EB_CARTES r WHERE r.carte_precedente_id = c.id) " +
+            "ORDER BY c.id FOR UPDATE";
+
+    private static final String SQL_IDS_CREES =
+            "SELECT carte_precedente_id, id FROM EB_CARTES " +
+            "WHERE carte_precedente_id BETWEEN ? AND ? AND statut = 'EN_FABRICATION'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecuteurPartitions executeurPartitions;
+    private final SuiviPartitionRepository suiviPartitionRepository;
+    private final NumerotationService numerotationService;
+    private final EmpreinteCode empreinteCode;
+    private final String sqlCreationCarte;
+    private final long taillePartition;
+    private final int delaiRenouvellementJours;
+    private final int dureeValiditeAns;
+    private final Path repertoireFabrication;
+    private final Map<Carte.ReseauCarte, String> bins = new EnumMap<>(Carte.ReseauCarte.class);
+
+    public CycleVieCartesBatch(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               EntityManagerFactory entityManagerFactory,
+                               ExecuteurPartitions executeurPartitions,
+                               SuiviPartitionRepository suiviPartitionRepository,
+                               NumerotationService numerotationService,
+                               EmpreinteCode empreinteCode,
+                               @Value("${app.cartes.taille-partition:5000}") long taillePartition,
+                               @Value("${app.cartes.delai-renouvellement-jours:45}") int delaiRenouvellementJours,
+                               @Value("${app.cartes.duree-validite-ans:3}") int dureeValiditeAns,
+                               @Value("${app.cartes.repertoire-fabrication:fabrication}") String repertoireFabrication,
+                               @Value("${app.cartes.bin-visa:497010}") String binVisa,
+                               @Value("${app.cartes.bin-mastercard:513100}") String binMastercard,
+                               @Value("${app.cartes.bin-cb:497011}") String binCb) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executeurPartitions = executeurPartitions;
+        this.suiviPartitionRepository = suiviPartitionRepository;
+        this.numerotationService = numerotationService;
+        this.empreinteCode = empreinteCode;
+        this.taillePartition = taillePartition;
+        this.delaiRenouvellementJours = delaiRenouvellementJours;
+        this.dureeValiditeAns = dureeValiditeAns;
+        this.repertoireFabrication = Paths.get(repertoireFabrication);
+        this.bins.put(Carte.ReseauCarte.VISA, binVisa);
+        this.bins.put(Carte.ReseauCarte.MASTERCARD, binMastercard);
+        this.bins.put(Carte.ReseauCarte.CB, binCb);
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect();
+        this.sqlCreationCarte =
+                "INSERT INTO EB_CARTES (id, numero_carte_masque, numero_carte_hash, titulaire, type_carte, reseau, " +
+                "date_expiration, date_emission, statut, plafond_paiement_jour, plafond_paiement_mois, " +
+                "plafond_retrait_jour, plafond_retrait_semaine, cumul_paiement_jour, cumul_retrait_jour, " +
+                "paiement_etranger_actif, retrait_etranger_actif, paiement_internet_actif, sans_contact_actif, " +
+                "debit_differe, code_pin_hash, tentatives_pin_erronees, opposition, compte_id, carte_precedente_id, " +
+                "date_creation, date_modification) VALUES (" +
+                dialect.getSelectSequenceNextValString("EB_SEQ_CARTE") +
+                ", ?, ?, ?, ?, ?, ?, ?, 'EN_FABRICATION', ?, ?, ?, ?, 0, 0, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?, ?, ?)";
+    }
+
+    /**
+     * Traitement quotidien
+     */
+    @Scheduled(cron = "${app.cartes.cron:0 30 0 * * *}")
+    public void traitementQuotidien() {
+        RapportCycleVieCartesDTO rapport = executer(LocalDate.now());
+        if (!rapport.getBilan().getPartitionsEnEchec().isEmpty()) {
+            log.error("Cycle de vie des cartes du {}: partitions à relancer {}", rapport.getDateTraitement(),
+                    rapport.getBilan().getPartitionsEnEchec());
+        }
+    }
+
+    /**
+     * Expire, renouvelle et produit le fichier de fabrication pour le jour donné
+     */
+    public RapportCycleVieCartesDTO executer(LocalDate jour) {
+        long debut = System.currentTimeMillis();
+        Path repertoireFragments = repertoireFabrication.resolve(
+                "FAB_" + jour.format(DateTimeFormatter.BASIC_ISO_DATE) + ".parts");
+        Long[] bornes = jdbcTemplate.queryForObject(SQL_BORNES_CARTES, (rs, i) -> new Long[]{
+                rs.getObject(1, Long.class), rs.getObject(2, Long.class)});
+
+        ResultatPartitions<ResultatCycleVie> resultat = executeurPartitions.executer(
+                "Cycle de vie des cartes du " + jour, bornes[0], bornes[1], taillePartition,
+                partition -> traiterPartition(partition, jour, repertoireFragments));
+
+        long expirees = 0;
+        long renouvelees = 0;
+        List<BilanPartition> bilans = new ArrayList<>();
+        for (ResultatCycleVie cycleVie : resultat.getResultats()) {
+            expirees += cycleVie.expirees;
+            renouvelees += cycleVie.renouvelees;
+            bilans.add(new BilanPartition(cycleVie.expirees + cycleVie.renouvelees, BigDecimal.ZERO));
+        }
+
+        String fichier = null;
+        if (resultat.isComplet()) {
+            fichier = assemblerFichier(repertoireFragments, jour);
+        } else {
+            log.warn("Cycle de vie des cartes du {}: fichier de fabrication différé jusqu'à la relance", jour);
+        }
+
+        return RapportCycleVieCartesDTO.builder()
+                .dateTraitement(jour)
+                .cartesExpirees(expirees)
+                .cartesRenouvelees(renouvelees)
+                .fichierFabrication(fichier)
+                .bilan(BilanPartition.consolider(TRAITEMENT, jour,
+                        new ResultatPartitions<>(bilans, resultat.getEchecs()), debut))
+                .build();
+    }
+
+    private ResultatCycleVie traiterPartition(PartitionIds partition, LocalDate jour, Path repertoireFragments) {
+        Path fragment = FichierFabricationCartes.fragment(repertoireFragments, partition);
+        Path temporaire = FichierFabricationCartes.temporaire(fragment);
+
+        ResultatCycleVie resultat = transactionTemplate.execute(status -> {
+            if (suiviPartitionRepository.existsByTraitementAndPeriodeAndDebutId(
+                    TRAITEMENT, jour.toString(), partition.getDebut())) {
+                log.debug("Cycle de vie des cartes {} - partition {} déjà traitée", jour, partition);
+                return new ResultatCycleVie();
+            }
+
+            // Fragment d'une tentative annulée : il ne doit pas être validé avec celle-ci
+            supprimer(temporaire);
+
+            // Renouvellement avant l'expiration : une carte échue un jour sans traitement est encore active
+            ResultatCycleVie cycleVie = new ResultatCycleVie();
+            List<Renouvellement> renouvellements = jdbcTemplate.query(SQL_A_RENOUVELER,
+                    (rs, i) -> renouvellement(rs, jour),
+                    partition.getDebut(), partition.getFin(), Date.valueOf(jour.plusDays(delaiRenouvellementJours)));
+            if (!renouvellements.isEmpty()) {
+                creerCartes(renouvellements, jour);
+                ecrireFragment(temporaire, renouvellements, partition);
+                cycleVie.renouvelees = renouvellements.size();
+            }
+
+            cycleVie.expirees = jdbcTemplate.update(SQL_EXPIRATION, Timestamp.valueOf(LocalDateTime.now()),
+                    partition.getDebut(), partition.getFin(), Date.valueOf(jour));
+
+            suiviPartitionRepository.save(SuiviPartition.builder()
+                    .traitement(TRAITEMENT)
+                    .periode(jour.toString())
+                    .debutId(partition.getDebut())
+                    .finId(partition.getFin())
+                    .nombreElements(cycleVie.expirees + cycleVie.renouvelees)
+                    .build());
+            return cycleVie;
+        });
+
+        // Fragment écrit par cette exécution, ou laissé par une exécution interrompue après validation
+        if (Files.exists(temporaire)) {
+            try {
+                Files.move(temporaire, fragment, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new TechnicalException("Fragment de fabrication non validé: " + fragment, e);
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Remplaçant d'une carte : validité comptée depuis l'échéance de la carte, ou
+     * depuis le jour de traitement si elle est déjà échue
+     */
+    private Renouvellement renouvellement(ResultSet rs, LocalDate jour) throws SQLException {
+        Carte.ReseauCarte reseau = Carte.ReseauCarte.valueOf(rs.getString(4));
+        String pan = numerotationService.prochainNumeroCarte(bins.get(reseau));
+        LocalDate echeance = rs.getDate(5).toLocalDate();
+        LocalDate expiration = YearMonth.from(echeance.isBefore(jour) ? jour : echeance)
+                .plusYears(dureeValiditeAns).atEndOfMonth();
+        return new Renouvellement(rs.getLong(1), pan, empreinteCode.nouveauCode(), expiration, rs.getString(2), rs.getString(3), reseau,
+                new BigDecimal[]{rs.getBigDecimal(6), rs.getBigDecimal(7), rs.getBigDecimal(8), rs.getBigDecimal(9)},
+                new Boolean[]{(Boolean) rs.getObject(10), (Boolean) rs.getObject(11), (Boolean) rs.getObject(12),
+                        (Boolean) rs.getObject(13), (Boolean) rs.getObject(14)},
+                rs.getLong(15));
+    }
+
+    private void creerCartes(List<Renouvellement> renouvellements, LocalDate jour) {
+        Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+        Date dateEmission = Date.valueOf(jour);
+        jdbcTemplate.batchUpdate(sqlCreationCarte, renouvellements, renouvellements.size(), (ps, r) -> {
+            String numeroCarteHash = sha256(r.pan);
+            ps.setString(1, "XXXX XXXX XXXX " + r.pan.substring(r.pan.length() - 4));
+            ps.setString(2, numeroCarteHash);
+            ps.setString(3, r.titulaire);
+            ps.setString(4, r.typeCarte);
+            ps.setString(5, r.reseau.name());
+            ps.setDate(6, Date.valueOf(r.expiration));
+            ps.setDate(7, dateEmission);
+            for (int i = 0; i < r.plafonds.length; i++) {
+                ps.setBigDecimal(8 + i, r.plafonds[i]);
+            }
+            for (int i = 0; i < r.options.length; i++) {
+                setBoolean(ps, 12 + i, r.options[i]);
+            }
+            ps.setString(17, empreinteCode.hexadecimal(numeroCarteHash, r.code));
+            ps.setBoolean(18, false);
+            ps.setLong(19, r.compteId);
+            ps.setLong(20, r.carteId);
+            ps.setTimestamp(21, maintenant);
+            ps.setTimestamp(22, maintenant);
+        });
+    }
+
+    private void ecrireFragment(Path temporaire, List<Renouvellement> renouvellements, PartitionIds partition) {
+        Map<Long, Long> idsCrees = new HashMap<>();
+        jdbcTemplate.query(SQL_IDS_CREES, rs -> {
+            idsCrees.put(rs.getLong(1), rs.getLong(2));
+        }, partition.getDebut(), partition.getFin());
+
+        List<CarteFabrication> cartes = new ArrayList<>(renouvellements.size());
+        for (Renouvellement r : renouvellements) {
+            cartes.add(new CarteFabrication(idsCrees.get(r.carteId), r.pan, r.code, r.expiration, r.titulaire,
+                    r.reseau.name(), r.typeCarte, r.compteId));
+        }
+        try {
+            FichierFabricationCartes.ecrireFragment(temporaire, cartes);
+        } catch (IOException e) {
+            // La partition est annulée : aucune carte créée sans son enregistrement de fabrication
+            throw new TechnicalException("Écriture du fragment de fabrication impossible: " + temporaire, e);
+        }
+    }
+
+    private static void supprimer(Path temporaire) {
+        try {
+            Files.deleteIfExists(temporaire);
+        } catch (IOException e) {
+            throw new TechnicalException("Suppression du fragment de fabrication impossible: " + temporaire, e);
+        }
+    }
+
+    private String assemblerFichier(Path repertoireFragments, LocalDate jour) {
+        try {
+            if (!FichierFabricationCartes.contientFragments(repertoireFragments)) {
+                return null;
+            }
+            Path cible = repertoireFabrication.resolve("FAB_" + jour.format(DateTimeFormatter.BASIC_ISO_DATE) + "_"
+                    + LocalDateTime.now().format(DateTimeFormatter.ofPattern("HHmmss")) + ".dat");
+            long nombre = FichierFabricationCartes.assembler(repertoireFragments, cible, jour);
+            log.info("Fichier de fabrication {} produit: {} carte(s)", cible, nombre);
+            return cible.toString();
+        } catch (IOException e) {
+            // Les fragments sont conservés : le fichier sera assemblé à la relance
+            log.error("Assemblage du fichier de fabrication du {} impossible: {}", jour, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private static void setBoolean(PreparedStatement ps, int index, Boolean valeur) throws SQLException {
+        if (valeur != null) {
+            ps.setBoolean(index, valeur);
+        } else {
+            ps.setNull(index, Types.BOOLEAN);
+        }
+    }
+
+    private static String sha256(String pan) {
+        try {
+            byte[] empreinte = MessageDigest.getInstance("SHA-256").digest(pan.getBytes(StandardCharsets.US_ASCII));
+            StringBuilder hex = new StringBuilder(empreinte.length * 2);
+            for (byte b : empreinte) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new TechnicalException("SHA-256 indisponible", e);
+        }
+    }
+
+    /**
+     * Carte remplaçante à créer, paramétrée comme la carte renouvelée
+     */
+    private static final class Renouvellement {
+        private final long carteId;
+        private final String pan;
+        private final String code;
+        private final LocalDate expiration;
+        private final String titulaire;
+        private final String typeCarte;
+        private final Carte.ReseauCarte reseau;
+        private final BigDecimal[] plafonds;
+        private final Boolean[] options;
+        private final long compteId;
+
+        private Renouvellement(long carteId, String pan, String code, LocalDate expiration, String titulaire,
+                               String typeCarte, Carte.ReseauCarte reseau, BigDecimal[] plafonds, Boolean[] options,
+                               long compteId) {
+            this.carteId = carteId;
+            this.pan = pan;
+            this.code = code;
+            this.expiration = expiration;
+            this.titulaire = titulaire;
+            this.typeCarte = typeCarte;
+            this.reseau = reseau;
+            this.plafonds = plafonds;
+            this.options = options;
+            this.compteId = compteId;
+        }
+    }
+
+    /**
+     * Résultat d'une partition
+     */
+    private static final class ResultatCycleVie {
+        private long expirees;
+        private long renouvelees;
+    }
+}
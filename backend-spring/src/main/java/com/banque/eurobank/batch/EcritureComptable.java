@@ -0,0 +1,32 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.entity.Transaction;
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Écriture à insérer dans EB_TRANSACTIONS par les traitements de masse
+ */
+@Value
+@Builder
+public class EcritureComptable {
+    Long compteId;
+    String reference;
+    Transaction.TypeOperation typeOperation;
+    Transaction.SensOperation sens;
+    BigDecimal montant;
+    String libelle;
+    String libelleComplement;
+    LocalDate dateOperation;
+    LocalDate dateValeur;
+    BigDecimal soldeAvant;
+    BigDecimal soldeApres;
+    // Informations carte (optionnelles)
+    String numeroCarteMasque;
+    String nomCommercant;
+    String mccCode;
+    String paysOperation;
+}
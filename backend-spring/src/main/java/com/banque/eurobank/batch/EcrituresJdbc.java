@@ -0,0 +1,134 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.statistiques.StatistiquesAgences;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Écritures de masse en JDBC batch : insertion des transactions et
+ * application ensembliste des variations de solde.
+ *
+ * Doit être appelé dans la transaction de la partition appelante.
+ */
+@Component
+public class EcrituresJdbc {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StatistiquesAgences statistiquesAgences;
+    private final String sqlInsertionTransaction;
+
+    private static final String SQL_MAJ_SOLDE =
+            "UPDATE EB_COMPTES SET solde = solde + ?, solde_disponible = solde_disponible + ?, " +
+            "date_modification = ? WHERE id = ?";
+
+    private static final String SQL_MAJ_SOLDE_CLIENT =
+            "UPDATE EB_SOLDES_CLIENTS SET solde_global = solde_global + ?, date_modification = ? " +
+            "WHERE client_id = ?";
+
+    public EcrituresJdbc(JdbcTemplate jdbcTemplate, StatistiquesAgences statistiquesAgences,
+                         EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.statistiquesAgences = statistiquesAgences;
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect();
+        this.sqlInsertionTransaction =
+                "INSERT INTO EB_TRANSACTIONS (id, reference, type_operation, montant, devise, sens, " +
+                "libelle, libelle_complement, date_operation, date_valeur, date_comptable, " +
+                "numero_carte_masque, nom_commercant, mcc_code, pays_operation, " +
+                "solde_avant, solde_apres, statut, compte_id, date_creation) VALUES (" +
+                dialect.getSelectSequenceNextValString("EB_SEQ_TRANSACTION") +
+                ", ?, ?, ?, 'EUR', ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'EXECUTEE', ?, ?)";
+    }
+
+    /**
+     * Insère les écritures en un seul batch JDBC
+     */
+    public void insererTransactions(List<EcritureComptable> ecritures) {
+        if (ecritures.isEmpty()) {
+            return;
+        }
+        Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+        Date dateComptable = Date.valueOf(LocalDate.now());
+        jdbcTemplate.batchUpdate(sqlInsertionTransaction, ecritures, ecritures.size(), (ps, e) -> {
+            ps.setString(1, e.getReference());
+            ps.setString(2, e.getTypeOperation().name());
+            ps.setBigDecimal(3, e.getMontant());
+            ps.setString(4, e.getSens().name());
+            ps.setString(5, e.getLibelle());
+            ps.setString(6, e.getLibelleComplement());
+            ps.setDate(7, Date.valueOf(e.getDateOperation()));
+            ps.setDate(8, Date.valueOf(e.getDateValeur() != null ? e.getDateValeur() : e.getDateOperation()));
+            ps.setDate(9, dateComptable);
+            ps.setString(10, e.getNumeroCarteMasque());
+            ps.setString(11, e.getNomCommercant());
+            ps.setString(12, e.getMccCode());
+            ps.setString(13, e.getPaysOperation());
+            if (e.getSoldeAvant() != null) {
+                ps.setBigDecimal(14, e.getSoldeAvant());
+                ps.setBigDecimal(15, e.getSoldeApres());
+            } else {
+                ps.setNull(14, Types.DECIMAL);
+                ps.setNull(15, Types.DECIMAL);
+            }
+            ps.setLong(16, e.getCompteId());
+            ps.setTimestamp(17, maintenant);
+        });
+    }
+
+    /**
+     * Applique les variations de solde (une requête ensembliste par compte, en batch)
+     * puis les variations cumulées par client sur EB_SOLDES_CLIENTS et par agence
+     * sur les statistiques des agences, dont les flux reprennent les écritures
+     * insérées pour ces comptes
+     */
+    public void appliquerMouvements(List<MouvementSolde> mouvements, List<EcritureComptable> ecritures) {
+        if (mouvements.isEmpty()) {
+            return;
+        }
+        appliquerSoldes(mouvements);
+
+        Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+        Map<Long, BigDecimal> parClient = new LinkedHashMap<>();
+        for (MouvementSolde m : mouvements) {
+            parClient.merge(m.getClientId(), m.getDelta(), BigDecimal::add);
+        }
+        List<Map.Entry<Long, BigDecimal>> deltasClients = new ArrayList<>(parClient.entrySet());
+        jdbcTemplate.batchUpdate(SQL_MAJ_SOLDE_CLIENT, deltasClients, deltasClients.size(), (ps, d) -> {
+            ps.setBigDecimal(1, d.getValue());
+            ps.setTimestamp(2, maintenant);
+            ps.setLong(3, d.getKey());
+        });
+        statistiquesAgences.mouvements(mouvements, ecritures);
+    }
+
+    /**
+     * Applique les variations de solde sans toucher à l'agrégat client
+     * (comptes non actifs, exclus du solde global)
+     */
+    public void appliquerSoldes(List<MouvementSolde> mouvements) {
+        if (mouvements.isEmpty()) {
+            return;
+        }
+        Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(SQL_MAJ_SOLDE, mouvements, mouvements.size(), (ps, m) -> {
+            ps.setBigDecimal(1, m.getDelta());
+            ps.setBigDecimal(2, m.getDelta());
+            ps.setTimestamp(3, maintenant);
+            ps.setLong(4, m.getCompteId());
+        });
+    }
+}
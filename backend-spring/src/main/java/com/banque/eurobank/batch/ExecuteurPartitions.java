@@ -0,0 +1,88 @@
+package com.banque.eurobank.batch;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * Exécute un traitement sur des plages d'identifiants en parallèle.
+ *
+ * Chaque partition est indépendante (sa propre transaction côté traitement) :
+ * l'échec d'une partition n'interrompt pas les autres et la partition est
+ * simplement rapportée pour relance.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExecuteurPartitions {
+
+    private final ForkJoinPool batchForkJoinPool;
+
+    /**
+     * Découpe [minId, maxId] en plages de taille fixe
+     */
+    public static List<PartitionIds> decouper(long minId, long maxId, long taille) {
+        List<PartitionIds> partitions = new ArrayList<>();
+        for (long debut = minId; debut <= maxId; debut += taille) {
+            partitions.add(new PartitionIds(debut, Math.min(maxId, debut + taille - 1)));
+        }
+        return partitions;
+    }
+
+    /**
+     * Découpe [minId, maxId] sur une grille fixe : chaque partition commence à un
+     * multiple de la taille, quelles que soient les bornes, et garde donc le même
+     * début (clé de reprise) d'une exécution à l'autre
+     */
+    public static List<PartitionIds> decouperGrille(long minId, long maxId, long taille) {
+        List<PartitionIds> partitions = new ArrayList<>();
+        for (long debut = Math.floorDiv(minId, taille) * taille; debut <= maxId; debut += taille) {
+            partitions.add(new PartitionIds(debut, Math.min(maxId, debut + taille - 1)));
+        }
+        return partitions;
+    }
+
+    /**
+     * Exécute le traitement sur chaque partition de [minId, maxId]
+     */
+    public <R> ResultatPartitions<R> executer(String nomTraitement, Long minId, Long maxId, long taille,
+                                              Function<PartitionIds, R> traitement) {
+        if (minId == null || maxId == null) {
+            return new ResultatPartitions<>(List.of(), List.of());
+        }
+        return executer(nomTraitement, decouper(minId, maxId, taille), traitement);
+    }
+
+    /**
+     * Exécute le traitement sur les partitions données
+     */
+    public <R> ResultatPartitions<R> executer(String nomTraitement, List<PartitionIds> partitions,
+                                              Function<PartitionIds, R> traitement) {
+        long debut = System.currentTimeMillis();
+        List<ForkJoinTask<R>> taches = new ArrayList<>(partitions.size());
+        for (PartitionIds partition : partitions) {
+            taches.add(batchForkJoinPool.submit(() -> traitement.apply(partition)));
+        }
+
+        List<R> resultats = new ArrayList<>(partitions.size());
+        List<PartitionIds> echecs = new ArrayList<>();
+        for (int i = 0; i < taches.size(); i++) {
+            try {
+                resultats.add(taches.get(i).join());
+            } catch (RuntimeException e) {
+                echecs.add(partitions.get(i));
+                log.error("{} - échec de la partition {}: {}", nomTraitement, partitions.get(i), e.getMessage(), e);
+            }
+        }
+
+        log.info("{} - {} partition(s) traitée(s), {} en échec, en {} ms",
+                nomTraitement, resultats.size(), echecs.size(), System.currentTimeMillis() - debut);
+        return new ResultatPartitions<>(resultats, echecs);
+    }
+}
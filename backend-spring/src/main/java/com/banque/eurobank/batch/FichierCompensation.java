@@ -0,0 +1,182 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.entity.Carte;
+import com.banque.eurobank.exception.TechnicalException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Fichier de compensation carte d'un réseau (VISA, MASTERCARD, CB), en enregistrements
+ * de largeur fixe ASCII de 150 octets terminés par un saut de ligne :
+ * - en-tête : "H", réseau (10), date de compensation yyyyMMdd (8), numéro de fichier (6) ;
+ * - détail  : "D", ARN (23), numeroCarteHash (64), type P (paiement) / R (retrait),
+ *   sens D / C, montant en centimes (12), date d'opération yyyyMMdd (8), MCC (4),
+ *   pays (3), commerçant (25) ;
+ * - fin     : "T", nombre d'enregistrements de détail (12).
+ *
+ * Le fichier est projeté en mémoire par tranches : les champs sont lus directement
+ * dans le tampon, sans créer de chaîne, seules les opérations à passer en créent.
+ */
+final class FichierCompensation implements Closeable {
+
+    static final int TAILLE_ENREGISTREMENT = 150;
+
+    static final int POS_ARN = 1;
+    static final int LONGUEUR_ARN = 23;
+    static final int POS_HASH = 24;
+    static final int POS_TYPE = 88;
+    static final int POS_SENS = 89;
+    static final int POS_MONTANT = 90;
+    static final int POS_DATE = 102;
+    static final int POS_MCC = 110;
+    static final int POS_PAYS = 114;
+    static final int POS_COMMERCANT = 117;
+    static final int LONGUEUR_COMMERCANT = 25;
+
+    static final byte TYPE_PAIEMENT = 'P';
+    static final byte TYPE_RETRAIT = 'R';
+    static final byte SENS_CREDIT = 'C';
+
+    private final FileChannel canal;
+    private final Carte.ReseauCarte reseau;
+    private final LocalDate dateCompensation;
+    private final String numero;
+    private final long nombreDetails;
+
+    private FichierCompensation(FileChannel canal, Carte.ReseauCarte reseau, LocalDate dateCompensation,
+                                String numero, long nombreDetails) {
+        this.canal = canal;
+        this.reseau = reseau;
+        this.dateCompensation = dateCompensation;
+        this.numero = numero;
+        this.nombreDetails = nombreDetails;
+    }
+
+    /**
+     * Ouvre le fichier et contrôle l'en-tête et l'enregistrement de fin
+     * (fichier incomplet ou tronqué refusé avant toute écriture)
+     */
+    static FichierCompensation ouvrir(Path fichier) throws IOException {
+        FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ);
+        try {
+            long taille = canal.size();
+            if (taille < 2L * TAILLE_ENREGISTREMENT || taille % TAILLE_ENREGISTREMENT != 0) {
+                throw new TechnicalException("Fichier de compensation tronqué: " + fichier);
+            }
+            ByteBuffer entete = lire(canal, 0);
+            ByteBuffer fin = lire(canal, taille - TAILLE_ENREGISTREMENT);
+            long nombreDetails = taille / TAILLE_ENREGISTREMENT - 2;
+            if (entete.get(0) != 'H' || fin.get(0) != 'T' || nombre(fin, 1, 12) != nombreDetails) {
+                throw new TechnicalException("Fichier de compensation incomplet: " + fichier);
+            }
+            String reseau = texte(entete, 1, 10);
+            LocalDate dateCompensation = date(entete, 11);
+            String numero = texte(entete, 19, 6);
+            if (reseau == null || dateCompensation == null || numero == null) {
+                throw new TechnicalException("En-tête du fichier de compensation invalide: " + fichier);
+            }
+            return new FichierCompensation(canal, Carte.ReseauCarte.valueOf(reseau), dateCompensation, numero,
+                    nombreDetails);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Projette en mémoire les enregistrements de détail [debut, fin] (indices à partir de 0)
+     */
+    MappedByteBuffer projeter(PartitionIds partition) throws IOException {
+        long position = (partition.getDebut() + 1) * TAILLE_ENREGISTREMENT;
+        long longueur = (partition.getFin() - partition.getDebut() + 1) * TAILLE_ENREGISTREMENT;
+        return canal.map(FileChannel.MapMode.READ_ONLY, position, longueur);
+    }
+
+    Carte.ReseauCarte getReseau() {
+        return reseau;
+    }
+
+    LocalDate getDateCompensation() {
+        return dateCompensation;
+    }
+
+    String getNumero() {
+        return numero;
+    }
+
+    long getNombreDetails() {
+        return nombreDetails;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    /**
+     * Entier non signé cadré à droite ; -1 si un caractère n'est pas un chiffre
+     */
+    static long nombre(ByteBuffer tampon, int offset, int longueur) {
+        long valeur = 0;
+        for (int i = offset; i < offset + longueur; i++) {
+            int chiffre = tampon.get(i) - '0';
+            if (chiffre < 0 || chiffre > 9) {
+                return -1;
+            }
+            valeur = valeur * 10 + chiffre;
+        }
+        return valeur;
+    }
+
+    /**
+     * Date yyyyMMdd, null si invalide
+     */
+    static LocalDate date(ByteBuffer tampon, int offset) {
+        long valeur = nombre(tampon, offset, 8);
+        if (valeur < 0) {
+            return null;
+        }
+        try {
+            return LocalDate.of((int) (valeur / 10000), (int) (valeur / 100 % 100), (int) (valeur % 100));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Texte sans les blancs de fin, null si vide
+     */
+    static String texte(ByteBuffer tampon, int offset, int longueur) {
+        int fin = offset + longueur;
+        while (fin > offset && tampon.get(fin - 1) == ' ') {
+            fin--;
+        }
+        if (fin == offset) {
+            return null;
+        }
+        byte[] octets = new byte[fin - offset];
+        for (int i = 0; i < octets.length; i++) {
+            octets[i] = tampon.get(offset + i);
+        }
+        return new String(octets, StandardCharsets.US_ASCII);
+    }
+
+    private static ByteBuffer lire(FileChannel canal, long position) throws IOException {
+        ByteBuffer tampon = ByteBuffer.allocate(TAILLE_ENREGISTREMENT);
+        while (tampon.hasRemaining()) {
+            if (canal.read(tampon, position + tampon.position()) < 0) {
+                break;
+            }
+        }
+        return tampon;
+    }
+}
@@ -0,0 +1,205 @@
+package com.banque.eurobank.batch;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fichier de fabrication des cartes (embosseur), en enregistrements de largeur fixe
+ * ASCII terminés par un saut de ligne :
+ * - en-tête : "H", date de production (yyyyMMdd), émetteur ;
+ * - détail  : "D", id carte (12), PAN (19), code confidentiel (4), expiration MMyy (4),
+ *   titulaire (26), réseau (10), type de carte (22), id compte (12) ;
+ * - fin     : "T", nombre d'enregistrements de détail (12).
+ *
+ * Chaque partition écrit son fragment (détails seuls) ; le fichier final est
+ * assemblé par copie de canal à canal une fois toutes les partitions passées.
+ * Le fichier contient les numéros de carte et les codes confidentiels en clair
+ * (envoi du code au porteur) : son répertoire doit être à accès restreint.
+ */
+final class FichierFabricationCartes {
+
+    static final int TAILLE_ENREGISTREMENT = 111;
+
+    private static final String EMETTEUR = "EUROBANK";
+    private static final String EXTENSION_FRAGMENT = ".dat";
+    private static final String EXTENSION_TEMPORAIRE = ".tmp";
+    private static final int TAILLE_TAMPON = 64 * 1024;
+    private static final DateTimeFormatter FORMAT_EXPIRATION = DateTimeFormatter.ofPattern("MMyy");
+
+    private FichierFabricationCartes() {
+    }
+
+    /**
+     * Fragment d'une partition, nommé par son premier identifiant (ordre lexical = ordre des ids)
+     */
+    static Path fragment(Path repertoire, PartitionIds partition) {
+        return repertoire.resolve(String.format("p%019d%s", partition.getDebut(), EXTENSION_FRAGMENT));
+    }
+
+    static Path temporaire(Path fragment) {
+        return fragment.resolveSibling(fragment.getFileName() + EXTENSION_TEMPORAIRE);
+    }
+
+    /**
+     * Écrit et force sur disque les enregistrements de détail d'une partition
+     */
+    static void ecrireFragment(Path fichier, List<CarteFabrication> cartes) throws IOException {
+        Files.createDirectories(fichier.getParent());
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer tampon = ByteBuffer.allocateDirect(TAILLE_TAMPON);
+            for (CarteFabrication carte : cartes) {
+                if (tampon.remaining() < TAILLE_ENREGISTREMENT) {
+                    vider(canal, tampon);
+                }
+                tampon.put(detail(carte));
+            }
+            vider(canal, tampon);
+            canal.force(true);
+        }
+    }
+
+    /**
+     * Assemble en-tête, fragments et fin dans le fichier cible (remplacement atomique),
+     * puis supprime les fragments
+     *
+     * @return nombre d'enregistrements de détail
+     */
+    static long assembler(Path repertoireFragments, Path cible, LocalDate dateProduction) throws IOException {
+        List<Path> fragments = new ArrayList<>();
+        try (DirectoryStream<Path> flux = Files.newDirectoryStream(repertoireFragments, "*" + EXTENSION_FRAGMENT)) {
+            flux.forEach(fragments::add);
+        }
+        fragments.sort(null);
+
+        Path temporaire = temporaire(cible);
+        long nombre = 0;
+        try (FileChannel sortie = FileChannel.open(temporaire, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ecrire(sortie, enregistrement('H', dateProduction.format(DateTimeFormatter.BASIC_ISO_DATE) + EMETTEUR));
+            for (Path fragment : fragments) {
+                try (FileChannel entree = FileChannel.open(fragment, StandardOpenOption.READ)) {
+                    long taille = entree.size();
+                    for (long position = 0; position < taille; ) {
+                        position += entree.transferTo(position, taille - position, sortie);
+                    }
+                    nombre += taille / TAILLE_ENREGISTREMENT;
+                }
+            }
+            ecrire(sortie, enregistrement('T', numerique(nombre, 12)));
+            sortie.force(true);
+        }
+        Files.move(temporaire, cible, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (Path fragment : fragments) {
+            Files.delete(fragment);
+        }
+        return nombre;
+    }
+
+    /**
+     * Fragments validés restant d'une exécution précédente
+     */
+    static boolean contientFragments(Path repertoireFragments) throws IOException {
+        if (!Files.isDirectory(repertoireFragments)) {
+            return false;
+        }
+        try (DirectoryStream<Path> flux = Files.newDirectoryStream(repertoireFragments, "*" + EXTENSION_FRAGMENT)) {
+            return flux.iterator().hasNext();
+        }
+    }
+
+    private static byte[] detail(CarteFabrication carte) {
+        return enregistrement('D', numerique(carte.getCarteId(), 12)
+                + alpha(carte.getPan(), 19)
+                + carte.getCode()
+                + carte.getExpiration().format(FORMAT_EXPIRATION)
+                + alpha(carte.getTitulaire(), 26)
+                + alpha(carte.getReseau(), 10)
+                + alpha(carte.getTypeCarte(), 22)
+                + numerique(carte.getCompteId(), 12));
+    }
+
+    private static byte[] enregistrement(char type, String contenu) {
+        byte[] ligne = new byte[TAILLE_ENREGISTREMENT];
+        Arrays.fill(ligne, (byte) ' ');
+        ligne[0] = (byte) type;
+        byte[] octets = contenu.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(octets, 0, ligne, 1, Math.min(octets.length, TAILLE_ENREGISTREMENT - 2));
+        ligne[TAILLE_ENREGISTREMENT - 1] = '\n';
+        return ligne;
+    }
+
+    /**
+     * Texte cadré à gauche : majuscules sans accents, caractères hors embossage remplacés par un blanc
+     */
+    private static String alpha(String valeur, int longueur) {
+        String texte = Normalizer.normalize(valeur != null ? valeur : "", Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toUpperCase(Locale.ROOT)
+                .replaceAll("[^A-Z0-9 .'/_-]", " ");
+        if (texte.length() >= longueur) {
+            return texte.substring(0, longueur);
+        }
+        StringBuilder sb = new StringBuilder(longueur).append(texte);
+        while (sb.length() < longueur) {
+            sb.append(' ');
+        }
+        return sb.toString();
+    }
+
+    private static String numerique(long valeur, int longueur) {
+        String chiffres = Long.toString(valeur);
+        StringBuilder sb = new StringBuilder(longueur);
+        for (int i = chiffres.length(); i < longueur; i++) {
+            sb.append('0');
+        }
+        return sb.append(chiffres).toString();
+    }
+
+    private static void ecrire(FileChannel canal, byte[] octets) throws IOException {
+        ByteBuffer tampon = ByteBuffer.wrap(octets);
+        while (tampon.hasRemaining()) {
+            canal.write(tampon);
+        }
+    }
+
+    private static void vider(FileChannel canal, ByteBuffer tampon) throws IOException {
+        tampon.flip();
+        while (tampon.hasRemaining()) {
+            canal.write(tampon);
+        }
+        tampon.clear();
+    }
+
+    /**
+     * Carte à fabriquer
+     */
+    @Value
+    static class CarteFabrication {
+        long carteId;
+        String pan;
+        String code;
+        LocalDate expiration;
+        String titulaire;
+        String reseau;
+        String typeCarte;
+        long compteId;
+    }
+}
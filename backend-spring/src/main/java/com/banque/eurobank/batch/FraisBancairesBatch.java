@@ -0,0 +1,252 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.config.FraisProperties;
+import com.banque.eurobank.dto.*;
+import com.banque.eurobank.entity.*;
+import com.banque.eurobank.repository.SuiviPartitionRepository;
+import com.banque.eurobank.service.GrilleTarifaireService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Prélèvement mensuel des frais bancaires (FRAIS_BANCAIRES / COMMISSION).
+ *
+ * Les comptes actifs sont évalués par partitions d'identifiants en parallèle
+ * selon la grille tarifaire. Chaque partition insère ses écritures en batch,
+ * débite les soldes de façon ensembliste et s'enregistre comme traitée dans
+ * la même transaction : une relance ignore les partitions déjà passées.
+ * Les partitions sont alignées sur une grille fixe et le périmètre (bornes des
+ * comptes actifs) est enregistré au premier prélèvement de la période : une
+ * relance retrouve les mêmes partitions, même si des comptes ont été ouverts
+ * ou clôturés entre-temps.
+ *
+ * En mode simulation, rien n'est écrit : seul le rapport des frais est produit.
+ */
+@Component
+@Slf4j
+public class FraisBancairesBatch {
+
+    public static final String TRAITEMENT = "FRAIS_MENSUELS";
+
+    /** Suivi du périmètre de la période : debut_id et fin_id portent ses bornes */
+    private static final String PERIMETRE = TRAITEMENT + "_PERIMETRE";
+
+    private static final String SQL_BORNES_COMPTES =
+            "SELECT MIN(id), MAX(id) FROM EB_COMPTES WHERE statut = 'ACTIF'";
+
+    private static final String SQL_COMPTES =
+            "SELECT c.id, c.client_id, c.type_compte, c.solde, cl.segment, c.agence_code " +
+            "FROM EB_COMPTES c JOIN EB_CLIENTS cl ON cl.id = c.client_id " +
+            "WHERE c.id BETWEEN ? AND ? AND c.statut = 'ACTIF' ORDER BY c.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate transactionSimulation;
+    private final ExecuteurPartitions executeurPartitions;
+    private final EcrituresJdbc ecrituresJdbc;
+    private final GrilleTarifaireService grilleTarifaire;
+    private final SuiviPartitionRepository suiviPartitionRepository;
+    private final long taillePartition;
+
+    public FraisBancairesBatch(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               ExecuteurPartitions executeurPartitions,
+                               EcrituresJdbc ecrituresJdbc,
+                               GrilleTarifaireService grilleTarifaire,
+                               SuiviPartitionRepository suiviPartitionRepository,
+                               @Value("${app.frais.taille-partition:10000}") long taillePartition) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionSimulation = new TransactionTemplate(transactionManager);
+        this.transactionSimulation.setReadOnly(true);
+        this.executeurPartitions = executeurPartitions;
+        this.ecrituresJdbc = ecrituresJdbc;
+        this.grilleTarifaire = grilleTarifaire;
+        this.suiviPartitionRepository = suiviPartitionRepository;
+        this.taillePartition = taillePartition;
+    }
+
+    /**
+     * Prélèvement des frais du mois écoulé
+     */
+    @Scheduled(cron = "${app.frais.cron:0 0 3 1 * *}")
+    public void prelevementMensuel() {
+        RapportFraisDTO rapport = executer(YearMonth.now().minusMonths(1), false);
+        if (!rapport.getBilan().getPartitionsEnEchec().isEmpty()) {
+            log.error("Frais {}: partitions à relancer {}", rapport.getPeriode(),
+                    rapport.getBilan().getPartitionsEnEchec());
+        }
+    }
+
+    /**
+     * Évalue et (hors simulation) prélève les frais de la période
+     */
+    public RapportFraisDTO executer(YearMonth periode, boolean simulation) {
+        long debut = System.currentTimeMillis();
+        PartitionIds perimetre = perimetre(periode, simulation);
+        List<PartitionIds> partitions = perimetre != null
+                ? ExecuteurPartitions.decouperGrille(perimetre.getDebut(), perimetre.getFin(), taillePartition)
+                : List.of();
+
+        ResultatPartitions<RapportPartition> resultat = executeurPartitions.executer(
+                (simulation ? "Simulation des frais " : "Prélèvement des frais ") + periode,
+                partitions, partition -> traiterPartition(partition, periode, simulation));
+
+        Map<String, LigneRapportFraisDTO> lignes = new TreeMap<>();
+        List<BilanPartition> bilans = new ArrayList<>();
+        for (RapportPartition rapportPartition : resultat.getResultats()) {
+            bilans.add(rapportPartition.bilan);
+            rapportPartition.lignes.forEach((cle, ligne) -> lignes.merge(cle, ligne, (a, b) -> {
+                a.setNombreComptes(a.getNombreComptes() + b.getNombreComptes());
+                a.setMontantTotal(a.getMontantTotal().add(b.getMontantTotal()));
+                return a;
+            }));
+        }
+
+        return RapportFraisDTO.builder()
+                .periode(periode.toString())
+                .simulation(simulation)
+                .bilan(BilanPartition.consolider(TRAITEMENT, periode.atEndOfMonth(),
+                        new ResultatPartitions<>(bilans, resultat.getEchecs()), debut))
+                .lignes(new ArrayList<>(lignes.values()))
+                .build();
+    }
+
+    /**
+     * Périmètre de la période : celui enregistré au premier prélèvement, sinon les
+     * bornes courantes des comptes actifs, enregistrées hors simulation ; null sans
+     * compte actif
+     */
+    private PartitionIds perimetre(YearMonth periode, boolean simulation) {
+        Optional<SuiviPartition> enregistre = suiviPartitionRepository
+                .findFirstByTraitementAndPeriodeOrderByIdAsc(PERIMETRE, periode.toString());
+        if (enregistre.isPresent()) {
+            return new PartitionIds(enregistre.get().getDebutId(), enregistre.get().getFinId());
+        }
+
+        Long[] bornes = jdbcTemplate.queryForObject(SQL_BORNES_COMPTES, (rs, i) -> new Long[]{
+                rs.getObject(1, Long.class), rs.getObject(2, Long.class)});
+        if (bornes[0] == null) {
+            return null;
+        }
+        if (!simulation) {
+            try {
+                suiviPartitionRepository.save(SuiviPartition.builder()
+                        .traitement(PERIMETRE)
+                        .periode(periode.toString())
+                        .debutId(bornes[0])
+                        .finId(bornes[1])
+                        .build());
+            } catch (DataIntegrityViolationException e) {
+                // Prélèvement concurrent de la même période : son périmètre fait foi
+                return perimetre(periode, true);
+            }
+        }
+        return new PartitionIds(bornes[0], bornes[1]);
+    }
+
+    private RapportPartition traiterPartition(PartitionIds partition, YearMonth periode, boolean simulation) {
+        TransactionTemplate template = simulation ? transactionSimulation : transactionTemplate;
+        return template.execute(status -> {
+            if (suiviPartitionRepository.existsByTraitementAndPeriodeAndDebutId(
+                    TRAITEMENT, periode.toString(), partition.getDebut())) {
+                log.debug("Frais {} - partition {} déjà traitée", periode, partition);
+                return new RapportPartition();
+            }
+
+            LocalDate dateOperation = periode.atEndOfMonth();
+            String prefixeReference = "FR" + periode.format(DateTimeFormatter.ofPattern("yyyyMM")) + "-";
+            RapportPartition rapport = new RapportPartition();
+            List<EcritureComptable> ecritures = new ArrayList<>();
+            List<MouvementSolde> mouvements = new ArrayList<>();
+
+            jdbcTemplate.query(simulation ? SQL_COMPTES : SQL_COMPTES + " FOR UPDATE", rs -> {
+                long compteId = rs.getLong(1);
+                Compte.TypeCompte typeCompte = Compte.TypeCompte.valueOf(rs.getString(3));
+                BigDecimal solde = rs.getBigDecimal(4);
+                String segmentBrut = rs.getString(5);
+                Client.SegmentClient segment = segmentBrut != null ? Client.SegmentClient.valueOf(segmentBrut) : null;
+
+                List<FraisProperties.Regle> frais = grilleTarifaire.fraisApplicables(segment, typeCompte, solde);
+                if (frais.isEmpty()) {
+                    return;
+                }
+                BigDecimal soldeCourant = solde;
+                BigDecimal totalCompte = BigDecimal.ZERO;
+                for (int n = 0; n < frais.size(); n++) {
+                    FraisProperties.Regle regle = frais.get(n);
+                    BigDecimal soldeApres = soldeCourant.subtract(regle.getMontant());
+                    ecritures.add(EcritureComptable.builder()
+                            .compteId(compteId)
+                            .reference(prefixeReference + compteId + "-" + (n + 1))
+                            .typeOperation(regle.getTypeOperation())
+                            .sens(Transaction.SensOperation.DEBIT)
+                            .montant(regle.getMontant())
+                            .libelle(regle.getLibelle() != null ? regle.getLibelle() : regle.getCode())
+                            .libelleComplement("Période " + periode)
+                            .dateOperation(dateOperation)
+                            .dateValeur(dateOperation)
+                            .soldeAvant(soldeCourant)
+                            .soldeApres(soldeApres)
+                            .build());
+                    rapport.ajouter(regle, segment, typeCompte);
+                    soldeCourant = soldeApres;
+                    totalCompte = totalCompte.add(regle.getMontant());
+                }
+                mouvements.add(new MouvementSolde(compteId, rs.getLong(2), rs.getString(6), totalCompte.negate()));
+            }, partition.getDebut(), partition.getFin());
+
+            BigDecimal total = mouvements.stream()
+                    .map(m -> m.getDelta().negate())
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            rapport.bilan = new BilanPartition(mouvements.size(), total);
+
+            if (!simulation) {
+                ecrituresJdbc.insererTransactions(ecritures);
+                ecrituresJdbc.appliquerMouvements(mouvements, ecritures);
+                suiviPartitionRepository.save(SuiviPartition.builder()
+                        .traitement(TRAITEMENT)
+                        .periode(periode.toString())
+                        .debutId(partition.getDebut())
+                        .finId(partition.getFin())
+                        .nombreElements((long) mouvements.size())
+                        .build());
+            }
+            return rapport;
+        });
+    }
+
+    /**
+     * Rapport d'une partition : bilan et lignes par (code, segment, type de compte)
+     */
+    private static final class RapportPartition {
+        private BilanPartition bilan = BilanPartition.VIDE;
+        private final Map<String, LigneRapportFraisDTO> lignes = new HashMap<>();
+
+        void ajouter(FraisProperties.Regle regle, Client.SegmentClient segment, Compte.TypeCompte typeCompte) {
+            String cle = regle.getCode() + "|" + segment + "|" + typeCompte;
+            LigneRapportFraisDTO ligne = lignes.computeIfAbsent(cle, k -> LigneRapportFraisDTO.builder()
+                    .code(regle.getCode())
+                    .libelle(regle.getLibelle())
+                    .typeOperation(regle.getTypeOperation())
+                    .segment(segment)
+                    .typeCompte(typeCompte)
+                    .montantTotal(BigDecimal.ZERO)
+                    .build());
+            ligne.setNombreComptes(ligne.getNombreComptes() + 1);
+            ligne.setMontantTotal(ligne.getMontantTotal().add(regle.getMontant()));
+        }
+    }
+}
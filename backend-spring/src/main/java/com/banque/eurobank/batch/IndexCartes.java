@@ -0,0 +1,185 @@
+package com.banque.eurobank.batch;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Index en mémoire des cartes par numeroCarteHash, pour le rapprochement des
+ * fichiers de compensation.
+ *
+ * Le SHA-256 est rangé sous forme de 4 longs dans une table à adressage ouvert
+ * (sondage linéaire) : une recherche depuis un enregistrement du fichier ne crée
+ * aucun objet. Construit en un seul fil, puis lu en parallèle sans verrou ; la
+ * capacité initiale n'est qu'une estimation, la table est agrandie si besoin.
+ */
+final class IndexCartes {
+
+    private static final int LONGS_PAR_CLE = 4;
+    private static final long HAUTS = 0x8080808080808080L;
+
+    private long[] cles;
+    /** Position + 1 de la carte pour chaque alvéole, 0 si libre */
+    private int[] alveoles;
+    private int masqueAlveoles;
+
+    private long[] carteIds;
+    private long[] compteIds;
+    private String[] masques;
+    private int taille;
+
+    IndexCartes(int capacite) {
+        capacite = Math.max(16, capacite);
+        allouerAlveoles(capacite);
+        this.carteIds = new long[capacite];
+        this.compteIds = new long[capacite];
+        this.masques = new String[capacite];
+    }
+
+    /**
+     * Ajoute une carte ; ignorée si son hash n'est pas un SHA-256 hexadécimal
+     * ou s'il est déjà présent
+     */
+    boolean ajouter(String hash, long carteId, long compteId, String masque) {
+        if (hash == null || hash.length() != 2 * LONGS_PAR_CLE * Long.BYTES) {
+            return false;
+        }
+        long[] cle = new long[LONGS_PAR_CLE];
+        for (int i = 0; i < hash.length(); i++) {
+            int chiffre = Character.digit(hash.charAt(i), 16);
+            if (chiffre < 0) {
+                return false;
+            }
+            cle[i >> 4] = (cle[i >> 4] << 4) | chiffre;
+        }
+        int alveole = alveole(cle[0]);
+        while (alveoles[alveole] != 0) {
+            if (egale(alveole, cle[0], cle[1], cle[2], cle[3])) {
+                return false;
+            }
+            alveole = (alveole + 1) & masqueAlveoles;
+        }
+        if (taille == carteIds.length) {
+            agrandir();
+            alveole = alveole(cle[0]);
+            while (alveoles[alveole] != 0) {
+                alveole = (alveole + 1) & masqueAlveoles;
+            }
+        }
+        System.arraycopy(cle, 0, cles, alveole * LONGS_PAR_CLE, LONGS_PAR_CLE);
+        carteIds[taille] = carteId;
+        compteIds[taille] = compteId;
+        masques[taille] = masque;
+        alveoles[alveole] = ++taille;
+        return true;
+    }
+
+    /**
+     * Position de la carte dont le hash hexadécimal (64 octets ASCII) commence
+     * à l'offset donné du tampon, -1 si inconnue ou hash mal formé
+     */
+    int chercher(ByteBuffer tampon, int offset) {
+        long h0 = hex8(tampon.getLong(offset));
+        long h1 = hex8(tampon.getLong(offset + 8));
+        long h2 = hex8(tampon.getLong(offset + 16));
+        long h3 = hex8(tampon.getLong(offset + 24));
+        long h4 = hex8(tampon.getLong(offset + 32));
+        long h5 = hex8(tampon.getLong(offset + 40));
+        long h6 = hex8(tampon.getLong(offset + 48));
+        long h7 = hex8(tampon.getLong(offset + 56));
+        if ((h0 | h1 | h2 | h3 | h4 | h5 | h6 | h7) < 0) {
+            return -1;
+        }
+        long c0 = (h0 << 32) | h1;
+        long c1 = (h2 << 32) | h3;
+        long c2 = (h4 << 32) | h5;
+        long c3 = (h6 << 32) | h7;
+        int alveole = alveole(c0);
+        while (alveoles[alveole] != 0) {
+            if (egale(alveole, c0, c1, c2, c3)) {
+                return alveoles[alveole] - 1;
+            }
+            alveole = (alveole + 1) & masqueAlveoles;
+        }
+        return -1;
+    }
+
+    long carteId(int position) {
+        return carteIds[position];
+    }
+
+    long compteId(int position) {
+        return compteIds[position];
+    }
+
+    String masque(int position) {
+        return masques[position];
+    }
+
+    int taille() {
+        return taille;
+    }
+
+    /**
+     * Double la capacité : les cartes gardent leur position, les clés sont redistribuées
+     */
+    private void agrandir() {
+        int capacite = carteIds.length * 2;
+        carteIds = Arrays.copyOf(carteIds, capacite);
+        compteIds = Arrays.copyOf(compteIds, capacite);
+        masques = Arrays.copyOf(masques, capacite);
+
+        long[] anciennesCles = cles;
+        int[] anciennesAlveoles = alveoles;
+        allouerAlveoles(capacite);
+        for (int ancienne = 0; ancienne < anciennesAlveoles.length; ancienne++) {
+            if (anciennesAlveoles[ancienne] == 0) {
+                continue;
+            }
+            int alveole = alveole(anciennesCles[ancienne * LONGS_PAR_CLE]);
+            while (alveoles[alveole] != 0) {
+                alveole = (alveole + 1) & masqueAlveoles;
+            }
+            System.arraycopy(anciennesCles, ancienne * LONGS_PAR_CLE, cles, alveole * LONGS_PAR_CLE, LONGS_PAR_CLE);
+            alveoles[alveole] = anciennesAlveoles[ancienne];
+        }
+    }
+
+    /** Au moins deux alvéoles par carte, en puissance de 2 */
+    private void allouerAlveoles(int capacite) {
+        int nombreAlveoles = Integer.highestOneBit(capacite * 2 - 1) << 1;
+        cles = new long[nombreAlveoles * LONGS_PAR_CLE];
+        alveoles = new int[nombreAlveoles];
+        masqueAlveoles = nombreAlveoles - 1;
+    }
+
+    private boolean egale(int alveole, long c0, long c1, long c2, long c3) {
+        int base = alveole * LONGS_PAR_CLE;
+        return cles[base] == c0 && cles[base + 1] == c1 && cles[base + 2] == c2 && cles[base + 3] == c3;
+    }
+
+    /** Le SHA-256 est déjà uniforme : ses bits de poids faible suffisent */
+    private int alveole(long c0) {
+        return (int) c0 & masqueAlveoles;
+    }
+
+    /**
+     * Décode 8 chiffres hexadécimaux ASCII (lus en big-endian) en 32 bits, 8 octets à la fois ;
+     * -1 si un octet n'est pas un chiffre hexadécimal
+     */
+    private static long hex8(long octets) {
+        if ((octets & HAUTS) != 0) {
+            return -1;
+        }
+        // Bit de poids fort de chaque octet positionné si l'octet est dans l'intervalle
+        long chiffres = (octets + 0x5050505050505050L) & ~(octets + 0x4646464646464646L) & HAUTS;
+        long minuscules = octets | 0x2020202020202020L;
+        long lettres = (minuscules + 0x1F1F1F1F1F1F1F1FL) & ~(minuscules + 0x1919191919191919L) & HAUTS;
+        if ((chiffres | lettres) != HAUTS) {
+            return -1;
+        }
+        long v = (octets & 0x0F0F0F0F0F0F0F0FL) + (lettres >>> 7) * 9;
+        v = (v | (v >>> 4)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v >>> 8)) & 0x0000FFFF0000FFFFL;
+        return (v | (v >>> 16)) & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,330 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.dto.BilanBatchDTO;
+import com.banque.eurobank.entity.Transaction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Moteur de calcul des intérêts des comptes d'épargne
+ * (LIVRET_A, LDD, PEL, CEL, EPARGNE).
+ *
+ * - Calcul quotidien : intérêts de chaque jour depuis le dernier calcul (solde de
+ *   fin de journée en date de valeur x taux annuel / 365) cumulés dans
+ *   EB_INTERETS_COURUS avec le nombre de jours couverts, par partitions
+ *   d'identifiants traitées en parallèle. Le solde de chaque jour est reconstitué
+ *   depuis le solde courant et les mouvements exécutés de date de valeur
+ *   postérieure ; un compte sans calcul antérieur court depuis son ouverture, au
+ *   plus tôt depuis le début de l'année (période de capitalisation).
+ * - Capitalisation : en fin de période, écritures INTERETS insérées en batch
+ *   et soldes crédités de façon ensembliste.
+ *
+ * Les deux traitements sont idempotents par partition (date du dernier calcul,
+ * date de la dernière capitalisation) : une relance ne reprend que ce qui manque.
+ */
+@Component
+@Slf4j
+public class InteretsBatch {
+
+    private static final String TYPES_EPARGNE = "('LIVRET_A', 'LDD', 'PEL', 'CEL', 'EPARGNE')";
+    private static final BigDecimal JOURS_PAR_AN = BigDecimal.valueOf(365);
+    private static final int ECHELLE_COURUS = 6;
+
+    private static final String SQL_BORNES_EPARGNE =
+            "SELECT MIN(id), MAX(id) FROM EB_COMPTES WHERE type_compte IN " + TYPES_EPARGNE;
+
+    private static final String SQL_COMPTES_A_CALCULER =
+            "SELECT c.id, c.solde, c.taux_interet, ic.compte_id, ic.date_dernier_calcul, c.date_ouverture " +
+            "FROM EB_COMPTES c LEFT JOIN EB_INTERETS_COURUS ic ON ic.compte_id = c.id " +
+            "WHERE c.id BETWEEN ? AND ? AND c.type_compte IN " + TYPES_EPARGNE + " " +
+            "AND c.statut = 'ACTIF' AND c.taux_interet > 0 " +
+            "AND (ic.date_dernier_calcul IS NULL OR ic.date_dernier_calcul < ?)";
+
+    private static final String SQL_MOUVEMENTS_VALEUR =
+            "SELECT compte_id, date_valeur, SUM(CASE WHEN sens = 'CREDIT' THEN montant ELSE -montant END) " +
+            "FROM EB_TRANSACTIONS WHERE compte_id BETWEEN ? AND ? AND statut = 'EXECUTEE' AND date_valeur > ? " +
+            "GROUP BY compte_id, date_valeur";
+
+    private static final String SQL_MAJ_COURUS =
+            "UPDATE EB_INTERETS_COURUS SET interets_courus = interets_courus + ?, " +
+            "jours_courus = COALESCE(jours_courus, 0) + ?, date_dernier_calcul = ? WHERE compte_id = ?";
+
+    private static final String SQL_CREATION_COURUS =
+            "INSERT INTO EB_INTERETS_COURUS (compte_id, interets_courus, jours_courus, date_dernier_calcul) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private static final String SQL_BORNES_COURUS =
+            "SELECT MIN(compte_id), MAX(compte_id) FROM EB_INTERETS_COURUS";
+
+    private static final String SQL_COMPTES_A_CAPITALISER =
+            "SELECT c.id, c.client_id, c.solde, ic.interets_courus, c.agence_code " +
+            "FROM EB_COMPTES c JOIN EB_INTERETS_COURUS ic ON ic.compte_id = c.id " +
+            "WHERE c.id BETWEEN ? AND ? AND c.statut = 'ACTIF' AND ic.interets_courus >= 0.01 " +
+            "AND (ic.date_derniere_capitalisation IS NULL OR ic.date_derniere_capitalisation < ?) " +
+            "ORDER BY c.id FOR UPDATE";
+
+    private static final String SQL_SOLDER_COURUS =
+            "UPDATE EB_INTERETS_COURUS SET interets_courus = interets_courus - ?, jours_courus = 0, " +
+            "date_derniere_capitalisation = ? WHERE compte_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecuteurPartitions executeurPartitions;
+    private final EcrituresJdbc ecrituresJdbc;
+    private final long taillePartition;
+
+    public InteretsBatch(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         ExecuteurPartitions executeurPartitions,
+                         EcrituresJdbc ecrituresJdbc,
+                         @Value("${app.interets.taille-partition:10000}") long taillePartition) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executeurPartitions = executeurPartitions;
+        this.ecrituresJdbc = ecrituresJdbc;
+        this.taillePartition = taillePartition;
+    }
+
+    /**
+     * Calcul quotidien des intérêts de la veille
+     */
+    @Scheduled(cron = "${app.interets.calcul-cron:0 15 1 * * *}")
+    public void calculQuotidien() {
+        calculerInteretsJournaliers(LocalDate.now().minusDays(1));
+    }
+
+    /**
+     * Capitalisation annuelle au 31 décembre
+     */
+    @Scheduled(cron = "${app.interets.capitalisation-cron:0 45 1 1 1 *}")
+    public void capitalisationAnnuelle() {
+        capitaliserInterets(LocalDate.now().minusDays(1));
+    }
+
+    /**
+     * Cumule les intérêts de tous les comptes d'épargne jusqu'au jour donné inclus
+     */
+    public BilanBatchDTO calculerInteretsJournaliers(LocalDate jour) {
+        long debut = System.currentTimeMillis();
+        Long[] bornes = bornes(SQL_BORNES_EPARGNE);
+        ResultatPartitions<BilanPartition> resultat = executeurPartitions.executer(
+                "Calcul des intérêts du " + jour, bornes[0], bornes[1], taillePartition,
+                partition -> calculerPartition(partition, jour));
+        return BilanPartition.consolider("CALCUL_INTERETS", jour, resultat, debut);
+    }
+
+    /**
+     * Capitalise les intérêts courus à la fin de période donnée
+     */
+    public BilanBatchDTO capitaliserInterets(LocalDate finPeriode) {
+        // Le calcul du dernier jour de la période est idempotent : on s'assure qu'il est fait
+        BilanBatchDTO calcul = calculerInteretsJournaliers(finPeriode);
+        if (!calcul.getPartitionsEnEchec().isEmpty()) {
+            log.error("Capitalisation du {} reportée: calcul incomplet", finPeriode);
+            return calcul;
+        }
+
+        long debut = System.currentTimeMillis();
+        Long[] bornes = bornes(SQL_BORNES_COURUS);
+        ResultatPartitions<BilanPartition> resultat = executeurPartitions.executer(
+                "Capitalisation des intérêts au " + finPeriode, bornes[0], bornes[1], taillePartition,
+                partition -> capitaliserPartition(partition, finPeriode));
+        return BilanPartition.consolider("CAPITALISATION_INTERETS", finPeriode, resultat, debut);
+    }
+
+    private BilanPartition calculerPartition(PartitionIds partition, LocalDate jour) {
+        return transactionTemplate.execute(status -> {
+            List<CompteACalculer> comptes = new ArrayList<>();
+            jdbcTemplate.query(SQL_COMPTES_A_CALCULER, rs -> {
+                Date dernierCalcul = rs.getDate(5);
+                Date ouverture = rs.getDate(6);
+                LocalDate premierJour;
+                if (dernierCalcul != null) {
+                    premierJour = dernierCalcul.toLocalDate().plusDays(1);
+                } else if (ouverture != null) {
+                    LocalDate debutAnnee = jour.withDayOfYear(1);
+                    premierJour = ouverture.toLocalDate().isAfter(debutAnnee) ? ouverture.toLocalDate() : debutAnnee;
+                } else {
+                    premierJour = jour;
+                }
+                if (!premierJour.isAfter(jour)) {
+                    comptes.add(new CompteACalculer(rs.getLong(1), rs.getBigDecimal(2), rs.getBigDecimal(3),
+                            premierJour, rs.getObject(4) == null));
+                }
+            }, partition.getDebut(), partition.getFin(), Date.valueOf(jour));
+
+            if (comptes.isEmpty()) {
+                return BilanPartition.VIDE;
+            }
+            LocalDate plusAncien = comptes.stream().map(c -> c.premierJour).min(LocalDate::compareTo).get();
+            Map<Long, NavigableMap<LocalDate, BigDecimal>> mouvements = new HashMap<>();
+            jdbcTemplate.query(SQL_MOUVEMENTS_VALEUR, rs -> {
+                mouvements.computeIfAbsent(rs.getLong(1), k -> new TreeMap<>())
+                        .put(rs.getDate(2).toLocalDate(), rs.getBigDecimal(3));
+            }, partition.getDebut(), partition.getFin(), Date.valueOf(plusAncien));
+
+            AccumulateurInterets accumulateur = new AccumulateurInterets(comptes.size());
+            for (CompteACalculer compte : comptes) {
+                BigDecimal soldes = sommeSoldesJournaliers(compte.solde,
+                        mouvements.getOrDefault(compte.id, Collections.emptyNavigableMap()), compte.premierJour, jour);
+                BigDecimal interets = soldes.multiply(compte.taux)
+                        .divide(JOURS_PAR_AN, ECHELLE_COURUS, RoundingMode.HALF_EVEN);
+                int jours = (int) ChronoUnit.DAYS.between(compte.premierJour, jour) + 1;
+                accumulateur.ajouter(compte.id, interets.unscaledValue().longValueExact(), jours, compte.nouveau);
+            }
+
+            Date dateCalcul = Date.valueOf(jour);
+            jdbcTemplate.batchUpdate(SQL_MAJ_COURUS,
+                    setterCourus(accumulateur, accumulateur.indices(false), dateCalcul, true));
+            jdbcTemplate.batchUpdate(SQL_CREATION_COURUS,
+                    setterCourus(accumulateur, accumulateur.indices(true), dateCalcul, false));
+
+            return new BilanPartition(accumulateur.taille(),
+                    BigDecimal.valueOf(accumulateur.totalMicros(), ECHELLE_COURUS));
+        });
+    }
+
+    /**
+     * Somme des soldes créditeurs de fin de journée, du premier au dernier jour
+     * inclus. Le solde d'un jour est le solde courant diminué des mouvements de
+     * date de valeur postérieure ; il est constant entre deux dates de valeur.
+     */
+    static BigDecimal sommeSoldesJournaliers(BigDecimal solde, NavigableMap<LocalDate, BigDecimal> mouvements,
+                                             LocalDate premierJour, LocalDate dernierJour) {
+        BigDecimal soldeJour = solde;
+        for (BigDecimal montant : mouvements.tailMap(dernierJour, false).values()) {
+            soldeJour = soldeJour.subtract(montant);
+        }
+        BigDecimal somme = BigDecimal.ZERO;
+        LocalDate finPalier = dernierJour;
+        for (Map.Entry<LocalDate, BigDecimal> mouvement
+                : mouvements.subMap(premierJour, false, dernierJour, true).descendingMap().entrySet()) {
+            somme = somme.add(palier(soldeJour, mouvement.getKey(), finPalier));
+            soldeJour = soldeJour.subtract(mouvement.getValue());
+            finPalier = mouvement.getKey().minusDays(1);
+        }
+        return somme.add(palier(soldeJour, premierJour, finPalier));
+    }
+
+    private static BigDecimal palier(BigDecimal solde, LocalDate debut, LocalDate fin) {
+        return solde.signum() > 0
+                ? solde.multiply(BigDecimal.valueOf(ChronoUnit.DAYS.between(debut, fin) + 1))
+                : BigDecimal.ZERO;
+    }
+
+    private static BatchPreparedStatementSetter setterCourus(AccumulateurInterets accumulateur, int[] indices,
+                                                             Date dateCalcul, boolean miseAJour) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                int index = indices[i];
+                BigDecimal interets = BigDecimal.valueOf(accumulateur.micros(index), ECHELLE_COURUS);
+                if (miseAJour) {
+                    ps.setBigDecimal(1, interets);
+                    ps.setInt(2, accumulateur.jours(index));
+                    ps.setDate(3, dateCalcul);
+                    ps.setLong(4, accumulateur.compteId(index));
+                } else {
+                    ps.setLong(1, accumulateur.compteId(index));
+                    ps.setBigDecimal(2, interets);
+                    ps.setInt(3, accumulateur.jours(index));
+                    ps.setDate(4, dateCalcul);
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return indices.length;
+            }
+        };
+    }
+
+    private BilanPartition capitaliserPartition(PartitionIds partition, LocalDate finPeriode) {
+        return transactionTemplate.execute(status -> {
+            String suffixeReference = "INT" + finPeriode.format(DateTimeFormatter.BASIC_ISO_DATE) + "-";
+            String libelle = "Intérêts créditeurs au " + finPeriode.format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+            List<EcritureComptable> ecritures = new ArrayList<>();
+            List<MouvementSolde> mouvements = new ArrayList<>();
+
+            jdbcTemplate.query(SQL_COMPTES_A_CAPITALISER, rs -> {
+                long compteId = rs.getLong(1);
+                BigDecimal solde = rs.getBigDecimal(3);
+                // Les fractions de centime restent courues pour la période suivante
+                BigDecimal montant = rs.getBigDecimal(4).setScale(2, RoundingMode.DOWN);
+                ecritures.add(EcritureComptable.builder()
+                        .compteId(compteId)
+                        .reference(suffixeReference + compteId)
+                        .typeOperation(Transaction.TypeOperation.INTERETS)
+                        .sens(Transaction.SensOperation.CREDIT)
+                        .montant(montant)
+                        .libelle(libelle)
+                        .dateOperation(finPeriode)
+                        .dateValeur(finPeriode)
+                        .soldeAvant(solde)
+                        .soldeApres(solde.add(montant))
+                        .build());
+                mouvements.add(new MouvementSolde(compteId, rs.getLong(2), rs.getString(5), montant));
+            }, partition.getDebut(), partition.getFin(), Date.valueOf(finPeriode));
+
+            if (ecritures.isEmpty()) {
+                return BilanPartition.VIDE;
+            }
+            ecrituresJdbc.insererTransactions(ecritures);
+            ecrituresJdbc.appliquerMouvements(mouvements, ecritures);
+            Date datePeriode = Date.valueOf(finPeriode);
+            jdbcTemplate.batchUpdate(SQL_SOLDER_COURUS, mouvements, mouvements.size(), (ps, m) -> {
+                ps.setBigDecimal(1, m.getDelta());
+                ps.setDate(2, datePeriode);
+                ps.setLong(3, m.getCompteId());
+            });
+
+            return new BilanPartition(ecritures.size(), mouvements.stream()
+                    .map(MouvementSolde::getDelta)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add));
+        });
+    }
+
+    private static final class CompteACalculer {
+        private final long id;
+        private final BigDecimal solde;
+        private final BigDecimal taux;
+        /** Premier jour non encore couru */
+        private final LocalDate premierJour;
+        private final boolean nouveau;
+
+        private CompteACalculer(long id, BigDecimal solde, BigDecimal taux, LocalDate premierJour, boolean nouveau) {
+            this.id = id;
+            this.solde = solde;
+            this.taux = taux;
+            this.premierJour = premierJour;
+            this.nouveau = nouveau;
+        }
+    }
+
+    private Long[] bornes(String sql) {
+        return jdbcTemplate.queryForObject(sql, (rs, i) -> new Long[]{
+                rs.getObject(1, Long.class), rs.getObject(2, Long.class)});
+    }
+}
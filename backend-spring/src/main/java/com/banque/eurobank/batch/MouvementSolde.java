@@ -0,0 +1,17 @@
+package com.banque.eurobank.batch;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Variation de solde à appliquer à un compte (actif), à l'agrégat de son titulaire
+ * et aux statistiques de son agence
+ */
+@Value
+public class MouvementSolde {
+    long compteId;
+    long clientId;
+    String agenceCode;
+    BigDecimal delta;
+}
@@ -0,0 +1,17 @@
+package com.banque.eurobank.batch;
+
+import lombok.Value;
+
+/**
+ * Plage d'identifiants [debut, fin] (bornes incluses) traitée par une partition
+ */
+@Value
+public class PartitionIds {
+    long debut;
+    long fin;
+
+    @Override
+    public String toString() {
+        return "[" + debut + ".." + fin + "]";
+    }
+}
@@ -0,0 +1,409 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.dto.*;
+import com.banque.eurobank.entity.EcartRapprochement;
+import com.banque.eurobank.entity.EcartRapprochement.TypeEcart;
+import com.banque.eurobank.repository.EcartRapprochementRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Rapprochement des soldes des comptes avec leurs écritures.
+ *
+ * Les comptes et leurs transactions exécutées sont lus en flux, triés par
+ * (compte, id), en une seule passe par partition de comptes traitée en parallèle ;
+ * les comptes sans opération sont lus aussi :
+ * - continuité du chaînage solde avant / solde après et cohérence avec le montant ;
+ * - égalité du solde du compte avec le dernier solde après ;
+ * - égalité du solde du compte avec la somme des mouvements (crédits moins débits) ;
+ * - empreinte glissante par compte et par journée comptable close, comparée à
+ *   celle enregistrée lors des passages précédents (détection d'historique modifié).
+ *
+ * Seul l'état du compte courant est conservé en mémoire ; les empreintes
+ * enregistrées sont lues par un second curseur dans le même ordre.
+ * Les écarts sont écrits dans EB_ECARTS_RAPPROCHEMENT (remplacés en cas de relance).
+ */
+@Component
+@Slf4j
+public class RapprochementBatch {
+
+    private static final int ECHELLE = 4;
+    private static final int TAILLE_LOT = 1000;
+
+    private static final String SQL_BORNES_COMPTES = "SELECT MIN(id), MAX(id) FROM EB_COMPTES";
+
+    private static final String SQL_TRANSACTIONS =
+            "SELECT c.id, t.id, t.sens, t.montant, t.solde_avant, t.solde_apres, " +
+            "COALESCE(t.date_comptable, t.date_operation), c.solde " +
+            "FROM EB_COMPTES c LEFT JOIN EB_TRANSACTIONS t ON t.compte_id = c.id AND t.statut = 'EXECUTEE' " +
+            "WHERE c.id BETWEEN ? AND ? " +
+            "ORDER BY c.id, t.id";
+
+    private static final String SQL_EMPREINTES =
+            "SELECT compte_id, jour, empreinte FROM EB_EMPREINTES_COMPTES " +
+            "WHERE compte_id BETWEEN ? AND ? ORDER BY compte_id, jour";
+
+    private static final String SQL_CREATION_EMPREINTE =
+            "INSERT INTO EB_EMPREINTES_COMPTES (compte_id, jour, empreinte, nombre_operations, date_calcul) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SQL_CONTROLE_SOLDE =
+            "SELECT c.solde, t.solde_apres FROM EB_COMPTES c JOIN EB_TRANSACTIONS t ON t.compte_id = c.id " +
+            "WHERE c.id = ? AND t.id = (SELECT MAX(id) FROM EB_TRANSACTIONS " +
+            "WHERE compte_id = ? AND statut = 'EXECUTEE')";
+
+    private static final String SQL_CONTROLE_SOMME =
+            "SELECT c.solde, COALESCE(SUM(CASE t.sens WHEN 'CREDIT' THEN t.montant ELSE -t.montant END), 0) " +
+            "FROM EB_COMPTES c LEFT JOIN EB_TRANSACTIONS t ON t.compte_id = c.id AND t.statut = 'EXECUTEE' " +
+            "WHERE c.id = ? GROUP BY c.id, c.solde";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecuteurPartitions executeurPartitions;
+    private final EcartRapprochementRepository ecartRepository;
+    private final long taillePartition;
+
+    public RapprochementBatch(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              ExecuteurPartitions executeurPartitions,
+                              EcartRapprochementRepository ecartRepository,
+                              @Value("${app.rapprochement.taille-partition:10000}") long taillePartition) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executeurPartitions = executeurPartitions;
+        this.ecartRepository = ecartRepository;
+        this.taillePartition = taillePartition;
+    }
+
+    /**
+     * Rapprochement quotidien (journées closes jusqu'à la veille)
+     */
+    @Scheduled(cron = "${app.rapprochement.cron:0 0 4 * * *}")
+    public void rapprochementQuotidien() {
+        RapportRapprochementDTO rapport = rapprocher(LocalDate.now());
+        if (!rapport.getEcarts().isEmpty()) {
+            log.warn("Rapprochement du {}: écarts {}", rapport.getDateRapprochement(), rapport.getEcarts());
+        }
+    }
+
+    /**
+     * Rapproche tous les comptes ; les journées antérieures à la date donnée sont considérées closes
+     */
+    public RapportRapprochementDTO rapprocher(LocalDate dateRapprochement) {
+        long debut = System.currentTimeMillis();
+        Long[] bornes = jdbcTemplate.queryForObject(SQL_BORNES_COMPTES, (rs, i) -> new Long[]{
+                rs.getObject(1, Long.class), rs.getObject(2, Long.class)});
+
+        ResultatPartitions<RapprochementPartition> resultat = executeurPartitions.executer(
+                "Rapprochement du " + dateRapprochement, bornes[0], bornes[1], taillePartition,
+                partition -> rapprocherPartition(partition, dateRapprochement));
+
+        long transactionsLues = 0;
+        Map<TypeEcart, Long> ecarts = new EnumMap<>(TypeEcart.class);
+        List<BilanPartition> bilans = new ArrayList<>();
+        for (RapprochementPartition rapprochement : resultat.getResultats()) {
+            transactionsLues += rapprochement.transactionsLues;
+            rapprochement.ecartsParType.forEach((type, nombre) -> ecarts.merge(type, nombre, Long::sum));
+            bilans.add(new BilanPartition(rapprochement.comptesControles, rapprochement.montantEcartsSolde));
+        }
+
+        return RapportRapprochementDTO.builder()
+                .dateRapprochement(dateRapprochement)
+                .transactionsLues(transactionsLues)
+                .ecarts(ecarts)
+                .bilan(BilanPartition.consolider("RAPPROCHEMENT", dateRapprochement,
+                        new ResultatPartitions<>(bilans, resultat.getEchecs()), debut))
+                .build();
+    }
+
+    /**
+     * Écarts relevés lors d'un rapprochement
+     */
+    public PageResponse<EcartRapprochementDTO> getEcarts(LocalDate dateRapprochement, int page, int taille) {
+        Page<EcartRapprochement> ecarts = ecartRepository.findByDateRapprochementOrderByCompteIdAscIdAsc(
+                dateRapprochement, PageRequest.of(page, taille));
+        return PageResponse.<EcartRapprochementDTO>builder()
+                .content(ecarts.getContent().stream().map(this::mapToEcartDTO).collect(Collectors.toList()))
+                .page(ecarts.getNumber())
+                .taille(ecarts.getSize())
+                .totalElements(ecarts.getTotalElements())
+                .totalPages(ecarts.getTotalPages())
+                .premier(ecarts.isFirst())
+                .dernier(ecarts.isLast())
+                .build();
+    }
+
+    private RapprochementPartition rapprocherPartition(PartitionIds partition, LocalDate dateRapprochement) {
+        return transactionTemplate.execute(status -> {
+            ecartRepository.supprimerPartition(dateRapprochement, partition.getDebut(), partition.getFin());
+
+            try (Stream<EmpreinteStockee> empreintes = jdbcTemplate.queryForStream(SQL_EMPREINTES,
+                    (rs, i) -> new EmpreinteStockee(rs.getLong(1), rs.getDate(2).toLocalDate(), rs.getLong(3)),
+                    partition.getDebut(), partition.getFin())) {
+
+                RapprochementPartition rapprochement =
+                        new RapprochementPartition(dateRapprochement, empreintes.iterator());
+                jdbcTemplate.query(SQL_TRANSACTIONS, rapprochement::lire, partition.getDebut(), partition.getFin());
+                rapprochement.terminer();
+                return rapprochement;
+            }
+        });
+    }
+
+    private EcartRapprochementDTO mapToEcartDTO(EcartRapprochement ecart) {
+        return EcartRapprochementDTO.builder()
+                .compteId(ecart.getCompteId())
+                .transactionId(ecart.getTransactionId())
+                .jour(ecart.getJour())
+                .typeEcart(ecart.getTypeEcart())
+                .valeurAttendue(ecart.getValeurAttendue())
+                .valeurConstatee(ecart.getValeurConstatee())
+                .detail(ecart.getDetail())
+                .build();
+    }
+
+    /**
+     * Mélange une valeur dans l'empreinte (FNV-1a 64 bits sur mots longs)
+     */
+    private static long melanger(long empreinte, long valeur) {
+        long h = (empreinte ^ valeur) * 0x100000001B3L;
+        return h ^ (h >>> 29);
+    }
+
+    private static long enUnitesDeCompte(BigDecimal montant) {
+        return montant.setScale(ECHELLE, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+    }
+
+    private static final class EmpreinteStockee {
+        final long compteId;
+        final LocalDate jour;
+        final long empreinte;
+
+        EmpreinteStockee(long compteId, LocalDate jour, long empreinte) {
+            this.compteId = compteId;
+            this.jour = jour;
+            this.empreinte = empreinte;
+        }
+    }
+
+    /**
+     * État du parcours d'une partition : seul le compte en cours est en mémoire,
+     * empreintes nouvelles et écarts sont écrits par lots
+     */
+    private final class RapprochementPartition {
+        private static final long EMPREINTE_INITIALE = 0xCBF29CE484222325L;
+
+        private final LocalDate dateRapprochement;
+        private final Iterator<EmpreinteStockee> empreintesStockees;
+        private EmpreinteStockee empreinteCourante;
+
+        private long transactionsLues;
+        private long comptesControles;
+        private BigDecimal montantEcartsSolde = BigDecimal.ZERO;
+        private final Map<TypeEcart, Long> ecartsParType = new EnumMap<>(TypeEcart.class);
+
+        private final List<EcartRapprochement> ecarts = new ArrayList<>();
+        private final List<Object[]> nouvellesEmpreintes = new ArrayList<>();
+        private final List<Long> soldesAControler = new ArrayList<>();
+        private final List<Long> sommesAControler = new ArrayList<>();
+
+        // Compte en cours de lecture
+        private long compteId = -1;
+        private BigDecimal soldeCompte;
+        private BigDecimal dernierSoldeApres;
+        private BigDecimal sommeMouvements;
+        private long empreinte;
+        private long nombreOperations;
+        private LocalDate jourCourant;
+        private final TreeMap<LocalDate, long[]> empreintesJours = new TreeMap<>();
+
+        RapprochementPartition(LocalDate dateRapprochement, Iterator<EmpreinteStockee> empreintesStockees) {
+            this.dateRapprochement = dateRapprochement;
+            this.empreintesStockees = empreintesStockees;
+            this.empreinteCourante = empreintesStockees.hasNext() ? empreintesStockees.next() : null;
+        }
+
+        void lire(ResultSet rs) throws SQLException {
+            long id = rs.getLong(1);
+            if (id != compteId) {
+                terminerCompte();
+                compteId = id;
+                soldeCompte = rs.getBigDecimal(8);
+                dernierSoldeApres = null;
+                sommeMouvements = BigDecimal.ZERO;
+                empreinte = EMPREINTE_INITIALE;
+                nombreOperations = 0;
+                jourCourant = null;
+            }
+            long transactionId = rs.getLong(2);
+            if (rs.wasNull()) {
+                // Compte sans opération exécutée
+                return;
+            }
+            transactionsLues++;
+
+            boolean credit = "CREDIT".equals(rs.getString(3));
+            BigDecimal montant = rs.getBigDecimal(4);
+            sommeMouvements = credit ? sommeMouvements.add(montant) : sommeMouvements.subtract(montant);
+            BigDecimal soldeAvant = rs.getBigDecimal(5);
+            BigDecimal soldeApres = rs.getBigDecimal(6);
+            Date jour = rs.getDate(7);
+
+            if (soldeAvant != null && soldeApres != null) {
+                if (dernierSoldeApres != null && dernierSoldeApres.compareTo(soldeAvant) != 0) {
+                    ajouterEcart(TypeEcart.RUPTURE_CHAINE, compteId, transactionId, null, dernierSoldeApres, soldeAvant, null);
+                }
+                BigDecimal attendu = credit ? soldeAvant.add(montant) : soldeAvant.subtract(montant);
+                if (attendu.compareTo(soldeApres) != 0) {
+                    ajouterEcart(TypeEcart.MOUVEMENT_INCOHERENT, compteId, transactionId, null, attendu, soldeApres, null);
+                }
+            }
+            dernierSoldeApres = soldeApres;
+
+            empreinte = melanger(empreinte, transactionId);
+            empreinte = melanger(empreinte, credit ? enUnitesDeCompte(montant) : -enUnitesDeCompte(montant));
+            empreinte = melanger(empreinte, soldeApres != null ? enUnitesDeCompte(soldeApres) : 0L);
+            nombreOperations++;
+
+            // Empreinte de fin de journée : état après la dernière opération du jour
+            jourCourant = jour != null ? jour.toLocalDate() : jourCourant;
+            if (jourCourant != null && jourCourant.isBefore(dateRapprochement)) {
+                empreintesJours.put(jourCourant, new long[]{empreinte, nombreOperations});
+            }
+        }
+
+        void terminer() {
+            terminerCompte();
+            while (empreinteCourante != null) {
+                historiqueDisparu();
+            }
+            controlerSoldes();
+            ecrireLots(true);
+        }
+
+        private void terminerCompte() {
+            if (compteId < 0) {
+                return;
+            }
+            comptesControles++;
+            if (dernierSoldeApres != null && dernierSoldeApres.compareTo(soldeCompte) != 0) {
+                // Peut résulter d'une opération concurrente : contrôlé à nouveau en fin de partition
+                soldesAControler.add(compteId);
+            }
+            if (sommeMouvements.compareTo(soldeCompte) != 0) {
+                sommesAControler.add(compteId);
+            }
+
+            while (empreinteCourante != null && empreinteCourante.compteId < compteId) {
+                historiqueDisparu();
+            }
+            if (nombreOperations == 0 && empreinteCourante != null && empreinteCourante.compteId == compteId) {
+                historiqueDisparu();
+            }
+            boolean historiqueModifie = false;
+            while (empreinteCourante != null && empreinteCourante.compteId == compteId) {
+                long[] calculee = empreintesJours.remove(empreinteCourante.jour);
+                if (!historiqueModifie && (calculee == null || calculee[0] != empreinteCourante.empreinte)) {
+                    historiqueModifie = true;
+                    ajouterEcart(TypeEcart.HISTORIQUE_MODIFIE, compteId, null, empreinteCourante.jour, null, null,
+                            calculee == null ? "Journée sans opération"
+                                    : "Empreinte " + Long.toHexString(calculee[0])
+                                    + " au lieu de " + Long.toHexString(empreinteCourante.empreinte));
+                }
+                avancerEmpreinte();
+            }
+
+            // Les journées nouvellement closes ne sont enregistrées que sur un historique intègre
+            if (!historiqueModifie) {
+                Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+                for (Map.Entry<LocalDate, long[]> jour : empreintesJours.entrySet()) {
+                    nouvellesEmpreintes.add(new Object[]{compteId, Date.valueOf(jour.getKey()),
+                            jour.getValue()[0], jour.getValue()[1], maintenant});
+                }
+            }
+            empreintesJours.clear();
+            ecrireLots(false);
+        }
+
+        private void historiqueDisparu() {
+            ajouterEcart(TypeEcart.HISTORIQUE_MODIFIE, empreinteCourante.compteId, null,
+                    empreinteCourante.jour, null, null, "Opérations du compte absentes");
+            long disparu = empreinteCourante.compteId;
+            while (empreinteCourante != null && empreinteCourante.compteId == disparu) {
+                avancerEmpreinte();
+            }
+        }
+
+        private void avancerEmpreinte() {
+            empreinteCourante = empreintesStockees.hasNext() ? empreintesStockees.next() : null;
+        }
+
+        private void controlerSoldes() {
+            for (Long id : soldesAControler) {
+                jdbcTemplate.query(SQL_CONTROLE_SOLDE, rs -> {
+                    BigDecimal solde = rs.getBigDecimal(1);
+                    BigDecimal soldeApres = rs.getBigDecimal(2);
+                    if (soldeApres != null && soldeApres.compareTo(solde) != 0) {
+                        ajouterEcart(TypeEcart.SOLDE_COMPTE, id, null, null, soldeApres, solde, null);
+                    }
+                }, id, id);
+            }
+            for (Long id : sommesAControler) {
+                jdbcTemplate.query(SQL_CONTROLE_SOMME, rs -> {
+                    BigDecimal solde = rs.getBigDecimal(1);
+                    BigDecimal somme = rs.getBigDecimal(2);
+                    if (somme.compareTo(solde) != 0) {
+                        ajouterEcart(TypeEcart.SOMME_MOUVEMENTS, id, null, null, somme, solde, null);
+                        montantEcartsSolde = montantEcartsSolde.add(solde.subtract(somme).abs());
+                    }
+                }, id);
+            }
+        }
+
+        private void ajouterEcart(TypeEcart type, long compte, Long transactionId, LocalDate jour,
+                                  BigDecimal attendu, BigDecimal constate, String detail) {
+            ecartsParType.merge(type, 1L, Long::sum);
+            ecarts.add(EcartRapprochement.builder()
+                    .dateRapprochement(dateRapprochement)
+                    .compteId(compte)
+                    .transactionId(transactionId)
+                    .jour(jour)
+                    .typeEcart(type)
+                    .valeurAttendue(attendu)
+                    .valeurConstatee(constate)
+                    .detail(detail)
+                    .build());
+        }
+
+        private void ecrireLots(boolean tout) {
+            if (nouvellesEmpreintes.size() >= TAILLE_LOT || (tout && !nouvellesEmpreintes.isEmpty())) {
+                jdbcTemplate.batchUpdate(SQL_CREATION_EMPREINTE, nouvellesEmpreintes);
+                nouvellesEmpreintes.clear();
+            }
+            if (ecarts.size() >= TAILLE_LOT || (tout && !ecarts.isEmpty())) {
+                ecartRepository.saveAll(ecarts);
+                ecartRepository.flush();
+                ecarts.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.autorisation.RegistreCartes;
+import com.banque.eurobank.dto.BilanBatchDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Reconstruction de l'historique des cumuls journaliers des cartes (EB_CUMULS_CARTES)
+ * à partir des opérations PAIEMENT_CARTE et RETRAIT_DAB de EB_TRANSACTIONS.
+ *
+ * Couvre les journées closes de la fenêtre mensuelle ; le jour courant reste
+ * porté par le moteur d'autorisation. Chaque partition de cartes est remplacée
+ * dans sa propre transaction (suppression puis insertion ensembliste), puis les
+ * fenêtres glissantes du registre sont rechargées.
+ */
+@Component
+@Slf4j
+public class ReconstructionCumulsCartesBatch {
+
+    static final int JOURS_HISTORIQUE = 30;
+
+    private static final String SQL_BORNES_CARTES = "SELECT MIN(id), MAX(id) FROM EB_CARTES";
+
+    private static final String SQL_SUPPRESSION =
+            "DELETE FROM EB_CUMULS_CARTES WHERE carte_id BETWEEN ? AND ? AND jour >= ? AND jour < ?";
+
+    private static final String SQL_RECONSTRUCTION =
+            "INSERT INTO EB_CUMULS_CARTES (carte_id, jour, montant_paiement, montant_retrait, date_maj) " +
+            "SELECT c.id, t.date_operation, " +
+            "SUM(CASE WHEN t.type_operation = 'PAIEMENT_CARTE' THEN t.montant ELSE 0 END), " +
+            "SUM(CASE WHEN t.type_operation = 'RETRAIT_DAB' THEN t.montant ELSE 0 END), CURRENT_TIMESTAMP " +
+            "FROM EB_TRANSACTIONS t " +
+            "JOIN EB_CARTES c ON c.compte_id = t.compte_id AND c.numero_carte_masque = t.numero_carte_masque " +
+            "WHERE c.id BETWEEN ? AND ? AND t.type_operation IN ('PAIEMENT_CARTE', 'RETRAIT_DAB') " +
+            "AND t.statut NOT IN ('REJETEE', 'ANNULEE') AND t.date_operation >= ? AND t.date_operation < ? " +
+            "GROUP BY c.id, t.date_operation";
+
+    private static final String SQL_TOTAL =
+            "SELECT COALESCE(SUM(montant_paiement + montant_retrait), 0) FROM EB_CUMULS_CARTES " +
+            "WHERE carte_id BETWEEN ? AND ? AND jour >= ? AND jour < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecuteurPartitions executeurPartitions;
+    private final RegistreCartes registreCartes;
+    private final long taillePartition;
+
+    public ReconstructionCumulsCartesBatch(JdbcTemplate jdbcTemplate,
+                                           PlatformTransactionManager transactionManager,
+                                           ExecuteurPartitions executeurPartitions,
+                                           RegistreCartes registreCartes,
+                                           @Value("${app.autorisations.taille-partition-reconstruction:5000}") long taillePartition) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executeurPartitions = executeurPartitions;
+        this.registreCartes = registreCartes;
+        this.taillePartition = taillePartition;
+    }
+
+    /**
+     * Reconstruit les journées closes de la fenêtre mensuelle se terminant la veille
+     */
+    public BilanBatchDTO reconstruire() {
+        long debut = System.currentTimeMillis();
+        LocalDate aujourdhui = LocalDate.now();
+        Date debutHistorique = Date.valueOf(aujourdhui.minusDays(JOURS_HISTORIQUE - 1));
+        Date finHistorique = Date.valueOf(aujourdhui);
+
+        Long[] bornes = jdbcTemplate.queryForObject(SQL_BORNES_CARTES, (rs, i) -> new Long[]{
+                rs.getObject(1, Long.class), rs.getObject(2, Long.class)});
+        ResultatPartitions<BilanPartition> resultat = executeurPartitions.executer(
+                "Reconstruction des cumuls cartes", bornes[0], bornes[1], taillePartition,
+                partition -> reconstruirePartition(partition, debutHistorique, finHistorique));
+
+        int cartesAvecFenetre = registreCartes.rechargerFenetres();
+        log.info("Fenêtres glissantes rechargées pour {} carte(s)", cartesAvecFenetre);
+        return BilanPartition.consolider("RECONSTRUCTION_CUMULS_CARTES", aujourdhui, resultat, debut);
+    }
+
+    private BilanPartition reconstruirePartition(PartitionIds partition, Date debutHistorique, Date finHistorique) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.update(SQL_SUPPRESSION, partition.getDebut(), partition.getFin(),
+                    debutHistorique, finHistorique);
+            int lignes = jdbcTemplate.update(SQL_RECONSTRUCTION, partition.getDebut(), partition.getFin(),
+                    debutHistorique, finHistorique);
+            if (lignes == 0) {
+                return BilanPartition.VIDE;
+            }
+            BigDecimal total = jdbcTemplate.queryForObject(SQL_TOTAL, BigDecimal.class,
+                    partition.getDebut(), partition.getFin(), debutHistorique, finHistorique);
+            return new BilanPartition(lignes, total);
+        });
+    }
+}
@@ -0,0 +1,19 @@
+package com.banque.eurobank.batch;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Résultat d'un traitement partitionné : résultats des partitions réussies
+ * et partitions en échec (à relancer)
+ */
+@Value
+public class ResultatPartitions<R> {
+    List<R> resultats;
+    List<PartitionIds> echecs;
+
+    public boolean isComplet() {
+        return echecs.isEmpty();
+    }
+}
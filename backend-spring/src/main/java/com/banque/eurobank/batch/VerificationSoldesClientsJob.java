@@ -0,0 +1,68 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.service.SoldeClientService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Vérification périodique des agrégats de solde global par client.
+ * Chaque tranche est traitée dans sa propre transaction.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class VerificationSoldesClientsJob {
+
+    private final SoldeClientService soldeClientService;
+
+    @Value("${app.soldes-globaux.taille-tranche:500}")
+    private int tailleTranche;
+
+    /**
+     * Crée au démarrage les agrégats absents (clients chargés hors service)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiserAgregats() {
+        int total = 0;
+        int crees;
+        while ((crees = soldeClientService.initialiserManquants(tailleTranche)) > 0) {
+            total += crees;
+        }
+        if (total > 0) {
+            log.info("Agrégats de solde global initialisés: {}", total);
+        }
+    }
+
+    /**
+     * Recalcule tous les agrégats et signale les dérives
+     */
+    @Scheduled(cron = "${app.soldes-globaux.verification-cron:0 30 2 * * *}")
+    public void verifier() {
+        long debut = System.currentTimeMillis();
+        initialiserAgregats();
+
+        long verifies = 0;
+        long ecarts = 0;
+        Long curseur = 0L;
+        SoldeClientService.VerificationTranche tranche;
+        do {
+            tranche = soldeClientService.verifierTranche(curseur, tailleTranche);
+            verifies += tranche.getNombreVerifies();
+            ecarts += tranche.getNombreEcarts();
+            curseur = tranche.getDernierClientId();
+        } while (tranche.getNombreVerifies() == tailleTranche);
+
+        if (ecarts > 0) {
+            log.warn("Vérification des soldes globaux: {} écart(s) corrigé(s) sur {} clients en {} ms",
+                    ecarts, verifies, System.currentTimeMillis() - debut);
+        } else {
+            log.info("Vérification des soldes globaux: {} clients conformes en {} ms",
+                    verifies, System.currentTimeMillis() - debut);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.banque.eurobank.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Configuration des traitements de masse (batchs)
+ */
+@Configuration
+@Slf4j
+public class BatchConfig {
+
+    /**
+     * Pool dédié aux traitements parallèles par partitions.
+     * Le parallélisme doit rester inférieur à la taille du pool de connexions.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool batchForkJoinPool(@Value("${app.batch.parallelisme:4}") int parallelisme) {
+        log.info("Pool batch initialisé - parallélisme: {}", parallelisme);
+        return new ForkJoinPool(parallelisme);
+    }
+}
@@ -1,5 +1,6 @@
 package com.banque.eurobank.config;
 
+import com.banque.eurobank.autorisation.EmpreinteCode;
 import com.banque.eurobank.entity.*;
 import com.banque.eurobank.repository.*;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +23,7 @@ import java.util.List;
 public class DataLoader {
 
     private final PasswordEncoder passwordEncoder;
+    private final EmpreinteCode empreinteCode;
 
     @Bean
     CommandLineRunner initDatabase(
@@ -126,6 +128,26 @@ public class DataLoader {
             compteRepository.saveAll(List.of(compte1, compte2));
             log.info("Created 2 accounts");
 
+            // Create a card with its PIN (hash: SHA-256 of the card number 4970101234564521)
+            String numeroCarteHash = "bdd6b515c3ead593765979d74725ead9e348038e760249a990bc8b77bc744bd6";
+            Carte carte1 = Carte.builder()
+                    .numeroCarteMasque("XXXX XXXX XXXX 4521")
+                    .numeroCarteHash(numeroCarteHash)
+                    .titulaire("M JEAN DUPONT")
+                    .typeCarte(Carte.TypeCarte.VISA_CLASSIC)
+                    .reseau(Carte.ReseauCarte.VISA)
+                    .dateExpiration(LocalDate.now().plusYears(3))
+                    .plafondPaiementJour(new BigDecimal("1500.00"))
+                    .plafondPaiementMois(new BigDecimal("5000.00"))
+                    .plafondRetraitJour(new BigDecimal("300.00"))
+                    .plafondRetraitSemaine(new BigDecimal("1000.00"))
+                    .codePinHash(empreinteCode.hexadecimal(numeroCarteHash, "1234"))
+                    .compte(compte1)
+                    .build();
+
+            carteRepository.save(carte1);
+            log.info("Created 1 card");
+
             // Create users with properly hashed passwords
             Utilisateur user1 = Utilisateur.builder()
                     .login("jean.dupont")
@@ -187,6 +209,7 @@ public class DataLoader {
             log.info("  - marie.martin / Demo@2024");
             log.info("  - conseiller01 / Conseiller@2024");
             log.info("  - admin / Admin@2024");
+            log.info("  - carte {} / code 1234", numeroCarteHash);
         };
     }
 }
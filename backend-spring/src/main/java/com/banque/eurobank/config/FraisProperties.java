@@ -0,0 +1,39 @@
+package com.banque.eurobank.config;
+
+import com.banque.eurobank.entity.Client;
+import com.banque.eurobank.entity.Compte;
+import com.banque.eurobank.entity.Transaction;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Grille tarifaire des frais mensuels (app.frais.regles).
+ *
+ * Pour un même code de frais, la règle la plus spécifique l'emporte :
+ * segment + type de compte, puis type de compte, puis segment, puis défaut.
+ * Un montant nul vaut exonération.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.frais")
+@Data
+public class FraisProperties {
+
+    private List<Regle> regles = new ArrayList<>();
+
+    @Data
+    public static class Regle {
+        private String code;
+        private Client.SegmentClient segment;
+        private Compte.TypeCompte typeCompte;
+        private Transaction.TypeOperation typeOperation = Transaction.TypeOperation.FRAIS_BANCAIRES;
+        private BigDecimal montant = BigDecimal.ZERO;
+        private String libelle;
+        /** Ne s'applique qu'aux comptes en position débitrice */
+        private boolean siDebiteur;
+    }
+}
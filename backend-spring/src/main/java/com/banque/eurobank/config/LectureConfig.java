@@ -0,0 +1,37 @@
+package com.banque.eurobank.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Configuration des lectures parallèles des vues agrégées (tableau de bord, vue client)
+ */
+@Configuration
+@Slf4j
+public class LectureConfig {
+
+    /**
+     * Pool borné des lectures parallèles. À saturation (threads occupés et file
+     * pleine), une lecture est rejetée : exécutée par la requête appelante, elle
+     * échapperait au délai de sa partie. La vue client la signale indisponible,
+     * le tableau de bord, sans délai par partie, la lit sur le thread appelant.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor lectureExecutor(@Value("${app.lecture.pool-size:8}") int taillePool,
+                                                  @Value("${app.lecture.file-attente:100}") int fileAttente) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(taillePool);
+        executor.setMaxPoolSize(taillePool);
+        executor.setQueueCapacity(fileAttente);
+        executor.setThreadNamePrefix("lecture-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        log.info("Pool de lecture initialisé - taille: {}, file d'attente: {}", taillePool, fileAttente);
+        return executor;
+    }
+}
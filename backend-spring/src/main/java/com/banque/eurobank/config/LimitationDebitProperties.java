@@ -0,0 +1,41 @@
+package com.banque.eurobank.config;
+
+import com.banque.eurobank.security.GroupeLimitation;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Limites de débit des requêtes (app.limitation-debit), par groupe d'endpoints,
+ * pour l'utilisateur authentifié et pour l'adresse IP cliente.
+ *
+ * Une limite est un seau à jetons : capacité (rafale admise) et recharge par
+ * seconde (débit soutenu). Un groupe ou une clé sans limite n'est pas limité.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.limitation-debit")
+@Data
+public class LimitationDebitProperties {
+
+    private boolean actif = true;
+
+    /** Nombre maximal de seaux en mémoire, au-delà les nouvelles clés ne sont pas suivies */
+    private int maxSeaux = 100_000;
+
+    private Map<GroupeLimitation, Groupe> groupes = new EnumMap<>(GroupeLimitation.class);
+
+    @Data
+    public static class Groupe {
+        private Limite utilisateur;
+        private Limite ip;
+    }
+
+    @Data
+    public static class Limite {
+        private int capacite;
+        private double parSeconde;
+    }
+}
@@ -1,8 +1,15 @@
 package com.banque.eurobank.config;
 
+import com.banque.eurobank.security.EtatUtilisateurs;
+import com.banque.eurobank.security.HachageMotsDePasse;
 import com.banque.eurobank.security.JwtAuthenticationFilter;
 import com.banque.eurobank.security.JwtTokenProvider;
+import com.banque.eurobank.security.LimitationDebitFilter;
+import com.banque.eurobank.security.LimiteurDebit;
+import com.banque.eurobank.security.ListeRevocations;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -11,8 +18,6 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -32,6 +37,9 @@ import java.util.List;
 public class SecurityConfig {
     
     private final JwtTokenProvider jwtTokenProvider;
+    private final ListeRevocations listeRevocations;
+    private final EtatUtilisateurs etatUtilisateurs;
+    private final LimiteurDebit limiteurDebit;
     
     // Endpoints publics (pas d'authentification requise)
     private static final String[] PUBLIC_ENDPOINTS = {
@@ -77,6 +85,7 @@ public class SecurityConfig {
                 
                 // Endpoints administration
                 .antMatchers("/api/v1/admin/**").hasRole("ADMIN_SYSTEME")
+                .antMatchers("/actuator/**").hasRole("ADMIN_SYSTEME")
                 
                 // Tout le reste nécessite une authentification
                 .anyRequest().authenticated()
@@ -86,6 +95,9 @@ public class SecurityConfig {
             // Ajouter le filtre JWT
             .addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class)
             
+            // Limitation de débit, par utilisateur authentifié et par adresse IP
+            .addFilterAfter(limitationDebitFilter(), JwtAuthenticationFilter.class)
+            
             // Gestion des exceptions
             .exceptionHandling()
                 .authenticationEntryPoint((request, response, authException) -> {
@@ -104,12 +116,25 @@ public class SecurityConfig {
     
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtTokenProvider);
+        return new JwtAuthenticationFilter(jwtTokenProvider, listeRevocations, etatUtilisateurs);
+    }
+    
+    @Bean
+    public LimitationDebitFilter limitationDebitFilter() {
+        return new LimitationDebitFilter(limiteurDebit);
     }
     
+    /**
+     * Encodeur BCrypt sur pool dédié borné (voir {@link HachageMotsDePasse}) ; un pool
+     * de taille 0 prend le nombre de cœurs
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    public HachageMotsDePasse passwordEncoder(@Value("${app.securite.bcrypt.cout:12}") int cout,
+                                              @Value("${app.securite.bcrypt.pool-size:0}") int taillePool,
+                                              @Value("${app.securite.bcrypt.file-attente:64}") int fileAttente,
+                                              @Value("${app.securite.bcrypt.retry-after-s:2}") int retryAfter,
+                                              MeterRegistry registre) {
+        return new HachageMotsDePasse(cout, taillePool, fileAttente, retryAfter, registre);
     }
     
     @Bean
@@ -128,7 +153,7 @@ public class SecurityConfig {
         ));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
-        configuration.setExposedHeaders(Arrays.asList("Authorization", "X-Request-Id"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "X-Request-Id", "Retry-After"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
         
@@ -1,6 +1,7 @@
 package com.banque.eurobank.controller;
 
 import com.banque.eurobank.dto.*;
+import com.banque.eurobank.security.UtilisateurAuthentifie;
 import com.banque.eurobank.service.*;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -9,7 +10,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
@@ -47,12 +47,12 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    @Operation(summary = "Déconnexion")
+    @Operation(summary = "Déconnexion (révoque la session et ses tokens)")
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<ApiResponse<Void>> logout(
-            @AuthenticationPrincipal UserDetails userDetails) {
-        log.info("Déconnexion: {}", userDetails.getUsername());
-        authService.logout(userDetails.getUsername());
+            @AuthenticationPrincipal UtilisateurAuthentifie utilisateur) {
+        log.info("Déconnexion: {}", utilisateur.getUsername());
+        authService.logout(utilisateur);
         return ResponseEntity.ok(ApiResponse.success(null, "Déconnexion réussie"));
     }
 }
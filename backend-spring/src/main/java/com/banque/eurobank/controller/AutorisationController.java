@@ -0,0 +1,57 @@
+package com.banque.eurobank.controller;
+
+import com.banque.eurobank.autorisation.AutorisationCarteService;
+import com.banque.eurobank.autorisation.ListeOppositions;
+import com.banque.eurobank.dto.*;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Contrôleur des demandes d'autorisation carte (paiements et retraits)
+ */
+@RestController
+@RequestMapping("/api/v1/autorisations")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Autorisations", description = "Autorisation des paiements et retraits carte")
+@SecurityRequirement(name = "bearerAuth")
+@Validated
+public class AutorisationController {
+
+    private final AutorisationCarteService autorisationCarteService;
+    private final ListeOppositions listeOppositions;
+
+    @PostMapping
+    @Operation(summary = "Demander une autorisation de paiement ou de retrait")
+    @PreAuthorize("hasAnyRole('BACK_OFFICE', 'ADMIN_SYSTEME')")
+    public ResponseEntity<ApiResponse<ReponseAutorisationDTO>> autoriser(
+            @Valid @RequestBody DemandeAutorisationDTO demande) {
+        ReponseAutorisationDTO reponse = autorisationCarteService.autoriser(demande);
+        return ResponseEntity.ok(ApiResponse.success(reponse));
+    }
+
+    @GetMapping(value = "/liste-oppositions", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Télécharger la liste des oppositions pour les terminaux hors ligne")
+    @PreAuthorize("hasAnyRole('BACK_OFFICE', 'ADMIN_SYSTEME')")
+    public ResponseEntity<byte[]> exporterListeOppositions() throws IOException {
+        ByteArrayOutputStream fichier = new ByteArrayOutputStream();
+        int nombre = listeOppositions.exporter(fichier);
+        log.info("Export de la liste des oppositions: {} carte(s)", nombre);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"hotlist.ebhl\"")
+                .body(fichier.toByteArray());
+    }
+}
@@ -0,0 +1,128 @@
+package com.banque.eurobank.controller;
+
+import com.banque.eurobank.batch.*;
+import com.banque.eurobank.dto.*;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Contrôleur d'exploitation des traitements de masse (lancement et relance manuels)
+ */
+@RestController
+@RequestMapping("/api/v1/admin/batch")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Batchs", description = "Exploitation des traitements de masse")
+@SecurityRequirement(name = "bearerAuth")
+@Validated
+public class BatchController {
+
+    private final InteretsBatch interetsBatch;
+    private final FraisBancairesBatch fraisBancairesBatch;
+    private final RapprochementBatch rapprochementBatch;
+    private final ReconstructionCumulsCartesBatch reconstructionCumulsCartesBatch;
+    private final CycleVieCartesBatch cycleVieCartesBatch;
+    private final CompensationCartesBatch compensationCartesBatch;
+
+    @PostMapping("/interets/calcul")
+    @Operation(summary = "Calculer les intérêts courus jusqu'à une date")
+    @PreAuthorize("hasRole('ADMIN_SYSTEME')")
+    public ResponseEntity<ApiResponse<BilanBatchDTO>> calculerInterets(
+            @Parameter(description = "Jour de calcul (veille par défaut)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate jour) {
+        LocalDate dateCalcul = jour != null ? jour : LocalDate.now().minusDays(1);
+        log.info("Lancement manuel du calcul des intérêts au {}", dateCalcul);
+        BilanBatchDTO bilan = interetsBatch.calculerInteretsJournaliers(dateCalcul);
+        return ResponseEntity.ok(ApiResponse.success(bilan));
+    }
+
+    @PostMapping("/interets/capitalisation")
+    @Operation(summary = "Capitaliser les intérêts courus à une fin de période")
+    @PreAuthorize("hasRole('ADMIN_SYSTEME')")
+    public ResponseEntity<ApiResponse<BilanBatchDTO>> capitaliserInterets(
+            @Parameter(description = "Fin de période")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate finPeriode) {
+        log.info("Lancement manuel de la capitalisation des intérêts au {}", finPeriode);
+        BilanBatchDTO bilan = interetsBatch.capitaliserInterets(finPeriode);
+        return ResponseEntity.ok(ApiResponse.success(bilan));
+    }
+
+    @PostMapping("/frais/mensuels")
+    @Operation(summary = "Prélever (ou simuler) les frais mensuels d'une période")
+    @PreAuthorize("hasRole('ADMIN_SYSTEME')")
+    public ResponseEntity<ApiResponse<RapportFraisDTO>> preleverFrais(
+            @Parameter(description = "Période au format yyyy-MM (mois écoulé par défaut)")
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth periode,
+            @Parameter(description = "Simulation sans écriture")
+            @RequestParam(defaultValue = "true") boolean simulation) {
+        YearMonth periodeFrais = periode != null ? periode : YearMonth.now().minusMonths(1);
+        log.info("Lancement manuel des frais {} (simulation: {})", periodeFrais, simulation);
+        RapportFraisDTO rapport = fraisBancairesBatch.executer(periodeFrais, simulation);
+        return ResponseEntity.ok(ApiResponse.success(rapport));
+    }
+
+    @PostMapping("/rapprochement")
+    @Operation(summary = "Rapprocher les soldes des comptes avec leurs écritures")
+    @PreAuthorize("hasRole('ADMIN_SYSTEME')")
+    public ResponseEntity<ApiResponse<RapportRapprochementDTO>> rapprocher(
+            @Parameter(description = "Date du rapprochement : les journées antérieures sont closes (aujourd'hui par défaut)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        LocalDate dateRapprochement = date != null ? date : LocalDate.now();
+        log.info("Lancement manuel du rapprochement du {}", dateRapprochement);
+        RapportRapprochementDTO rapport = rapprochementBatch.rapprocher(dateRapprochement);
+        return ResponseEntity.ok(ApiResponse.success(rapport));
+    }
+
+    @GetMapping("/rapprochement/ecarts")
+    @Operation(summary = "Consulter les écarts d'un rapprochement")
+    @PreAuthorize("hasRole('ADMIN_SYSTEME')")
+    public ResponseEntity<ApiResponse<PageResponse<EcartRapprochementDTO>>> getEcartsRapprochement(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "0") @Min(0) int page,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int taille) {
+        return ResponseEntity.ok(ApiResponse.success(rapprochementBatch.getEcarts(date, page, taille)));
+    }
+
+    @PostMapping("/cartes/cumuls/reconstruction")
+    @Operation(summary = "Reconstruire l'historique des cumuls cartes depuis les opérations")
+    @PreAuthorize("hasRole('ADMIN_SYSTEME')")
+    public ResponseEntity<ApiResponse<BilanBatchDTO>> reconstruireCumulsCartes() {
+        log.info("Lancement manuel de la reconstruction des cumuls cartes");
+        return ResponseEntity.ok(ApiResponse.success(reconstructionCumulsCartesBatch.reconstruire()));
+    }
+
+    @PostMapping("/cartes/cycle-vie")
+    @Operation(summary = "Expirer, renouveler les cartes et produire le fichier de fabrication")
+    @PreAuthorize("hasRole('ADMIN_SYSTEME')")
+    public ResponseEntity<ApiResponse<RapportCycleVieCartesDTO>> traiterCycleVieCartes(
+            @Parameter(description = "Jour de traitement (aujourd'hui par défaut)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate jour) {
+        LocalDate dateTraitement = jour != null ? jour : LocalDate.now();
+        log.info("Lancement manuel du cycle de vie des cartes du {}", dateTraitement);
+        return ResponseEntity.ok(ApiResponse.success(cycleVieCartesBatch.executer(dateTraitement)));
+    }
+
+    @PostMapping("/cartes/compensation")
+    @Operation(summary = "Intégrer (ou reprendre) un fichier de compensation carte")
+    @PreAuthorize("hasRole('ADMIN_SYSTEME')")
+    public ResponseEntity<ApiResponse<RapportCompensationDTO>> integrerCompensation(
+            @Parameter(description = "Nom du fichier dans le répertoire de dépôt")
+            @RequestParam String fichier) {
+        log.info("Lancement manuel de l'intégration du fichier de compensation {}", fichier);
+        return ResponseEntity.ok(ApiResponse.success(compensationCartesBatch.integrer(fichier)));
+    }
+}
@@ -61,6 +61,17 @@ public class CarteController {
         return ResponseEntity.ok(ApiResponse.success(carte, "Options modifiées avec succès"));
     }
 
+    @PutMapping("/{id}/code")
+    @Operation(summary = "Attribuer ou réinitialiser le code confidentiel d'une carte")
+    @PreAuthorize("hasAnyRole('CLIENT', 'CONSEILLER')")
+    public ResponseEntity<ApiResponse<Void>> definirCode(
+            @PathVariable Long id,
+            @Valid @RequestBody CodeCarteDTO request) {
+        log.info("Modification du code confidentiel de la carte: {}", id);
+        carteService.definirCode(id, request.getCode());
+        return ResponseEntity.ok(ApiResponse.success(null, "Code confidentiel modifié avec succès"));
+    }
+
     @PostMapping("/{id}/opposition")
     @Operation(summary = "Mettre une carte en opposition")
     @PreAuthorize("hasAnyRole('CLIENT', 'CONSEILLER')")
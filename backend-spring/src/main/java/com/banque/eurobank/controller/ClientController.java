@@ -8,13 +8,21 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Size;
+import java.io.IOException;
 
 /**
  * Contrôleur pour la gestion des clients
@@ -29,6 +37,9 @@ import javax.validation.Valid;
 public class ClientController {
 
     private final ClientService clientService;
+    private final ImportClientsService importClientsService;
+    private final DashboardService dashboardService;
+    private final ExportRgpdService exportRgpdService;
 
     @GetMapping("/{id}")
     @Operation(summary = "Récupérer un client par ID")
@@ -50,6 +61,49 @@ public class ClientController {
         return ResponseEntity.ok(ApiResponse.success(client));
     }
 
+    @GetMapping("/portefeuille/{conseillerId}")
+    @Operation(summary = "Portefeuille d'un conseiller, paginé par curseur")
+    @PreAuthorize("hasAnyRole('CONSEILLER', 'RESPONSABLE')")
+    public ResponseEntity<ApiResponse<PageCurseurResponse<ClientPortefeuilleDTO>>> getPortefeuille(
+            @Parameter(description = "ID du conseiller") @PathVariable Long conseillerId,
+            @Parameter(description = "Ordre des clients")
+            @RequestParam(defaultValue = "NOM") TriPortefeuille tri,
+            @Parameter(description = "Curseur de la page suivante (absent pour la première page)")
+            @RequestParam(required = false) @Size(max = 1000) String curseur,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(200) int taille) {
+        log.info("Portefeuille du conseiller: {} (tri: {})", conseillerId, tri);
+        PageCurseurResponse<ClientPortefeuilleDTO> portefeuille =
+                clientService.getPortefeuille(conseillerId, tri, curseur, taille);
+        return ResponseEntity.ok(ApiResponse.success(portefeuille));
+    }
+
+    @GetMapping("/{id}/vue-360")
+    @Operation(summary = "Vue 360 du client : fiche, comptes, cartes, dernières opérations et solde global")
+    @PreAuthorize("hasAnyRole('CONSEILLER', 'RESPONSABLE')")
+    public ResponseEntity<ApiResponse<VueClientDTO>> getVueClient(
+            @Parameter(description = "ID du client") @PathVariable Long id,
+            @Parameter(description = "Nombre de dernières opérations par compte")
+            @RequestParam(defaultValue = "10") @Min(1) @Max(50) int nombreTransactions) {
+        log.info("Vue 360 du client: {}", id);
+        VueClientDTO vue = dashboardService.getVueClient(id, nombreTransactions);
+        return ResponseEntity.ok(ApiResponse.success(vue));
+    }
+
+    @GetMapping("/{id}/export-rgpd")
+    @Operation(summary = "Exporter toutes les données détenues sur un client (archive zip)")
+    @PreAuthorize("hasAnyRole('RESPONSABLE', 'ADMIN_SYSTEME')")
+    public void exporterDonneesClient(
+            @Parameter(description = "ID du client") @PathVariable Long id,
+            HttpServletResponse response) throws IOException {
+        log.info("Export RGPD du client: {}", id);
+        try (ExportRgpdService.Export export = exportRgpdService.ouvrir(id)) {
+            response.setContentType("application/zip");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + export.getNomFichier() + "\"");
+            export.ecrire(response.getOutputStream());
+        }
+    }
+
     @PostMapping
     @Operation(summary = "Créer un nouveau client")
     @PreAuthorize("hasAnyRole('CONSEILLER', 'RESPONSABLE')")
@@ -62,13 +116,26 @@ public class ClientController {
                 .body(ApiResponse.success(client, "Client créé avec succès"));
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    @Operation(summary = "Importer des clients en masse (CSV ou JSON), avec leur compte initial")
+    @PreAuthorize("hasAnyRole('RESPONSABLE', 'ADMIN_SYSTEME')")
+    public ResponseEntity<ApiResponse<RapportImportClientsDTO>> importerClients(HttpServletRequest requete)
+            throws IOException {
+        MediaType type = MediaType.parseMediaType(requete.getContentType());
+        log.info("Import de clients ({})", type);
+        RapportImportClientsDTO rapport = type.isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? importClientsService.importerCsv(requete.getInputStream())
+                : importClientsService.importerJson(requete.getInputStream());
+        return ResponseEntity.ok(ApiResponse.success(rapport));
+    }
+
     @GetMapping("/recherche")
     @Operation(summary = "Rechercher des clients")
     @PreAuthorize("hasAnyRole('CONSEILLER', 'RESPONSABLE')")
     public ResponseEntity<ApiResponse<PageResponse<ClientDTO>>> rechercherClients(
-            @RequestParam String terme,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int taille) {
+            @RequestParam @Size(min = 2, max = 100) String terme,
+            @RequestParam(defaultValue = "0") @Min(0) int page,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int taille) {
         log.info("Recherche de clients: {}", terme);
         PageResponse<ClientDTO> clients = clientService.rechercherClients(terme, page, taille);
         return ResponseEntity.ok(ApiResponse.success(clients));
@@ -1,6 +1,7 @@
 package com.banque.eurobank.controller;
 
 import com.banque.eurobank.dto.*;
+import com.banque.eurobank.entity.Compte;
 import com.banque.eurobank.service.*;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -51,6 +52,27 @@ public class CompteController {
         return ResponseEntity.ok(ApiResponse.success(comptes));
     }
 
+    @PutMapping("/{iban}/statut")
+    @Operation(summary = "Changer le statut d'un compte")
+    @PreAuthorize("hasAnyRole('CONSEILLER', 'RESPONSABLE')")
+    public ResponseEntity<ApiResponse<CompteDTO>> changerStatut(
+            @Parameter(description = "IBAN du compte") @PathVariable String iban,
+            @Parameter(description = "Nouveau statut") @RequestParam Compte.StatutCompte statut) {
+        log.info("Changement de statut du compte {}: {}", iban, statut);
+        CompteDTO compte = compteService.changerStatut(iban, statut);
+        return ResponseEntity.ok(ApiResponse.success(compte, "Statut du compte modifié"));
+    }
+
+    @PostMapping("/soldes-globaux")
+    @Operation(summary = "Récupérer les soldes globaux de plusieurs clients")
+    @PreAuthorize("hasAnyRole('CONSEILLER', 'RESPONSABLE')")
+    public ResponseEntity<ApiResponse<List<SoldeGlobalClientDTO>>> getSoldesGlobaux(
+            @Valid @RequestBody SoldesGlobauxRequestDTO request) {
+        log.info("Récupération des soldes globaux de {} clients", request.getClientIds().size());
+        List<SoldeGlobalClientDTO> soldes = compteService.getSoldesGlobauxClients(request.getClientIds());
+        return ResponseEntity.ok(ApiResponse.success(soldes));
+    }
+
     @PostMapping
     @Operation(summary = "Créer un nouveau compte")
     @PreAuthorize("hasAnyRole('CONSEILLER', 'RESPONSABLE')")
@@ -0,0 +1,55 @@
+package com.banque.eurobank.controller;
+
+import com.banque.eurobank.dto.*;
+import com.banque.eurobank.service.*;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Size;
+
+/**
+ * Contrôleur des tableaux de bord client et agence
+ */
+@RestController
+@RequestMapping("/api/v1/dashboard")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Tableau de bord", description = "Synthèse d'un client ou d'une agence")
+@SecurityRequirement(name = "bearerAuth")
+@Validated
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    @GetMapping("/client/{clientId}")
+    @Operation(summary = "Récupérer le tableau de bord d'un client")
+    @PreAuthorize("hasAnyRole('CLIENT', 'CONSEILLER', 'RESPONSABLE')")
+    public ResponseEntity<ApiResponse<DashboardDTO>> getDashboard(
+            @Parameter(description = "ID du client") @PathVariable Long clientId,
+            @Parameter(description = "Nombre de dernières opérations par compte")
+            @RequestParam(defaultValue = "5") @Min(1) @Max(20) int nombreTransactions) {
+        log.info("Récupération du tableau de bord du client: {}", clientId);
+        DashboardDTO dashboard = dashboardService.getDashboard(clientId, nombreTransactions);
+        return ResponseEntity.ok(ApiResponse.success(dashboard));
+    }
+
+    @GetMapping("/agence/{agenceCode}")
+    @Operation(summary = "Récupérer les statistiques d'une agence")
+    @PreAuthorize("hasRole('RESPONSABLE')")
+    public ResponseEntity<ApiResponse<StatistiquesAgenceDTO>> getStatistiquesAgence(
+            @Parameter(description = "Code de l'agence") @PathVariable @Size(max = 10) String agenceCode) {
+        log.info("Récupération des statistiques de l'agence: {}", agenceCode);
+        StatistiquesAgenceDTO statistiques = dashboardService.getStatistiquesAgence(agenceCode);
+        return ResponseEntity.ok(ApiResponse.success(statistiques));
+    }
+}
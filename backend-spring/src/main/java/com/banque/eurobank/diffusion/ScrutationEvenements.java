@@ -0,0 +1,150 @@
+package com.banque.eurobank.diffusion;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Diffusion entre nœuds d'une table d'événements à identifiant de séquence, par
+ * scrutation au-delà d'une marque haute : tous les événements d'identifiant
+ * inférieur ou égal à la marque ont été appliqués.
+ *
+ * Les identifiants sont attribués à l'insertion mais visibles à la validation : un
+ * identifiant manquant (transaction pas encore validée) est un trou qui bloque la
+ * marque haute jusqu'à son arrivée ou l'expiration du délai ; les événements
+ * suivants sont relus entre-temps mais appliqués une seule fois.
+ *
+ * Au démarrage, la photographie de l'état est prise après la lecture du plus grand
+ * identifiant visible, mais une transaction plus ancienne peut encore valider un
+ * identifiant inférieur. La marque haute part donc d'un lot en dessous : les
+ * identifiants absents de cette plage sont traités comme des trous par la première
+ * scrutation, et les événements déjà présents ne sont pas réappliqués.
+ *
+ * Les événements appliqués par le nœud d'origine à leur validation sont signalés
+ * et ne sont pas réappliqués à la relecture : un événement ancien n'est jamais
+ * rejoué après un plus récent déjà appliqué sur ce nœud.
+ *
+ * @param <T> événement lu
+ */
+@Slf4j
+public final class ScrutationEvenements<T> {
+
+    private final String libelle;
+    private final JdbcTemplate jdbcTemplate;
+    private final String sqlHauteMarque;
+    private final String sqlEvenements;
+    private final RowMapper<T> lecture;
+    private final ToLongFunction<T> identifiant;
+    private final Consumer<T> application;
+    private final int tailleLot;
+    private final long delaiTrouMs;
+
+    /** Tous les événements d'identifiant inférieur ou égal ont été appliqués */
+    private volatile long hauteMarque;
+
+    /** Identifiants manquants au-dessus de la marque haute, avec l'instant de leur constat */
+    private final TreeMap<Long, Long> trous = new TreeMap<>();
+    private long dernierApplique;
+
+    /** Événements appliqués à leur validation par ce nœud, pas encore relus */
+    private final NavigableSet<Long> appliquesLocalement = new ConcurrentSkipListSet<>();
+
+    /**
+     * @param sqlHauteMarque plus grand identifiant présent (0 si aucun)
+     * @param sqlEvenements  événements d'identifiant supérieur au paramètre, par identifiant croissant
+     */
+    public ScrutationEvenements(String libelle, JdbcTemplate jdbcTemplate, String sqlHauteMarque,
+                                String sqlEvenements, RowMapper<T> lecture, ToLongFunction<T> identifiant,
+                                Consumer<T> application, int tailleLot, long delaiTrouMs) {
+        this.libelle = libelle;
+        this.jdbcTemplate = jdbcTemplate;
+        this.sqlHauteMarque = sqlHauteMarque;
+        this.sqlEvenements = sqlEvenements;
+        this.lecture = lecture;
+        this.identifiant = identifiant;
+        this.application = application;
+        this.tailleLot = tailleLot;
+        this.delaiTrouMs = delaiTrouMs;
+    }
+
+    /**
+     * Lit le plus grand identifiant visible puis exécute le chargement de l'état
+     * complet ; la scrutation reprend un lot en dessous de cet identifiant
+     */
+    public synchronized void demarrer(Runnable chargement) {
+        long visible = jdbcTemplate.queryForObject(sqlHauteMarque, Long.class);
+        chargement.run();
+        trous.clear();
+        dernierApplique = visible;
+        hauteMarque = Math.max(0, visible - tailleLot);
+    }
+
+    public long getHauteMarque() {
+        return hauteMarque;
+    }
+
+    /**
+     * Signale un événement déjà appliqué par ce nœud à sa validation
+     */
+    public void signalerApplique(long id) {
+        if (id > hauteMarque) {
+            appliquesLocalement.add(id);
+        }
+    }
+
+    /**
+     * Lit et applique les événements au-delà de la marque haute
+     */
+    public synchronized void scruter() {
+        long plancher = hauteMarque;
+        List<T> evenements = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sqlEvenements);
+            ps.setMaxRows(tailleLot);
+            ps.setLong(1, plancher);
+            return ps;
+        }, lecture);
+
+        long maintenant = System.currentTimeMillis();
+        long attendu = plancher + 1;
+        long dernier = plancher;
+        for (T evenement : evenements) {
+            long id = identifiant.applyAsLong(evenement);
+            // Un saut de séquence important (redémarrage de la base) n'est pas un trou à attendre
+            if (id - attendu <= tailleLot) {
+                for (long manquant = attendu; manquant < id; manquant++) {
+                    trous.putIfAbsent(manquant, maintenant);
+                }
+            }
+            // Relu derrière un trou : déjà appliqué, sauf s'il comble ce trou
+            boolean nouveau = trous.remove(id) != null || id > dernierApplique;
+            if (nouveau && !appliquesLocalement.remove(id)) {
+                application.accept(evenement);
+            }
+            if (nouveau) {
+                dernierApplique = Math.max(dernierApplique, id);
+            }
+            attendu = id + 1;
+            dernier = id;
+        }
+
+        for (Iterator<Map.Entry<Long, Long>> it = trous.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Long> trou = it.next();
+            if (maintenant - trou.getValue() > delaiTrouMs) {
+                log.warn("{}: identifiant {} absent depuis {} ms, ignoré", libelle, trou.getKey(), delaiTrouMs);
+                it.remove();
+            }
+        }
+        hauteMarque = trous.isEmpty() ? dernier : Math.min(dernier, trous.firstKey() - 1);
+        appliquesLocalement.headSet(hauteMarque, true).clear();
+    }
+}
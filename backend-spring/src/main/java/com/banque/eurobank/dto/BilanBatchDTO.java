@@ -0,0 +1,20 @@
+package com.banque.eurobank.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BilanBatchDTO {
+    private String traitement;
+    private LocalDate dateTraitement;
+    private long nombreElements;
+    private BigDecimal montantTotal;
+    private int partitionsTraitees;
+    private List<String> partitionsEnEchec;
+    private long dureeMs;
+}
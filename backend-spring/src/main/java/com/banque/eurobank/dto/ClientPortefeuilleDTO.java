@@ -0,0 +1,23 @@
+package com.banque.eurobank.dto;
+
+import com.banque.eurobank.entity.Client;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ClientPortefeuilleDTO {
+    private Long id;
+    private String numeroClient;
+    private String nomComplet;
+    private String email;
+    private Client.StatutClient statut;
+    private Client.SegmentClient segment;
+    private LocalDateTime dateCreation;
+    private long nombreComptes;
+    /** Somme des soldes des comptes actifs */
+    private BigDecimal soldeTotal;
+}
@@ -0,0 +1,15 @@
+package com.banque.eurobank.dto;
+
+import lombok.*;
+import javax.validation.constraints.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CodeCarteDTO {
+    @NotBlank(message = "Le code confidentiel est obligatoire")
+    @Pattern(regexp = "\\d{4}", message = "Le code confidentiel comporte 4 chiffres")
+    @ToString.Exclude
+    private String code;
+}
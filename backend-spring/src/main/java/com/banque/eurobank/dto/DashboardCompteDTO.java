@@ -0,0 +1,14 @@
+package com.banque.eurobank.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DashboardCompteDTO {
+    private CompteResumeDTO compte;
+    private List<CarteResumeDTO> cartes;
+    private List<TransactionDTO> dernieresTransactions;
+}
@@ -0,0 +1,16 @@
+package com.banque.eurobank.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DashboardDTO {
+    private Long clientId;
+    private BigDecimal soldeGlobal;
+    private int nombreCartes;
+    private List<DashboardCompteDTO> comptes;
+}
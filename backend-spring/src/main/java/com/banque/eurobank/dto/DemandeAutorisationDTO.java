@@ -0,0 +1,43 @@
+package com.banque.eurobank.dto;
+
+import com.banque.eurobank.autorisation.CanalAutorisation;
+import com.banque.eurobank.entity.Transaction;
+import lombok.*;
+import javax.validation.constraints.*;
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DemandeAutorisationDTO {
+
+    @NotBlank(message = "Le hash du numéro de carte est obligatoire")
+    @Size(max = 64)
+    private String numeroCarteHash;
+
+    @NotNull(message = "Le type d'opération est obligatoire")
+    private Transaction.TypeOperation typeOperation;
+
+    @NotNull(message = "Le canal est obligatoire")
+    private CanalAutorisation canal;
+
+    @NotNull(message = "Le montant est obligatoire")
+    @DecimalMin(value = "0.01", message = "Le montant doit être positif")
+    @Digits(integer = 15, fraction = 2)
+    private BigDecimal montant;
+
+    @Size(min = 3, max = 3, message = "Code pays ISO 3166 alpha-3")
+    private String paysOperation;
+
+    @Size(max = 100)
+    private String nomCommercant;
+
+    @Size(max = 4)
+    private String mccCode;
+
+    /** Code confidentiel saisi au terminal, obligatoire au DAB, vérifié s'il est présent */
+    @Pattern(regexp = "\\d{4,6}", message = "Le code confidentiel comporte 4 à 6 chiffres")
+    @ToString.Exclude
+    private String codePin;
+}
@@ -0,0 +1,20 @@
+package com.banque.eurobank.dto;
+
+import com.banque.eurobank.entity.EcartRapprochement;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EcartRapprochementDTO {
+    private Long compteId;
+    private Long transactionId;
+    private LocalDate jour;
+    private EcartRapprochement.TypeEcart typeEcart;
+    private BigDecimal valeurAttendue;
+    private BigDecimal valeurConstatee;
+    private String detail;
+}
@@ -0,0 +1,13 @@
+package com.banque.eurobank.dto;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ErreurImportDTO {
+    private long ligne;
+    private String email;
+    private String motif;
+}
@@ -0,0 +1,59 @@
+package com.banque.eurobank.dto;
+
+import com.banque.eurobank.entity.Compte;
+import lombok.*;
+import javax.validation.constraints.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Ligne d'import de clients : le client et, si typeCompte est renseigné, son compte initial
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportClientDTO {
+    @NotBlank(message = "La civilité est obligatoire")
+    @Size(max = 10)
+    private String civilite;
+
+    @NotBlank(message = "Le nom est obligatoire")
+    @Size(max = 100)
+    private String nom;
+
+    @NotBlank(message = "Le prénom est obligatoire")
+    @Size(max = 100)
+    private String prenom;
+
+    @Past(message = "La date de naissance doit être dans le passé")
+    private LocalDate dateNaissance;
+
+    @Email(message = "Format email invalide")
+    @Size(max = 255)
+    private String email;
+
+    @Size(max = 20)
+    private String telephone;
+    @Size(max = 255)
+    private String adresse;
+    @Size(max = 10)
+    private String codePostal;
+    @Size(max = 100)
+    private String ville;
+    @Size(max = 50)
+    private String pays;
+    @Size(max = 50)
+    private String pieceIdentite;
+    @Size(max = 50)
+    private String numeroPiece;
+
+    private Compte.TypeCompte typeCompte;
+
+    @Size(max = 100)
+    private String intituleCompte;
+
+    @DecimalMin(value = "0.00", message = "Le découvert autorisé ne peut pas être négatif")
+    @Digits(integer = 15, fraction = 2)
+    private BigDecimal decouvertAutorise;
+}
@@ -0,0 +1,21 @@
+package com.banque.eurobank.dto;
+
+import com.banque.eurobank.entity.Client;
+import com.banque.eurobank.entity.Compte;
+import com.banque.eurobank.entity.Transaction;
+import lombok.*;
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LigneRapportFraisDTO {
+    private String code;
+    private String libelle;
+    private Transaction.TypeOperation typeOperation;
+    private Client.SegmentClient segment;
+    private Compte.TypeCompte typeCompte;
+    private long nombreComptes;
+    private BigDecimal montantTotal;
+}
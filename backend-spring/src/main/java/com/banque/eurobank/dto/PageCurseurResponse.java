@@ -0,0 +1,18 @@
+package com.banque.eurobank.dto;
+
+import lombok.*;
+import java.util.List;
+
+/**
+ * Page d'une liste paginée par clé : la page suivante se demande avec curseurSuivant
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PageCurseurResponse<T> {
+    private List<T> content;
+    private int taille;
+    private String curseurSuivant;
+    private boolean dernier;
+}
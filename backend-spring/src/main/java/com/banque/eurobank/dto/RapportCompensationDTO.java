@@ -0,0 +1,21 @@
+package com.banque.eurobank.dto;
+
+import com.banque.eurobank.entity.Carte;
+import lombok.*;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RapportCompensationDTO {
+    private String fichier;
+    private Carte.ReseauCarte reseau;
+    private LocalDate dateCompensation;
+    private long enregistrements;
+    private long operationsPassees;
+    private long cartesInconnues;
+    private long rejetsFormat;
+    private long doublons;
+    private BilanBatchDTO bilan;
+}
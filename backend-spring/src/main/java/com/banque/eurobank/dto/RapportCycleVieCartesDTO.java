@@ -0,0 +1,16 @@
+package com.banque.eurobank.dto;
+
+import lombok.*;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RapportCycleVieCartesDTO {
+    private LocalDate dateTraitement;
+    private long cartesExpirees;
+    private long cartesRenouvelees;
+    private String fichierFabrication;
+    private BilanBatchDTO bilan;
+}
@@ -0,0 +1,15 @@
+package com.banque.eurobank.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RapportFraisDTO {
+    private String periode;
+    private boolean simulation;
+    private BilanBatchDTO bilan;
+    private List<LigneRapportFraisDTO> lignes;
+}
@@ -0,0 +1,19 @@
+package com.banque.eurobank.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RapportImportClientsDTO {
+    private long lignesLues;
+    private long clientsCrees;
+    private long comptesCrees;
+    private long lignesRejetees;
+    private long dureeMs;
+    /** Erreurs par ligne, limitées en nombre (erreursTronquees si d'autres ont été omises) */
+    private List<ErreurImportDTO> erreurs;
+    private boolean erreursTronquees;
+}
@@ -0,0 +1,17 @@
+package com.banque.eurobank.dto;
+
+import com.banque.eurobank.entity.EcartRapprochement;
+import lombok.*;
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RapportRapprochementDTO {
+    private LocalDate dateRapprochement;
+    private long transactionsLues;
+    private Map<EcartRapprochement.TypeEcart, Long> ecarts;
+    private BilanBatchDTO bilan;
+}
@@ -0,0 +1,16 @@
+package com.banque.eurobank.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReponseAutorisationDTO {
+    private boolean autorisee;
+    private String codeReponse;
+    private String motif;
+    private String numeroAutorisation;
+    private BigDecimal disponibleJour;
+}
@@ -0,0 +1,13 @@
+package com.banque.eurobank.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SoldeGlobalClientDTO {
+    private Long clientId;
+    private BigDecimal soldeGlobal;
+}
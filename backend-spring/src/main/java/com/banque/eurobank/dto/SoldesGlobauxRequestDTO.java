@@ -0,0 +1,15 @@
+package com.banque.eurobank.dto;
+
+import lombok.*;
+import javax.validation.constraints.*;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SoldesGlobauxRequestDTO {
+    @NotEmpty(message = "La liste des clients est obligatoire")
+    @Size(max = 1000, message = "1000 clients maximum par requête")
+    private List<@NotNull Long> clientIds;
+}
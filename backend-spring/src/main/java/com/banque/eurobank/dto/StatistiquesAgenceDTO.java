@@ -0,0 +1,29 @@
+package com.banque.eurobank.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Statistiques d'une agence pour le tableau de bord du responsable
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StatistiquesAgenceDTO {
+    private String agenceCode;
+    private long clientsActifs;
+    private long comptesActifs;
+    private Map<String, Long> comptesParType;
+    /** Somme des soldes des comptes actifs */
+    private BigDecimal encours;
+    private LocalDate jour;
+    /** Mouvements créditeurs et débiteurs du jour sur les comptes actifs */
+    private BigDecimal creditsJour;
+    private BigDecimal debitsJour;
+    /** Dernier recalage sur la base, null avant la première reconstruction */
+    private LocalDateTime dateReconstruction;
+}
@@ -0,0 +1,11 @@
+package com.banque.eurobank.dto;
+
+/**
+ * Ordre du portefeuille d'un conseiller
+ */
+public enum TriPortefeuille {
+    NOM,                // Nom puis prénom
+    NUMERO_CLIENT,      // Numéro client
+    DATE_CREATION,      // Clients les plus récents d'abord
+    SOLDE               // Encours décroissant
+}
@@ -0,0 +1,21 @@
+package com.banque.eurobank.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Vue 360 d'un client pour le conseiller. Une partie non lue à temps est à null
+ * et nommée dans partiesIndisponibles (CLIENT, COMPTES, CARTES, TRANSACTIONS, SOLDE_GLOBAL).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VueClientDTO {
+    private ClientDTO client;
+    private BigDecimal soldeGlobal;
+    private Integer nombreCartes;
+    private List<DashboardCompteDTO> comptes;
+    private List<String> partiesIndisponibles;
+}
@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "EB_CARTES", indexes = {
     @Index(name = "idx_carte_numero_hash", columnList = "numero_carte_hash", unique = true),
-    @Index(name = "idx_carte_compte", columnList = "compte_id")
+    @Index(name = "idx_carte_compte", columnList = "compte_id"),
+    @Index(name = "idx_carte_precedente", columnList = "carte_precedente_id")
 })
 @Data
 @NoArgsConstructor
@@ -66,15 +67,19 @@ public class Carte {
     @Column(name = "plafond_retrait_semaine", precision = 19, scale = 2)
     private BigDecimal plafondRetraitSemaine;
     
-    // Utilisations cumulées
-    @Column(name = "cumul_paiement_jour", precision = 19, scale = 2)
+    // Utilisations cumulées (maintenues par le moteur d'autorisation, jamais réécrites par l'entité)
+    @Column(name = "cumul_paiement_jour", precision = 19, scale = 2, updatable = false)
     @Builder.Default
     private BigDecimal cumulPaiementJour = BigDecimal.ZERO;
     
-    @Column(name = "cumul_retrait_jour", precision = 19, scale = 2)
+    @Column(name = "cumul_retrait_jour", precision = 19, scale = 2, updatable = false)
     @Builder.Default
     private BigDecimal cumulRetraitJour = BigDecimal.ZERO;
     
+    // Jour auquel s'appliquent les cumuls : des cumuls d'un jour passé valent zéro
+    @Column(name = "date_cumul", updatable = false)
+    private LocalDate dateCumul;
+    
     // Options
     @Column(name = "paiement_etranger_actif")
     @Builder.Default
@@ -104,7 +109,7 @@ public class Carte {
     @Builder.Default
     private Integer tentativesPinErronees = 0;
     
-    @Column(name = "date_derniere_utilisation")
+    @Column(name = "date_derniere_utilisation", updatable = false)
     private LocalDateTime dateDerniereUtilisation;
     
     @Column(name = "opposition")
@@ -121,6 +126,10 @@ public class Carte {
     @JoinColumn(name = "compte_id", nullable = false)
     private Compte compte;
     
+    // Carte remplacée lors d'un renouvellement
+    @Column(name = "carte_precedente_id")
+    private Long cartePrecedenteId;
+    
     @Column(name = "date_creation")
     private LocalDateTime dateCreation;
     
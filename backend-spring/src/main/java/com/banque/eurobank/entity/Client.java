@@ -15,7 +15,9 @@ import java.util.List;
 @Entity
 @Table(name = "EB_CLIENTS", indexes = {
     @Index(name = "idx_client_numero", columnList = "numero_client", unique = true),
-    @Index(name = "idx_client_email", columnList = "email", unique = true)
+    @Index(name = "idx_client_email", columnList = "email", unique = true),
+    @Index(name = "idx_client_modification", columnList = "date_modification"),
+    @Index(name = "idx_client_conseiller", columnList = "conseiller_id, nom, prenom")
 })
 @Data
 @NoArgsConstructor
@@ -15,13 +15,19 @@ import java.util.List;
 @Entity
 @Table(name = "EB_COMPTES", indexes = {
     @Index(name = "idx_compte_iban", columnList = "iban", unique = true),
-    @Index(name = "idx_compte_numero", columnList = "numero_compte", unique = true)
+    @Index(name = "idx_compte_numero", columnList = "numero_compte", unique = true),
+    @Index(name = "idx_compte_client", columnList = "client_id")
 })
+@NamedEntityGraph(name = Compte.GRAPHE_TITULAIRE, attributeNodes = @NamedAttributeNode("client"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Compte {
+
+    /** Graphe de lecture du compte avec son titulaire */
+    public static final String GRAPHE_TITULAIRE = "Compte.titulaire";
+
     
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_compte")
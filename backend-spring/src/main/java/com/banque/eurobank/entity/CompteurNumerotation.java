@@ -0,0 +1,36 @@
+package com.banque.eurobank.entity;
+
+import lombok.*;
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Entité CompteurNumerotation - Compteur persistant des numéros métier
+ * (numéros de compte, numéros client), réservés par blocs
+ */
+@Entity
+@Table(name = "EB_COMPTEURS_NUMEROTATION")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CompteurNumerotation {
+
+    @Id
+    @Column(name = "cle", length = 30)
+    private String cle;
+
+    /** Dernière valeur réservée */
+    @Column(name = "valeur", nullable = false)
+    @Builder.Default
+    private Long valeur = 0L;
+
+    @Column(name = "date_modification")
+    private LocalDateTime dateModification;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        dateModification = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,49 @@
+package com.banque.eurobank.entity;
+
+import lombok.*;
+import javax.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Entité CumulJournalierCarte - Paiements et retraits autorisés d'une carte sur une journée,
+ * base des plafonds glissants (hebdomadaire et mensuel)
+ */
+@Entity
+@Table(name = "EB_CUMULS_CARTES", indexes = {
+    @Index(name = "idx_cumul_carte_jour", columnList = "jour")
+})
+@IdClass(CumulJournalierCarte.Cle.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CumulJournalierCarte {
+
+    @Id
+    @Column(name = "carte_id")
+    private Long carteId;
+
+    @Id
+    @Column(name = "jour")
+    private LocalDate jour;
+
+    @Column(name = "montant_paiement", precision = 19, scale = 2, nullable = false)
+    private BigDecimal montantPaiement;
+
+    @Column(name = "montant_retrait", precision = 19, scale = 2, nullable = false)
+    private BigDecimal montantRetrait;
+
+    @Column(name = "date_maj")
+    private LocalDateTime dateMaj;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Cle implements Serializable {
+        private Long carteId;
+        private LocalDate jour;
+    }
+}
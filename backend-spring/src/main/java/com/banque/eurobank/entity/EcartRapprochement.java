@@ -0,0 +1,69 @@
+package com.banque.eurobank.entity;
+
+import lombok.*;
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Entité EcartRapprochement - Anomalie détectée par le rapprochement
+ * entre les soldes des comptes et leurs écritures
+ */
+@Entity
+@Table(name = "EB_ECARTS_RAPPROCHEMENT", indexes = {
+    @Index(name = "idx_ecart_date_compte", columnList = "date_rapprochement, compte_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EcartRapprochement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_ecart_rapprochement")
+    @SequenceGenerator(name = "seq_ecart_rapprochement", sequenceName = "EB_SEQ_ECART_RAPPROCHEMENT", allocationSize = 1)
+    private Long id;
+
+    @Column(name = "date_rapprochement", nullable = false)
+    private LocalDate dateRapprochement;
+
+    @Column(name = "compte_id", nullable = false)
+    private Long compteId;
+
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    /** Journée comptable concernée (écarts d'empreinte) */
+    @Column(name = "jour")
+    private LocalDate jour;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type_ecart", nullable = false, length = 30)
+    private TypeEcart typeEcart;
+
+    @Column(name = "valeur_attendue", precision = 19, scale = 4)
+    private BigDecimal valeurAttendue;
+
+    @Column(name = "valeur_constatee", precision = 19, scale = 4)
+    private BigDecimal valeurConstatee;
+
+    @Column(name = "detail", length = 255)
+    private String detail;
+
+    @Column(name = "date_detection")
+    private LocalDateTime dateDetection;
+
+    @PrePersist
+    protected void onCreate() {
+        dateDetection = LocalDateTime.now();
+    }
+
+    public enum TypeEcart {
+        RUPTURE_CHAINE,         // solde avant différent du solde après précédent
+        MOUVEMENT_INCOHERENT,   // solde après différent de solde avant +/- montant
+        SOLDE_COMPTE,           // solde du compte différent du dernier solde après
+        SOMME_MOUVEMENTS,       // solde du compte différent de la somme des mouvements exécutés
+        HISTORIQUE_MODIFIE      // empreinte d'une journée close différente de celle enregistrée
+    }
+}
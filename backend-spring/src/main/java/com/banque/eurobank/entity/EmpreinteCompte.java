@@ -0,0 +1,47 @@
+package com.banque.eurobank.entity;
+
+import lombok.*;
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Entité EmpreinteCompte - Empreinte glissante de l'historique d'un compte
+ * à la fin d'une journée comptable close, calculée par le rapprochement
+ */
+@Entity
+@Table(name = "EB_EMPREINTES_COMPTES")
+@IdClass(EmpreinteCompte.Cle.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmpreinteCompte {
+
+    @Id
+    @Column(name = "compte_id")
+    private Long compteId;
+
+    @Id
+    @Column(name = "jour")
+    private LocalDate jour;
+
+    /** Empreinte de toutes les opérations du compte jusqu'à la fin du jour inclus */
+    @Column(name = "empreinte", nullable = false)
+    private Long empreinte;
+
+    @Column(name = "nombre_operations", nullable = false)
+    private Long nombreOperations;
+
+    @Column(name = "date_calcul")
+    private LocalDateTime dateCalcul;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Cle implements Serializable {
+        private Long compteId;
+        private LocalDate jour;
+    }
+}
@@ -0,0 +1,53 @@
+package com.banque.eurobank.entity;
+
+import lombok.*;
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Entité EvenementOpposition - Mouvement de la liste des cartes en opposition
+ * ou bloquées, diffusé aux autres nœuds par scrutation de l'identifiant
+ */
+@Entity
+@Table(name = "EB_EVENEMENTS_OPPOSITION", indexes = {
+    @Index(name = "idx_evt_opposition_date", columnList = "date_evenement")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EvenementOpposition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_evenement_opposition")
+    @SequenceGenerator(name = "seq_evenement_opposition", sequenceName = "EB_SEQ_EVENEMENT_OPPOSITION", allocationSize = 1)
+    private Long id;
+
+    @Column(name = "carte_id", nullable = false)
+    private Long carteId;
+
+    @Column(name = "numero_carte_hash", nullable = false, length = 64)
+    private String numeroCarteHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type_evenement", nullable = false, length = 20)
+    private TypeEvenement typeEvenement;
+
+    @Column(name = "date_expiration")
+    private LocalDate dateExpiration;
+
+    @Column(name = "date_evenement", nullable = false)
+    private LocalDateTime dateEvenement;
+
+    @PrePersist
+    protected void onCreate() {
+        if (dateEvenement == null) dateEvenement = LocalDateTime.now();
+    }
+
+    public enum TypeEvenement {
+        OPPOSITION,
+        BLOCAGE,
+        DEBLOCAGE
+    }
+}
@@ -0,0 +1,40 @@
+package com.banque.eurobank.entity;
+
+import lombok.*;
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Entité InteretCouru - Intérêts courus non échus d'un compte d'épargne,
+ * cumulés chaque jour et capitalisés en fin de période
+ */
+@Entity
+@Table(name = "EB_INTERETS_COURUS")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InteretCouru {
+
+    @Id
+    @Column(name = "compte_id")
+    private Long compteId;
+
+    @Column(name = "interets_courus", precision = 19, scale = 6, nullable = false)
+    @Builder.Default
+    private BigDecimal interetsCourus = BigDecimal.ZERO;
+
+    /** Nombre de jours courus depuis la dernière capitalisation */
+    @Column(name = "jours_courus")
+    @Builder.Default
+    private Integer joursCourus = 0;
+
+    /** Dernier jour pour lequel les intérêts ont été calculés */
+    @Column(name = "date_dernier_calcul")
+    private LocalDate dateDernierCalcul;
+
+    /** Date de fin de la dernière période capitalisée */
+    @Column(name = "date_derniere_capitalisation")
+    private LocalDate dateDerniereCapitalisation;
+}
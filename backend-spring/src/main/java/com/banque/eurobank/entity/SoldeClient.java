@@ -0,0 +1,45 @@
+package com.banque.eurobank.entity;
+
+import lombok.*;
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Entité SoldeClient - Agrégat maintenu du solde global d'un client
+ * (somme des soldes de ses comptes actifs), mis à jour dans la même
+ * transaction que chaque mouvement de solde.
+ */
+@Entity
+@Table(name = "EB_SOLDES_CLIENTS")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SoldeClient {
+
+    @Id
+    @Column(name = "client_id")
+    private Long clientId;
+
+    @Column(name = "solde_global", precision = 19, scale = 4, nullable = false)
+    @Builder.Default
+    private BigDecimal soldeGlobal = BigDecimal.ZERO;
+
+    @Column(name = "date_verification")
+    private LocalDateTime dateVerification;
+
+    @Column(name = "date_modification")
+    private LocalDateTime dateModification;
+
+    @PrePersist
+    protected void onCreate() {
+        dateModification = LocalDateTime.now();
+        if (soldeGlobal == null) soldeGlobal = BigDecimal.ZERO;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        dateModification = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,48 @@
+package com.banque.eurobank.entity;
+
+import lombok.*;
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Entité SuiviPartition - Partition de traitement de masse validée,
+ * enregistrée dans la transaction de la partition pour permettre la reprise
+ */
+@Entity
+@Table(name = "EB_BATCH_PARTITIONS", indexes = {
+    @Index(name = "idx_batch_partition", columnList = "traitement, periode, debut_id", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SuiviPartition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_batch_partition")
+    @SequenceGenerator(name = "seq_batch_partition", sequenceName = "EB_SEQ_BATCH_PARTITION", allocationSize = 1)
+    private Long id;
+
+    @Column(name = "traitement", nullable = false, length = 50)
+    private String traitement;
+
+    @Column(name = "periode", nullable = false, length = 20)
+    private String periode;
+
+    @Column(name = "debut_id", nullable = false)
+    private Long debutId;
+
+    @Column(name = "fin_id", nullable = false)
+    private Long finId;
+
+    @Column(name = "nombre_elements")
+    private Long nombreElements;
+
+    @Column(name = "date_traitement")
+    private LocalDateTime dateTraitement;
+
+    @PrePersist
+    protected void onCreate() {
+        dateTraitement = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,55 @@
+package com.banque.eurobank.entity;
+
+import lombok.*;
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Entité TokenRevoque - Token JWT ou session révoqués avant leur échéance,
+ * diffusés aux autres nœuds par scrutation de l'identifiant
+ */
+@Entity
+@Table(name = "EB_TOKENS_REVOQUES", indexes = {
+    @Index(name = "idx_token_revoque_identifiant", columnList = "identifiant", unique = true),
+    @Index(name = "idx_token_revoque_expiration", columnList = "date_expiration")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TokenRevoque {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_token_revoque")
+    @SequenceGenerator(name = "seq_token_revoque", sequenceName = "EB_SEQ_TOKEN_REVOQUE", allocationSize = 1)
+    private Long id;
+
+    /** Identifiant du token (jti) ou de la session (sid) */
+    @Column(name = "identifiant", nullable = false, length = 36)
+    private String identifiant;
+
+    @Column(name = "utilisateur_id")
+    private Long utilisateurId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "motif", nullable = false, length = 20)
+    private MotifRevocation motif;
+
+    /** Au-delà, plus aucun token concerné n'est valide : l'entrée peut être purgée */
+    @Column(name = "date_expiration", nullable = false)
+    private LocalDateTime dateExpiration;
+
+    @Column(name = "date_revocation", nullable = false)
+    private LocalDateTime dateRevocation;
+
+    @PrePersist
+    protected void onCreate() {
+        if (dateRevocation == null) dateRevocation = LocalDateTime.now();
+    }
+
+    public enum MotifRevocation {
+        DECONNEXION,    // Session fermée par l'utilisateur
+        ROTATION,       // Token de rafraîchissement échangé
+        REUTILISATION   // Session révoquée : token de rafraîchissement présenté deux fois
+    }
+}
@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 @Table(name = "EB_TRANSACTIONS", indexes = {
     @Index(name = "idx_trans_reference", columnList = "reference", unique = true),
     @Index(name = "idx_trans_compte", columnList = "compte_id"),
-    @Index(name = "idx_trans_date", columnList = "date_operation")
+    @Index(name = "idx_trans_date", columnList = "date_operation"),
+    @Index(name = "idx_trans_creation", columnList = "date_creation")
 })
 @Data
 @NoArgsConstructor
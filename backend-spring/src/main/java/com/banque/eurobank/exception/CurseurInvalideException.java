@@ -0,0 +1,11 @@
+package com.banque.eurobank.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class CurseurInvalideException extends RuntimeException {
+    public CurseurInvalideException(String message) {
+        super(message);
+    }
+}
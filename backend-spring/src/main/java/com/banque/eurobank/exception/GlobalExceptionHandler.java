@@ -2,6 +2,7 @@ package com.banque.eurobank.exception;
 
 import com.banque.eurobank.dto.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -124,6 +125,14 @@ public class GlobalExceptionHandler {
     
     // ==================== EXCEPTIONS VALIDATION ====================
     
+    @ExceptionHandler(CurseurInvalideException.class)
+    public ResponseEntity<ApiResponse<Void>> handleCurseurInvalide(CurseurInvalideException ex) {
+        log.warn("Curseur invalide: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(ex.getMessage(), "CURSEUR_INVALIDE"));
+    }
+    
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiResponse<Map<String, String>>> handleValidationExceptions(
             MethodArgumentNotValidException ex) {
@@ -181,9 +190,11 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(ServiceIndisponibleException.class)
     public ResponseEntity<ApiResponse<Void>> handleServiceIndisponible(ServiceIndisponibleException ex) {
         log.error("Service indisponible: {}", ex.getMessage());
-        return ResponseEntity
-                .status(HttpStatus.SERVICE_UNAVAILABLE)
-                .body(ApiResponse.error(ex.getMessage(), "SERVICE_UNAVAILABLE"));
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE);
+        if (ex.getRetryAfterSecondes() != null) {
+            reponse.header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSecondes()));
+        }
+        return reponse.body(ApiResponse.error(ex.getMessage(), "SERVICE_UNAVAILABLE"));
     }
     
     // ==================== EXCEPTION GÉNÉRIQUE ====================
@@ -5,7 +5,20 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
 public class ServiceIndisponibleException extends RuntimeException {
+
+    /** Délai conseillé au client avant de réessayer (en-tête Retry-After), null si inconnu */
+    private final Integer retryAfterSecondes;
+
     public ServiceIndisponibleException(String message) {
+        this(message, null);
+    }
+
+    public ServiceIndisponibleException(String message, Integer retryAfterSecondes) {
         super(message);
+        this.retryAfterSecondes = retryAfterSecondes;
+    }
+
+    public Integer getRetryAfterSecondes() {
+        return retryAfterSecondes;
     }
 }
@@ -0,0 +1,163 @@
+package com.banque.eurobank.recherche;
+
+import com.banque.eurobank.batch.ExecuteurPartitions;
+import com.banque.eurobank.batch.ResultatPartitions;
+import com.banque.eurobank.entity.Client;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Index de recherche des clients par nom, prénom et numéro client, pour la
+ * recherche conseiller.
+ *
+ * Construit au démarrage par partitions d'identifiants en parallèle, puis tenu à
+ * jour à chaque création ou modification faite par ce nœud (après validation) et,
+ * pour les écritures des autres nœuds et des traitements, par relecture périodique
+ * des clients modifiés (date_modification). Reconstruit chaque nuit pour récupérer
+ * la place des entrées remplacées.
+ */
+@Component
+@Slf4j
+public class IndexClients {
+
+    private static final String TRAITEMENT = "INDEX_CLIENTS";
+
+    private static final String SQL_BORNES = "SELECT MIN(id), MAX(id) FROM EB_CLIENTS";
+
+    private static final String SQL_PARTITION =
+            "SELECT id, nom, prenom, numero_client FROM EB_CLIENTS WHERE id BETWEEN ? AND ? ORDER BY id";
+
+    private static final String SQL_MODIFIES =
+            "SELECT id, nom, prenom, numero_client FROM EB_CLIENTS WHERE date_modification > ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExecuteurPartitions executeurPartitions;
+    private final long taillePartition;
+    private final long margeSecondes;
+
+    private volatile IndexTrigrammes index;
+    /** Date de modification au-delà de laquelle relire les clients */
+    private LocalDateTime depuis;
+
+    public IndexClients(JdbcTemplate jdbcTemplate,
+                        ExecuteurPartitions executeurPartitions,
+                        @Value("${app.recherche-clients.taille-partition:50000}") long taillePartition,
+                        @Value("${app.recherche-clients.marge-secondes:60}") long margeSecondes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.executeurPartitions = executeurPartitions;
+        this.taillePartition = taillePartition;
+        this.margeSecondes = margeSecondes;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void charger() {
+        reconstruire();
+    }
+
+    /**
+     * Reconstruit l'index en parallèle puis le substitue à l'index courant ;
+     * l'index courant est conservé si une partition échoue
+     */
+    @Scheduled(cron = "${app.recherche-clients.reconstruction-cron:0 0 3 * * *}")
+    public synchronized void reconstruire() {
+        long debut = System.currentTimeMillis();
+        // Les modifications faites pendant la construction seront relues à l'actualisation suivante
+        LocalDateTime borne = LocalDateTime.now().minusSeconds(margeSecondes);
+
+        Long[] bornes = jdbcTemplate.queryForObject(SQL_BORNES, (rs, i) -> new Long[]{
+                rs.getObject(1, Long.class), rs.getObject(2, Long.class)});
+        ResultatPartitions<IndexTrigrammes> resultat = executeurPartitions.executer(TRAITEMENT,
+                bornes[0], bornes[1], taillePartition, partition -> {
+                    IndexTrigrammes fragment = new IndexTrigrammes((int) Math.min(taillePartition, 1 << 16));
+                    jdbcTemplate.query(SQL_PARTITION, rs -> {
+                        fragment.ajouterFragment(rs.getLong(1), texte(rs.getString(2), rs.getString(3), rs.getString(4)));
+                    }, partition.getDebut(), partition.getFin());
+                    return fragment;
+                });
+        if (!resultat.isComplet()) {
+            log.error("Index de recherche des clients non reconstruit: {} partition(s) en échec",
+                    resultat.getEchecs().size());
+            return;
+        }
+
+        index = IndexTrigrammes.fusionner(resultat.getResultats());
+        depuis = borne;
+        actualiser();
+        log.info("Index de recherche des clients construit: {} client(s) en {} ms",
+                index.taille(), System.currentTimeMillis() - debut);
+    }
+
+    /**
+     * Relit les clients modifiés depuis la dernière actualisation (marge comprise
+     * pour les transactions validées après coup) ; les entrées inchangées sont ignorées
+     */
+    @Scheduled(fixedDelayString = "${app.recherche-clients.actualisation-ms:10000}")
+    public synchronized void actualiser() {
+        IndexTrigrammes courant = index;
+        if (courant == null) {
+            return;
+        }
+        LocalDateTime borne = LocalDateTime.now().minusSeconds(margeSecondes);
+        int[] modifies = {0};
+        jdbcTemplate.query(SQL_MODIFIES, rs -> {
+            if (courant.indexer(rs.getLong(1), texte(rs.getString(2), rs.getString(3), rs.getString(4)))) {
+                modifies[0]++;
+            }
+        }, Timestamp.valueOf(depuis));
+        depuis = borne;
+        if (modifies[0] > 0) {
+            log.debug("Index de recherche des clients: {} client(s) réindexé(s)", modifies[0]);
+        }
+    }
+
+    /**
+     * Indexe le client après validation de la transaction en cours
+     */
+    public void indexer(Client client) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    appliquer(client);
+                }
+            });
+        } else {
+            appliquer(client);
+        }
+    }
+
+    private void appliquer(Client client) {
+        IndexTrigrammes courant = index;
+        if (courant != null) {
+            courant.indexer(client.getId(), texte(client.getNom(), client.getPrenom(), client.getNumeroClient()));
+        }
+    }
+
+    /**
+     * Clients dont le nom, le prénom ou le numéro contient chacun des termes
+     * (sans accents ni casse ; un terme de un ou deux caractères en début de mot),
+     * classés par pertinence ; aucun client si tous les termes n'ont qu'un caractère,
+     * null tant que l'index n'est pas construit
+     */
+    public ResultatRecherche rechercher(String recherche, int debut, int limite) {
+        IndexTrigrammes courant = index;
+        if (courant == null) {
+            return null;
+        }
+        return courant.chercher(IndexTrigrammes.termes(recherche), debut, limite);
+    }
+
+    private static String texte(String nom, String prenom, String numeroClient) {
+        return nom + " " + prenom + " " + numeroClient;
+    }
+}
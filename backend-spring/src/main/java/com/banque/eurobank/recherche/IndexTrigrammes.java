@@ -0,0 +1,410 @@
+package com.banque.eurobank.recherche;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index de trigrammes en mémoire : chaque document (identifiant + texte normalisé)
+ * reçoit une position, et chaque trigramme la liste croissante des positions des
+ * documents qui le contiennent.
+ *
+ * Le texte est normalisé sans accents, en minuscules, sur l'alphabet [a-z0-9] et
+ * l'espace (autres lettres réduites à un même symbole) : un trigramme est codé sur
+ * un entier et les listes sont rangées dans un tableau, sans table de hachage.
+ * Un document modifié est retiré (position vidée) et ajouté à la fin ; les positions
+ * vides ne sont récupérées qu'à la reconstruction.
+ *
+ * Les lectures se font sous verrou partagé, les ajouts sous verrou exclusif.
+ */
+final class IndexTrigrammes {
+
+    private static final int SYMBOLES = 38;
+    private static final int SYMBOLE_AUTRE = SYMBOLES - 1;
+    private static final int TRIGRAMMES = SYMBOLES * SYMBOLES * SYMBOLES;
+
+    /** Pertinence : tous les termes sont des mots entiers, des débuts de mot, ou des sous-chaînes */
+    private static final int RANGS = 3;
+
+    /** Au-delà, la recherche est trop large pour être parcourue : les premiers documents trouvés sont classés */
+    static final int RESULTATS_MAX = 10_000;
+
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    private long[] ids;
+    private String[] textes;
+    private int taille;
+    private int retires;
+
+    private final int[][] listes = new int[TRIGRAMMES][];
+    private final int[] longueurs = new int[TRIGRAMMES];
+    private final PositionsParId positions;
+
+    IndexTrigrammes(int capacite) {
+        int initiale = Math.max(16, capacite);
+        this.ids = new long[initiale];
+        this.textes = new String[initiale];
+        this.positions = new PositionsParId(initiale);
+    }
+
+    /**
+     * Ajoute ou remplace le document ; vrai si l'index a été modifié
+     */
+    boolean indexer(long id, String texte) {
+        String normalise = document(texte);
+        verrou.writeLock().lock();
+        try {
+            int position = positions.get(id);
+            if (position >= 0) {
+                if (normalise.equals(textes[position])) {
+                    return false;
+                }
+                textes[position] = null;
+                retires++;
+            }
+            ajouter(id, normalise);
+            return true;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ajout sans verrou, pendant la construction d'un fragment par un seul fil
+     */
+    void ajouterFragment(long id, String texte) {
+        ajouter(id, document(texte));
+    }
+
+    private void ajouter(long id, String normalise) {
+        if (taille == ids.length) {
+            ids = Arrays.copyOf(ids, taille * 2);
+            textes = Arrays.copyOf(textes, taille * 2);
+        }
+        int position = taille++;
+        ids[position] = id;
+        textes[position] = normalise;
+        positions.put(id, position);
+        for (int i = 0; i + 3 <= normalise.length(); i++) {
+            int trigramme = trigramme(normalise, i);
+            int longueur = longueurs[trigramme];
+            // Les positions croissent : un trigramme répété dans le document n'est rangé qu'une fois
+            if (longueur > 0 && listes[trigramme][longueur - 1] == position) {
+                continue;
+            }
+            if (listes[trigramme] == null) {
+                listes[trigramme] = new int[4];
+            } else if (longueur == listes[trigramme].length) {
+                listes[trigramme] = Arrays.copyOf(listes[trigramme], longueur * 2);
+            }
+            listes[trigramme][longueur] = position;
+            longueurs[trigramme] = longueur + 1;
+        }
+    }
+
+    /**
+     * Concatène des fragments construits sur des plages d'identifiants disjointes et croissantes
+     */
+    static IndexTrigrammes fusionner(List<IndexTrigrammes> fragments) {
+        int total = 0;
+        for (IndexTrigrammes fragment : fragments) {
+            total += fragment.taille;
+        }
+        IndexTrigrammes index = new IndexTrigrammes(total);
+        int[] decalages = new int[fragments.size()];
+        for (int f = 0; f < fragments.size(); f++) {
+            IndexTrigrammes fragment = fragments.get(f);
+            decalages[f] = index.taille;
+            System.arraycopy(fragment.ids, 0, index.ids, index.taille, fragment.taille);
+            System.arraycopy(fragment.textes, 0, index.textes, index.taille, fragment.taille);
+            for (int i = 0; i < fragment.taille; i++) {
+                index.positions.put(fragment.ids[i], index.taille + i);
+            }
+            index.taille += fragment.taille;
+        }
+        for (int trigramme = 0; trigramme < TRIGRAMMES; trigramme++) {
+            int longueur = 0;
+            for (IndexTrigrammes fragment : fragments) {
+                longueur += fragment.longueurs[trigramme];
+            }
+            if (longueur == 0) {
+                continue;
+            }
+            int[] liste = new int[longueur];
+            int n = 0;
+            for (int f = 0; f < fragments.size(); f++) {
+                IndexTrigrammes fragment = fragments.get(f);
+                for (int i = 0; i < fragment.longueurs[trigramme]; i++) {
+                    liste[n++] = fragment.listes[trigramme][i] + decalages[f];
+                }
+            }
+            index.listes[trigramme] = liste;
+            index.longueurs[trigramme] = longueur;
+        }
+        return index;
+    }
+
+    /**
+     * Documents contenant tous les termes, classés par pertinence puis par position ;
+     * au plus {@link #RESULTATS_MAX} documents sont retenus
+     *
+     * @param termes termes normalisés (voir {@link #termes(String)})
+     * @param debut  rang du premier identifiant à rendre
+     * @param limite nombre maximal d'identifiants rendus
+     */
+    ResultatRecherche chercher(String[] termes, int debut, int limite) {
+        verrou.readLock().lock();
+        try {
+            int[] candidats = candidats(termes);
+            String[][] motifs = new String[termes.length][];
+            for (int i = 0; i < termes.length; i++) {
+                motifs[i] = new String[]{motif(termes[i]), " " + termes[i], " " + termes[i] + " "};
+            }
+            int retenus = Math.min(candidats.length, RESULTATS_MAX);
+            int[][] parRang = new int[RANGS][retenus];
+            int[] nombres = new int[RANGS];
+            int trouves = 0;
+            for (int i = 0; i < candidats.length && trouves < RESULTATS_MAX; i++) {
+                int rang = rang(textes[candidats[i]], motifs);
+                if (rang >= 0) {
+                    parRang[rang][nombres[rang]++] = candidats[i];
+                    trouves++;
+                }
+            }
+
+            List<Long> resultat = new ArrayList<>(Math.max(0, Math.min(limite, trouves - debut)));
+            int aSauter = debut;
+            for (int r = 0; r < RANGS && resultat.size() < limite; r++) {
+                int i = Math.min(aSauter, nombres[r]);
+                aSauter -= i;
+                for (; i < nombres[r] && resultat.size() < limite; i++) {
+                    resultat.add(ids[parRang[r][i]]);
+                }
+            }
+            return new ResultatRecherche(resultat, trouves);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Intersection des listes des trigrammes des termes, en partant de la plus courte
+     */
+    private int[] candidats(String[] termes) {
+        List<Integer> trigrammes = new ArrayList<>();
+        for (String terme : termes) {
+            String motif = motif(terme);
+            for (int i = 0; i + 3 <= motif.length(); i++) {
+                int trigramme = trigramme(motif, i);
+                if (!trigrammes.contains(trigramme)) {
+                    trigrammes.add(trigramme);
+                }
+            }
+        }
+        if (trigrammes.isEmpty()) {
+            // Termes d'un caractère seulement : pas de trigramme, trop peu sélectifs, aucun résultat
+            return new int[0];
+        }
+        trigrammes.sort((a, b) -> Integer.compare(longueurs[a], longueurs[b]));
+
+        int premier = trigrammes.get(0);
+        int[] candidats = Arrays.copyOf(listes[premier] != null ? listes[premier] : new int[0], longueurs[premier]);
+        int nombre = candidats.length;
+        for (int t = 1; t < trigrammes.size() && nombre > 0; t++) {
+            nombre = intersecter(candidats, nombre, listes[trigrammes.get(t)], longueurs[trigrammes.get(t)]);
+        }
+        return Arrays.copyOf(candidats, nombre);
+    }
+
+    /**
+     * Garde dans candidats[0, nombre) les positions présentes dans la liste : fusion
+     * si les tailles sont comparables, recherche dichotomique sinon
+     *
+     * @return nombre de candidats retenus
+     */
+    private static int intersecter(int[] candidats, int nombre, int[] liste, int longueur) {
+        int retenus = 0;
+        int j = 0;
+        if (longueur <= 16 * nombre) {
+            for (int i = 0; i < nombre && j < longueur; i++) {
+                while (j < longueur && liste[j] < candidats[i]) {
+                    j++;
+                }
+                if (j < longueur && liste[j] == candidats[i]) {
+                    candidats[retenus++] = candidats[i];
+                }
+            }
+            return retenus;
+        }
+        for (int i = 0; i < nombre && j < longueur; i++) {
+            int trouve = Arrays.binarySearch(liste, j, longueur, candidats[i]);
+            if (trouve >= 0) {
+                candidats[retenus++] = candidats[i];
+                j = trouve + 1;
+            } else {
+                j = -trouve - 1;
+            }
+        }
+        return retenus;
+    }
+
+    /**
+     * Rang de pertinence du document pour les termes, -1 s'il n'en contient pas un
+     * (document retiré, ou trigrammes présents mais pas le terme lui-même)
+     *
+     * @param motifs pour chaque terme : le motif cherché (voir {@link #motif(String)}),
+     *               le terme en début de mot, en mot entier
+     */
+    private static int rang(String texte, String[][] motifs) {
+        if (texte == null) {
+            return -1;
+        }
+        int rang = 0;
+        for (String[] motif : motifs) {
+            if (texte.indexOf(motif[0]) < 0) {
+                return -1;
+            }
+            if (texte.indexOf(motif[1]) < 0) {
+                rang = 2;
+            } else if (rang == 0 && texte.indexOf(motif[2]) < 0) {
+                rang = 1;
+            }
+        }
+        return rang;
+    }
+
+    /**
+     * Motif qu'un document doit contenir pour le terme : un terme d'un ou deux
+     * caractères est cherché en début de mot, un terme plus long n'importe où
+     */
+    private static String motif(String terme) {
+        return terme.length() <= 2 ? " " + terme : terme;
+    }
+
+    int taille() {
+        verrou.readLock().lock();
+        try {
+            return taille - retires;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Termes normalisés d'une recherche
+     */
+    static String[] termes(String recherche) {
+        String normalise = normaliser(recherche).trim();
+        return normalise.isEmpty() ? new String[0] : normalise.split(" ");
+    }
+
+    /** Texte indexé : normalisé et bordé d'espaces, pour les trigrammes de début et de fin de mot */
+    private static String document(String texte) {
+        return " " + normaliser(texte).trim() + " ";
+    }
+
+    /**
+     * Sans accents, en minuscules, séparateurs et ponctuation réduits à un espace
+     */
+    static String normaliser(String texte) {
+        String decompose = Normalizer.normalize(texte != null ? texte : "", Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decompose.length());
+        boolean espace = false;
+        for (int i = 0; i < decompose.length(); i++) {
+            char c = decompose.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+                espace = false;
+            } else if (!espace) {
+                sb.append(' ');
+                espace = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int trigramme(String texte, int i) {
+        return (symbole(texte.charAt(i)) * SYMBOLES + symbole(texte.charAt(i + 1))) * SYMBOLES
+                + symbole(texte.charAt(i + 2));
+    }
+
+    private static int symbole(char c) {
+        if (c == ' ') {
+            return 0;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 1;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 27;
+        }
+        return SYMBOLE_AUTRE;
+    }
+
+    /**
+     * Position du document par identifiant, en adressage ouvert (sondage linéaire)
+     */
+    private static final class PositionsParId {
+
+        private long[] cles;
+        private int[] valeurs;
+        private int nombre;
+
+        PositionsParId(int capacite) {
+            int alveoles = Integer.highestOneBit(Math.max(16, capacite) * 2 - 1) << 1;
+            cles = new long[alveoles];
+            valeurs = new int[alveoles];
+        }
+
+        /** Position du document, -1 s'il est absent */
+        int get(long id) {
+            int masque = cles.length - 1;
+            for (int alveole = alveole(id, masque); valeurs[alveole] != 0; alveole = (alveole + 1) & masque) {
+                if (cles[alveole] == id) {
+                    return valeurs[alveole] - 1;
+                }
+            }
+            return -1;
+        }
+
+        void put(long id, int position) {
+            if ((nombre + 1) * 2 > cles.length) {
+                agrandir();
+            }
+            int masque = cles.length - 1;
+            int alveole = alveole(id, masque);
+            while (valeurs[alveole] != 0 && cles[alveole] != id) {
+                alveole = (alveole + 1) & masque;
+            }
+            if (valeurs[alveole] == 0) {
+                nombre++;
+            }
+            cles[alveole] = id;
+            valeurs[alveole] = position + 1;
+        }
+
+        private void agrandir() {
+            long[] anciennesCles = cles;
+            int[] anciennesValeurs = valeurs;
+            cles = new long[anciennesCles.length * 2];
+            valeurs = new int[anciennesValeurs.length * 2];
+            nombre = 0;
+            for (int i = 0; i < anciennesCles.length; i++) {
+                if (anciennesValeurs[i] != 0) {
+                    put(anciennesCles[i], anciennesValeurs[i] - 1);
+                }
+            }
+        }
+
+        /** Les identifiants de séquence se suivent : brassage avant masquage */
+        private static int alveole(long id, int masque) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & masque;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.banque.eurobank.recherche;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Page de résultats d'une recherche : identifiants dans l'ordre de pertinence
+ * et nombre total de documents trouvés (plafonné pour une recherche trop large)
+ */
+@Value
+public class ResultatRecherche {
+    List<Long> ids;
+    int total;
+}
@@ -7,7 +7,6 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -22,15 +21,12 @@ public interface CarteRepository extends JpaRepository<Carte, Long> {
 
     List<Carte> findByCompteId(Long compteId);
 
-    @Query("SELECT c FROM Carte c WHERE c.compte.client.id = :clientId")
+    @Query("SELECT c FROM Carte c JOIN c.compte co WHERE co.client.id = :clientId")
     List<Carte> findByClientId(@Param("clientId") Long clientId);
 
     @Query("SELECT c FROM Carte c WHERE c.compte.id = :compteId AND c.statut = 'ACTIVE'")
     List<Carte> findCartesActives(@Param("compteId") Long compteId);
 
-    @Query("SELECT c FROM Carte c WHERE c.dateExpiration < :date AND c.statut = 'ACTIVE'")
-    List<Carte> findCartesExpirees(@Param("date") LocalDate date);
-
     @Modifying
     @Query("UPDATE Carte c SET c.statut = 'OPPOSITION', c.opposition = true, " +
            "c.dateOpposition = :dateOpposition, c.motifOpposition = :motif WHERE c.id = :carteId")
@@ -39,7 +35,6 @@ public interface CarteRepository extends JpaRepository<Carte, Long> {
                            @Param("motif") String motif);
 
     @Modifying
-    @Query("UPDATE Carte c SET c.cumulPaiementJour = 0, c.cumulRetraitJour = 0 " +
-           "WHERE c.statut = 'ACTIVE'")
-    int reinitialiserCumulJournalier();
+    @Query("UPDATE Carte c SET c.tentativesPinErronees = 0 WHERE c.id = :carteId AND c.statut = 'ACTIVE'")
+    int reinitialiserTentativesPin(@Param("carteId") Long carteId);
 }
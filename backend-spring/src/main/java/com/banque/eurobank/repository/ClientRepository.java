@@ -10,6 +10,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +19,63 @@ import java.util.Optional;
  */
 @Repository
 public interface ClientRepository extends JpaRepository<Client, Long> {
+
+    /**
+     * Portefeuille d'un conseiller : résumé du client, nombre et somme des soldes de ses
+     * comptes actifs, en une requête groupée. Pagination par clé : la page suivante reprend
+     * après la clé de tri de la dernière ligne (ignorée pour la première page)
+     */
+    String PORTEFEUILLE =
+            "SELECT c.id AS id, c.numeroClient AS numeroClient, c.nom AS nom, c.prenom AS prenom, " +
+            "c.email AS email, c.statut AS statut, c.segment AS segment, c.dateCreation AS dateCreation, " +
+            "COUNT(a.id) AS nombreComptes, COALESCE(SUM(a.solde), 0) AS soldeTotal " +
+            "FROM Client c LEFT JOIN c.comptes a ON a.statut = 'ACTIF' " +
+            "WHERE c.conseillerId = :conseillerId ";
+
+    String GROUPE_PORTEFEUILLE =
+            "GROUP BY c.id, c.numeroClient, c.nom, c.prenom, c.email, c.statut, c.segment, c.dateCreation ";
+
+    @Query(PORTEFEUILLE +
+           "AND (:debut = true OR c.nom > :nom OR (c.nom = :nom AND (c.prenom > :prenom " +
+           "OR (c.prenom = :prenom AND c.id > :apresId)))) " +
+           GROUPE_PORTEFEUILLE + "ORDER BY c.nom, c.prenom, c.id")
+    List<LignePortefeuille> findPortefeuilleParNom(@Param("conseillerId") Long conseillerId,
+                                                   @Param("debut") boolean debut,
+                                                   @Param("nom") String nom,
+                                                   @Param("prenom") String prenom,
+                                                   @Param("apresId") Long apresId,
+                                                   Pageable pageable);
+
+    @Query(PORTEFEUILLE + "AND (:debut = true OR c.numeroClient > :numeroClient) " +
+           GROUPE_PORTEFEUILLE + "ORDER BY c.numeroClient")
+    List<LignePortefeuille> findPortefeuilleParNumero(@Param("conseillerId") Long conseillerId,
+                                                      @Param("debut") boolean debut,
+                                                      @Param("numeroClient") String numeroClient,
+                                                      Pageable pageable);
+
+    /**
+     * Un client sans date de création (reprise de données) est classé à la date
+     * sansDate, la même que dans le curseur : il reste atteignable après les autres
+     */
+    @Query(PORTEFEUILLE + "AND (:debut = true OR COALESCE(c.dateCreation, :sansDate) < :dateCreation " +
+           "OR (COALESCE(c.dateCreation, :sansDate) = :dateCreation AND c.id > :apresId)) " +
+           GROUPE_PORTEFEUILLE + "ORDER BY COALESCE(c.dateCreation, :sansDate) DESC, c.id")
+    List<LignePortefeuille> findPortefeuilleParDateCreation(@Param("conseillerId") Long conseillerId,
+                                                            @Param("debut") boolean debut,
+                                                            @Param("sansDate") LocalDateTime sansDate,
+                                                            @Param("dateCreation") LocalDateTime dateCreation,
+                                                            @Param("apresId") Long apresId,
+                                                            Pageable pageable);
+
+    @Query(PORTEFEUILLE + GROUPE_PORTEFEUILLE +
+           "HAVING :debut = true OR COALESCE(SUM(a.solde), 0) < :solde " +
+           "OR (COALESCE(SUM(a.solde), 0) = :solde AND c.id > :apresId) " +
+           "ORDER BY COALESCE(SUM(a.solde), 0) DESC, c.id")
+    List<LignePortefeuille> findPortefeuilleParSolde(@Param("conseillerId") Long conseillerId,
+                                                     @Param("debut") boolean debut,
+                                                     @Param("solde") BigDecimal solde,
+                                                     @Param("apresId") Long apresId,
+                                                     Pageable pageable);
     
     Optional<Client> findByNumeroClient(String numeroClient);
     
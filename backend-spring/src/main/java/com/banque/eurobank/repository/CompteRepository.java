@@ -3,6 +3,7 @@ package com.banque.eurobank.repository;
 import com.banque.eurobank.entity.*;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
@@ -13,6 +14,7 @@ import org.springframework.stereotype.Repository;
 import javax.persistence.LockModeType;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,7 +28,17 @@ public interface CompteRepository extends JpaRepository<Compte, Long> {
 
     Optional<Compte> findByIban(String iban);
 
+    /**
+     * Compte et titulaire en une requête (détail du compte)
+     */
+    @EntityGraph(Compte.GRAPHE_TITULAIRE)
+    Optional<Compte> findAvecTitulaireByIban(String iban);
+
+    /**
+     * Compte verrouillé avec son titulaire (le solde agrégé du client est de toute façon verrouillé par l'opération)
+     */
     @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @EntityGraph(Compte.GRAPHE_TITULAIRE)
     @Query("SELECT c FROM Compte c WHERE c.iban = :iban")
     Optional<Compte> findByIbanForUpdate(@Param("iban") String iban);
 
@@ -40,6 +52,10 @@ public interface CompteRepository extends JpaRepository<Compte, Long> {
     @Query("SELECT SUM(c.solde) FROM Compte c WHERE c.client.id = :clientId AND c.statut = 'ACTIF'")
     BigDecimal getSoldeGlobalClient(@Param("clientId") Long clientId);
 
+    @Query("SELECT c.client.id, SUM(c.solde) FROM Compte c WHERE c.client.id IN :clientIds " +
+           "AND c.statut = 'ACTIF' GROUP BY c.client.id")
+    List<Object[]> getSoldesGlobauxClients(@Param("clientIds") Collection<Long> clientIds);
+
     @Modifying
     @Query("UPDATE Compte c SET c.solde = :solde, c.soldeDisponible = :soldeDisponible, c.dateModification = :date WHERE c.id = :compteId")
     int updateSolde(@Param("compteId") Long compteId,
@@ -0,0 +1,32 @@
+package com.banque.eurobank.repository;
+
+import com.banque.eurobank.entity.*;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+/**
+ * Repository CompteurNumerotation
+ */
+@Repository
+public interface CompteurNumerotationRepository extends JpaRepository<CompteurNumerotation, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM CompteurNumerotation c WHERE c.cle = :cle")
+    Optional<CompteurNumerotation> findByCleForUpdate(@Param("cle") String cle);
+
+    /**
+     * Crée un compteur à zéro ; échoue (clé dupliquée) s'il a été créé entre-temps,
+     * là où save() fusionnerait avec la ligne de l'autre nœud
+     */
+    @Modifying
+    @Query(value = "INSERT INTO EB_COMPTEURS_NUMEROTATION (cle, valeur, date_modification) " +
+                   "VALUES (:cle, 0, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int creer(@Param("cle") String cle);
+}
@@ -0,0 +1,29 @@
+package com.banque.eurobank.repository;
+
+import com.banque.eurobank.entity.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+/**
+ * Repository EcartRapprochement
+ */
+@Repository
+public interface EcartRapprochementRepository extends JpaRepository<EcartRapprochement, Long> {
+
+    Page<EcartRapprochement> findByDateRapprochementOrderByCompteIdAscIdAsc(LocalDate dateRapprochement,
+                                                                           Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM EcartRapprochement e WHERE e.dateRapprochement = :date " +
+           "AND e.compteId BETWEEN :debutId AND :finId")
+    int supprimerPartition(@Param("date") LocalDate date,
+                           @Param("debutId") Long debutId,
+                           @Param("finId") Long finId);
+}
@@ -0,0 +1,12 @@
+package com.banque.eurobank.repository;
+
+import com.banque.eurobank.entity.*;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository EvenementOpposition
+ */
+@Repository
+public interface EvenementOppositionRepository extends JpaRepository<EvenementOpposition, Long> {
+}
@@ -0,0 +1,22 @@
+package com.banque.eurobank.repository;
+
+import com.banque.eurobank.entity.Client;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Ligne du portefeuille d'un conseiller (projection de ClientRepository)
+ */
+public interface LignePortefeuille {
+    Long getId();
+    String getNumeroClient();
+    String getNom();
+    String getPrenom();
+    String getEmail();
+    Client.StatutClient getStatut();
+    Client.SegmentClient getSegment();
+    LocalDateTime getDateCreation();
+    Long getNombreComptes();
+    BigDecimal getSoldeTotal();
+}
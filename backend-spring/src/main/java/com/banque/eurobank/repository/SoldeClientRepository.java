@@ -0,0 +1,46 @@
+package com.banque.eurobank.repository;
+
+import com.banque.eurobank.entity.*;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository SoldeClient
+ */
+@Repository
+public interface SoldeClientRepository extends JpaRepository<SoldeClient, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SoldeClient s WHERE s.clientId = :clientId")
+    Optional<SoldeClient> findByIdForUpdate(@Param("clientId") Long clientId);
+
+    @Query("SELECT s.clientId, s.soldeGlobal FROM SoldeClient s WHERE s.clientId > :apresId ORDER BY s.clientId")
+    List<Object[]> findTranche(@Param("apresId") Long apresId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE SoldeClient s SET s.soldeGlobal = s.soldeGlobal + :delta, s.dateModification = :date " +
+           "WHERE s.clientId = :clientId")
+    int appliquerDelta(@Param("clientId") Long clientId,
+                       @Param("delta") BigDecimal delta,
+                       @Param("date") LocalDateTime date);
+
+    @Modifying
+    @Query("UPDATE SoldeClient s SET s.dateVerification = :date WHERE s.clientId IN :clientIds")
+    int marquerVerifies(@Param("clientIds") Collection<Long> clientIds, @Param("date") LocalDateTime date);
+
+    @Query("SELECT c.id FROM Client c WHERE NOT EXISTS " +
+           "(SELECT s.clientId FROM SoldeClient s WHERE s.clientId = c.id) ORDER BY c.id")
+    List<Long> findClientsSansSolde(Pageable pageable);
+}
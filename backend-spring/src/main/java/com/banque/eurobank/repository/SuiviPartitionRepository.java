@@ -0,0 +1,18 @@
+package com.banque.eurobank.repository;
+
+import com.banque.eurobank.entity.*;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository SuiviPartition
+ */
+@Repository
+public interface SuiviPartitionRepository extends JpaRepository<SuiviPartition, Long> {
+
+    boolean existsByTraitementAndPeriodeAndDebutId(String traitement, String periode, Long debutId);
+
+    Optional<SuiviPartition> findFirstByTraitementAndPeriodeOrderByIdAsc(String traitement, String periode);
+}
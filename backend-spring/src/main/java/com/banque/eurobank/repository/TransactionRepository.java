@@ -58,5 +58,17 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
                                      @Param("date") LocalDate date,
                                      @Param("type") Transaction.TypeOperation type);
 
+    /**
+     * Dernières opérations de chacun des comptes d'un client, en une requête
+     */
+    @Query(value = "SELECT * FROM (SELECT t.*, ROW_NUMBER() OVER (PARTITION BY t.compte_id " +
+                   "ORDER BY t.date_operation DESC, t.id DESC) AS rang " +
+                   "FROM EB_TRANSACTIONS t JOIN EB_COMPTES c ON c.id = t.compte_id " +
+                   "WHERE c.client_id = :clientId) d " +
+                   "WHERE d.rang <= :nombre ORDER BY d.compte_id, d.rang",
+           nativeQuery = true)
+    List<Transaction> findDernieresParCompteClient(@Param("clientId") Long clientId,
+                                                   @Param("nombre") int nombre);
+
     boolean existsByReference(String reference);
 }
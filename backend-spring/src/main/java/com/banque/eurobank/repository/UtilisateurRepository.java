@@ -1,6 +1,7 @@
 package com.banque.eurobank.repository;
 
 import com.banque.eurobank.entity.*;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -17,24 +18,38 @@ import java.util.Optional;
 @Repository
 public interface UtilisateurRepository extends JpaRepository<Utilisateur, Long> {
 
+    @EntityGraph(attributePaths = "roles")
     Optional<Utilisateur> findByLogin(String login);
 
+    /**
+     * Utilisateur, rôles et client rattaché en une requête (réponse d'authentification)
+     */
+    @EntityGraph(attributePaths = {"roles", "client"})
+    Optional<Utilisateur> findAvecClientByLogin(String login);
+
     Optional<Utilisateur> findByClientId(Long clientId);
 
     @Query("SELECT u FROM Utilisateur u WHERE u.agenceCode = :agenceCode AND u.actif = true")
     List<Utilisateur> findUtilisateursActifsParAgence(@Param("agenceCode") String agenceCode);
 
-    @Modifying
-    @Query("UPDATE Utilisateur u SET u.tentativesConnexion = u.tentativesConnexion + 1 WHERE u.id = :userId")
-    int incrementerTentatives(@Param("userId") Long userId);
-
     @Modifying
     @Query("UPDATE Utilisateur u SET u.tentativesConnexion = 0, u.dateDerniereConnexion = :date WHERE u.id = :userId")
     int reinitialiserTentatives(@Param("userId") Long userId, @Param("date") LocalDateTime date);
 
     @Modifying
-    @Query("UPDATE Utilisateur u SET u.verrouille = true, u.dateVerrouillage = :date WHERE u.id = :userId")
-    int verrouiller(@Param("userId") Long userId, @Param("date") LocalDateTime date);
+    @Query("UPDATE Utilisateur u SET u.verrouille = true, u.tentativesConnexion = :tentatives, " +
+           "u.dateVerrouillage = :date WHERE u.id = :userId AND u.verrouille = false")
+    int verrouiller(@Param("userId") Long userId, @Param("tentatives") int tentatives,
+                    @Param("date") LocalDateTime date);
+
+    @Modifying
+    @Query("UPDATE Utilisateur u SET u.motDePasseHash = :hash WHERE u.login = :login")
+    int modifierMotDePasseHash(@Param("login") String login, @Param("hash") String hash);
 
     boolean existsByLogin(String login);
+
+    /**
+     * Statut de l'utilisateur authentifié par token, sans charger l'entité
+     */
+    boolean existsByIdAndActifTrueAndVerrouilleFalse(Long id);
 }
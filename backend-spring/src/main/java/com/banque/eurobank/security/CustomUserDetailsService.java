@@ -3,22 +3,27 @@ package com.banque.eurobank.security;
 import com.banque.eurobank.entity.Utilisateur;
 import com.banque.eurobank.repository.UtilisateurRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.stream.Collectors;
 
 /**
- * Service de chargement des utilisateurs pour Spring Security
+ * Service de chargement des utilisateurs pour Spring Security, et d'enregistrement
+ * des hash recalculés au coût courant après une authentification réussie
  */
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+@Slf4j
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     
     private final UtilisateurRepository utilisateurRepository;
     
@@ -28,6 +33,13 @@ public class CustomUserDetailsService implements UserDetailsService {
         Utilisateur utilisateur = utilisateurRepository.findByLogin(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Utilisateur non trouvé: " + username));
         
+        return versUserDetails(utilisateur);
+    }
+    
+    /**
+     * Vue Spring Security d'un utilisateur déjà chargé, rôles compris
+     */
+    public UserDetails versUserDetails(Utilisateur utilisateur) {
         return User.builder()
                 .username(utilisateur.getLogin())
                 .password(utilisateur.getMotDePasseHash())
@@ -38,4 +50,16 @@ public class CustomUserDetailsService implements UserDetailsService {
                         .collect(Collectors.toList()))
                 .build();
     }
+    
+    /**
+     * Enregistre le hash recalculé dans sa propre transaction : son échec n'invalide
+     * pas la connexion en cours
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        utilisateurRepository.modifierMotDePasseHash(user.getUsername(), newPassword);
+        log.info("Hash du mot de passe recalculé au coût courant: {}", user.getUsername());
+        return User.withUserDetails(user).password(newPassword).build();
+    }
 }
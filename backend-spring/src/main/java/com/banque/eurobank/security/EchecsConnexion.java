@@ -0,0 +1,157 @@
+package com.banque.eurobank.security;
+
+import com.banque.eurobank.entity.Utilisateur;
+import com.banque.eurobank.repository.UtilisateurRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Échecs de connexion par login sur une fenêtre glissante, en mémoire : un échec
+ * n'écrit rien en base. Seul le franchissement du seuil est persisté (verrouillage
+ * du compte), une seule fois quel que soit le nombre de tentatives simultanées, dans
+ * la transaction de la connexion, qui ne doit pas être annulée par son échec. Le
+ * déverrouillage, fait en base par l'agence, remet le compteur à zéro à la
+ * connexion suivante ; de même si le verrouillage n'a finalement pas été validé.
+ *
+ * Les échecs sont comptés par nœud : sur N nœuds, une attaque répartie dispose au
+ * plus de N fois le seuil avant le verrouillage, dans la limite de débit des
+ * connexions. Les logins sans échec dans la fenêtre sont retirés par la purge.
+ */
+@Component
+@Slf4j
+public class EchecsConnexion {
+
+    private final UtilisateurRepository utilisateurRepository;
+    private final EtatUtilisateurs etatUtilisateurs;
+    private final int maxEchecs;
+    private final long fenetreMs;
+    private final Map<String, Echecs> parLogin = new ConcurrentHashMap<>();
+
+    public EchecsConnexion(UtilisateurRepository utilisateurRepository,
+                           EtatUtilisateurs etatUtilisateurs,
+                           @Value("${app.securite.connexion.max-echecs:5}") int maxEchecs,
+                           @Value("${app.securite.connexion.fenetre-minutes:15}") long fenetreMinutes) {
+        this.utilisateurRepository = utilisateurRepository;
+        this.etatUtilisateurs = etatUtilisateurs;
+        this.maxEchecs = maxEchecs;
+        this.fenetreMs = TimeUnit.MINUTES.toMillis(fenetreMinutes);
+    }
+
+    public int getMaxEchecs() {
+        return maxEchecs;
+    }
+
+    /**
+     * Enregistre un échec de connexion. Un seul des échecs simultanés franchit le
+     * seuil et verrouille le compte, hors du verrou du login : les autres ne
+     * l'attendent pas et voient le compte verrouillé. Si l'écriture échoue, le
+     * seuil est rendu et l'échec suivant la retente.
+     *
+     * @return nombre d'échecs dans la fenêtre, celui-ci compris ; le seuil (ou plus)
+     *         signifie que le compte est verrouillé
+     */
+    public int enregistrerEchec(Utilisateur utilisateur) {
+        long maintenant = System.currentTimeMillis();
+        Echecs echecs = parLogin.computeIfAbsent(utilisateur.getLogin(), k -> new Echecs(maxEchecs));
+        int nombre;
+        synchronized (echecs) {
+            if (echecs.verrouille) {
+                return maxEchecs;
+            }
+            echecs.ajouter(maintenant);
+            nombre = echecs.compter(maintenant - fenetreMs);
+            if (nombre < maxEchecs) {
+                return nombre;
+            }
+            echecs.verrouille = true;
+        }
+
+        try {
+            utilisateurRepository.verrouiller(utilisateur.getId(), nombre, LocalDateTime.now());
+        } catch (RuntimeException e) {
+            synchronized (echecs) {
+                echecs.verrouille = false;
+            }
+            throw e;
+        }
+        etatUtilisateurs.invalider(utilisateur.getId());
+        log.warn("Compte verrouillé après {} échecs de connexion: {}", nombre, utilisateur.getLogin());
+        return nombre;
+    }
+
+    /**
+     * Oublie les échecs du login : connexion réussie, ou compte trouvé déverrouillé
+     * en base après le franchissement du seuil (déverrouillage par l'agence)
+     */
+    public void reinitialiser(String login) {
+        parLogin.remove(login);
+    }
+
+    /**
+     * Vrai si le seuil a été franchi pour ce login depuis sa dernière réinitialisation
+     */
+    public boolean aFranchiSeuil(String login) {
+        Echecs echecs = parLogin.get(login);
+        if (echecs == null) {
+            return false;
+        }
+        synchronized (echecs) {
+            return echecs.verrouille;
+        }
+    }
+
+    /**
+     * Retire les logins dont le dernier échec est sorti de la fenêtre
+     */
+    @Scheduled(fixedDelayString = "${app.securite.connexion.purge-ms:300000}")
+    public void purger() {
+        long limite = System.currentTimeMillis() - fenetreMs;
+        int avant = parLogin.size();
+        parLogin.values().removeIf(echecs -> {
+            synchronized (echecs) {
+                return echecs.dernier() < limite;
+            }
+        });
+        log.debug("Échecs de connexion: {} login(s) purgé(s), {} suivi(s)", avant - parLogin.size(), parLogin.size());
+    }
+
+    /**
+     * Instants des derniers échecs d'un login (tampon circulaire de la taille du seuil),
+     * à lire et modifier sous son verrou
+     */
+    private static final class Echecs {
+        private final long[] instants;
+        private int suivant;
+        private boolean verrouille;
+
+        private Echecs(int taille) {
+            this.instants = new long[taille];
+        }
+
+        void ajouter(long instant) {
+            instants[suivant] = instant;
+            suivant = (suivant + 1) % instants.length;
+        }
+
+        int compter(long depuis) {
+            int nombre = 0;
+            for (long instant : instants) {
+                if (instant > depuis) {
+                    nombre++;
+                }
+            }
+            return nombre;
+        }
+
+        long dernier() {
+            return instants[(suivant + instants.length - 1) % instants.length];
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.banque.eurobank.security;
+
+import com.banque.eurobank.repository.UtilisateurRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Statut (actif et non verrouillé) des utilisateurs authentifiés par token, en cache
+ * local de courte durée : une requête authentifiée ne lit la base que lorsque le
+ * statut de son utilisateur n'a pas été vérifié depuis la durée configurée.
+ *
+ * Le verrouillage par {@code AuthService} invalide l'entrée de ce nœud ; sur les
+ * autres nœuds, un compte verrouillé ou désactivé reste accepté au plus pendant
+ * la durée du cache.
+ */
+@Component
+@Slf4j
+public class EtatUtilisateurs {
+
+    private final UtilisateurRepository utilisateurRepository;
+    private final long dureeNanos;
+    private final int tailleMax;
+    private final Map<Long, Etat> etats = new ConcurrentHashMap<>();
+
+    public EtatUtilisateurs(UtilisateurRepository utilisateurRepository,
+                            @Value("${app.jwt.cache-statut.duree-ms:30000}") long dureeMs,
+                            @Value("${app.jwt.cache-statut.taille-max:100000}") int tailleMax) {
+        this.utilisateurRepository = utilisateurRepository;
+        this.dureeNanos = dureeMs * 1_000_000L;
+        this.tailleMax = tailleMax;
+    }
+
+    /**
+     * Indique si l'utilisateur est actif et non verrouillé (faux s'il n'existe plus)
+     */
+    public boolean estAutorise(Long utilisateurId) {
+        long maintenant = System.nanoTime();
+        Etat etat = etats.get(utilisateurId);
+        if (etat != null && maintenant - etat.lecture < dureeNanos) {
+            return etat.autorise;
+        }
+
+        // Lecture hors de la map : deux requêtes simultanées pour le même utilisateur
+        // peuvent lire toutes deux la base, sans bloquer les autres entrées
+        boolean autorise = utilisateurRepository.existsByIdAndActifTrueAndVerrouilleFalse(utilisateurId);
+        if (etats.size() >= tailleMax) {
+            purger(maintenant);
+        }
+        etats.put(utilisateurId, new Etat(autorise, maintenant));
+        return autorise;
+    }
+
+    /**
+     * Oublie le statut de l'utilisateur, relu à sa prochaine requête. Appliqué
+     * immédiatement puis à nouveau à la fin de la transaction en cours, pour qu'une
+     * lecture intercalée avant le commit ne garde pas l'ancien statut en cache.
+     */
+    public void invalider(Long utilisateurId) {
+        etats.remove(utilisateurId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    etats.remove(utilisateurId);
+                }
+            });
+        }
+    }
+
+    private void purger(long maintenant) {
+        etats.values().removeIf(e -> maintenant - e.lecture >= dureeNanos);
+        if (etats.size() >= tailleMax) {
+            log.warn("Cache des statuts utilisateurs plein ({} entrées), vidé", etats.size());
+            etats.clear();
+        }
+    }
+
+    private static final class Etat {
+        private final boolean autorise;
+        private final long lecture;
+
+        private Etat(boolean autorise, long lecture) {
+            this.autorise = autorise;
+            this.lecture = lecture;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.banque.eurobank.security;
+
+/**
+ * Groupes d'endpoints soumis chacun à leurs propres limites de débit
+ */
+public enum GroupeLimitation {
+    AUTH,        // Connexion, rafraîchissement, déconnexion
+    VIREMENTS,   // Ordres de virement
+    LECTURES,    // Consultations (GET)
+    ECRITURES    // Autres modifications
+}
@@ -0,0 +1,148 @@
+package com.banque.eurobank.security;
+
+import com.banque.eurobank.exception.ServiceIndisponibleException;
+import com.banque.eurobank.exception.TechnicalException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Encodeur BCrypt dont les calculs (environ 250 ms de CPU au coût 12) s'exécutent
+ * sur un pool dédié, dimensionné sur les cœurs, avec une file d'attente bornée :
+ * un afflux de connexions ne mobilise pas plus de CPU que ce pool et laisse les
+ * threads servlet aux autres requêtes.
+ *
+ * File pleine, la demande est refusée aussitôt ({@link ServiceIndisponibleException},
+ * 503 avec Retry-After) plutôt que d'attendre. Un hash de coût inférieur au coût
+ * configuré est signalé par {@link #upgradeEncoding} pour être recalculé à la
+ * connexion suivante.
+ *
+ * Métriques : eurobank.hachage.file (demandes en attente), eurobank.hachage.actifs,
+ * eurobank.hachage.duree et eurobank.hachage.attente (temps de calcul et d'attente),
+ * eurobank.hachage.rejets et eurobank.hachage.migrations.
+ */
+@Slf4j
+public class HachageMotsDePasse implements PasswordEncoder {
+
+    private final BCryptPasswordEncoder bcrypt;
+    private final ThreadPoolExecutor executor;
+    private final int capaciteFile;
+    private final int retryAfterSecondes;
+
+    private final Timer duree;
+    private final Timer attente;
+    private final Counter rejets;
+    private final Counter migrations;
+
+    public HachageMotsDePasse(int cout, int taillePool, int capaciteFile, int retryAfterSecondes,
+                              MeterRegistry registre) {
+        this.bcrypt = new BCryptPasswordEncoder(cout);
+        int threads = taillePool > 0 ? taillePool : Runtime.getRuntime().availableProcessors();
+        AtomicInteger numero = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capaciteFile), tache -> {
+                    Thread thread = new Thread(tache, "hachage-" + numero.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.capaciteFile = capaciteFile;
+        this.retryAfterSecondes = retryAfterSecondes;
+
+        Gauge.builder("eurobank.hachage.file", executor, e -> e.getQueue().size())
+                .description("Demandes de hachage en attente d'un thread")
+                .register(registre);
+        Gauge.builder("eurobank.hachage.actifs", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hachages en cours")
+                .register(registre);
+        this.duree = Timer.builder("eurobank.hachage.duree")
+                .description("Temps de calcul d'un hash BCrypt")
+                .register(registre);
+        this.attente = Timer.builder("eurobank.hachage.attente")
+                .description("Attente d'un thread du pool de hachage")
+                .register(registre);
+        this.rejets = Counter.builder("eurobank.hachage.rejets")
+                .description("Demandes refusées, file d'attente pleine")
+                .register(registre);
+        this.migrations = Counter.builder("eurobank.hachage.migrations")
+                .description("Hash recalculés au coût courant à la connexion")
+                .register(registre);
+        log.info("Pool de hachage des mots de passe initialisé - coût: {}, taille: {}, file d'attente: {}",
+                cout, threads, capaciteFile);
+    }
+
+    @Override
+    public String encode(CharSequence motDePasse) {
+        return executer(() -> bcrypt.encode(motDePasse));
+    }
+
+    @Override
+    public boolean matches(CharSequence motDePasse, String hash) {
+        return executer(() -> bcrypt.matches(motDePasse, hash));
+    }
+
+    /**
+     * Vrai si le hash est d'un coût inférieur au coût configuré. Appelé par Spring
+     * Security après une authentification réussie : le mot de passe est alors
+     * réencodé et enregistré par {@link CustomUserDetailsService#updatePassword}.
+     */
+    @Override
+    public boolean upgradeEncoding(String hash) {
+        boolean migrer = bcrypt.upgradeEncoding(hash);
+        if (migrer) {
+            migrations.increment();
+        }
+        return migrer;
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executor.shutdown();
+    }
+
+    /**
+     * Exécute le calcul sur le pool et en attend le résultat ; le thread appelant
+     * ne consomme pas de CPU pendant l'attente
+     */
+    private <T> T executer(Callable<T> calcul) {
+        long soumission = System.nanoTime();
+        Future<T> resultat;
+        try {
+            resultat = executor.submit(() -> {
+                attente.record(System.nanoTime() - soumission, TimeUnit.NANOSECONDS);
+                return duree.recordCallable(calcul);
+            });
+        } catch (RejectedExecutionException e) {
+            rejets.increment();
+            log.warn("Hachage de mot de passe refusé: file d'attente pleine ({})", capaciteFile);
+            throw new ServiceIndisponibleException(
+                    "Trop de connexions en cours, veuillez réessayer ultérieurement", retryAfterSecondes);
+        }
+
+        try {
+            return resultat.get();
+        } catch (InterruptedException e) {
+            resultat.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new TechnicalException("Hachage de mot de passe interrompu", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new TechnicalException("Hachage de mot de passe impossible", e.getCause());
+        }
+    }
+}
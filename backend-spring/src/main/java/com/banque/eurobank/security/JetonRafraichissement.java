@@ -0,0 +1,20 @@
+package com.banque.eurobank.security;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Contenu d'un token de rafraîchissement valide
+ */
+@Getter
+@RequiredArgsConstructor
+public class JetonRafraichissement {
+
+    private final String login;
+    private final Long utilisateurId;
+    private final String jetonId;
+    private final String session;
+    private final LocalDateTime expiration;
+}
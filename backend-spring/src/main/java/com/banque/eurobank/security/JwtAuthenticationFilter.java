@@ -4,8 +4,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -18,18 +16,18 @@ import java.io.IOException;
 
 /**
  * Filtre d'authentification JWT
- * Intercepte toutes les requêtes et valide le token JWT
+ * Intercepte toutes les requêtes et valide le token JWT.
+ * L'utilisateur est reconstruit à partir des claims du token ; seuls la révocation
+ * de sa session ({@link ListeRevocations}) et son statut (cache local de
+ * {@link EtatUtilisateurs}) sont vérifiés.
  */
 @Slf4j
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtTokenProvider jwtTokenProvider;
-    private UserDetailsService userDetailsService;
-    
-    public void setUserDetailsService(UserDetailsService userDetailsService) {
-        this.userDetailsService = userDetailsService;
-    }
+    private final ListeRevocations listeRevocations;
+    private final EtatUtilisateurs etatUtilisateurs;
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
@@ -38,23 +36,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
             
-            if (StringUtils.hasText(jwt) && jwtTokenProvider.validateToken(jwt)) {
-                String username = jwtTokenProvider.getUsernameFromToken(jwt);
+            if (StringUtils.hasText(jwt)) {
+                UtilisateurAuthentifie utilisateur = jwtTokenProvider.lireTokenAcces(jwt);
                 
-                if (userDetailsService != null) {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                    
+                if (utilisateur != null
+                        && !listeRevocations.estRevoque(utilisateur.getSession())
+                        && etatUtilisateurs.estAutorise(utilisateur.getId())) {
                     UsernamePasswordAuthenticationToken authentication = 
                             new UsernamePasswordAuthenticationToken(
-                                    userDetails, 
+                                    utilisateur, 
                                     null, 
-                                    userDetails.getAuthorities()
+                                    utilisateur.getAuthorities()
                             );
                     
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                     
-                    log.debug("Utilisateur authentifié: {}", username);
+                    log.debug("Utilisateur authentifié: {}", utilisateur.getUsername());
                 }
             }
         } catch (Exception ex) {
@@ -1,16 +1,23 @@
 package com.banque.eurobank.security;
 
+import com.banque.eurobank.entity.Utilisateur;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import java.security.Key;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Gestionnaire des tokens JWT
@@ -28,75 +35,119 @@ public class JwtTokenProvider {
     @Value("${app.jwt.refresh-token-expiration:604800000}") // 7 jours
     private long refreshTokenExpiration;
     
+    private static final String CLAIM_UTILISATEUR = "uid";
+    private static final String CLAIM_ROLES = "roles";
+    private static final String CLAIM_TYPE = "typ";
+    private static final String CLAIM_SESSION = "sid";
+    private static final String TYPE_ACCES = "acces";
+    private static final String TYPE_RAFRAICHISSEMENT = "rafraichissement";
+    
     private Key key;
     
+    // Sans état une fois construit : partagé par toutes les requêtes
+    private JwtParser parser;
+    
     @PostConstruct
     public void init() {
         this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .requireIssuer("EuroBank")
+                .build();
+    }
+    
+    /**
+     * Génère un token d'accès : identifiant et rôles de l'utilisateur en claims,
+     * pour authentifier les requêtes sans relire l'utilisateur en base
+     */
+    public String generateAccessToken(Utilisateur utilisateur, String session) {
+        return generateToken(utilisateur, session, TYPE_ACCES, accessTokenExpiration)
+                .claim(CLAIM_ROLES, utilisateur.getRoles().stream()
+                        .map(Enum::name)
+                        .collect(Collectors.toList()))
+                .compact();
     }
     
     /**
-     * Génère un token d'accès
+     * Génère un token de rafraîchissement
      */
-    public String generateAccessToken(Authentication authentication) {
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        return generateToken(userDetails.getUsername(), accessTokenExpiration);
+    public String generateRefreshToken(Utilisateur utilisateur, String session) {
+        return generateToken(utilisateur, session, TYPE_RAFRAICHISSEMENT, refreshTokenExpiration).compact();
     }
     
     /**
-     * Génère un token d'accès à partir du username
+     * Nouvel identifiant de session, commun aux tokens émis à une connexion
+     * et à ses rafraîchissements
      */
-    public String generateAccessTokenFromUsername(String username) {
-        return generateToken(username, accessTokenExpiration);
+    public String nouvelleSession() {
+        return UUID.randomUUID().toString();
     }
     
     /**
-     * Génère un token de rafraîchissement
+     * Échéance d'un token de rafraîchissement émis maintenant : aucun token
+     * d'une session ouverte ne reste valide au-delà
      */
-    public String generateRefreshToken(Authentication authentication) {
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        return generateToken(userDetails.getUsername(), refreshTokenExpiration);
+    public LocalDateTime expirationSession() {
+        return LocalDateTime.now().plus(refreshTokenExpiration, ChronoUnit.MILLIS);
     }
     
     /**
-     * Génère un token JWT
+     * Prépare un token JWT, d'identifiant unique (jti)
      */
-    private String generateToken(String username, long expiration) {
+    private JwtBuilder generateToken(Utilisateur utilisateur, String session, String type, long expiration) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration);
         
         return Jwts.builder()
-                .setSubject(username)
+                .setSubject(utilisateur.getLogin())
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
                 .setIssuer("EuroBank")
-                .signWith(key, SignatureAlgorithm.HS256)
-                .compact();
+                .setId(UUID.randomUUID().toString())
+                .claim(CLAIM_SESSION, session)
+                .claim(CLAIM_UTILISATEUR, utilisateur.getId())
+                .claim(CLAIM_TYPE, type)
+                .signWith(key, SignatureAlgorithm.HS256);
     }
     
     /**
-     * Extrait le username du token
+     * Utilisateur porté par un token d'accès valide, lu en une seule analyse ;
+     * null si le token est invalide, expiré ou n'est pas un token d'accès
      */
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        
-        return claims.getSubject();
+    public UtilisateurAuthentifie lireTokenAcces(String token) {
+        Claims claims = lireClaims(token);
+        if (claims == null || !TYPE_ACCES.equals(claims.get(CLAIM_TYPE))
+                || claims.get(CLAIM_SESSION) == null) {
+            return null;
+        }
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        List<GrantedAuthority> authorities = roles == null ? List.of() : roles.stream()
+                .map(role -> new SimpleGrantedAuthority(role.toString()))
+                .collect(Collectors.toList());
+        return new UtilisateurAuthentifie(claims.get(CLAIM_UTILISATEUR, Long.class),
+                claims.getSubject(), claims.get(CLAIM_SESSION, String.class), authorities);
+    }
+    
+    /**
+     * Contenu d'un token de rafraîchissement valide ; null sinon
+     */
+    public JetonRafraichissement lireTokenRafraichissement(String token) {
+        Claims claims = lireClaims(token);
+        if (claims == null || !TYPE_RAFRAICHISSEMENT.equals(claims.get(CLAIM_TYPE))
+                || claims.getId() == null || claims.get(CLAIM_SESSION) == null) {
+            return null;
+        }
+        return new JetonRafraichissement(claims.getSubject(), claims.get(CLAIM_UTILISATEUR, Long.class),
+                claims.getId(), claims.get(CLAIM_SESSION, String.class),
+                LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault()));
     }
     
     /**
-     * Valide un token JWT
+     * Claims d'un token valide ; null (motif journalisé) sinon
      */
-    public boolean validateToken(String token) {
+    private Claims lireClaims(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            return parser.parseClaimsJws(token).getBody();
         } catch (MalformedJwtException ex) {
             log.error("Token JWT malformé");
         } catch (ExpiredJwtException ex) {
@@ -105,8 +156,10 @@ public class JwtTokenProvider {
             log.error("Token JWT non supporté");
         } catch (IllegalArgumentException ex) {
             log.error("Claims JWT vides");
+        } catch (JwtException ex) {
+            log.error("Signature JWT invalide");
         }
-        return false;
+        return null;
     }
     
     public long getAccessTokenExpiration() {
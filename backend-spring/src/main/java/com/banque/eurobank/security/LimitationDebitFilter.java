@@ -0,0 +1,78 @@
+package com.banque.eurobank.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtre de limitation de débit, placé après le filtre JWT : une requête prélève
+ * un jeton dans le seau de son utilisateur authentifié et dans celui de son
+ * adresse IP, pour le groupe de l'endpoint appelé. L'un des seaux vide, elle est
+ * refusée en 429 avec Retry-After, sans jeton prélevé dans l'autre.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class LimitationDebitFilter extends OncePerRequestFilter {
+
+    private final LimiteurDebit limiteurDebit;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        GroupeLimitation groupe = limiteurDebit.isActif() ? groupe(request) : null;
+        if (groupe == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String utilisateur = authentication != null && authentication.getPrincipal() instanceof UtilisateurAuthentifie
+                ? authentication.getName() : null;
+        long attente = limiteurDebit.consommer(groupe, utilisateur, request.getRemoteAddr());
+
+        if (attente > 0) {
+            log.debug("Requête limitée ({}): {} {}", groupe, request.getMethod(), request.getRequestURI());
+            long secondes = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(attente + TimeUnit.SECONDS.toNanos(1) - 1));
+            response.setContentType("application/json;charset=UTF-8");
+            response.setStatus(429);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(secondes));
+            response.getWriter().write("{\"success\":false,\"code\":\"TOO_MANY_REQUESTS\",\"message\":\"Trop de requêtes, veuillez réessayer ultérieurement\"}");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Groupe de limites de l'endpoint ; null hors API (documentation, supervision)
+     * et pour le contrôle de santé
+     */
+    private static GroupeLimitation groupe(HttpServletRequest request) {
+        String chemin = request.getRequestURI().substring(request.getContextPath().length());
+        if (chemin.startsWith("/api/v1/auth/")) {
+            return GroupeLimitation.AUTH;
+        }
+        if (!chemin.startsWith("/api/") || chemin.startsWith("/api/v1/health")) {
+            return null;
+        }
+        String methode = request.getMethod();
+        if ("GET".equals(methode) || "HEAD".equals(methode)) {
+            return GroupeLimitation.LECTURES;
+        }
+        if ("OPTIONS".equals(methode)) {
+            return null;
+        }
+        return chemin.startsWith("/api/v1/virements") ? GroupeLimitation.VIREMENTS : GroupeLimitation.ECRITURES;
+    }
+}
@@ -0,0 +1,283 @@
+package com.banque.eurobank.security;
+
+import com.banque.eurobank.config.LimitationDebitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seaux à jetons des limites de débit, par groupe d'endpoints et par clé
+ * (utilisateur authentifié ou adresse IP), en mémoire sur chaque nœud.
+ *
+ * Chaque seau tient dans un seul entier mis à jour par compare-and-set : l'instant
+ * où il sera de nouveau plein (algorithme GCRA, équivalent au seau à jetons).
+ * Un seau plein ne se distingue pas d'un seau neuf : la purge retire les seaux
+ * pleins, c'est-à-dire inactifs depuis le temps de les remplir, sans rien perdre ;
+ * le retrait est conditionnel, un seau prélevé entre-temps est conservé.
+ * Le nombre de seaux est borné ; à saturation, même après purge, une nouvelle clé
+ * n'est pas limitée (compteur eurobank.limitation.non-suivies) plutôt que refusée.
+ *
+ * Métriques : eurobank.limitation.requetes (groupe, cle, resultat),
+ * eurobank.limitation.seaux, eurobank.limitation.evictions, eurobank.limitation.non-suivies.
+ */
+@Component
+@Slf4j
+public class LimiteurDebit {
+
+    /** Clé d'un seau : utilisateur authentifié ou adresse IP cliente */
+    public enum TypeCle {
+        UTILISATEUR,
+        IP
+    }
+
+    /** Instant de remplissage d'un seau retiré par la purge */
+    private static final long RETIRE = Long.MIN_VALUE;
+
+    private final LimitationDebitProperties proprietes;
+    private final Map<String, Seau> seaux = new ConcurrentHashMap<>();
+    private final AtomicBoolean purgeEnCours = new AtomicBoolean();
+
+    private final Map<GroupeLimitation, Map<TypeCle, Counter>> admises = new EnumMap<>(GroupeLimitation.class);
+    private final Map<GroupeLimitation, Map<TypeCle, Counter>> refusees = new EnumMap<>(GroupeLimitation.class);
+    private final Counter evictions;
+    private final Counter nonSuivies;
+
+    public LimiteurDebit(LimitationDebitProperties proprietes, MeterRegistry registre) {
+        this.proprietes = proprietes;
+        for (GroupeLimitation groupe : GroupeLimitation.values()) {
+            Map<TypeCle, Counter> parCleAdmises = new EnumMap<>(TypeCle.class);
+            Map<TypeCle, Counter> parCleRefusees = new EnumMap<>(TypeCle.class);
+            for (TypeCle type : TypeCle.values()) {
+                parCleAdmises.put(type, compteurRequetes(registre, groupe, type, "admise"));
+                parCleRefusees.put(type, compteurRequetes(registre, groupe, type, "refusee"));
+            }
+            admises.put(groupe, parCleAdmises);
+            refusees.put(groupe, parCleRefusees);
+        }
+        Gauge.builder("eurobank.limitation.seaux", seaux, Map::size)
+                .description("Seaux à jetons en mémoire")
+                .register(registre);
+        this.evictions = Counter.builder("eurobank.limitation.evictions")
+                .description("Seaux pleins retirés par la purge")
+                .register(registre);
+        this.nonSuivies = Counter.builder("eurobank.limitation.non-suivies")
+                .description("Requêtes non limitées, nombre maximal de seaux atteint")
+                .register(registre);
+    }
+
+    public boolean isActif() {
+        return proprietes.isActif();
+    }
+
+    /**
+     * Prélève un jeton dans le seau de l'utilisateur et dans celui de l'adresse IP
+     * pour le groupe. Les deux seaux sont vérifiés avant tout prélèvement : une
+     * requête refusée par l'un ne consomme pas de jeton dans l'autre.
+     *
+     * @param utilisateur utilisateur authentifié, null pour une requête anonyme
+     * @return 0 si la requête est admise, sinon l'attente (en nanosecondes) avant
+     *         qu'un jeton soit disponible
+     */
+    public long consommer(GroupeLimitation groupe, String utilisateur, String ip) {
+        while (true) {
+            long maintenant = System.nanoTime();
+            Seau seauUtilisateur = seau(groupe, TypeCle.UTILISATEUR, utilisateur, maintenant);
+            Seau seauIp = seau(groupe, TypeCle.IP, ip, maintenant);
+
+            long attenteUtilisateur = seauUtilisateur == null ? 0 : seauUtilisateur.attente(maintenant);
+            long attenteIp = seauIp == null ? 0 : seauIp.attente(maintenant);
+            if (attenteUtilisateur > 0) {
+                return refuser(groupe, TypeCle.UTILISATEUR, Math.max(attenteUtilisateur, attenteIp));
+            }
+            if (attenteIp > 0) {
+                return refuser(groupe, TypeCle.IP, attenteIp);
+            }
+
+            long attente = seauUtilisateur == null ? 0 : seauUtilisateur.prelever(maintenant);
+            if (attente == RETIRE) {
+                continue;
+            }
+            if (attente > 0) {
+                return refuser(groupe, TypeCle.UTILISATEUR, attente);
+            }
+            attente = seauIp == null ? 0 : seauIp.prelever(maintenant);
+            if (attente != 0) {
+                // Seau IP vidé ou purgé depuis la vérification : le jeton de l'utilisateur est rendu
+                if (seauUtilisateur != null) {
+                    seauUtilisateur.restituer();
+                }
+                if (attente == RETIRE) {
+                    continue;
+                }
+                return refuser(groupe, TypeCle.IP, attente);
+            }
+
+            if (seauUtilisateur != null) {
+                admises.get(groupe).get(TypeCle.UTILISATEUR).increment();
+            }
+            if (seauIp != null) {
+                admises.get(groupe).get(TypeCle.IP).increment();
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Retire les seaux pleins ; sans effet si une purge est déjà en cours.
+     * Un seau n'est retiré que s'il est encore plein au moment du retrait : un
+     * prélèvement concurrent l'empêche, et un prélèvement arrivant après trouve
+     * le seau marqué retiré et passe par un seau neuf.
+     */
+    @Scheduled(fixedDelayString = "${app.limitation-debit.purge-ms:60000}")
+    public void purger() {
+        if (!purgeEnCours.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long maintenant = System.nanoTime();
+            int retires = 0;
+            for (Map.Entry<String, Seau> entree : seaux.entrySet()) {
+                if (entree.getValue().retirer(maintenant) && seaux.remove(entree.getKey(), entree.getValue())) {
+                    retires++;
+                }
+            }
+            if (retires > 0) {
+                evictions.increment(retires);
+            }
+            log.debug("Limitation de débit: {} seau(x) plein(s) retiré(s), {} en mémoire", retires, seaux.size());
+        } finally {
+            purgeEnCours.set(false);
+        }
+    }
+
+    /**
+     * Seau de la clé pour le groupe, créé au besoin ; null si la clé n'est pas
+     * limitée (pas de limite configurée, pas de clé, nombre maximal de seaux atteint)
+     */
+    private Seau seau(GroupeLimitation groupe, TypeCle type, String cle, long maintenant) {
+        LimitationDebitProperties.Limite limite = limite(groupe, type);
+        if (limite == null || cle == null) {
+            return null;
+        }
+        String identifiant = groupe.name() + '|' + type.name() + '|' + cle;
+        Seau seau = seaux.get(identifiant);
+        if (seau != null && seau.estRetire()) {
+            seaux.remove(identifiant, seau);
+            seau = null;
+        }
+        if (seau == null) {
+            if (seaux.size() >= proprietes.getMaxSeaux()) {
+                purger();
+                if (seaux.size() >= proprietes.getMaxSeaux()) {
+                    nonSuivies.increment();
+                    return null;
+                }
+            }
+            seau = seaux.computeIfAbsent(identifiant, k -> new Seau(limite, maintenant));
+        }
+        return seau;
+    }
+
+    private long refuser(GroupeLimitation groupe, TypeCle type, long attente) {
+        refusees.get(groupe).get(type).increment();
+        return attente;
+    }
+
+    private LimitationDebitProperties.Limite limite(GroupeLimitation groupe, TypeCle type) {
+        LimitationDebitProperties.Groupe limites = proprietes.getGroupes().get(groupe);
+        if (limites == null) {
+            return null;
+        }
+        LimitationDebitProperties.Limite limite = type == TypeCle.UTILISATEUR ? limites.getUtilisateur() : limites.getIp();
+        return limite != null && limite.getCapacite() > 0 && limite.getParSeconde() > 0 ? limite : null;
+    }
+
+    private static Counter compteurRequetes(MeterRegistry registre, GroupeLimitation groupe, TypeCle type,
+                                            String resultat) {
+        return Counter.builder("eurobank.limitation.requetes")
+                .description("Requêtes soumises à la limitation de débit")
+                .tag("groupe", groupe.name().toLowerCase())
+                .tag("cle", type.name().toLowerCase())
+                .tag("resultat", resultat)
+                .register(registre);
+    }
+
+    private static final class Seau {
+        /** Intervalle entre deux jetons */
+        private final long intervalle;
+        /** Durée pour remplir le seau vide */
+        private final long remplissage;
+        /** Instant (System.nanoTime) où le seau sera de nouveau plein */
+        private final AtomicLong plein;
+
+        private Seau(LimitationDebitProperties.Limite limite, long maintenant) {
+            this.intervalle = Math.max(1L, (long) (1_000_000_000L / limite.getParSeconde()));
+            this.remplissage = intervalle * limite.getCapacite();
+            this.plein = new AtomicLong(maintenant);
+        }
+
+        /**
+         * @return 0 si le jeton est prélevé, RETIRE si le seau a été purgé, sinon l'attente
+         */
+        long prelever(long maintenant) {
+            while (true) {
+                long actuel = plein.get();
+                if (actuel == RETIRE) {
+                    return RETIRE;
+                }
+                long suivant = Math.max(actuel, maintenant) + intervalle;
+                long depassement = suivant - maintenant - remplissage;
+                if (depassement > 0) {
+                    return depassement;
+                }
+                if (plein.compareAndSet(actuel, suivant)) {
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * Attente avant le prochain jeton, sans prélever ; 0 pour un seau purgé (remplacé par un seau plein)
+         */
+        long attente(long maintenant) {
+            long actuel = plein.get();
+            if (actuel == RETIRE) {
+                return 0;
+            }
+            return Math.max(0, Math.max(actuel, maintenant) + intervalle - maintenant - remplissage);
+        }
+
+        /**
+         * Rend un jeton prélevé pour une requête finalement refusée
+         */
+        void restituer() {
+            while (true) {
+                long actuel = plein.get();
+                if (actuel == RETIRE || plein.compareAndSet(actuel, actuel - intervalle)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Marque le seau retiré s'il est plein ; plus aucun jeton n'y est prélevé
+         */
+        boolean retirer(long maintenant) {
+            long actuel = plein.get();
+            return actuel != RETIRE && actuel - maintenant <= 0 && plein.compareAndSet(actuel, RETIRE);
+        }
+
+        boolean estRetire() {
+            return plein.get() == RETIRE;
+        }
+    }
+}
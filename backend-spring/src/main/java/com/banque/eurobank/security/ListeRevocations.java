@@ -0,0 +1,150 @@
+package com.banque.eurobank.security;
+
+import com.banque.eurobank.diffusion.ScrutationEvenements;
+import com.banque.eurobank.entity.TokenRevoque;
+import com.banque.eurobank.repository.TokenRevoqueRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Liste des tokens et sessions révoqués avant leur échéance, en mémoire sur chaque nœud :
+ * le contrôle d'une requête authentifiée est une recherche dans une table de hachage.
+ *
+ * Chargée au démarrage depuis EB_TOKENS_REVOQUES (entrées non échues), puis tenue à
+ * jour par scrutation au-delà d'une marque haute ({@link ScrutationEvenements}, comme
+ * la liste des oppositions). Le nœud d'origine applique la révocation dès son
+ * écriture, faite dans une transaction indépendante pour survivre à l'échec de la
+ * transaction appelante.
+ *
+ * Les entrées échues sont retirées de la mémoire et de la table par la purge.
+ */
+@Component
+@Slf4j
+public class ListeRevocations {
+
+    private static final String SQL_HAUTE_MARQUE = "SELECT COALESCE(MAX(id), 0) FROM EB_TOKENS_REVOQUES";
+
+    private static final String SQL_ACTIVES =
+            "SELECT identifiant, date_expiration FROM EB_TOKENS_REVOQUES WHERE date_expiration > ?";
+
+    private static final String SQL_NOUVELLES =
+            "SELECT id, identifiant, date_expiration FROM EB_TOKENS_REVOQUES WHERE id > ? ORDER BY id";
+
+    private static final String SQL_PURGE = "DELETE FROM EB_TOKENS_REVOQUES WHERE date_expiration < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TokenRevoqueRepository tokenRevoqueRepository;
+    private final TransactionTemplate transactionRevocation;
+    private final ScrutationEvenements<Object[]> scrutation;
+
+    /** Identifiant révoqué et son échéance (ms depuis l'epoch) */
+    private final Map<String, Long> revoques = new ConcurrentHashMap<>();
+
+    public ListeRevocations(JdbcTemplate jdbcTemplate,
+                            TokenRevoqueRepository tokenRevoqueRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.revocations.taille-lot:1000}") int tailleLot,
+                            @Value("${app.revocations.delai-trou-ms:30000}") long delaiTrouMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tokenRevoqueRepository = tokenRevoqueRepository;
+        this.transactionRevocation = new TransactionTemplate(transactionManager);
+        this.transactionRevocation.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.scrutation = new ScrutationEvenements<>("Liste des révocations", jdbcTemplate,
+                SQL_HAUTE_MARQUE, SQL_NOUVELLES,
+                (rs, i) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getTimestamp(3)},
+                revocation -> (Long) revocation[0],
+                revocation -> revoques.put((String) revocation[1], ((Timestamp) revocation[2]).getTime()),
+                tailleLot, delaiTrouMs);
+    }
+
+    /**
+     * Chargement initial, avant l'ouverture du serveur : aucun token révoqué n'est
+     * accepté au démarrage. Les révocations validées pendant ou après la lecture sont
+     * appliquées par la scrutation.
+     */
+    @PostConstruct
+    public void charger() {
+        scrutation.demarrer(() -> jdbcTemplate.query(SQL_ACTIVES, rs -> {
+            revoques.put(rs.getString(1), rs.getTimestamp(2).getTime());
+        }, Timestamp.valueOf(LocalDateTime.now())));
+        log.info("Liste des révocations chargée: {} entrée(s), marque haute {}", revoques.size(),
+                scrutation.getHauteMarque());
+    }
+
+    /**
+     * Indique si le token ou la session d'identifiant donné est révoqué
+     */
+    public boolean estRevoque(String identifiant) {
+        return identifiant != null && revoques.containsKey(identifiant);
+    }
+
+    public int taille() {
+        return revoques.size();
+    }
+
+    public long getHauteMarque() {
+        return scrutation.getHauteMarque();
+    }
+
+    /**
+     * Révoque un token ou une session jusqu'à l'échéance donnée, dans une transaction
+     * indépendante, et l'applique aussitôt sur ce nœud.
+     *
+     * @return faux si l'identifiant était déjà révoqué (sur ce nœud ou un autre)
+     */
+    public boolean revoquer(String identifiant, Long utilisateurId, LocalDateTime expiration,
+                            TokenRevoque.MotifRevocation motif) {
+        TokenRevoque revocation;
+        try {
+            revocation = transactionRevocation.execute(statut ->
+                    tokenRevoqueRepository.saveAndFlush(TokenRevoque.builder()
+                            .identifiant(identifiant)
+                            .utilisateurId(utilisateurId)
+                            .motif(motif)
+                            .dateExpiration(expiration)
+                            .build()));
+        } catch (DataIntegrityViolationException e) {
+            // Index unique sur l'identifiant : révocation déjà enregistrée
+            revocation = null;
+        }
+        revoques.put(identifiant, Timestamp.valueOf(expiration).getTime());
+        if (revocation == null) {
+            return false;
+        }
+        scrutation.signalerApplique(revocation.getId());
+        return true;
+    }
+
+    /**
+     * Scrutation des révocations au-delà de la marque haute
+     */
+    @Scheduled(fixedDelayString = "${app.revocations.scrutation-ms:1000}")
+    public void scruter() {
+        scrutation.scruter();
+    }
+
+    /**
+     * Purge des révocations échues : les tokens concernés sont expirés et refusés
+     * à ce titre
+     */
+    @Scheduled(cron = "${app.revocations.purge-cron:0 */10 * * * *}")
+    public void purger() {
+        long maintenant = System.currentTimeMillis();
+        revoques.values().removeIf(expiration -> expiration < maintenant);
+        int nombre = jdbcTemplate.update(SQL_PURGE, Timestamp.valueOf(LocalDateTime.now()));
+        log.debug("Révocations échues purgées: {} (en mémoire: {})", nombre, revoques.size());
+    }
+}
@@ -0,0 +1,61 @@
+package com.banque.eurobank.security;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Utilisateur authentifié par token d'accès, reconstruit à partir des claims
+ * sans lecture en base. Le statut (actif, verrouillé) est contrôlé par
+ * {@link EtatUtilisateurs} avant la construction de l'authentification.
+ */
+@Getter
+public class UtilisateurAuthentifie implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    /** Session (sid) du token, révocable à la déconnexion */
+    private final String session;
+    private final List<GrantedAuthority> authorities;
+
+    public UtilisateurAuthentifie(Long id, String username, String session, List<GrantedAuthority> authorities) {
+        this.id = id;
+        this.username = username;
+        this.session = session;
+        this.authorities = authorities;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    /** Aucun mot de passe : l'utilisateur est authentifié par son token */
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
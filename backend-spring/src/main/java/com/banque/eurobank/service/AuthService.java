@@ -4,12 +4,14 @@ import com.banque.eurobank.dto.*;
 import com.banque.eurobank.entity.*;
 import com.banque.eurobank.exception.*;
 import com.banque.eurobank.repository.*;
+import com.banque.eurobank.security.CustomUserDetailsService;
+import com.banque.eurobank.security.EchecsConnexion;
+import com.banque.eurobank.security.JetonRafraichissement;
 import com.banque.eurobank.security.JwtTokenProvider;
+import com.banque.eurobank.security.ListeRevocations;
+import com.banque.eurobank.security.UtilisateurAuthentifie;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,18 +28,20 @@ import java.util.stream.Collectors;
 @Transactional
 public class AuthService {
 
-    private final AuthenticationManager authenticationManager;
+    private final CustomUserDetailsService userDetailsService;
     private final JwtTokenProvider jwtTokenProvider;
     private final UtilisateurRepository utilisateurRepository;
     private final PasswordEncoder passwordEncoder;
-
-    private static final int MAX_TENTATIVES = 5;
+    private final ListeRevocations listeRevocations;
+    private final EchecsConnexion echecsConnexion;
 
     /**
-     * Authentifie un utilisateur
+     * Authentifie un utilisateur. Un échec ne rend pas la transaction invalide :
+     * le verrouillage du compte au franchissement du seuil doit être validé.
      */
+    @Transactional(noRollbackFor = {AuthenticationException.class, CompteVerrouilleException.class})
     public LoginResponseDTO authenticate(LoginRequestDTO request) {
-        Utilisateur utilisateur = utilisateurRepository.findByLogin(request.getLogin())
+        Utilisateur utilisateur = utilisateurRepository.findAvecClientByLogin(request.getLogin())
                 .orElseThrow(() -> new AuthenticationException("Identifiants incorrects"));
 
         // Vérification du verrouillage
@@ -50,76 +54,105 @@ public class AuthService {
             throw new AuthenticationException("Compte désactivé");
         }
 
+        // Seuil franchi sur ce nœud mais compte déverrouillé en base depuis
+        if (echecsConnexion.aFranchiSeuil(request.getLogin())) {
+            log.info("Compte déverrouillé, échecs de connexion réinitialisés: {}", request.getLogin());
+            echecsConnexion.reinitialiser(request.getLogin());
+        }
+
         try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(request.getLogin(), request.getMotDePasse())
-            );
-
-            // Réinitialisation des tentatives en cas de succès
-            utilisateurRepository.reinitialiserTentatives(utilisateur.getId(), LocalDateTime.now());
-
-            // Vérification 2FA si activé
-            if (utilisateur.getDeuxFacteursActif()) {
-                if (request.getCodeOtp() == null || request.getCodeOtp().isEmpty()) {
-                    return LoginResponseDTO.builder()
-                            .deuxFacteursRequis(true)
-                            .build();
-                }
-                // Validation OTP (à implémenter)
+            verifierMotDePasse(utilisateur, request.getMotDePasse());
+        } catch (ServiceIndisponibleException e) {
+            // Pool de hachage saturé : le mot de passe n'a pas été vérifié
+            throw e;
+        } catch (Exception e) {
+            // Comptage en mémoire ; seul le franchissement du seuil verrouille le compte en base
+            int tentatives = echecsConnexion.enregistrerEchec(utilisateur);
+            if (tentatives >= echecsConnexion.getMaxEchecs()) {
+                throw new CompteVerrouilleException("Compte verrouillé après trop de tentatives");
             }
 
-            // Génération des tokens
-            String accessToken = jwtTokenProvider.generateAccessToken(authentication);
-            String refreshToken = jwtTokenProvider.generateRefreshToken(authentication);
+            log.warn("Échec de connexion pour: {} - Tentative {}", request.getLogin(), tentatives);
+            throw new AuthenticationException("Identifiants incorrects");
+        }
 
-            log.info("Connexion réussie pour: {}", request.getLogin());
+        // Mot de passe vérifié : un échec de la suite n'est pas un échec de connexion
+        mettreANiveauHachage(utilisateur, request.getMotDePasse());
 
-            return LoginResponseDTO.builder()
-                    .accessToken(accessToken)
-                    .refreshToken(refreshToken)
-                    .tokenType("Bearer")
-                    .expiresIn(jwtTokenProvider.getAccessTokenExpiration())
-                    .utilisateur(mapToUtilisateurDTO(utilisateur))
-                    .deuxFacteursRequis(false)
-                    .build();
+        // Réinitialisation des tentatives en cas de succès
+        echecsConnexion.reinitialiser(request.getLogin());
+        utilisateurRepository.reinitialiserTentatives(utilisateur.getId(), LocalDateTime.now());
 
-        } catch (Exception e) {
-            // Incrémentation des tentatives
-            utilisateurRepository.incrementerTentatives(utilisateur.getId());
-
-            if (utilisateur.getTentativesConnexion() + 1 >= MAX_TENTATIVES) {
-                utilisateurRepository.verrouiller(utilisateur.getId(), LocalDateTime.now());
-                log.warn("Compte verrouillé après {} tentatives: {}", MAX_TENTATIVES, request.getLogin());
-                throw new CompteVerrouilleException("Compte verrouillé après trop de tentatives");
+        // Vérification 2FA si activé
+        if (utilisateur.getDeuxFacteursActif()) {
+            if (request.getCodeOtp() == null || request.getCodeOtp().isEmpty()) {
+                return LoginResponseDTO.builder()
+                        .deuxFacteursRequis(true)
+                        .build();
             }
-
-            log.warn("Échec de connexion pour: {} - Tentative {}",
-                    request.getLogin(), utilisateur.getTentativesConnexion() + 1);
-            throw new AuthenticationException("Identifiants incorrects");
+            // Validation OTP (à implémenter)
         }
+
+        // Génération des tokens
+        String session = jwtTokenProvider.nouvelleSession();
+        String accessToken = jwtTokenProvider.generateAccessToken(utilisateur, session);
+        String refreshToken = jwtTokenProvider.generateRefreshToken(utilisateur, session);
+
+        log.info("Connexion réussie pour: {}", request.getLogin());
+
+        return LoginResponseDTO.builder()
+                .accessToken(accessToken)
+                .refreshToken(refreshToken)
+                .tokenType("Bearer")
+                .expiresIn(jwtTokenProvider.getAccessTokenExpiration())
+                .utilisateur(mapToUtilisateurDTO(utilisateur))
+                .deuxFacteursRequis(false)
+                .build();
     }
 
     /**
-     * Rafraîchit le token d'accès
+     * Rafraîchit le token d'accès. Le token de rafraîchissement est à usage unique :
+     * il est révoqué et remplacé par un nouveau de la même session. Présenté une
+     * seconde fois (token volé ou rejoué), il révoque toute la session.
      */
     public LoginResponseDTO refreshToken(String refreshToken) {
         if (refreshToken != null && refreshToken.startsWith("Bearer ")) {
             refreshToken = refreshToken.substring(7);
         }
 
-        if (!jwtTokenProvider.validateToken(refreshToken)) {
+        JetonRafraichissement jeton = jwtTokenProvider.lireTokenRafraichissement(refreshToken);
+        if (jeton == null) {
             throw new TokenExpireException("Token de rafraîchissement invalide ou expiré");
         }
+        if (listeRevocations.estRevoque(jeton.getSession())) {
+            throw new TokenExpireException("Session révoquée");
+        }
 
-        String username = jwtTokenProvider.getUsernameFromToken(refreshToken);
-        Utilisateur utilisateur = utilisateurRepository.findByLogin(username)
+        // L'index unique de la table des révocations départage deux échanges simultanés,
+        // y compris sur deux nœuds différents
+        if (listeRevocations.estRevoque(jeton.getJetonId())
+                || !listeRevocations.revoquer(jeton.getJetonId(), jeton.getUtilisateurId(),
+                        jeton.getExpiration(), TokenRevoque.MotifRevocation.ROTATION)) {
+            listeRevocations.revoquer(jeton.getSession(), jeton.getUtilisateurId(),
+                    jwtTokenProvider.expirationSession(), TokenRevoque.MotifRevocation.REUTILISATION);
+            log.warn("Token de rafraîchissement réutilisé pour: {} - session révoquée", jeton.getLogin());
+            throw new TokenExpireException("Token de rafraîchissement déjà utilisé, session révoquée");
+        }
+
+        Utilisateur utilisateur = utilisateurRepository.findAvecClientByLogin(jeton.getLogin())
                 .orElseThrow(() -> new AuthenticationException("Utilisateur non trouvé"));
 
-        String newAccessToken = jwtTokenProvider.generateAccessTokenFromUsername(username);
+        // Les rôles et le statut sont relus ici : le token d'accès n'est plus vérifié en base
+        if (utilisateur.getVerrouille() || !utilisateur.getActif()) {
+            throw new CompteVerrouilleException("Compte verrouillé ou désactivé");
+        }
+
+        String newAccessToken = jwtTokenProvider.generateAccessToken(utilisateur, jeton.getSession());
+        String newRefreshToken = jwtTokenProvider.generateRefreshToken(utilisateur, jeton.getSession());
 
         return LoginResponseDTO.builder()
                 .accessToken(newAccessToken)
-                .refreshToken(refreshToken)
+                .refreshToken(newRefreshToken)
                 .tokenType("Bearer")
                 .expiresIn(jwtTokenProvider.getAccessTokenExpiration())
                 .utilisateur(mapToUtilisateurDTO(utilisateur))
@@ -127,11 +160,39 @@ public class AuthService {
     }
 
     /**
-     * Déconnexion
+     * Déconnexion : révocation de la session, tokens d'accès et de rafraîchissement compris
+     */
+    public void logout(UtilisateurAuthentifie utilisateur) {
+        listeRevocations.revoquer(utilisateur.getSession(), utilisateur.getId(),
+                jwtTokenProvider.expirationSession(), TokenRevoque.MotifRevocation.DECONNEXION);
+        log.info("Déconnexion: {}", utilisateur.getUsername());
+    }
+
+    /**
+     * Vérifie le mot de passe sur l'utilisateur déjà chargé, sans le relire comme le
+     * ferait l'AuthenticationManager ; un hash d'un coût dépassé est recalculé
+     */
+    private void verifierMotDePasse(Utilisateur utilisateur, String motDePasse) {
+        if (motDePasse == null || !passwordEncoder.matches(motDePasse, utilisateur.getMotDePasseHash())) {
+            throw new AuthenticationException("Identifiants incorrects");
+        }
+    }
+
+    /**
+     * Recalcule au coût courant le hash d'un mot de passe vérifié, dans sa propre
+     * transaction ; un échec (pool de hachage saturé, base) est journalisé, le hash
+     * sera recalculé à une prochaine connexion
      */
-    public void logout(String username) {
-        log.info("Déconnexion: {}", username);
-        // Invalidation du token (à implémenter avec Redis ou base de données)
+    private void mettreANiveauHachage(Utilisateur utilisateur, String motDePasse) {
+        if (!passwordEncoder.upgradeEncoding(utilisateur.getMotDePasseHash())) {
+            return;
+        }
+        try {
+            userDetailsService.updatePassword(userDetailsService.versUserDetails(utilisateur),
+                    passwordEncoder.encode(motDePasse));
+        } catch (RuntimeException e) {
+            log.warn("Hash du mot de passe non recalculé pour {}: {}", utilisateur.getLogin(), e.getMessage());
+        }
     }
 
     private UtilisateurDTO mapToUtilisateurDTO(Utilisateur utilisateur) {
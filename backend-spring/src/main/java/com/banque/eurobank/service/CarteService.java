@@ -1,5 +1,8 @@
 package com.banque.eurobank.service;
 
+import com.banque.eurobank.autorisation.EmpreinteCode;
+import com.banque.eurobank.autorisation.ListeOppositions;
+import com.banque.eurobank.autorisation.RegistreCartes;
 import com.banque.eurobank.dto.*;
 import com.banque.eurobank.entity.*;
 import com.banque.eurobank.exception.*;
@@ -23,6 +26,10 @@ import java.util.stream.Collectors;
 public class CarteService {
 
     private final CarteRepository carteRepository;
+    private final RegistreCartes registreCartes;
+    private final ListeOppositions listeOppositions;
+    private final EvenementOppositionRepository evenementOppositionRepository;
+    private final EmpreinteCode empreinteCode;
 
     /**
      * Récupère les cartes d'un compte
@@ -75,6 +82,7 @@ public class CarteService {
         }
 
         carte = carteRepository.save(carte);
+        registreCartes.rafraichir(carte);
         log.info("Options de la carte {} modifiées", carte.getNumeroCarteMasque());
 
         return mapToCarteDTO(carte);
@@ -99,6 +107,8 @@ public class CarteService {
         carte.setOpposition(true);
         carte.setDateOpposition(LocalDateTime.now());
         carte.setMotifOpposition(request.getMotif());
+        registreCartes.rafraichir(carte);
+        publier(carte, EvenementOpposition.TypeEvenement.OPPOSITION);
 
         return mapToCarteDTO(carte);
     }
@@ -111,13 +121,63 @@ public class CarteService {
                 .orElseThrow(() -> new CarteNotFoundException("Carte non trouvée: " + id));
 
         carte.setStatut(Carte.StatutCarte.BLOQUEE);
-        carte = carteRepository.save(carte);
+        carte = carteRepository.saveAndFlush(carte);
+        registreCartes.rafraichir(carte);
+        publier(carte, EvenementOpposition.TypeEvenement.BLOCAGE);
 
         log.info("Carte {} bloquée temporairement", carte.getNumeroCarteMasque());
 
         return mapToCarteDTO(carte);
     }
 
+    /**
+     * Bloque une carte dont les essais de code confidentiel sont épuisés ;
+     * une carte déjà bloquée ou en opposition garde son statut
+     */
+    public void bloquerCodeEpuise(Long id, int tentatives) {
+        Carte carte = carteRepository.findById(id)
+                .orElseThrow(() -> new CarteNotFoundException("Carte non trouvée: " + id));
+
+        carte.setTentativesPinErronees(tentatives);
+        boolean blocage = carte.getStatut() == Carte.StatutCarte.ACTIVE;
+        if (blocage) {
+            carte.setStatut(Carte.StatutCarte.BLOQUEE);
+        }
+        carte = carteRepository.saveAndFlush(carte);
+        registreCartes.rafraichir(carte);
+        if (blocage) {
+            publier(carte, EvenementOpposition.TypeEvenement.BLOCAGE);
+            log.warn("Carte {} bloquée après {} codes erronés", carte.getNumeroCarteMasque(), tentatives);
+        }
+    }
+
+    /**
+     * Attribue ou remplace le code confidentiel d'une carte ; les essais erronés
+     * sont remis à zéro, une carte bloquée reste à débloquer
+     */
+    public void definirCode(Long id, String code) {
+        Carte carte = carteRepository.findById(id)
+                .orElseThrow(() -> new CarteNotFoundException("Carte non trouvée: " + id));
+
+        if (carte.getStatut() == Carte.StatutCarte.OPPOSITION || carte.getStatut() == Carte.StatutCarte.ANNULEE) {
+            throw new CarteBloqueException("Impossible de modifier le code d'une carte en opposition ou annulée");
+        }
+
+        carte.setCodePinHash(empreinteCode.hexadecimal(carte.getNumeroCarteHash(), code));
+        carte.setTentativesPinErronees(0);
+        carte = carteRepository.saveAndFlush(carte);
+        registreCartes.rafraichir(carte);
+
+        log.info("Code confidentiel de la carte {} modifié", carte.getNumeroCarteMasque());
+    }
+
+    /**
+     * Remet à zéro les essais de code erronés après un code correct
+     */
+    public void reinitialiserTentativesPin(Long id) {
+        carteRepository.reinitialiserTentativesPin(id);
+    }
+
     /**
      * Débloque une carte
      */
@@ -130,13 +190,31 @@ public class CarteService {
         }
 
         carte.setStatut(Carte.StatutCarte.ACTIVE);
-        carte = carteRepository.save(carte);
+        carte.setTentativesPinErronees(0);
+        carte = carteRepository.saveAndFlush(carte);
+        registreCartes.rafraichir(carte);
+        publier(carte, EvenementOpposition.TypeEvenement.DEBLOCAGE);
 
         log.info("Carte {} débloquée", carte.getNumeroCarteMasque());
 
         return mapToCarteDTO(carte);
     }
 
+    /**
+     * Enregistre le mouvement de liste d'opposition, diffusé aux autres nœuds.
+     * La ligne de la carte est déjà verrouillée (mise à jour exécutée) : pour une
+     * même carte, l'ordre des identifiants d'événement suit celui des validations.
+     */
+    private void publier(Carte carte, EvenementOpposition.TypeEvenement type) {
+        EvenementOpposition evenement = evenementOppositionRepository.save(EvenementOpposition.builder()
+                .carteId(carte.getId())
+                .numeroCarteHash(carte.getNumeroCarteHash())
+                .typeEvenement(type)
+                .dateExpiration(carte.getDateExpiration())
+                .build());
+        listeOppositions.signaler(evenement);
+    }
+
     private CarteDTO mapToCarteDTO(Carte carte) {
         return CarteDTO.builder()
                 .id(carte.getId())
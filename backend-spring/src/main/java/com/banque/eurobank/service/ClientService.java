@@ -3,17 +3,23 @@ package com.banque.eurobank.service;
 import com.banque.eurobank.dto.*;
 import com.banque.eurobank.entity.*;
 import com.banque.eurobank.exception.*;
+import com.banque.eurobank.recherche.IndexClients;
+import com.banque.eurobank.recherche.ResultatRecherche;
 import com.banque.eurobank.repository.*;
+import com.banque.eurobank.statistiques.StatistiquesAgences;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -25,7 +31,16 @@ import java.util.stream.Collectors;
 @Transactional
 public class ClientService {
 
+    static final String AGENCE_DEFAUT = "00001";
+
+    /** Clé de tri d'un client sans date de création, dans la requête et le curseur du portefeuille */
+    static final LocalDateTime SANS_DATE_CREATION = LocalDateTime.of(1900, 1, 1, 0, 0);
+
     private final ClientRepository clientRepository;
+    private final SoldeClientService soldeClientService;
+    private final NumerotationService numerotationService;
+    private final IndexClients indexClients;
+    private final StatistiquesAgences statistiquesAgences;
 
     /**
      * Récupère un client par ID
@@ -57,7 +72,7 @@ public class ClientService {
         }
 
         // Génération du numéro client
-        String numeroClient = genererNumeroClient();
+        String numeroClient = numerotationService.prochainNumeroClient();
 
         Client client = Client.builder()
                 .numeroClient(numeroClient)
@@ -75,20 +90,50 @@ public class ClientService {
                 .numeroPiece(request.getNumeroPiece())
                 .statut(Client.StatutClient.ACTIF)
                 .segment(Client.SegmentClient.PARTICULIER)
-                .agenceCode("00001") // Agence par défaut
+                .agenceCode(AGENCE_DEFAUT)
                 .build();
 
         client = clientRepository.save(client);
+        soldeClientService.initialiser(client.getId());
+        indexClients.indexer(client);
+        statistiquesAgences.clientsCrees(client.getAgenceCode(), 1);
         log.info("Client créé: {} - {} {}", numeroClient, client.getPrenom(), client.getNom());
 
         return mapToClientDTO(client);
     }
 
     /**
-     * Recherche de clients
+     * Recherche de clients par l'index en mémoire, classés par pertinence ;
+     * par la base tant que l'index n'est pas construit
      */
     @Transactional(readOnly = true)
     public PageResponse<ClientDTO> rechercherClients(String terme, int page, int taille) {
+        ResultatRecherche resultat = indexClients.rechercher(terme, page * taille, taille);
+        if (resultat == null) {
+            return rechercherClientsEnBase(terme, page, taille);
+        }
+
+        Map<Long, Client> parId = clientRepository.findAllById(resultat.getIds()).stream()
+                .collect(Collectors.toMap(Client::getId, Function.identity()));
+        List<ClientDTO> clients = resultat.getIds().stream()
+                .map(parId::get)
+                .filter(Objects::nonNull)
+                .map(this::mapToClientDTO)
+                .collect(Collectors.toList());
+
+        int totalPages = (resultat.getTotal() + taille - 1) / taille;
+        return PageResponse.<ClientDTO>builder()
+                .content(clients)
+                .page(page)
+                .taille(taille)
+                .totalElements(resultat.getTotal())
+                .totalPages(totalPages)
+                .premier(page == 0)
+                .dernier(page >= totalPages - 1)
+                .build();
+    }
+
+    private PageResponse<ClientDTO> rechercherClientsEnBase(String terme, int page, int taille) {
         Page<Client> pageClients = clientRepository.rechercherClients(terme, PageRequest.of(page, taille));
 
         List<ClientDTO> clients = pageClients.getContent().stream()
@@ -106,17 +151,90 @@ public class ClientService {
                 .build();
     }
 
-    private String genererNumeroClient() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyMMdd"));
-        String random = String.format("%06d", (int) (Math.random() * 1000000));
-        return "C" + timestamp + random;
+    /**
+     * Portefeuille d'un conseiller, par pages de clients avec le nombre et l'encours de
+     * leurs comptes actifs. Pagination par clé : chaque page est une requête bornée
+     * quelle que soit sa position, et une insertion ou une suppression entre deux pages
+     * ne décale pas les suivantes.
+     */
+    @Transactional(readOnly = true)
+    public PageCurseurResponse<ClientPortefeuilleDTO> getPortefeuille(Long conseillerId, TriPortefeuille tri,
+                                                                       String curseur, int taille) {
+        boolean debut = curseur == null;
+        Pageable limite = PageRequest.of(0, taille + 1);
+        List<LignePortefeuille> lignes;
+        switch (tri) {
+            case NUMERO_CLIENT: {
+                CurseurPortefeuille apres = debut ? null : CurseurPortefeuille.decoder(curseur, tri, 1);
+                lignes = clientRepository.findPortefeuilleParNumero(conseillerId, debut,
+                        debut ? null : apres.texte(0), limite);
+                break;
+            }
+            case DATE_CREATION: {
+                CurseurPortefeuille apres = debut ? null : CurseurPortefeuille.decoder(curseur, tri, 2);
+                lignes = clientRepository.findPortefeuilleParDateCreation(conseillerId, debut, SANS_DATE_CREATION,
+                        debut ? null : apres.date(0), debut ? null : apres.identifiant(1), limite);
+                break;
+            }
+            case SOLDE: {
+                CurseurPortefeuille apres = debut ? null : CurseurPortefeuille.decoder(curseur, tri, 2);
+                lignes = clientRepository.findPortefeuilleParSolde(conseillerId, debut,
+                        debut ? null : apres.montant(0), debut ? null : apres.identifiant(1), limite);
+                break;
+            }
+            default: {
+                CurseurPortefeuille apres = debut ? null : CurseurPortefeuille.decoder(curseur, tri, 3);
+                lignes = clientRepository.findPortefeuilleParNom(conseillerId, debut,
+                        debut ? null : apres.texte(0), debut ? null : apres.texte(1),
+                        debut ? null : apres.identifiant(2), limite);
+            }
+        }
+
+        boolean dernier = lignes.size() <= taille;
+        List<LignePortefeuille> page = dernier ? lignes : lignes.subList(0, taille);
+        String curseurSuivant = dernier ? null : curseurApres(tri, page.get(page.size() - 1));
+
+        return PageCurseurResponse.<ClientPortefeuilleDTO>builder()
+                .content(page.stream().map(this::mapToClientPortefeuilleDTO).collect(Collectors.toList()))
+                .taille(taille)
+                .curseurSuivant(curseurSuivant)
+                .dernier(dernier)
+                .build();
     }
 
-    private String capitalizeFirstLetter(String str) {
+    private static String curseurApres(TriPortefeuille tri, LignePortefeuille ligne) {
+        switch (tri) {
+            case NUMERO_CLIENT:
+                return CurseurPortefeuille.encoder(tri, ligne.getNumeroClient());
+            case DATE_CREATION:
+                return CurseurPortefeuille.encoder(tri, ligne.getDateCreation() != null
+                        ? ligne.getDateCreation() : SANS_DATE_CREATION, ligne.getId());
+            case SOLDE:
+                return CurseurPortefeuille.encoder(tri, ligne.getSoldeTotal(), ligne.getId());
+            default:
+                return CurseurPortefeuille.encoder(tri, ligne.getNom(), ligne.getPrenom(), ligne.getId());
+        }
+    }
+
+    static String capitalizeFirstLetter(String str) {
         if (str == null || str.isEmpty()) return str;
         return str.substring(0, 1).toUpperCase() + str.substring(1).toLowerCase();
     }
 
+    private ClientPortefeuilleDTO mapToClientPortefeuilleDTO(LignePortefeuille ligne) {
+        return ClientPortefeuilleDTO.builder()
+                .id(ligne.getId())
+                .numeroClient(ligne.getNumeroClient())
+                .nomComplet(ligne.getPrenom() + " " + ligne.getNom())
+                .email(ligne.getEmail())
+                .statut(ligne.getStatut())
+                .segment(ligne.getSegment())
+                .dateCreation(ligne.getDateCreation())
+                .nombreComptes(ligne.getNombreComptes())
+                .soldeTotal(ligne.getSoldeTotal())
+                .build();
+    }
+
     private ClientDTO mapToClientDTO(Client client) {
         return ClientDTO.builder()
                 .id(client.getId())
@@ -4,15 +4,15 @@ import com.banque.eurobank.dto.*;
 import com.banque.eurobank.entity.*;
 import com.banque.eurobank.exception.*;
 import com.banque.eurobank.repository.*;
+import com.banque.eurobank.statistiques.StatistiquesAgences;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -28,17 +28,20 @@ public class CompteService {
     private final CompteRepository compteRepository;
     private final ClientRepository clientRepository;
     private final TransactionRepository transactionRepository;
+    private final SoldeClientService soldeClientService;
+    private final NumerotationService numerotationService;
+    private final StatistiquesAgences statistiquesAgences;
 
     private static final String CODE_BANQUE = "30001"; // Code banque EuroBank
-    private static final String CODE_GUICHET_DEFAULT = "00001";
-    private static final String BIC_EUROBANK = "EABORFRPP";
+    static final String CODE_GUICHET_DEFAULT = "00001";
+    static final String BIC_EUROBANK = "EABORFRPP";
 
     /**
      * Récupère un compte par IBAN
      */
     @Transactional(readOnly = true)
     public CompteDTO getCompteByIban(String iban) {
-        Compte compte = compteRepository.findByIban(iban)
+        Compte compte = compteRepository.findAvecTitulaireByIban(iban)
                 .orElseThrow(() -> new CompteNotFoundException("Compte non trouvé: " + iban));
         return mapToCompteDTO(compte);
     }
@@ -61,7 +64,7 @@ public class CompteService {
                 .orElseThrow(() -> new ClientNotFoundException("Client non trouvé"));
 
         // Génération du numéro de compte et IBAN
-        String numeroCompte = genererNumeroCompte();
+        String numeroCompte = numerotationService.prochainNumeroCompte();
         String iban = genererIban(numeroCompte);
 
         Compte compte = Compte.builder()
@@ -83,44 +86,72 @@ public class CompteService {
                 .build();
 
         compte = compteRepository.save(compte);
+        soldeClientService.initialiser(client.getId());
+        statistiquesAgences.comptesOuverts(compte.getAgenceCode(), compte.getTypeCompte(), 1);
         log.info("Compte créé: {} pour client: {}", iban, client.getNumeroClient());
 
         return mapToCompteDTO(compte);
     }
 
+    /**
+     * Change le statut d'un compte, verrouillé comme pour un virement. Un compte qui
+     * quitte ou retrouve le statut ACTIF sort de l'agrégat de solde global de son
+     * titulaire ou y revient, dans la même transaction, et des statistiques de son
+     * agence après validation.
+     */
+    public CompteDTO changerStatut(String iban, Compte.StatutCompte statut) {
+        Compte compte = compteRepository.findByIbanForUpdate(iban)
+                .orElseThrow(() -> new CompteNotFoundException("Compte non trouvé: " + iban));
+        Compte.StatutCompte ancienStatut = compte.getStatut();
+        if (ancienStatut == statut) {
+            return mapToCompteDTO(compte);
+        }
+
+        compte.setStatut(statut);
+        compte.setDateCloture(statut == Compte.StatutCompte.CLOTURE ? LocalDate.now() : null);
+        soldeClientService.appliquerChangementStatut(compte, ancienStatut);
+        boolean actif = statut == Compte.StatutCompte.ACTIF;
+        if (actif != (ancienStatut == Compte.StatutCompte.ACTIF)) {
+            statistiquesAgences.statutCompte(compte.getAgenceCode(), compte.getTypeCompte(), actif, compte.getSolde());
+        }
+        log.info("Compte {}: statut {} -> {}", iban, ancienStatut, statut);
+
+        return mapToCompteDTO(compte);
+    }
+
     /**
      * Récupère le solde global d'un client
      */
     @Transactional(readOnly = true)
     public BigDecimal getSoldeGlobalClient(Long clientId) {
-        BigDecimal solde = compteRepository.getSoldeGlobalClient(clientId);
-        return solde != null ? solde : BigDecimal.ZERO;
+        return soldeClientService.getSoldeGlobal(clientId);
     }
 
     /**
-     * Génère un numéro de compte unique
+     * Récupère les soldes globaux de plusieurs clients
      */
-    private String genererNumeroCompte() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyMMddHHmmss"));
-        String random = String.format("%03d", (int) (Math.random() * 1000));
-        return timestamp + random;
+    @Transactional(readOnly = true)
+    public List<SoldeGlobalClientDTO> getSoldesGlobauxClients(List<Long> clientIds) {
+        return soldeClientService.getSoldesGlobaux(clientIds);
     }
 
     /**
-     * Génère un IBAN français
+     * Génère un IBAN français : clé RIB (modulo 97 sur banque, guichet, compte)
+     * puis clé IBAN (ISO 13616, modulo 97)
      */
-    private String genererIban(String numeroCompte) {
-        String bban = CODE_BANQUE + CODE_GUICHET_DEFAULT + numeroCompte + "00"; // RIB sans clé
-        // Calcul simplifié de la clé RIB (algorithme complet en production)
-        String cleRib = "76";
-        String ibanBase = "FR" + "00" + bban + cleRib;
-        // Clé de contrôle IBAN (algorithme mod 97)
-        String cleIban = String.format("%02d", 98 - (new java.math.BigInteger(ibanBase.replaceAll("[A-Z]", "")
-                .replace("FR", "1527")).mod(java.math.BigInteger.valueOf(97)).intValue()));
-        return "FR" + cleIban + bban + cleRib;
+    static String genererIban(String numeroCompte) {
+        String rib = CODE_BANQUE + CODE_GUICHET_DEFAULT + numeroCompte;
+        long reste = (89L * Long.parseLong(CODE_BANQUE)
+                + 15L * Long.parseLong(CODE_GUICHET_DEFAULT)
+                + 3L * Long.parseLong(numeroCompte)) % 97;
+        String bban = rib + String.format("%02d", 97 - reste);
+        // "FR00" déplacé en fin de BBAN, lettres converties (F=15, R=27)
+        int resteIban = new BigInteger(bban + "152700").mod(BigInteger.valueOf(97)).intValue();
+        return "FR" + String.format("%02d", 98 - resteIban) + bban;
     }
 
     private CompteDTO mapToCompteDTO(Compte compte) {
+        Client titulaire = compte.getClient();
         return CompteDTO.builder()
                 .id(compte.getId())
                 .numeroCompte(compte.getNumeroCompte())
@@ -135,10 +166,10 @@ public class CompteService {
                 .statut(compte.getStatut())
                 .dateOuverture(compte.getDateOuverture())
                 .titulaire(ClientResumeDTO.builder()
-                        .id(compte.getClient().getId())
-                        .numeroClient(compte.getClient().getNumeroClient())
-                        .nomComplet(compte.getClient().getPrenom() + " " + compte.getClient().getNom())
-                        .email(compte.getClient().getEmail())
+                        .id(titulaire.getId())
+                        .numeroClient(titulaire.getNumeroClient())
+                        .nomComplet(titulaire.getPrenom() + " " + titulaire.getNom())
+                        .email(titulaire.getEmail())
                         .build())
                 .build();
     }
@@ -0,0 +1,83 @@
+package com.banque.eurobank.service;
+
+import com.banque.eurobank.dto.TriPortefeuille;
+import com.banque.eurobank.exception.CurseurInvalideException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Curseur de pagination du portefeuille : l'ordre demandé suivi de la clé de tri
+ * de la dernière ligne rendue, chaque valeur encodée en base64 URL.
+ * Un curseur n'est valable que pour l'ordre qui l'a produit.
+ */
+final class CurseurPortefeuille {
+
+    private static final Base64.Encoder ENCODEUR = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODEUR = Base64.getUrlDecoder();
+
+    private final String[] valeurs;
+
+    private CurseurPortefeuille(String[] valeurs) {
+        this.valeurs = valeurs;
+    }
+
+    static String encoder(TriPortefeuille tri, Object... cle) {
+        StringBuilder curseur = new StringBuilder(tri.name());
+        for (Object valeur : cle) {
+            String texte = valeur instanceof BigDecimal ? ((BigDecimal) valeur).toPlainString() : valeur.toString();
+            curseur.append('.').append(ENCODEUR.encodeToString(texte.getBytes(StandardCharsets.UTF_8)));
+        }
+        return curseur.toString();
+    }
+
+    /**
+     * Décode un curseur produit pour l'ordre donné, avec une clé de la longueur attendue
+     */
+    static CurseurPortefeuille decoder(String curseur, TriPortefeuille tri, int longueurCle) {
+        String[] parties = curseur.split("\\.", -1);
+        if (parties.length != longueurCle + 1 || !parties[0].equals(tri.name())) {
+            throw new CurseurInvalideException("Curseur invalide pour le tri " + tri);
+        }
+        String[] valeurs = new String[longueurCle];
+        try {
+            for (int i = 0; i < longueurCle; i++) {
+                valeurs[i] = new String(DECODEUR.decode(parties[i + 1]), StandardCharsets.UTF_8);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new CurseurInvalideException("Curseur invalide pour le tri " + tri);
+        }
+        return new CurseurPortefeuille(valeurs);
+    }
+
+    String texte(int index) {
+        return valeurs[index];
+    }
+
+    Long identifiant(int index) {
+        try {
+            return Long.valueOf(valeurs[index]);
+        } catch (NumberFormatException e) {
+            throw new CurseurInvalideException("Curseur invalide");
+        }
+    }
+
+    BigDecimal montant(int index) {
+        try {
+            return new BigDecimal(valeurs[index]);
+        } catch (NumberFormatException e) {
+            throw new CurseurInvalideException("Curseur invalide");
+        }
+    }
+
+    LocalDateTime date(int index) {
+        try {
+            return LocalDateTime.parse(valeurs[index]);
+        } catch (DateTimeParseException e) {
+            throw new CurseurInvalideException("Curseur invalide");
+        }
+    }
+}
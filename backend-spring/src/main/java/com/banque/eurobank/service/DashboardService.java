@@ -0,0 +1,273 @@
+package com.banque.eurobank.service;
+
+import com.banque.eurobank.dto.*;
+import com.banque.eurobank.entity.*;
+import com.banque.eurobank.exception.*;
+import com.banque.eurobank.repository.*;
+import com.banque.eurobank.statistiques.StatistiquesAgences;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Service du tableau de bord client : comptes, cartes, dernières opérations
+ * et solde global en un appel.
+ *
+ * Chaque partie est une seule requête SQL, indépendante des autres (toutes
+ * filtrées par client), lue en parallèle dans sa propre transaction en lecture seule.
+ *
+ * La vue 360 du conseiller ajoute la fiche client ; chacune de ses parties a un
+ * délai (attente et transaction), et une partie en retard, en erreur ou rejetée
+ * par le pool de lecture saturé est signalée absente plutôt que de faire échouer
+ * la vue.
+ *
+ * Le tableau de bord d'agence lit les statistiques tenues en mémoire, sans requête.
+ */
+@Service
+@Slf4j
+public class DashboardService {
+
+    private final CompteRepository compteRepository;
+    private final CarteRepository carteRepository;
+    private final TransactionRepository transactionRepository;
+    private final ClientRepository clientRepository;
+    private final ClientService clientService;
+    private final SoldeClientService soldeClientService;
+    private final StatistiquesAgences statistiquesAgences;
+    private final ThreadPoolTaskExecutor lectureExecutor;
+    private final TransactionTemplate lectureTemplate;
+    private final TransactionTemplate lectureBorneeTemplate;
+    private final long delaiPartieMs;
+
+    public DashboardService(CompteRepository compteRepository,
+                            CarteRepository carteRepository,
+                            TransactionRepository transactionRepository,
+                            ClientRepository clientRepository,
+                            ClientService clientService,
+                            SoldeClientService soldeClientService,
+                            StatistiquesAgences statistiquesAgences,
+                            ThreadPoolTaskExecutor lectureExecutor,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.lecture.delai-partie-ms:2000}") long delaiPartieMs) {
+        this.compteRepository = compteRepository;
+        this.carteRepository = carteRepository;
+        this.transactionRepository = transactionRepository;
+        this.clientRepository = clientRepository;
+        this.clientService = clientService;
+        this.soldeClientService = soldeClientService;
+        this.statistiquesAgences = statistiquesAgences;
+        this.lectureExecutor = lectureExecutor;
+        this.lectureTemplate = new TransactionTemplate(transactionManager);
+        this.lectureTemplate.setReadOnly(true);
+        this.lectureBorneeTemplate = new TransactionTemplate(transactionManager);
+        this.lectureBorneeTemplate.setReadOnly(true);
+        // Délai de transaction en secondes : les requêtes d'une partie abandonnée ne se prolongent pas
+        this.lectureBorneeTemplate.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(delaiPartieMs + 999)));
+        this.delaiPartieMs = delaiPartieMs;
+    }
+
+    /**
+     * Construit le tableau de bord d'un client (4 requêtes SQL, quel que soit le nombre de comptes)
+     */
+    public DashboardDTO getDashboard(Long clientId, int nombreTransactions) {
+        CompletableFuture<List<CompteResumeDTO>> comptes = lire(() ->
+                compteRepository.findByClientId(clientId).stream()
+                        .map(this::mapToCompteResumeDTO)
+                        .collect(Collectors.toList()));
+        CompletableFuture<Map<Long, List<CarteResumeDTO>>> cartes = lire(() ->
+                carteRepository.findByClientId(clientId).stream()
+                        .collect(Collectors.groupingBy(carte -> carte.getCompte().getId(),
+                                Collectors.mapping(this::mapToCarteResumeDTO, Collectors.toList()))));
+        CompletableFuture<Map<Long, List<TransactionDTO>>> transactions = lire(() ->
+                transactionRepository.findDernieresParCompteClient(clientId, nombreTransactions).stream()
+                        .collect(Collectors.groupingBy(transaction -> transaction.getCompte().getId(),
+                                Collectors.mapping(this::mapToTransactionDTO, Collectors.toList()))));
+        CompletableFuture<BigDecimal> soldeGlobal = lire(() -> soldeClientService.getSoldeGlobal(clientId));
+
+        try {
+            CompletableFuture.allOf(comptes, cartes, transactions, soldeGlobal).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new TechnicalException("Erreur lors du chargement du tableau de bord", e.getCause());
+        }
+
+        if (comptes.join().isEmpty() && !clientRepository.existsById(clientId)) {
+            throw new ClientNotFoundException("Client non trouvé: " + clientId);
+        }
+
+        Map<Long, List<CarteResumeDTO>> cartesParCompte = cartes.join();
+        Map<Long, List<TransactionDTO>> transactionsParCompte = transactions.join();
+        List<DashboardCompteDTO> comptesDashboard = comptes.join().stream()
+                .map(compte -> DashboardCompteDTO.builder()
+                        .compte(compte)
+                        .cartes(cartesParCompte.getOrDefault(compte.getId(), List.of()))
+                        .dernieresTransactions(transactionsParCompte.getOrDefault(compte.getId(), List.of()))
+                        .build())
+                .collect(Collectors.toList());
+
+        return DashboardDTO.builder()
+                .clientId(clientId)
+                .soldeGlobal(soldeGlobal.join())
+                .nombreCartes(cartesParCompte.values().stream().mapToInt(List::size).sum())
+                .comptes(comptesDashboard)
+                .build();
+    }
+
+    /**
+     * Construit la vue 360 d'un client : fiche, comptes, cartes, dernières opérations et
+     * solde global lus en parallèle ; la latence est celle de la partie la plus lente,
+     * bornée par le délai d'une partie
+     */
+    public VueClientDTO getVueClient(Long clientId, int nombreTransactions) {
+        CompletableFuture<ClientDTO> client = lireBorne(() -> clientService.getClientById(clientId));
+        CompletableFuture<List<CompteResumeDTO>> comptes = lireBorne(() ->
+                compteRepository.findByClientId(clientId).stream()
+                        .map(this::mapToCompteResumeDTO)
+                        .collect(Collectors.toList()));
+        CompletableFuture<Map<Long, List<CarteResumeDTO>>> cartes = lireBorne(() ->
+                carteRepository.findByClientId(clientId).stream()
+                        .collect(Collectors.groupingBy(carte -> carte.getCompte().getId(),
+                                Collectors.mapping(this::mapToCarteResumeDTO, Collectors.toList()))));
+        CompletableFuture<Map<Long, List<TransactionDTO>>> transactions = lireBorne(() ->
+                transactionRepository.findDernieresParCompteClient(clientId, nombreTransactions).stream()
+                        .collect(Collectors.groupingBy(transaction -> transaction.getCompte().getId(),
+                                Collectors.mapping(this::mapToTransactionDTO, Collectors.toList()))));
+        CompletableFuture<BigDecimal> soldeGlobal = lireBorne(() -> soldeClientService.getSoldeGlobal(clientId));
+
+        List<String> indisponibles = new ArrayList<>();
+        ClientDTO fiche = partie(client, "CLIENT", clientId, indisponibles);
+        List<CompteResumeDTO> listeComptes = partie(comptes, "COMPTES", clientId, indisponibles);
+        Map<Long, List<CarteResumeDTO>> cartesParCompte = partie(cartes, "CARTES", clientId, indisponibles);
+        Map<Long, List<TransactionDTO>> transactionsParCompte = partie(transactions, "TRANSACTIONS", clientId, indisponibles);
+        BigDecimal solde = partie(soldeGlobal, "SOLDE_GLOBAL", clientId, indisponibles);
+
+        List<DashboardCompteDTO> comptesVue = listeComptes == null ? null : listeComptes.stream()
+                .map(compte -> DashboardCompteDTO.builder()
+                        .compte(compte)
+                        .cartes(cartesParCompte != null ? cartesParCompte.getOrDefault(compte.getId(), List.of()) : null)
+                        .dernieresTransactions(transactionsParCompte != null
+                                ? transactionsParCompte.getOrDefault(compte.getId(), List.of()) : null)
+                        .build())
+                .collect(Collectors.toList());
+
+        return VueClientDTO.builder()
+                .client(fiche)
+                .soldeGlobal(solde)
+                .nombreCartes(cartesParCompte != null
+                        ? cartesParCompte.values().stream().mapToInt(List::size).sum() : null)
+                .comptes(comptesVue)
+                .partiesIndisponibles(indisponibles)
+                .build();
+    }
+
+    /**
+     * Statistiques courantes d'une agence : clients et comptes actifs, encours et flux du jour
+     */
+    public StatistiquesAgenceDTO getStatistiquesAgence(String agenceCode) {
+        return statistiquesAgences.getStatistiques(agenceCode);
+    }
+
+    /**
+     * Résultat d'une partie de la vue, null si elle a échoué ou dépassé son délai ;
+     * un client inexistant fait échouer la vue
+     */
+    private <T> T partie(CompletableFuture<T> lecture, String nom, Long clientId, List<String> indisponibles) {
+        try {
+            return lecture.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ClientNotFoundException) {
+                throw (ClientNotFoundException) e.getCause();
+            }
+            log.warn("Vue client {}: partie {} indisponible ({})", clientId, nom,
+                    e.getCause() instanceof TimeoutException ? "délai de " + delaiPartieMs + " ms dépassé"
+                            : e.getCause() instanceof RejectedExecutionException ? "pool de lecture saturé"
+                            : e.getCause().getMessage());
+            indisponibles.add(nom);
+            return null;
+        }
+    }
+
+    /**
+     * Lecture d'une partie de la vue client, bornée par son délai depuis la
+     * soumission (attente en file comprise) ; rejetée si le pool est saturé
+     */
+    private <T> CompletableFuture<T> lireBorne(Supplier<T> lecture) {
+        try {
+            return CompletableFuture.supplyAsync(() -> lectureBorneeTemplate.execute(status -> lecture.get()), lectureExecutor)
+                    .orTimeout(delaiPartieMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Lecture d'une partie du tableau de bord ; pool saturé, elle est faite sur le thread appelant
+     */
+    private <T> CompletableFuture<T> lire(Supplier<T> lecture) {
+        try {
+            return CompletableFuture.supplyAsync(() -> lectureTemplate.execute(status -> lecture.get()), lectureExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(lectureTemplate.execute(status -> lecture.get()));
+        }
+    }
+
+    private CompteResumeDTO mapToCompteResumeDTO(Compte compte) {
+        return CompteResumeDTO.builder()
+                .id(compte.getId())
+                .numeroCompte(compte.getNumeroCompte())
+                .iban(compte.getIban())
+                .intitule(compte.getIntitule())
+                .typeCompte(compte.getTypeCompte())
+                .solde(compte.getSolde())
+                .soldeDisponible(compte.getSoldeDisponible())
+                .statut(compte.getStatut())
+                .build();
+    }
+
+    private CarteResumeDTO mapToCarteResumeDTO(Carte carte) {
+        return CarteResumeDTO.builder()
+                .id(carte.getId())
+                .numeroCarteMasque(carte.getNumeroCarteMasque())
+                .typeCarte(carte.getTypeCarte())
+                .statut(carte.getStatut())
+                .dateExpiration(carte.getDateExpiration())
+                .build();
+    }
+
+    private TransactionDTO mapToTransactionDTO(Transaction transaction) {
+        return TransactionDTO.builder()
+                .id(transaction.getId())
+                .reference(transaction.getReference())
+                .typeOperation(transaction.getTypeOperation())
+                .natureOperation(transaction.getNatureOperation())
+                .montant(transaction.getMontant())
+                .devise(transaction.getDevise())
+                .sens(transaction.getSens())
+                .libelle(transaction.getLibelle())
+                .libelleComplement(transaction.getLibelleComplement())
+                .dateOperation(transaction.getDateOperation())
+                .dateValeur(transaction.getDateValeur())
+                .soldeApres(transaction.getSoldeApres())
+                .statut(transaction.getStatut())
+                .nomBeneficiaire(transaction.getNomBeneficiaire())
+                .compteBeneficiaire(transaction.getCompteBeneficiaire())
+                .build();
+    }
+}
@@ -0,0 +1,328 @@
+package com.banque.eurobank.service;
+
+import com.banque.eurobank.exception.ClientNotFoundException;
+import com.banque.eurobank.exception.ServiceIndisponibleException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Export des données détenues sur un client (droit d'accès RGPD) : archive zip
+ * écrite au fil de l'eau dans la réponse.
+ *
+ * Fiche client et utilisateurs en JSON, comptes, cartes et opérations en CSV
+ * (séparateur ';'), plus un manifeste des volumes exportés. Chaque table est lue
+ * par un curseur en avant seule dont chaque ligne est écrite dès sa lecture :
+ * la mémoire ne dépend pas de l'historique du client. Les empreintes (mot de
+ * passe, numéro de carte, code confidentiel) et secrets (OTP) ne sont pas exportés.
+ *
+ * Lecture seule sans verrou, dans une transaction en lecture seule ; le nombre
+ * d'exports simultanés est borné, chacun tenant une connexion le temps du
+ * téléchargement.
+ */
+@Service
+@Slf4j
+public class ExportRgpdService {
+
+    private static final String SQL_CLIENT =
+            "SELECT id, numero_client, civilite, nom, prenom, date_naissance, lieu_naissance, nationalite, " +
+            "piece_identite, numero_piece, adresse, code_postal, ville, pays, email, telephone, telephone_mobile, " +
+            "statut, segment, conseiller_id, agence_code, date_creation, date_modification " +
+            "FROM EB_CLIENTS WHERE id = ?";
+
+    private static final String SQL_UTILISATEURS =
+            "SELECT id, login, type_utilisateur, actif, verrouille, tentatives_connexion, date_derniere_connexion, " +
+            "date_verrouillage, date_expiration_mdp, premiere_connexion, deux_facteurs_actif, telephone_validation, " +
+            "date_creation, date_modification " +
+            "FROM EB_UTILISATEURS WHERE client_id = ? ORDER BY id";
+
+    private static final String SQL_COMPTES =
+            "SELECT id, numero_compte, iban, bic, intitule, type_compte, devise, solde, solde_disponible, " +
+            "decouvert_autorise, taux_interet, statut, date_ouverture, date_cloture, agence_code, code_guichet, " +
+            "date_creation, date_modification " +
+            "FROM EB_COMPTES WHERE client_id = ? ORDER BY id";
+
+    private static final String SQL_CARTES =
+            "SELECT ca.id, ca.compte_id, ca.numero_carte_masque, ca.titulaire, ca.type_carte, ca.reseau, " +
+            "ca.date_expiration, ca.date_emission, ca.statut, ca.plafond_paiement_jour, ca.plafond_paiement_mois, " +
+            "ca.plafond_retrait_jour, ca.plafond_retrait_semaine, ca.paiement_etranger_actif, " +
+            "ca.retrait_etranger_actif, ca.paiement_internet_actif, ca.sans_contact_actif, ca.debit_differe, " +
+            "ca.date_derniere_utilisation, ca.opposition, ca.date_opposition, ca.motif_opposition, " +
+            "ca.carte_precedente_id, ca.date_creation, ca.date_modification " +
+            "FROM EB_CARTES ca JOIN EB_COMPTES c ON c.id = ca.compte_id WHERE c.client_id = ? ORDER BY ca.id";
+
+    private static final String SQL_TRANSACTIONS =
+            "SELECT t.id, t.compte_id, t.reference, t.type_operation, t.nature_operation, t.montant, t.devise, " +
+            "t.sens, t.libelle, t.libelle_complement, t.date_operation, t.date_valeur, t.date_comptable, " +
+            "t.compte_emetteur, t.compte_beneficiaire, t.nom_emetteur, t.nom_beneficiaire, t.bic_emetteur, " +
+            "t.bic_beneficiaire, t.numero_carte_masque, t.nom_commercant, t.mcc_code, t.pays_operation, " +
+            "t.solde_avant, t.solde_apres, t.statut, t.motif_rejet, t.code_retour, t.date_creation " +
+            "FROM EB_TRANSACTIONS t JOIN EB_COMPTES c ON c.id = t.compte_id " +
+            "WHERE c.client_id = ? ORDER BY t.compte_id, t.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate lectureTemplate;
+    private final ObjectMapper objectMapper;
+    private final Semaphore exports;
+
+    public ExportRgpdService(DataSource dataSource,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${app.export-rgpd.taille-lecture:500}") int tailleLecture,
+                             @Value("${app.export-rgpd.exports-simultanes:2}") int exportsSimultanes) {
+        // Lignes ramenées par aller-retour au serveur, sans accumulation côté application
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(tailleLecture);
+        this.lectureTemplate = new TransactionTemplate(transactionManager);
+        this.lectureTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.exports = new Semaphore(exportsSimultanes);
+    }
+
+    /**
+     * Réserve un export pour le client ; l'export doit être fermé après écriture
+     */
+    public Export ouvrir(Long clientId) {
+        String numeroClient;
+        try {
+            numeroClient = jdbcTemplate.queryForObject(
+                    "SELECT numero_client FROM EB_CLIENTS WHERE id = ?", String.class, clientId);
+        } catch (EmptyResultDataAccessException e) {
+            throw new ClientNotFoundException("Client non trouvé avec l'ID: " + clientId);
+        }
+        if (!exports.tryAcquire()) {
+            throw new ServiceIndisponibleException("Trop d'exports en cours, veuillez réessayer ultérieurement");
+        }
+        return new Export(clientId, numeroClient);
+    }
+
+    /**
+     * Export réservé d'un client
+     */
+    public final class Export implements AutoCloseable {
+
+        private final Long clientId;
+        private final String numeroClient;
+        private boolean ferme;
+
+        private Export(Long clientId, String numeroClient) {
+            this.clientId = clientId;
+            this.numeroClient = numeroClient;
+        }
+
+        public String getNomFichier() {
+            return "donnees-client-" + numeroClient + "-" + LocalDate.now() + ".zip";
+        }
+
+        /**
+         * Écrit l'archive dans le flux (non fermé)
+         */
+        public void ecrire(OutputStream flux) throws IOException {
+            long debut = System.currentTimeMillis();
+            ZipOutputStream zip = new ZipOutputStream(flux, StandardCharsets.UTF_8);
+            Map<String, Long> volumes = new LinkedHashMap<>();
+            try {
+                lectureTemplate.executeWithoutResult(status -> {
+                    volumes.put("client.json", json(zip, "client.json", SQL_CLIENT, false));
+                    volumes.put("utilisateurs.json", json(zip, "utilisateurs.json", SQL_UTILISATEURS, true));
+                    volumes.put("comptes.csv", csv(zip, "comptes.csv", SQL_COMPTES));
+                    volumes.put("cartes.csv", csv(zip, "cartes.csv", SQL_CARTES));
+                    volumes.put("transactions.csv", csv(zip, "transactions.csv", SQL_TRANSACTIONS));
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            Map<String, Object> manifeste = new LinkedHashMap<>();
+            manifeste.put("clientId", clientId);
+            manifeste.put("numeroClient", numeroClient);
+            manifeste.put("dateExport", LocalDateTime.now().toString());
+            manifeste.put("lignes", volumes);
+            zip.putNextEntry(new ZipEntry("manifeste.json"));
+            zip.write(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(manifeste));
+            zip.closeEntry();
+            zip.finish();
+            log.info("Export RGPD du client {}: {} en {} ms", clientId, volumes, System.currentTimeMillis() - debut);
+        }
+
+        @Override
+        public void close() {
+            if (!ferme) {
+                ferme = true;
+                exports.release();
+            }
+        }
+
+        /**
+         * Écrit les lignes de la requête en JSON : un objet par ligne, dans un tableau
+         * sauf pour une ligne unique
+         */
+        private long json(ZipOutputStream zip, String nom, String sql, boolean tableau) {
+            try {
+                zip.putNextEntry(new ZipEntry(nom));
+                JsonGenerator json = objectMapper.getFactory().createGenerator(nonFermant(zip));
+                json.useDefaultPrettyPrinter();
+                Long lignes = jdbcTemplate.query(sql, (ResultSetExtractor<Long>) rs -> {
+                    ResultSetMetaData colonnes = rs.getMetaData();
+                    long nombre = 0;
+                    try {
+                        if (tableau) {
+                            json.writeStartArray();
+                        }
+                        while (rs.next()) {
+                            json.writeStartObject();
+                            for (int i = 1; i <= colonnes.getColumnCount(); i++) {
+                                json.writeFieldName(colonnes.getColumnLabel(i).toLowerCase());
+                                Object valeur = valeur(rs, colonnes, i);
+                                if (valeur == null) {
+                                    json.writeNull();
+                                } else if (valeur instanceof BigDecimal) {
+                                    json.writeNumber((BigDecimal) valeur);
+                                } else if (valeur instanceof Number) {
+                                    json.writeNumber(((Number) valeur).longValue());
+                                } else if (valeur instanceof Boolean) {
+                                    json.writeBoolean((Boolean) valeur);
+                                } else {
+                                    json.writeString(valeur.toString());
+                                }
+                            }
+                            json.writeEndObject();
+                            nombre++;
+                        }
+                        if (tableau) {
+                            json.writeEndArray();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return nombre;
+                }, clientId);
+                json.close();
+                zip.closeEntry();
+                return lignes;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Écrit les lignes de la requête en CSV avec en-tête
+         */
+        private long csv(ZipOutputStream zip, String nom, String sql) {
+            try {
+                zip.putNextEntry(new ZipEntry(nom));
+                Writer ecrivain = new BufferedWriter(new OutputStreamWriter(nonFermant(zip), StandardCharsets.UTF_8));
+                Long lignes = jdbcTemplate.query(sql, (ResultSetExtractor<Long>) rs -> {
+                    ResultSetMetaData colonnes = rs.getMetaData();
+                    long nombre = 0;
+                    try {
+                        for (int i = 1; i <= colonnes.getColumnCount(); i++) {
+                            ecrivain.write(i > 1 ? ";" : "");
+                            ecrivain.write(colonnes.getColumnLabel(i).toLowerCase());
+                        }
+                        ecrivain.write("\r\n");
+                        while (rs.next()) {
+                            for (int i = 1; i <= colonnes.getColumnCount(); i++) {
+                                ecrivain.write(i > 1 ? ";" : "");
+                                Object valeur = valeur(rs, colonnes, i);
+                                if (valeur != null) {
+                                    ecrivain.write(champCsv(valeur instanceof BigDecimal
+                                            ? ((BigDecimal) valeur).toPlainString() : valeur.toString()));
+                                }
+                            }
+                            ecrivain.write("\r\n");
+                            nombre++;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return nombre;
+                }, clientId);
+                ecrivain.close();
+                zip.closeEntry();
+                return lignes;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Valeur d'une colonne, dates et horodatages en types java.time (écrits au format ISO)
+     */
+    private static Object valeur(ResultSet rs, ResultSetMetaData colonnes, int colonne) throws SQLException {
+        switch (colonnes.getColumnType(colonne)) {
+            case Types.TIMESTAMP:
+                Timestamp horodatage = rs.getTimestamp(colonne);
+                return horodatage != null ? horodatage.toLocalDateTime() : null;
+            case Types.DATE:
+                java.sql.Date date = rs.getDate(colonne);
+                return date != null ? date.toLocalDate() : null;
+            default:
+                return rs.getObject(colonne);
+        }
+    }
+
+    private static String champCsv(String valeur) {
+        if (valeur.indexOf(';') < 0 && valeur.indexOf('"') < 0 && valeur.indexOf('\n') < 0 && valeur.indexOf('\r') < 0) {
+            return valeur;
+        }
+        return '"' + valeur.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Vue du flux zip dont la fermeture ne ferme pas l'archive
+     */
+    private static OutputStream nonFermant(ZipOutputStream zip) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                zip.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                zip.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                zip.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.banque.eurobank.service;
+
+import com.banque.eurobank.config.FraisProperties;
+import com.banque.eurobank.entity.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Moteur de règles de frais : résout, pour chaque couple
+ * (segment client, type de compte), les frais mensuels applicables.
+ *
+ * La résolution est faite une fois au démarrage dans une table indexée
+ * par énumérations ; l'évaluation d'un compte est une simple lecture.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GrilleTarifaireService {
+
+    private static final Set<Transaction.TypeOperation> TYPES_AUTORISES = EnumSet.of(
+            Transaction.TypeOperation.FRAIS_BANCAIRES, Transaction.TypeOperation.COMMISSION);
+
+    private final FraisProperties fraisProperties;
+
+    private final Map<Client.SegmentClient, Map<Compte.TypeCompte, List<FraisProperties.Regle>>> grille =
+            new EnumMap<>(Client.SegmentClient.class);
+
+    @PostConstruct
+    public void initialiser() {
+        for (FraisProperties.Regle regle : fraisProperties.getRegles()) {
+            if (regle.getCode() == null || !TYPES_AUTORISES.contains(regle.getTypeOperation())) {
+                throw new IllegalStateException("Règle de frais invalide: " + regle);
+            }
+        }
+
+        List<String> codes = fraisProperties.getRegles().stream()
+                .map(FraisProperties.Regle::getCode)
+                .distinct()
+                .collect(Collectors.toList());
+
+        for (Client.SegmentClient segment : Client.SegmentClient.values()) {
+            Map<Compte.TypeCompte, List<FraisProperties.Regle>> parType = new EnumMap<>(Compte.TypeCompte.class);
+            for (Compte.TypeCompte typeCompte : Compte.TypeCompte.values()) {
+                List<FraisProperties.Regle> regles = new ArrayList<>();
+                for (String code : codes) {
+                    regleLaPlusSpecifique(code, segment, typeCompte)
+                            .filter(regle -> regle.getMontant().signum() > 0)
+                            .ifPresent(regles::add);
+                }
+                parType.put(typeCompte, List.copyOf(regles));
+            }
+            grille.put(segment, parType);
+        }
+        log.info("Grille tarifaire chargée: {} règle(s), {} code(s) de frais",
+                fraisProperties.getRegles().size(), codes.size());
+    }
+
+    /**
+     * Frais à prélever sur un compte selon son segment, son type et son solde
+     */
+    public List<FraisProperties.Regle> fraisApplicables(Client.SegmentClient segment,
+                                                        Compte.TypeCompte typeCompte,
+                                                        BigDecimal solde) {
+        List<FraisProperties.Regle> regles = grille
+                .get(segment != null ? segment : Client.SegmentClient.PARTICULIER)
+                .get(typeCompte);
+        if (solde.signum() < 0) {
+            return regles;
+        }
+        List<FraisProperties.Regle> resultat = new ArrayList<>(regles.size());
+        for (FraisProperties.Regle regle : regles) {
+            if (!regle.isSiDebiteur()) {
+                resultat.add(regle);
+            }
+        }
+        return resultat;
+    }
+
+    private Optional<FraisProperties.Regle> regleLaPlusSpecifique(String code,
+                                                                  Client.SegmentClient segment,
+                                                                  Compte.TypeCompte typeCompte) {
+        return fraisProperties.getRegles().stream()
+                .filter(r -> r.getCode().equals(code))
+                .filter(r -> r.getSegment() == null || r.getSegment() == segment)
+                .filter(r -> r.getTypeCompte() == null || r.getTypeCompte() == typeCompte)
+                .max(Comparator.comparingInt(r -> (r.getSegment() != null ? 1 : 0) + (r.getTypeCompte() != null ? 2 : 0)));
+    }
+}
@@ -0,0 +1,378 @@
+package com.banque.eurobank.service;
+
+import com.banque.eurobank.dto.ErreurImportDTO;
+import com.banque.eurobank.dto.ImportClientDTO;
+import com.banque.eurobank.dto.RapportImportClientsDTO;
+import com.banque.eurobank.entity.Client;
+import com.banque.eurobank.entity.Compte;
+import com.banque.eurobank.exception.TechnicalException;
+import com.banque.eurobank.statistiques.StatistiquesAgences;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Import en masse de clients (reprise d'un portefeuille partenaire), avec leur
+ * compte initial le cas échéant.
+ *
+ * Le flux (CSV avec en-tête, ou JSON : tableau ou un objet par ligne) est lu au fil
+ * de l'eau et traité par lots, chacun dans sa propre transaction :
+ * - unicité des emails contrôlée dans le fichier puis en base par une requête IN par lot ;
+ * - numéros client et de compte pris dans les blocs de NumerotationService ;
+ * - identifiants tirés des séquences dans l'INSERT même, compte et agrégat de solde
+ *   rattachés au client par son numéro : aucune lecture, trois INSERT par lots JDBC.
+ * Un lot refusé par la base est rejoué ligne à ligne pour isoler les lignes en erreur.
+ * Les clients importés rejoignent l'index de recherche à son actualisation suivante
+ * et les statistiques de l'agence à la validation de leur lot.
+ */
+@Service
+@Slf4j
+public class ImportClientsService {
+
+    private static final int ERREURS_MAX = 10_000;
+
+    private static final String SQL_EMAILS_EXISTANTS = "SELECT email FROM EB_CLIENTS WHERE email IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NumerotationService numerotationService;
+    private final StatistiquesAgences statistiquesAgences;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int tailleLot;
+
+    private final String sqlCreationClient;
+    private final String sqlCreationCompte;
+    private final String sqlCreationSolde;
+
+    public ImportClientsService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                EntityManagerFactory entityManagerFactory,
+                                NumerotationService numerotationService,
+                                StatistiquesAgences statistiquesAgences,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                @Value("${app.import-clients.taille-lot:500}") int tailleLot) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.numerotationService = numerotationService;
+        this.statistiquesAgences = statistiquesAgences;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.tailleLot = tailleLot;
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect();
+        this.sqlCreationClient =
+                "INSERT INTO EB_CLIENTS (id, numero_client, civilite, nom, prenom, date_naissance, email, telephone, " +
+                "adresse, code_postal, ville, pays, piece_identite, numero_piece, statut, segment, agence_code, " +
+                "date_creation, date_modification) VALUES (" +
+                dialect.getSelectSequenceNextValString("EB_SEQ_CLIENT") +
+                ", ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        this.sqlCreationCompte =
+                "INSERT INTO EB_COMPTES (id, numero_compte, iban, bic, intitule, type_compte, devise, solde, " +
+                "solde_disponible, decouvert_autorise, statut, date_ouverture, agence_code, code_guichet, client_id, " +
+                "date_creation, date_modification) SELECT " +
+                dialect.getSelectSequenceNextValString("EB_SEQ_COMPTE") +
+                ", ?, ?, ?, ?, ?, 'EUR', 0, 0, ?, 'ACTIF', ?, agence_code, ?, id, ?, ? " +
+                "FROM EB_CLIENTS WHERE numero_client = ?";
+        this.sqlCreationSolde =
+                "INSERT INTO EB_SOLDES_CLIENTS (client_id, solde_global, date_verification, date_modification) " +
+                "SELECT id, 0, ?, ? FROM EB_CLIENTS WHERE numero_client = ?";
+    }
+
+    /**
+     * Importe un fichier CSV (séparateur ';' ou ',', colonnes nommées comme les champs de ImportClientDTO)
+     */
+    public RapportImportClientsDTO importerCsv(InputStream flux) throws IOException {
+        Import suivi = new Import();
+        try (LecteurCsv lecteur = new LecteurCsv(new BufferedReader(
+                new InputStreamReader(flux, StandardCharsets.UTF_8)))) {
+            List<Ligne> lot = new ArrayList<>(tailleLot);
+            Map<String, String> champs;
+            while ((champs = lecteur.suivante()) != null) {
+                Ligne ligne = new Ligne(lecteur.getNumeroLigne());
+                try {
+                    ligne.client = objectMapper.convertValue(champs, ImportClientDTO.class);
+                } catch (IllegalArgumentException e) {
+                    ligne.motif = "Valeur invalide: " + e.getMessage().split("\n")[0];
+                }
+                lot.add(ligne);
+                if (lot.size() == tailleLot) {
+                    traiterLot(lot, suivi);
+                    lot.clear();
+                }
+            }
+            traiterLot(lot, suivi);
+        }
+        return suivi.rapport();
+    }
+
+    /**
+     * Importe un flux JSON : tableau d'objets ImportClientDTO, ou un objet par ligne
+     */
+    public RapportImportClientsDTO importerJson(InputStream flux) throws IOException {
+        Import suivi = new Import();
+        try (MappingIterator<ImportClientDTO> lignes = objectMapper.readerFor(ImportClientDTO.class).readValues(flux)) {
+            List<Ligne> lot = new ArrayList<>(tailleLot);
+            long numero = 0;
+            while (true) {
+                Ligne ligne = new Ligne(++numero);
+                try {
+                    if (!lignes.hasNextValue()) {
+                        break;
+                    }
+                    ligne.client = lignes.nextValue();
+                } catch (IOException | RuntimeException e) {
+                    // Après une erreur de syntaxe, la position dans le flux n'est plus fiable
+                    traiterLot(lot, suivi);
+                    suivi.rejeter(ligne, "JSON invalide, import interrompu: " + e.getMessage().split("\n")[0]);
+                    return suivi.rapport();
+                }
+                lot.add(ligne);
+                if (lot.size() == tailleLot) {
+                    traiterLot(lot, suivi);
+                    lot.clear();
+                }
+            }
+            traiterLot(lot, suivi);
+        }
+        return suivi.rapport();
+    }
+
+    private void traiterLot(List<Ligne> lot, Import suivi) {
+        if (lot.isEmpty()) {
+            return;
+        }
+        suivi.lignesLues += lot.size();
+
+        List<Ligne> valides = new ArrayList<>(lot.size());
+        for (Ligne ligne : lot) {
+            String motif = ligne.motif != null ? ligne.motif : controler(ligne.client);
+            if (motif == null && ligne.client.getEmail() != null && !suivi.emails.add(ligne.client.getEmail())) {
+                motif = "Email en double dans le fichier";
+            }
+            if (motif != null) {
+                suivi.rejeter(ligne, motif);
+            } else {
+                valides.add(ligne);
+            }
+        }
+
+        Set<String> existants = emailsExistants(valides);
+        List<Ligne> aCreer = new ArrayList<>(valides.size());
+        for (Ligne ligne : valides) {
+            if (ligne.client.getEmail() != null && existants.contains(ligne.client.getEmail())) {
+                suivi.rejeter(ligne, "Un client avec cet email existe déjà");
+            } else {
+                numeroter(ligne);
+                aCreer.add(ligne);
+            }
+        }
+        if (aCreer.isEmpty()) {
+            return;
+        }
+
+        try {
+            inserer(aCreer);
+            suivi.compter(aCreer);
+        } catch (DataAccessException e) {
+            if (aCreer.size() == 1) {
+                suivi.rejeter(aCreer.get(0), "Refusé par la base: " + e.getMostSpecificCause().getMessage());
+                return;
+            }
+            log.warn("Import de clients: lot de {} ligne(s) refusé, rejeu ligne à ligne ({})",
+                    aCreer.size(), e.getMostSpecificCause().getMessage());
+            for (Ligne ligne : aCreer) {
+                try {
+                    inserer(List.of(ligne));
+                    suivi.compter(List.of(ligne));
+                } catch (DataAccessException refus) {
+                    suivi.rejeter(ligne, "Refusé par la base: " + refus.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Première violation de contrainte de la ligne, null si elle est valide
+     */
+    private String controler(ImportClientDTO client) {
+        Set<ConstraintViolation<ImportClientDTO>> violations = validator.validate(client);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        ConstraintViolation<ImportClientDTO> violation = violations.iterator().next();
+        return violation.getPropertyPath() + ": " + violation.getMessage();
+    }
+
+    private Set<String> emailsExistants(List<Ligne> lignes) {
+        List<String> emails = lignes.stream()
+                .map(ligne -> ligne.client.getEmail())
+                .filter(email -> email != null)
+                .collect(Collectors.toList());
+        if (emails.isEmpty()) {
+            return Collections.emptySet();
+        }
+        String parametres = String.join(", ", Collections.nCopies(emails.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(String.format(SQL_EMAILS_EXISTANTS, parametres),
+                String.class, emails.toArray()));
+    }
+
+    private void numeroter(Ligne ligne) {
+        if (ligne.numeroClient == null) {
+            ligne.numeroClient = numerotationService.prochainNumeroClient();
+            if (ligne.client.getTypeCompte() != null) {
+                ligne.numeroCompte = numerotationService.prochainNumeroCompte();
+            }
+        }
+    }
+
+    private void inserer(List<Ligne> lignes) {
+        Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+        List<Ligne> avecCompte = lignes.stream()
+                .filter(ligne -> ligne.numeroCompte != null)
+                .collect(Collectors.toList());
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(sqlCreationClient, lignes, lignes.size(), (ps, ligne) -> {
+                ImportClientDTO c = ligne.client;
+                ps.setString(1, ligne.numeroClient);
+                ps.setString(2, c.getCivilite());
+                ps.setString(3, c.getNom().toUpperCase());
+                ps.setString(4, ClientService.capitalizeFirstLetter(c.getPrenom()));
+                ps.setDate(5, c.getDateNaissance() != null ? Date.valueOf(c.getDateNaissance()) : null);
+                ps.setString(6, c.getEmail());
+                ps.setString(7, c.getTelephone());
+                ps.setString(8, c.getAdresse());
+                ps.setString(9, c.getCodePostal());
+                ps.setString(10, c.getVille());
+                ps.setString(11, c.getPays() != null ? c.getPays() : "FRANCE");
+                ps.setString(12, c.getPieceIdentite());
+                ps.setString(13, c.getNumeroPiece());
+                ps.setString(14, Client.StatutClient.ACTIF.name());
+                ps.setString(15, Client.SegmentClient.PARTICULIER.name());
+                ps.setString(16, ClientService.AGENCE_DEFAUT);
+                ps.setTimestamp(17, maintenant);
+                ps.setTimestamp(18, maintenant);
+            });
+            if (!avecCompte.isEmpty()) {
+                Date ouverture = Date.valueOf(LocalDate.now());
+                jdbcTemplate.batchUpdate(sqlCreationCompte, avecCompte, avecCompte.size(), (ps, ligne) -> {
+                    ImportClientDTO c = ligne.client;
+                    ps.setString(1, ligne.numeroCompte);
+                    ps.setString(2, CompteService.genererIban(ligne.numeroCompte));
+                    ps.setString(3, CompteService.BIC_EUROBANK);
+                    ps.setString(4, c.getIntituleCompte() != null ? c.getIntituleCompte() : intitule(c.getTypeCompte()));
+                    ps.setString(5, c.getTypeCompte().name());
+                    ps.setBigDecimal(6, c.getDecouvertAutorise() != null ? c.getDecouvertAutorise() : BigDecimal.ZERO);
+                    ps.setDate(7, ouverture);
+                    ps.setString(8, CompteService.CODE_GUICHET_DEFAULT);
+                    ps.setTimestamp(9, maintenant);
+                    ps.setTimestamp(10, maintenant);
+                    ps.setString(11, ligne.numeroClient);
+                });
+            }
+            jdbcTemplate.batchUpdate(sqlCreationSolde, lignes, lignes.size(), (ps, ligne) -> {
+                ps.setTimestamp(1, maintenant);
+                ps.setTimestamp(2, maintenant);
+                ps.setString(3, ligne.numeroClient);
+            });
+
+            statistiquesAgences.clientsCrees(ClientService.AGENCE_DEFAUT, lignes.size());
+            avecCompte.stream()
+                    .collect(Collectors.groupingBy(ligne -> ligne.client.getTypeCompte(), Collectors.counting()))
+                    .forEach((type, nombre) -> statistiquesAgences.comptesOuverts(ClientService.AGENCE_DEFAUT, type, nombre));
+        });
+    }
+
+    private static String intitule(Compte.TypeCompte typeCompte) {
+        return typeCompte == Compte.TypeCompte.COURANT ? "Compte courant" : typeCompte.name().replace('_', ' ');
+    }
+
+    /**
+     * Ligne du fichier, numérotée pour le rapport ; motif renseigné si elle n'a pas pu être lue
+     */
+    private static final class Ligne {
+        private final long numero;
+        private ImportClientDTO client;
+        private String motif;
+        private String numeroClient;
+        private String numeroCompte;
+
+        private Ligne(long numero) {
+            this.numero = numero;
+        }
+    }
+
+    /**
+     * Suivi d'un import : compteurs, erreurs et emails déjà vus dans le fichier
+     */
+    private static final class Import {
+        private final long debut = System.currentTimeMillis();
+        private final Set<String> emails = new HashSet<>();
+        private final List<ErreurImportDTO> erreurs = new ArrayList<>();
+        private long lignesLues;
+        private long clientsCrees;
+        private long comptesCrees;
+        private long lignesRejetees;
+
+        void rejeter(Ligne ligne, String motif) {
+            lignesRejetees++;
+            if (erreurs.size() < ERREURS_MAX) {
+                erreurs.add(ErreurImportDTO.builder()
+                        .ligne(ligne.numero)
+                        .email(ligne.client != null ? ligne.client.getEmail() : null)
+                        .motif(motif)
+                        .build());
+            }
+        }
+
+        void compter(List<Ligne> creees) {
+            clientsCrees += creees.size();
+            comptesCrees += creees.stream().filter(ligne -> ligne.numeroCompte != null).count();
+        }
+
+        RapportImportClientsDTO rapport() {
+            long duree = System.currentTimeMillis() - debut;
+            log.info("Import de clients: {} ligne(s) lue(s), {} client(s) et {} compte(s) créé(s), {} rejet(s) en {} ms",
+                    lignesLues, clientsCrees, comptesCrees, lignesRejetees, duree);
+            return RapportImportClientsDTO.builder()
+                    .lignesLues(lignesLues)
+                    .clientsCrees(clientsCrees)
+                    .comptesCrees(comptesCrees)
+                    .lignesRejetees(lignesRejetees)
+                    .dureeMs(duree)
+                    .erreurs(erreurs)
+                    .erreursTronquees(lignesRejetees > erreurs.size())
+                    .build();
+        }
+    }
+}
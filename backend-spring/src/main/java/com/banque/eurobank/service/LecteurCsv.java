@@ -0,0 +1,102 @@
+package com.banque.eurobank.service;
+
+import com.banque.eurobank.exception.TechnicalException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lecture ligne à ligne d'un fichier CSV avec en-tête. Le séparateur (';' ou ',')
+ * est déduit de l'en-tête ; les champs entre guillemets peuvent contenir le
+ * séparateur et des guillemets doublés, pas de saut de ligne.
+ */
+final class LecteurCsv implements Closeable {
+
+    private final BufferedReader lecteur;
+    private final char separateur;
+    private final String[] entete;
+    private long numeroLigne = 1;
+
+    LecteurCsv(BufferedReader lecteur) throws IOException {
+        this.lecteur = lecteur;
+        String premiere = lecteur.readLine();
+        if (premiere == null) {
+            throw new TechnicalException("Fichier CSV vide");
+        }
+        // Marque d'ordre des octets laissée par certains tableurs
+        if (premiere.startsWith("\uFEFF")) {
+            premiere = premiere.substring(1);
+        }
+        this.separateur = premiere.indexOf(';') >= 0 ? ';' : ',';
+        List<String> colonnes = decouper(premiere);
+        this.entete = colonnes.stream().map(String::trim).toArray(String[]::new);
+    }
+
+    /**
+     * Champs non vides de la ligne suivante, par nom de colonne ; null en fin de fichier.
+     * Les lignes vides sont ignorées.
+     */
+    Map<String, String> suivante() throws IOException {
+        String ligne;
+        do {
+            ligne = lecteur.readLine();
+            if (ligne == null) {
+                return null;
+            }
+            numeroLigne++;
+        } while (ligne.trim().isEmpty());
+
+        List<String> champs = decouper(ligne);
+        Map<String, String> valeurs = new LinkedHashMap<>();
+        for (int i = 0; i < champs.size() && i < entete.length; i++) {
+            String valeur = champs.get(i).trim();
+            if (!valeur.isEmpty()) {
+                valeurs.put(entete[i], valeur);
+            }
+        }
+        return valeurs;
+    }
+
+    /** Numéro (à partir de 1, en-tête compris) de la dernière ligne lue */
+    long getNumeroLigne() {
+        return numeroLigne;
+    }
+
+    private List<String> decouper(String ligne) {
+        List<String> champs = new ArrayList<>();
+        StringBuilder champ = new StringBuilder();
+        boolean guillemets = false;
+        for (int i = 0; i < ligne.length(); i++) {
+            char c = ligne.charAt(i);
+            if (guillemets) {
+                if (c == '"' && i + 1 < ligne.length() && ligne.charAt(i + 1) == '"') {
+                    champ.append('"');
+                    i++;
+                } else if (c == '"') {
+                    guillemets = false;
+                } else {
+                    champ.append(c);
+                }
+            } else if (c == '"') {
+                guillemets = true;
+            } else if (c == separateur) {
+                champs.add(champ.toString());
+                champ.setLength(0);
+            } else {
+                champ.append(c);
+            }
+        }
+        champs.add(champ.toString());
+        return champs;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lecteur.close();
+    }
+}
@@ -0,0 +1,183 @@
+package com.banque.eurobank.service;
+
+import com.banque.eurobank.entity.CompteurNumerotation;
+import com.banque.eurobank.exception.TechnicalException;
+import com.banque.eurobank.repository.CompteurNumerotationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service d'attribution des numéros métier (numéros de compte, numéros client,
+ * numéros de carte).
+ *
+ * Les valeurs sont réservées par blocs dans EB_COMPTEURS_NUMEROTATION
+ * (une transaction courte et indépendante par bloc) puis distribuées depuis
+ * la mémoire par incrément atomique. Un redémarrage peut laisser des trous
+ * dans la numérotation, jamais de doublons.
+ */
+@Service
+@Slf4j
+public class NumerotationService {
+
+    public static final String COMPTEUR_COMPTE = "NUMERO_COMPTE";
+    public static final String COMPTEUR_CLIENT = "NUMERO_CLIENT";
+    public static final String COMPTEUR_CARTE = "NUMERO_CARTE";
+
+    /** Numéro de compte RIB : 11 caractères */
+    private static final int LONGUEUR_NUMERO_COMPTE = 11;
+    /** Numéro client : "C" + 12 chiffres + clé de Luhn */
+    private static final int LONGUEUR_SEQUENCE_CLIENT = 12;
+    /** Numéro de carte (PAN) : BIN + numéro de porteur + clé de Luhn, 16 chiffres */
+    private static final int LONGUEUR_NUMERO_CARTE = 16;
+
+    private final CompteurNumerotationRepository compteurRepository;
+    private final TransactionTemplate transactionReservation;
+    private final int tailleBloc;
+    private final ConcurrentMap<String, Sequence> sequences = new ConcurrentHashMap<>();
+
+    public NumerotationService(CompteurNumerotationRepository compteurRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.numerotation.taille-bloc:1000}") int tailleBloc) {
+        this.compteurRepository = compteurRepository;
+        this.transactionReservation = new TransactionTemplate(transactionManager);
+        this.transactionReservation.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.tailleBloc = tailleBloc;
+    }
+
+    /**
+     * Prochain numéro de compte (11 chiffres, format RIB)
+     */
+    public String prochainNumeroCompte() {
+        return completerZeros(prochaineValeur(COMPTEUR_COMPTE), LONGUEUR_NUMERO_COMPTE);
+    }
+
+    /**
+     * Prochain numéro client ("C" + 12 chiffres + clé de contrôle)
+     */
+    public String prochainNumeroClient() {
+        String sequence = completerZeros(prochaineValeur(COMPTEUR_CLIENT), LONGUEUR_SEQUENCE_CLIENT);
+        return "C" + sequence + cleLuhn(sequence);
+    }
+
+    /**
+     * Prochain numéro de carte (PAN) pour le BIN donné ; la séquence est commune à tous les BIN
+     */
+    public String prochainNumeroCarte(String bin) {
+        String sequence = bin + completerZeros(prochaineValeur(COMPTEUR_CARTE), LONGUEUR_NUMERO_CARTE - 1 - bin.length());
+        return sequence + cleLuhn(sequence);
+    }
+
+    /**
+     * Prochaine valeur d'un compteur
+     */
+    public long prochaineValeur(String cle) {
+        return sequences.computeIfAbsent(cle, Sequence::new).suivante();
+    }
+
+    /**
+     * Réserve un bloc de valeurs [debut, debut + taille) dans une transaction dédiée
+     */
+    private long reserverBloc(String cle) {
+        for (int essai = 0; essai < 2; essai++) {
+            try {
+                Long debut = transactionReservation.execute(status -> {
+                    CompteurNumerotation compteur = compteurRepository.findByCleForUpdate(cle)
+                            .orElseGet(() -> {
+                                compteurRepository.creer(cle);
+                                return compteurRepository.findByCleForUpdate(cle).orElseThrow();
+                            });
+                    long premier = compteur.getValeur() + 1;
+                    compteur.setValeur(compteur.getValeur() + tailleBloc);
+                    compteurRepository.saveAndFlush(compteur);
+                    return premier;
+                });
+                log.debug("Bloc réservé pour {}: {} - {}", cle, debut, debut + tailleBloc - 1);
+                return debut;
+            } catch (DataIntegrityViolationException e) {
+                // Création concurrente du compteur par un autre nœud : on relit la ligne
+                log.debug("Création concurrente du compteur {}, nouvel essai", cle);
+            }
+        }
+        throw new TechnicalException("Impossible de réserver un bloc de numérotation: " + cle);
+    }
+
+    private static String completerZeros(long valeur, int longueur) {
+        String chiffres = Long.toString(valeur);
+        if (chiffres.length() > longueur) {
+            throw new TechnicalException("Capacité de numérotation épuisée: " + valeur);
+        }
+        StringBuilder sb = new StringBuilder(longueur + 2);
+        for (int i = chiffres.length(); i < longueur; i++) {
+            sb.append('0');
+        }
+        return sb.append(chiffres).toString();
+    }
+
+    private static char cleLuhn(String chiffres) {
+        int somme = 0;
+        boolean doubler = true;
+        for (int i = chiffres.length() - 1; i >= 0; i--) {
+            int d = chiffres.charAt(i) - '0';
+            if (doubler) {
+                d *= 2;
+                if (d > 9) d -= 9;
+            }
+            somme += d;
+            doubler = !doubler;
+        }
+        return (char) ('0' + (10 - somme % 10) % 10);
+    }
+
+    /**
+     * Bloc de valeurs réservé : distribution par incrément atomique, sans verrou
+     */
+    private static final class Bloc {
+        private final AtomicLong prochaine;
+        private final long fin;
+
+        private Bloc(long debut, long fin) {
+            this.prochaine = new AtomicLong(debut);
+            this.fin = fin;
+        }
+    }
+
+    /**
+     * Séquence en mémoire d'un compteur. Seul le remplacement d'un bloc épuisé
+     * est sérialisé ; le chemin courant est un simple getAndIncrement.
+     */
+    private final class Sequence {
+        private final String cle;
+        private volatile Bloc bloc;
+
+        private Sequence(String cle) {
+            this.cle = cle;
+        }
+
+        long suivante() {
+            while (true) {
+                Bloc courant = bloc;
+                if (courant != null) {
+                    long valeur = courant.prochaine.getAndIncrement();
+                    if (valeur < courant.fin) {
+                        return valeur;
+                    }
+                }
+                synchronized (this) {
+                    if (bloc == courant) {
+                        long debut = reserverBloc(cle);
+                        bloc = new Bloc(debut, debut + tailleBloc);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.banque.eurobank.service;
+
+import com.banque.eurobank.dto.*;
+import com.banque.eurobank.entity.*;
+import com.banque.eurobank.repository.*;
+import com.banque.eurobank.statistiques.StatistiquesAgences;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Service de maintenance de l'agrégat "solde global" par client.
+ *
+ * L'agrégat est incrémenté dans la transaction de chaque mouvement de solde,
+ * ce qui évite un SUM sur les comptes à chaque lecture. Le vérificateur
+ * recalcule périodiquement la valeur de référence et corrige les écarts.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class SoldeClientService {
+
+    private final SoldeClientRepository soldeClientRepository;
+    private final CompteRepository compteRepository;
+    private final StatistiquesAgences statistiquesAgences;
+
+    /**
+     * Crée l'agrégat d'un client s'il n'existe pas encore
+     */
+    public void initialiser(Long clientId) {
+        if (!soldeClientRepository.existsById(clientId)) {
+            soldeClientRepository.save(SoldeClient.builder()
+                    .clientId(clientId)
+                    .soldeGlobal(calculerSoldeReference(clientId))
+                    .dateVerification(LocalDateTime.now())
+                    .build());
+        }
+    }
+
+    /**
+     * Répercute la variation de solde d'un compte sur l'agrégat de son titulaire
+     * et sur les statistiques de son agence.
+     * Doit être appelé dans la même transaction que CompteRepository.updateSolde.
+     */
+    public void appliquerMouvement(Compte compte, BigDecimal delta) {
+        if (compte.getStatut() != Compte.StatutCompte.ACTIF || delta.signum() == 0) {
+            return;
+        }
+        statistiquesAgences.mouvement(compte.getAgenceCode(), delta);
+        Long clientId = compte.getClient().getId();
+        if (soldeClientRepository.appliquerDelta(clientId, delta, LocalDateTime.now()) == 0) {
+            log.debug("Agrégat de solde absent pour le client {}, rattrapé par la vérification", clientId);
+        }
+    }
+
+    /**
+     * Répercute un changement de statut : le solde d'un compte qui devient actif est
+     * ajouté à l'agrégat de son titulaire, celui d'un compte qui cesse de l'être en
+     * est retiré.
+     * Doit être appelé dans la transaction du changement, compte verrouillé.
+     */
+    public void appliquerChangementStatut(Compte compte, Compte.StatutCompte ancienStatut) {
+        boolean actif = compte.getStatut() == Compte.StatutCompte.ACTIF;
+        if (actif == (ancienStatut == Compte.StatutCompte.ACTIF)) {
+            return;
+        }
+        BigDecimal delta = actif ? compte.getSolde() : compte.getSolde().negate();
+        Long clientId = compte.getClient().getId();
+        if (delta.signum() != 0 && soldeClientRepository.appliquerDelta(clientId, delta, LocalDateTime.now()) == 0) {
+            log.debug("Agrégat de solde absent pour le client {}, rattrapé par la vérification", clientId);
+        }
+    }
+
+    /**
+     * Solde global d'un client (lecture de l'agrégat, calcul en repli)
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getSoldeGlobal(Long clientId) {
+        return soldeClientRepository.findById(clientId)
+                .map(SoldeClient::getSoldeGlobal)
+                .orElseGet(() -> calculerSoldeReference(clientId));
+    }
+
+    /**
+     * Soldes globaux de plusieurs clients en une requête
+     * (plus une requête groupée pour les clients sans agrégat)
+     */
+    @Transactional(readOnly = true)
+    public List<SoldeGlobalClientDTO> getSoldesGlobaux(Collection<Long> clientIds) {
+        Set<Long> ids = new LinkedHashSet<>(clientIds);
+        Map<Long, BigDecimal> soldes = soldeClientRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(SoldeClient::getClientId, SoldeClient::getSoldeGlobal));
+
+        List<Long> manquants = ids.stream()
+                .filter(id -> !soldes.containsKey(id))
+                .collect(Collectors.toList());
+        if (!manquants.isEmpty()) {
+            soldes.putAll(calculerSoldesReference(manquants));
+        }
+
+        return ids.stream()
+                .map(id -> SoldeGlobalClientDTO.builder()
+                        .clientId(id)
+                        .soldeGlobal(soldes.getOrDefault(id, BigDecimal.ZERO))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Crée les agrégats manquants (clients antérieurs à l'agrégat, chargements directs)
+     */
+    public int initialiserManquants(int taille) {
+        List<Long> clientIds = soldeClientRepository.findClientsSansSolde(PageRequest.of(0, taille));
+        if (clientIds.isEmpty()) {
+            return 0;
+        }
+        Map<Long, BigDecimal> soldes = calculerSoldesReference(clientIds);
+        LocalDateTime maintenant = LocalDateTime.now();
+        soldeClientRepository.saveAll(clientIds.stream()
+                .map(id -> SoldeClient.builder()
+                        .clientId(id)
+                        .soldeGlobal(soldes.getOrDefault(id, BigDecimal.ZERO))
+                        .dateVerification(maintenant)
+                        .build())
+                .collect(Collectors.toList()));
+        return clientIds.size();
+    }
+
+    /**
+     * Vérifie une tranche d'agrégats (par client_id croissant) contre le SUM de référence.
+     * Les écarts sont recontrôlés sous verrou avant correction pour ne pas
+     * confondre un virement en cours avec une dérive.
+     *
+     * @return le résultat de la tranche, dont le dernier client_id traité
+     */
+    public VerificationTranche verifierTranche(Long apresId, int taille) {
+        List<Object[]> tranche = soldeClientRepository.findTranche(apresId, PageRequest.of(0, taille));
+        if (tranche.isEmpty()) {
+            return new VerificationTranche(apresId, 0, 0);
+        }
+
+        List<Long> clientIds = tranche.stream()
+                .map(ligne -> (Long) ligne[0])
+                .collect(Collectors.toList());
+        Map<Long, BigDecimal> references = calculerSoldesReference(clientIds);
+
+        LocalDateTime maintenant = LocalDateTime.now();
+        int ecarts = 0;
+        for (Object[] ligne : tranche) {
+            Long clientId = (Long) ligne[0];
+            BigDecimal reference = references.getOrDefault(clientId, BigDecimal.ZERO);
+            if (((BigDecimal) ligne[1]).compareTo(reference) != 0 && corrigerSiEcart(clientId)) {
+                ecarts++;
+            }
+        }
+        soldeClientRepository.marquerVerifies(clientIds, maintenant);
+
+        return new VerificationTranche(clientIds.get(clientIds.size() - 1), tranche.size(), ecarts);
+    }
+
+    private boolean corrigerSiEcart(Long clientId) {
+        SoldeClient solde = soldeClientRepository.findByIdForUpdate(clientId).orElse(null);
+        if (solde == null) {
+            return false;
+        }
+        BigDecimal reference = calculerSoldeReference(clientId);
+        if (solde.getSoldeGlobal().compareTo(reference) == 0) {
+            return false;
+        }
+        log.warn("Dérive du solde global client {}: agrégat={} référence={}",
+                clientId, solde.getSoldeGlobal(), reference);
+        solde.setSoldeGlobal(reference);
+        return true;
+    }
+
+    private BigDecimal calculerSoldeReference(Long clientId) {
+        BigDecimal solde = compteRepository.getSoldeGlobalClient(clientId);
+        return solde != null ? solde : BigDecimal.ZERO;
+    }
+
+    private Map<Long, BigDecimal> calculerSoldesReference(Collection<Long> clientIds) {
+        Map<Long, BigDecimal> soldes = new HashMap<>();
+        for (Object[] ligne : compteRepository.getSoldesGlobauxClients(clientIds)) {
+            soldes.put((Long) ligne[0], ligne[1] != null ? (BigDecimal) ligne[1] : BigDecimal.ZERO);
+        }
+        return soldes;
+    }
+
+    /**
+     * Résultat de la vérification d'une tranche
+     */
+    @Value
+    public static class VerificationTranche {
+        Long dernierClientId;
+        int nombreVerifies;
+        int nombreEcarts;
+    }
+}
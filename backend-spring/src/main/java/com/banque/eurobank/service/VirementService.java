@@ -26,6 +26,7 @@ public class VirementService {
 
     private final CompteRepository compteRepository;
     private final TransactionRepository transactionRepository;
+    private final SoldeClientService soldeClientService;
 
     private static final BigDecimal MONTANT_MAX_VIREMENT_INSTANTANE = new BigDecimal("15000");
     private static final int MAX_VIREMENTS_JOUR = 10;
@@ -68,6 +69,7 @@ public class VirementService {
         BigDecimal nouveauSoldeDisponible = compteEmetteur.getSoldeDisponible().subtract(request.getMontant());
 
         compteRepository.updateSolde(compteEmetteur.getId(), nouveauSolde, nouveauSoldeDisponible, LocalDateTime.now());
+        soldeClientService.appliquerMouvement(compteEmetteur, request.getMontant().negate());
 
         // Création de la transaction
         Transaction transaction = Transaction.builder()
@@ -114,6 +116,7 @@ public class VirementService {
         BigDecimal nouveauSoldeDisponible = compte.getSoldeDisponible().add(montant);
 
         compteRepository.updateSolde(compte.getId(), nouveauSolde, nouveauSoldeDisponible, LocalDateTime.now());
+        soldeClientService.appliquerMouvement(compte, montant);
 
         Transaction transaction = Transaction.builder()
                 .reference(genererReferenceTransaction())
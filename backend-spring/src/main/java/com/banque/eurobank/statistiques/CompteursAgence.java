@@ -0,0 +1,95 @@
+package com.banque.eurobank.statistiques;
+
+import com.banque.eurobank.dto.StatistiquesAgenceDTO;
+import com.banque.eurobank.entity.Compte;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compteurs d'une agence. Les mises à jour sont courtes et sous le verrou de
+ * l'agence : les écritures de deux agences ne se bloquent pas.
+ */
+final class CompteursAgence {
+
+    private static final Compte.TypeCompte[] TYPES = Compte.TypeCompte.values();
+
+    private long clientsActifs;
+    private final long[] comptesParType = new long[TYPES.length];
+    private BigDecimal encours = BigDecimal.ZERO;
+    /** Jour des flux ; les flux d'un jour révolu sont remis à zéro au premier mouvement du jour */
+    private LocalDate jour;
+    private BigDecimal creditsJour = BigDecimal.ZERO;
+    private BigDecimal debitsJour = BigDecimal.ZERO;
+
+    synchronized void ajouterClients(long nombre) {
+        clientsActifs += nombre;
+    }
+
+    synchronized void ajouterComptes(Compte.TypeCompte type, long nombre, BigDecimal soldes) {
+        comptesParType[type.ordinal()] += nombre;
+        encours = encours.add(soldes);
+    }
+
+    /**
+     * Variation de solde d'un compte actif de l'agence
+     */
+    synchronized void appliquerMouvement(LocalDate aujourdhui, BigDecimal credits, BigDecimal debits) {
+        encours = encours.add(credits).subtract(debits);
+        ajouterFlux(aujourdhui, credits, debits);
+    }
+
+    /**
+     * Flux du jour relus en base, sans effet sur l'encours
+     */
+    synchronized void ajouterFlux(LocalDate aujourdhui, BigDecimal credits, BigDecimal debits) {
+        if (!aujourdhui.equals(jour)) {
+            jour = aujourdhui;
+            creditsJour = BigDecimal.ZERO;
+            debitsJour = BigDecimal.ZERO;
+        }
+        creditsJour = creditsJour.add(credits);
+        debitsJour = debitsJour.add(debits);
+    }
+
+    /**
+     * Ajoute les compteurs d'un fragment de reconstruction
+     */
+    synchronized void fusionner(CompteursAgence fragment) {
+        clientsActifs += fragment.clientsActifs;
+        for (int i = 0; i < TYPES.length; i++) {
+            comptesParType[i] += fragment.comptesParType[i];
+        }
+        encours = encours.add(fragment.encours);
+        if (fragment.jour != null) {
+            ajouterFlux(fragment.jour, fragment.creditsJour, fragment.debitsJour);
+        }
+    }
+
+    synchronized StatistiquesAgenceDTO photographier(String agenceCode, LocalDate aujourdhui,
+                                                     LocalDateTime dateReconstruction) {
+        Map<String, Long> parType = new LinkedHashMap<>();
+        long comptesActifs = 0;
+        for (int i = 0; i < TYPES.length; i++) {
+            if (comptesParType[i] != 0) {
+                parType.put(TYPES[i].name(), comptesParType[i]);
+                comptesActifs += comptesParType[i];
+            }
+        }
+        boolean fluxDuJour = aujourdhui.equals(jour);
+        return StatistiquesAgenceDTO.builder()
+                .agenceCode(agenceCode)
+                .clientsActifs(clientsActifs)
+                .comptesActifs(comptesActifs)
+                .comptesParType(parType)
+                .encours(encours)
+                .jour(aujourdhui)
+                .creditsJour(fluxDuJour ? creditsJour : BigDecimal.ZERO)
+                .debitsJour(fluxDuJour ? debitsJour : BigDecimal.ZERO)
+                .dateReconstruction(dateReconstruction)
+                .build();
+    }
+}
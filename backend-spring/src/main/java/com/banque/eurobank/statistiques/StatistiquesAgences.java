@@ -0,0 +1,253 @@
+package com.banque.eurobank.statistiques;
+
+import com.banque.eurobank.batch.EcritureComptable;
+import com.banque.eurobank.batch.ExecuteurPartitions;
+import com.banque.eurobank.batch.MouvementSolde;
+import com.banque.eurobank.batch.PartitionIds;
+import com.banque.eurobank.batch.ResultatPartitions;
+import com.banque.eurobank.dto.StatistiquesAgenceDTO;
+import com.banque.eurobank.entity.Compte;
+import com.banque.eurobank.entity.Transaction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Statistiques par agence tenues en mémoire : clients actifs, comptes actifs par
+ * type, encours et flux du jour.
+ *
+ * Mises à jour après validation de chaque écriture de ce nœud (création de client
+ * ou de compte, import, changement de statut d'un compte, mouvement de solde
+ * unitaire ou de masse), et recalées par
+ * une reconstruction parallèle au démarrage puis périodiquement, qui reprend les
+ * écritures des autres nœuds. Une écriture validée pendant la reconstruction peut
+ * être manquée jusqu'au recalage suivant. Les flux du jour sont des montants bruts
+ * (crédits et débits de chaque opération), comme dans la reconstruction.
+ */
+@Component
+@Slf4j
+public class StatistiquesAgences {
+
+    private static final String TRAITEMENT = "STATISTIQUES_AGENCES";
+
+    /** Clé des clients et comptes sans agence */
+    private static final String SANS_AGENCE = "";
+
+    private static final String SQL_BORNES_CLIENTS = "SELECT MIN(id), MAX(id) FROM EB_CLIENTS";
+
+    private static final String SQL_CLIENTS =
+            "SELECT agence_code, COUNT(*) FROM EB_CLIENTS " +
+            "WHERE id BETWEEN ? AND ? AND statut = 'ACTIF' GROUP BY agence_code";
+
+    private static final String SQL_BORNES_COMPTES = "SELECT MIN(id), MAX(id) FROM EB_COMPTES";
+
+    private static final String SQL_COMPTES =
+            "SELECT agence_code, type_compte, COUNT(*), SUM(solde) FROM EB_COMPTES " +
+            "WHERE id BETWEEN ? AND ? AND statut = 'ACTIF' GROUP BY agence_code, type_compte";
+
+    private static final String SQL_BORNES_OPERATIONS =
+            "SELECT MIN(id), MAX(id) FROM EB_TRANSACTIONS WHERE date_creation >= ?";
+
+    private static final String SQL_OPERATIONS =
+            "SELECT c.agence_code, t.sens, SUM(t.montant) FROM EB_TRANSACTIONS t " +
+            "JOIN EB_COMPTES c ON c.id = t.compte_id " +
+            "WHERE t.id BETWEEN ? AND ? AND t.date_creation >= ? AND t.statut = 'EXECUTEE' " +
+            "AND c.statut = 'ACTIF' GROUP BY c.agence_code, t.sens";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExecuteurPartitions executeurPartitions;
+    private final long taillePartition;
+
+    private volatile Map<String, CompteursAgence> agences = new ConcurrentHashMap<>();
+    private volatile LocalDateTime dateReconstruction;
+
+    public StatistiquesAgences(JdbcTemplate jdbcTemplate,
+                               ExecuteurPartitions executeurPartitions,
+                               @Value("${app.statistiques-agences.taille-partition:50000}") long taillePartition) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.executeurPartitions = executeurPartitions;
+        this.taillePartition = taillePartition;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void charger() {
+        reconstruire();
+    }
+
+    /**
+     * Recalcule les statistiques de toutes les agences en parallèle (clients,
+     * comptes, opérations du jour) puis les substitue aux statistiques courantes ;
+     * celles-ci sont conservées si une partition échoue
+     */
+    @Scheduled(cron = "${app.statistiques-agences.reconstruction-cron:0 15 * * * *}")
+    public synchronized void reconstruire() {
+        long debut = System.currentTimeMillis();
+        LocalDateTime maintenant = LocalDateTime.now();
+        LocalDate aujourdhui = maintenant.toLocalDate();
+        Timestamp debutJour = Timestamp.valueOf(aujourdhui.atStartOfDay());
+
+        ResultatPartitions<Map<String, CompteursAgence>> clients = parPartition(bornes(SQL_BORNES_CLIENTS),
+                partition -> {
+                    Map<String, CompteursAgence> fragment = new HashMap<>();
+                    jdbcTemplate.query(SQL_CLIENTS, rs -> {
+                        compteurs(fragment, rs.getString(1)).ajouterClients(rs.getLong(2));
+                    }, partition.getDebut(), partition.getFin());
+                    return fragment;
+                });
+        ResultatPartitions<Map<String, CompteursAgence>> comptes = parPartition(bornes(SQL_BORNES_COMPTES),
+                partition -> {
+                    Map<String, CompteursAgence> fragment = new HashMap<>();
+                    jdbcTemplate.query(SQL_COMPTES, rs -> {
+                        compteurs(fragment, rs.getString(1)).ajouterComptes(
+                                Compte.TypeCompte.valueOf(rs.getString(2)), rs.getLong(3), rs.getBigDecimal(4));
+                    }, partition.getDebut(), partition.getFin());
+                    return fragment;
+                });
+        ResultatPartitions<Map<String, CompteursAgence>> operations = parPartition(
+                bornes(SQL_BORNES_OPERATIONS, debutJour),
+                partition -> {
+                    Map<String, CompteursAgence> fragment = new HashMap<>();
+                    jdbcTemplate.query(SQL_OPERATIONS, rs -> {
+                        boolean credit = "CREDIT".equals(rs.getString(2));
+                        BigDecimal montant = rs.getBigDecimal(3);
+                        compteurs(fragment, rs.getString(1)).ajouterFlux(aujourdhui,
+                                credit ? montant : BigDecimal.ZERO, credit ? BigDecimal.ZERO : montant);
+                    }, partition.getDebut(), partition.getFin(), debutJour);
+                    return fragment;
+                });
+
+        int echecs = clients.getEchecs().size() + comptes.getEchecs().size() + operations.getEchecs().size();
+        if (echecs > 0) {
+            log.error("Statistiques des agences non reconstruites: {} partition(s) en échec", echecs);
+            return;
+        }
+
+        Map<String, CompteursAgence> reconstruites = new ConcurrentHashMap<>();
+        for (ResultatPartitions<Map<String, CompteursAgence>> resultat : List.of(clients, comptes, operations)) {
+            for (Map<String, CompteursAgence> fragment : resultat.getResultats()) {
+                fragment.forEach((agence, compteurs) -> compteurs(reconstruites, agence).fusionner(compteurs));
+            }
+        }
+        agences = reconstruites;
+        dateReconstruction = maintenant;
+        log.info("Statistiques des agences reconstruites: {} agence(s) en {} ms",
+                reconstruites.size(), System.currentTimeMillis() - debut);
+    }
+
+    /**
+     * Statistiques courantes d'une agence (compteurs à zéro pour une agence inconnue)
+     */
+    public StatistiquesAgenceDTO getStatistiques(String agenceCode) {
+        CompteursAgence compteurs = agences.get(agenceCode);
+        return (compteurs != null ? compteurs : new CompteursAgence())
+                .photographier(agenceCode, LocalDate.now(), dateReconstruction);
+    }
+
+    /**
+     * Création d'un ou plusieurs clients actifs, prise en compte après validation
+     */
+    public void clientsCrees(String agenceCode, long nombre) {
+        apresValidation(() -> compteurs(agences, agenceCode).ajouterClients(nombre));
+    }
+
+    /**
+     * Ouverture d'un ou plusieurs comptes actifs (à solde nul), prise en compte après validation
+     */
+    public void comptesOuverts(String agenceCode, Compte.TypeCompte type, long nombre) {
+        apresValidation(() -> compteurs(agences, agenceCode).ajouterComptes(type, nombre, BigDecimal.ZERO));
+    }
+
+    /**
+     * Compte devenu actif (ou ne l'étant plus) avec son solde, pris en compte après validation
+     */
+    public void statutCompte(String agenceCode, Compte.TypeCompte type, boolean actif, BigDecimal solde) {
+        apresValidation(() -> compteurs(agences, agenceCode).ajouterComptes(type, actif ? 1 : -1,
+                actif ? solde : solde.negate()));
+    }
+
+    /**
+     * Variation de solde d'un compte actif, prise en compte après validation
+     */
+    public void mouvement(String agenceCode, BigDecimal delta) {
+        apresValidation(() -> compteurs(agences, agenceCode).appliquerMouvement(LocalDate.now(),
+                delta.max(BigDecimal.ZERO), delta.min(BigDecimal.ZERO).negate()));
+    }
+
+    /**
+     * Variations de solde d'un traitement de masse (comptes actifs) : l'encours
+     * varie du solde net de chaque compte, les flux du montant de chaque écriture.
+     * Cumulées par agence avant d'être prises en compte après validation.
+     *
+     * @param ecritures écritures du traitement ; celles d'un compte sans mouvement
+     *                  (compte non actif) sont ignorées
+     */
+    public void mouvements(List<MouvementSolde> mouvements, List<EcritureComptable> ecritures) {
+        Map<Long, String> agenceParCompte = new HashMap<>();
+        for (MouvementSolde m : mouvements) {
+            agenceParCompte.put(m.getCompteId(), cle(m.getAgenceCode()));
+        }
+        Map<String, BigDecimal[]> parAgence = new HashMap<>();
+        for (EcritureComptable e : ecritures) {
+            String agenceCode = agenceParCompte.get(e.getCompteId());
+            if (agenceCode == null) {
+                continue;
+            }
+            BigDecimal[] flux = parAgence.computeIfAbsent(agenceCode,
+                    agence -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            int sens = e.getSens() == Transaction.SensOperation.CREDIT ? 0 : 1;
+            flux[sens] = flux[sens].add(e.getMontant());
+        }
+        apresValidation(() -> {
+            LocalDate aujourdhui = LocalDate.now();
+            parAgence.forEach((agence, flux) ->
+                    compteurs(agences, agence).appliquerMouvement(aujourdhui, flux[0], flux[1]));
+        });
+    }
+
+    private void apresValidation(Runnable miseAJour) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    miseAJour.run();
+                }
+            });
+        } else {
+            miseAJour.run();
+        }
+    }
+
+    private ResultatPartitions<Map<String, CompteursAgence>> parPartition(
+            Long[] bornes, Function<PartitionIds, Map<String, CompteursAgence>> lecture) {
+        return executeurPartitions.executer(TRAITEMENT, bornes[0], bornes[1], taillePartition, lecture);
+    }
+
+    private Long[] bornes(String sql, Object... parametres) {
+        return jdbcTemplate.queryForObject(sql, (rs, i) -> new Long[]{
+                rs.getObject(1, Long.class), rs.getObject(2, Long.class)}, parametres);
+    }
+
+    private static CompteursAgence compteurs(Map<String, CompteursAgence> agences, String agenceCode) {
+        return agences.computeIfAbsent(cle(agenceCode), agence -> new CompteursAgence());
+    }
+
+    private static String cle(String agenceCode) {
+        return agenceCode != null ? agenceCode : SANS_AGENCE;
+    }
+}
@@ -0,0 +1,120 @@
+package com.banque.eurobank;
+
+import com.banque.eurobank.entity.*;
+import com.banque.eurobank.repository.*;
+import com.banque.eurobank.service.NumerotationService;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.UUID;
+
+/**
+ * Jeu de données des tests d'intégration : le profil test part d'une base vide,
+ * chaque test crée ses clients, comptes, cartes et opérations avec des numéros
+ * attribués par la numérotation, donc uniques d'un test à l'autre
+ */
+@TestComponent
+@RequiredArgsConstructor
+public class DonneesTest {
+
+    private final ClientRepository clientRepository;
+    private final CompteRepository compteRepository;
+    private final CarteRepository carteRepository;
+    private final TransactionRepository transactionRepository;
+    private final UtilisateurRepository utilisateurRepository;
+    private final NumerotationService numerotationService;
+    private final PasswordEncoder passwordEncoder;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public Client client() {
+        String numero = numerotationService.prochainNumeroClient();
+        return clientRepository.save(Client.builder()
+                .numeroClient(numero)
+                .civilite("M.")
+                .nom("DURAND")
+                .prenom("Paul")
+                .email("paul.durand." + numero.toLowerCase() + "@example.fr")
+                .statut(Client.StatutClient.ACTIF)
+                .segment(Client.SegmentClient.PARTICULIER)
+                .agenceCode("00001")
+                .build());
+    }
+
+    public Compte compte(Client client, String solde) {
+        String numero = numerotationService.prochainNumeroCompte();
+        return compteRepository.save(Compte.builder()
+                .numeroCompte(numero)
+                .iban("FR763000100001" + numero)
+                .bic("EABORFRPP")
+                .intitule("Compte Courant")
+                .typeCompte(Compte.TypeCompte.COURANT)
+                .solde(new BigDecimal(solde))
+                .soldeDisponible(new BigDecimal(solde))
+                .decouvertAutorise(new BigDecimal("500.00"))
+                .statut(Compte.StatutCompte.ACTIF)
+                .dateOuverture(LocalDate.of(2022, 3, 1))
+                .agenceCode("00001")
+                .client(client)
+                .build());
+    }
+
+    public Carte carte(Compte compte) {
+        return carteRepository.save(Carte.builder()
+                .numeroCarteMasque("4970 10XX XXXX 1234")
+                .numeroCarteHash(UUID.randomUUID().toString().replace("-", "")
+                        + UUID.randomUUID().toString().replace("-", ""))
+                .titulaire("PAUL DURAND")
+                .typeCarte(Carte.TypeCarte.VISA_CLASSIC)
+                .reseau(Carte.ReseauCarte.VISA)
+                .dateExpiration(LocalDate.now().plusYears(3))
+                .dateEmission(LocalDate.now())
+                .plafondPaiementJour(new BigDecimal("1500.00"))
+                .plafondPaiementMois(new BigDecimal("3000.00"))
+                .plafondRetraitJour(new BigDecimal("500.00"))
+                .plafondRetraitSemaine(new BigDecimal("1000.00"))
+                .compte(compte)
+                .build());
+    }
+
+    public Transaction operation(Compte compte, String montant, LocalDate date) {
+        BigDecimal valeur = new BigDecimal(montant);
+        return transactionRepository.save(Transaction.builder()
+                .reference("T" + UUID.randomUUID().toString().replace("-", "").substring(0, 20))
+                .typeOperation(Transaction.TypeOperation.PAIEMENT_CARTE)
+                .sens(valeur.signum() < 0 ? Transaction.SensOperation.DEBIT : Transaction.SensOperation.CREDIT)
+                .montant(valeur.abs())
+                .libelle("Paiement carte")
+                .dateOperation(date)
+                .dateValeur(date)
+                .compte(compte)
+                .build());
+    }
+
+    /**
+     * Utilisateur actif dont le mot de passe est haché au coût courant
+     */
+    public Utilisateur utilisateur(Client client, String motDePasse) {
+        return utilisateurRepository.save(Utilisateur.builder()
+                .login("u" + numerotationService.prochainNumeroClient().substring(1))
+                .motDePasseHash(passwordEncoder.encode(motDePasse))
+                .roles(EnumSet.of(Utilisateur.Role.ROLE_CLIENT))
+                .typeUtilisateur(Utilisateur.TypeUtilisateur.CLIENT)
+                .premiereConnexion(false)
+                .client(client)
+                .build());
+    }
+
+    /**
+     * Statistiques Hibernate (activées par le profil test), tous threads confondus
+     */
+    public Statistics statistiques() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
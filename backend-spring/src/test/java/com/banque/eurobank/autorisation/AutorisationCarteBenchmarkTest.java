@@ -0,0 +1,193 @@
+package com.banque.eurobank.autorisation;
+
+import com.banque.eurobank.DonneesTest;
+import com.banque.eurobank.dto.DemandeAutorisationDTO;
+import com.banque.eurobank.dto.ReponseAutorisationDTO;
+import com.banque.eurobank.entity.Compte;
+import com.banque.eurobank.entity.Transaction;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Banc d'essai de la décision d'autorisation sur le registre des cartes : débit
+ * en boucle fermée, puis temps de service à débit imposé. Les mesures sont
+ * journalisées sans être vérifiées, elles dépendent de la machine ; seule
+ * l'absence de refus l'est. La latence depuis l'instant prévu de chaque demande
+ * comprend le réveil des threads du banc (plusieurs millisecondes au p99 sur un
+ * seul cœur).
+ *
+ * Hors de la suite par défaut : mvn test -Pbenchmark.
+ *
+ * L'écriture différée des cumuls est espacée pendant la mesure : la base H2 du
+ * profil test tourne dans la JVM du banc, et ses écritures (ramasse-miettes
+ * compris) seraient comptées dans la latence des autorisations. La décision met
+ * toujours les cartes en file d'écriture.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "app.autorisations.ecriture-ms=60000")
+@ActiveProfiles("test")
+@Import(DonneesTest.class)
+@Slf4j
+class AutorisationCarteBenchmarkTest {
+
+    private static final int THREADS = 4;
+    private static final int CARTES = 1_000;
+    private static final int DEBIT_IMPOSE = 5_000;
+    private static final int DUREE_IMPOSEE_S = 5;
+    private static final BigDecimal MONTANT = new BigDecimal("1.00");
+
+    @Autowired
+    private AutorisationCarteService autorisationCarteService;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    @Test
+    void debitEtLatenceSansRefus() throws Exception {
+        List<DemandeAutorisationDTO> demandes = new ArrayList<>(CARTES);
+        Compte compte = donnees.compte(donnees.client(), "100000.00");
+        for (int i = 0; i < CARTES; i++) {
+            demandes.add(demande(donnees.carte(compte).getNumeroCarteHash()));
+        }
+
+        // Chargement des cartes dans le registre et compilation du chemin de décision
+        lancer(demandes, 20_000, 0);
+
+        Mesure boucleFermee = lancer(demandes, 50_000, 0);
+        Histogram latences = boucleFermee.latences;
+        double parSeconde = latences.getTotalCount() * 1e9 / boucleFermee.dureeNanos;
+        log.info("Autorisations en boucle fermée: {} sur {} threads, {} /s, p50 {} µs, p99 {} µs, max {} µs",
+                latences.getTotalCount(), THREADS, Math.round(parSeconde), micro(latences, 50),
+                micro(latences, 99), latences.getMaxValue() / 1_000);
+
+        long[] gcAvant = collectes();
+        Mesure imposee = lancer(demandes, DEBIT_IMPOSE / THREADS * DUREE_IMPOSEE_S,
+                TimeUnit.SECONDS.toNanos(1) * THREADS / DEBIT_IMPOSE);
+        latences = imposee.latences;
+        long[] gcApres = collectes();
+        log.info("GC pendant la mesure à débit imposé: {} collecte(s), {} ms",
+                gcApres[0] - gcAvant[0], gcApres[1] - gcAvant[1]);
+        log.info("Autorisations à {} /s imposées: {} en {} ms, temps de service p50 {} µs, p99 {} µs, "
+                        + "p99.9 {} µs, max {} µs ; depuis l'instant prévu p50 {} µs, p99 {} µs, max {} µs",
+                DEBIT_IMPOSE, latences.getTotalCount(), imposee.dureeNanos / 1_000_000,
+                micro(imposee.service, 50), micro(imposee.service, 99), micro(imposee.service, 99.9),
+                imposee.service.getMaxValue() / 1_000, micro(latences, 50), micro(latences, 99),
+                latences.getMaxValue() / 1_000);
+
+        assertThat(boucleFermee.refus + imposee.refus).isZero();
+    }
+
+    /**
+     * Chaque thread envoie parThread demandes, sur les cartes à tour de rôle ; avec un
+     * intervalle, la demande n est prévue à départ + n × intervalle et sa latence court
+     * depuis cet instant
+     */
+    private Mesure lancer(List<DemandeAutorisationDTO> demandes, int parThread, long intervalleNanos)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch depart = new CountDownLatch(1);
+            List<Future<Mesure>> mesures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int premier = t;
+                mesures.add(executor.submit(() -> {
+                    Histogram latences = new Histogram(TimeUnit.SECONDS.toNanos(10), 3);
+                    Histogram service = new Histogram(TimeUnit.SECONDS.toNanos(10), 3);
+                    long refus = 0;
+                    depart.await();
+                    long debut = System.nanoTime() + premier * intervalleNanos / THREADS;
+                    for (int i = 0; i < parThread; i++) {
+                        long prevu = intervalleNanos == 0 ? System.nanoTime() : debut + i * intervalleNanos;
+                        long attente = prevu - System.nanoTime();
+                        if (attente > 0) {
+                            LockSupport.parkNanos(attente);
+                        }
+                        long envoi = System.nanoTime();
+                        ReponseAutorisationDTO reponse = autorisationCarteService.autoriser(
+                                demandes.get((premier + i * THREADS) % demandes.size()));
+                        long fin = System.nanoTime();
+                        latences.recordValue(fin - prevu);
+                        service.recordValue(fin - envoi);
+                        if (!reponse.isAutorisee()) {
+                            refus++;
+                        }
+                    }
+                    return new Mesure(latences, service, refus, 0);
+                }));
+            }
+            long debut = System.nanoTime();
+            depart.countDown();
+            Histogram latences = new Histogram(TimeUnit.SECONDS.toNanos(10), 3);
+            Histogram service = new Histogram(TimeUnit.SECONDS.toNanos(10), 3);
+            long refus = 0;
+            for (Future<Mesure> mesure : mesures) {
+                latences.add(mesure.get().latences);
+                service.add(mesure.get().service);
+                refus += mesure.get().refus;
+            }
+            return new Mesure(latences, service, refus, System.nanoTime() - debut);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static DemandeAutorisationDTO demande(String numeroCarteHash) {
+        return DemandeAutorisationDTO.builder()
+                .numeroCarteHash(numeroCarteHash)
+                .typeOperation(Transaction.TypeOperation.PAIEMENT_CARTE)
+                .canal(CanalAutorisation.PROXIMITE)
+                .montant(MONTANT)
+                .paysOperation("FRA")
+                .nomCommercant("BOULANGERIE DU MARCHE")
+                .mccCode("5411")
+                .build();
+    }
+
+    private static long[] collectes() {
+        long nombre = 0;
+        long duree = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            nombre += gc.getCollectionCount();
+            duree += gc.getCollectionTime();
+        }
+        return new long[]{nombre, duree};
+    }
+
+    private static long micro(Histogram latences, double percentile) {
+        return latences.getValueAtPercentile(percentile) / 1_000;
+    }
+
+    private static final class Mesure {
+        private final Histogram latences;
+        private final Histogram service;
+        private final long refus;
+        private final long dureeNanos;
+
+        private Mesure(Histogram latences, Histogram service, long refus, long dureeNanos) {
+            this.latences = latences;
+            this.service = service;
+            this.refus = refus;
+            this.dureeNanos = dureeNanos;
+        }
+    }
+}
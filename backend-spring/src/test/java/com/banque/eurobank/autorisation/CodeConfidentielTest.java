@@ -0,0 +1,81 @@
+package com.banque.eurobank.autorisation;
+
+import com.banque.eurobank.DonneesTest;
+import com.banque.eurobank.dto.DemandeAutorisationDTO;
+import com.banque.eurobank.entity.Carte;
+import com.banque.eurobank.entity.Transaction;
+import com.banque.eurobank.repository.CarteRepository;
+import com.banque.eurobank.service.CarteService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Code confidentiel attribué par CarteService puis vérifié à l'autorisation :
+ * obligatoire au DAB, empreinte calculée avec la clé du serveur
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DonneesTest.class)
+class CodeConfidentielTest {
+
+    @Autowired
+    private AutorisationCarteService autorisationCarteService;
+
+    @Autowired
+    private CarteService carteService;
+
+    @Autowired
+    private CarteRepository carteRepository;
+
+    @Autowired
+    private EmpreinteCode empreinteCode;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    @Test
+    void retraitAvecCodeAttribue() {
+        Carte carte = donnees.carte(donnees.compte(donnees.client(), "1000.00"));
+        carteService.definirCode(carte.getId(), "4821");
+
+        String empreinte = carteRepository.findById(carte.getId()).orElseThrow().getCodePinHash();
+        assertThat(empreinte).isEqualTo(empreinteCode.hexadecimal(carte.getNumeroCarteHash(), "4821"));
+
+        assertThat(retrait(carte, null)).isEqualTo(CodeReponseAutorisation.CODE_ERRONE.getCode());
+        assertThat(retrait(carte, "1111")).isEqualTo(CodeReponseAutorisation.CODE_ERRONE.getCode());
+        assertThat(retrait(carte, "4821")).isEqualTo(CodeReponseAutorisation.APPROUVEE.getCode());
+    }
+
+    @Test
+    void nouveauCodeRemetLesEssaisAZero() {
+        Carte carte = donnees.carte(donnees.compte(donnees.client(), "1000.00"));
+        carteService.definirCode(carte.getId(), "4821");
+        retrait(carte, "0000");
+        retrait(carte, "0000");
+
+        carteService.definirCode(carte.getId(), "7305");
+
+        // Sans remise à zéro, le deuxième essai erroné bloquerait la carte
+        assertThat(retrait(carte, "4821")).isEqualTo(CodeReponseAutorisation.CODE_ERRONE.getCode());
+        assertThat(retrait(carte, "0000")).isEqualTo(CodeReponseAutorisation.CODE_ERRONE.getCode());
+        assertThat(retrait(carte, "7305")).isEqualTo(CodeReponseAutorisation.APPROUVEE.getCode());
+    }
+
+    private String retrait(Carte carte, String code) {
+        return autorisationCarteService.autoriser(DemandeAutorisationDTO.builder()
+                .numeroCarteHash(carte.getNumeroCarteHash())
+                .typeOperation(Transaction.TypeOperation.RETRAIT_DAB)
+                .canal(CanalAutorisation.DAB)
+                .montant(new BigDecimal("20.00"))
+                .paysOperation("FRA")
+                .codePin(code)
+                .build()).getCodeReponse();
+    }
+}
@@ -0,0 +1,135 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.DonneesTest;
+import com.banque.eurobank.dto.RapportCompensationDTO;
+import com.banque.eurobank.dto.StatistiquesAgenceDTO;
+import com.banque.eurobank.entity.Carte;
+import com.banque.eurobank.entity.Client;
+import com.banque.eurobank.entity.Compte;
+import com.banque.eurobank.repository.CompteRepository;
+import com.banque.eurobank.repository.SuiviPartitionRepository;
+import com.banque.eurobank.statistiques.StatistiquesAgences;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Intégration de bout en bout d'un fichier de compensation généré : opérations
+ * passées, écarts comptés, soldes chaînés, statistiques d'agence tenues à jour
+ * comme à la reconstruction, et reprise sans double passage
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DonneesTest.class)
+@Slf4j
+class CompensationCartesBatchTest {
+
+    private static final int COMPTES = 20;
+    private static final int CARTES_PAR_COMPTE = 10;
+    private static final long ENREGISTREMENTS = 20_000;
+    private static final long TAILLE_PARTITION = 2_000;
+
+    @TempDir
+    Path repertoire;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ExecuteurPartitions executeurPartitions;
+
+    @Autowired
+    private EcrituresJdbc ecrituresJdbc;
+
+    @Autowired
+    private SuiviPartitionRepository suiviPartitionRepository;
+
+    @Autowired
+    private CompteRepository compteRepository;
+
+    @Autowired
+    private StatistiquesAgences statistiquesAgences;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    @Test
+    void fichierIntegreUneSeuleFois() throws Exception {
+        Client client = donnees.client();
+        List<Long> compteIds = new ArrayList<>();
+        List<String> hashes = new ArrayList<>();
+        for (int i = 0; i < COMPTES; i++) {
+            Compte compte = donnees.compte(client, "10000.00");
+            compteIds.add(compte.getId());
+            for (int j = 0; j < CARTES_PAR_COMPTE; j++) {
+                hashes.add(donnees.carte(compte).getNumeroCarteHash());
+            }
+        }
+        BigDecimal soldesAvant = soldes(compteIds);
+
+        String nom = "CB_" + client.getNumeroClient() + ".clr";
+        GenerateurFichierCompensation.Contenu contenu = new GenerateurFichierCompensation(hashes)
+                .inconnues(0.02).rejets(0.005).doublons(0.01).doublonsDistants(0.001)
+                .ecrire(repertoire.resolve(nom), Carte.ReseauCarte.CB, LocalDate.now(),
+                        client.getNumeroClient().substring(8), ENREGISTREMENTS);
+        CompensationCartesBatch batch = new CompensationCartesBatch(jdbcTemplate, transactionManager,
+                executeurPartitions, ecrituresJdbc, suiviPartitionRepository, TAILLE_PARTITION, repertoire.toString());
+
+        statistiquesAgences.reconstruire();
+        long debut = System.nanoTime();
+        RapportCompensationDTO rapport = batch.integrer(nom);
+        long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+        log.info("Compensation de bout en bout: {} enregistrements, {} opérations passées, en {} ms ({} /s)",
+                ENREGISTREMENTS, rapport.getOperationsPassees(), dureeMs,
+                ENREGISTREMENTS * 1_000 / Math.max(1, dureeMs));
+
+        assertThat(rapport.getEnregistrements()).isEqualTo(ENREGISTREMENTS);
+        assertThat(rapport.getOperationsPassees()).isEqualTo(contenu.passees);
+        assertThat(rapport.getCartesInconnues()).isEqualTo(contenu.inconnues);
+        assertThat(rapport.getRejetsFormat()).isEqualTo(contenu.rejets);
+        assertThat(rapport.getDoublons()).isEqualTo(contenu.doublons);
+        assertThat(rapport.getBilan().getPartitionsEnEchec()).isEmpty();
+        assertThat(soldes(compteIds).subtract(soldesAvant)).isEqualByComparingTo(BigDecimal.valueOf(contenu.montantNet, 2));
+        Path traite = repertoire.resolve("traites").resolve(nom);
+        assertThat(traite).exists();
+
+        // Flux bruts par opération, au fil de l'eau comme à la reconstruction
+        String agence = client.getAgenceCode();
+        StatistiquesAgenceDTO courantes = statistiquesAgences.getStatistiques(agence);
+        statistiquesAgences.reconstruire();
+        StatistiquesAgenceDTO reconstruites = statistiquesAgences.getStatistiques(agence);
+        assertThat(courantes.getCreditsJour()).isEqualByComparingTo(reconstruites.getCreditsJour());
+        assertThat(courantes.getDebitsJour()).isEqualByComparingTo(reconstruites.getDebitsJour());
+        assertThat(courantes.getEncours()).isEqualByComparingTo(reconstruites.getEncours());
+
+        // Fichier déposé une seconde fois : toutes ses partitions sont déjà enregistrées
+        Files.move(traite, repertoire.resolve(nom));
+        RapportCompensationDTO relance = batch.integrer(nom);
+        assertThat(relance.getOperationsPassees()).isZero();
+        assertThat(soldes(compteIds).subtract(soldesAvant)).isEqualByComparingTo(BigDecimal.valueOf(contenu.montantNet, 2));
+    }
+
+    private BigDecimal soldes(List<Long> compteIds) {
+        return compteRepository.findAllById(compteIds).stream()
+                .map(Compte::getSolde)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -0,0 +1,109 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.entity.Carte;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Banc d'essai de la lecture des fichiers de compensation : projection par
+ * partitions, contrôle des enregistrements et rapprochement des cartes par
+ * l'index, sur un seul fil et sans base. Le débit est journalisé sans être
+ * vérifié, seule la répartition des enregistrements l'est.
+ *
+ * Hors de la suite par défaut : mvn test -Pbenchmark. Le banc de référence
+ * (10 millions d'enregistrements, 1,5 Go, contre 1 million de cartes) se relance avec
+ * -Dcompensation.enregistrements=10000000 -Dcompensation.cartes=1000000.
+ */
+@Tag("benchmark")
+@Slf4j
+class CompensationCartesBenchmarkTest {
+
+    private static final long ENREGISTREMENTS = Long.getLong("compensation.enregistrements", 1_000_000);
+    private static final int CARTES = Integer.getInteger("compensation.cartes", 100_000);
+    private static final long TAILLE_PARTITION = 20_000;
+    private static final int MESURES = 5;
+
+    @TempDir
+    Path repertoire;
+
+    @Test
+    void debitDeLectureEtRapprochement() throws Exception {
+        SplittableRandom aleatoire = new SplittableRandom(7);
+        List<String> hashes = new ArrayList<>(CARTES);
+        IndexCartes index = new IndexCartes(CARTES);
+        for (int i = 0; i < CARTES; i++) {
+            String hash = GenerateurFichierCompensation.hashAleatoire(aleatoire);
+            hashes.add(hash);
+            index.ajouter(hash, i + 1, i / 3 + 1, "4970 10XX XXXX " + String.format("%04d", i % 10_000));
+        }
+
+        Path chemin = repertoire.resolve("VISA_BENCH.clr");
+        long debut = System.nanoTime();
+        GenerateurFichierCompensation.Contenu contenu = new GenerateurFichierCompensation(hashes)
+                .inconnues(0.01).rejets(0.001).doublons(0.001)
+                .ecrire(chemin, Carte.ReseauCarte.VISA, LocalDate.now(), "000001", ENREGISTREMENTS);
+        long octets = Files.size(chemin);
+        log.info("Fichier de compensation généré: {} enregistrements, {} Mo, en {} ms",
+                ENREGISTREMENTS, octets >> 20, (System.nanoTime() - debut) / 1_000_000);
+
+        try (FichierCompensation fichier = FichierCompensation.ouvrir(chemin)) {
+            List<PartitionIds> partitions = ExecuteurPartitions.decouper(0, fichier.getNombreDetails() - 1,
+                    TAILLE_PARTITION);
+            long[] comptes = lire(fichier, partitions, index);
+            assertThat(comptes[1]).isEqualTo(contenu.inconnues);
+            assertThat(comptes[2]).isEqualTo(contenu.rejets);
+            assertThat(comptes[0]).isEqualTo(contenu.passees + contenu.doublons);
+
+            double[] debits = new double[MESURES];
+            for (int m = 0; m < MESURES; m++) {
+                long t0 = System.nanoTime();
+                lire(fichier, partitions, index);
+                debits[m] = octets / 1e6 / ((System.nanoTime() - t0) / 1e9);
+            }
+            Arrays.sort(debits);
+            double median = debits[MESURES / 2];
+            log.info("Lecture et rapprochement: {} Mo/s en médiane ({} à {}), {} enregistrements/s, {} cartes indexées",
+                    Math.round(median), Math.round(debits[0]), Math.round(debits[MESURES - 1]),
+                    Math.round(median * 1e6 / FichierCompensation.TAILLE_ENREGISTREMENT), index.taille());
+        }
+    }
+
+    /**
+     * Parcours d'intégration sans écriture : chaque partition est projetée, ses
+     * enregistrements contrôlés et rapprochés des cartes
+     *
+     * @return {rapprochés, cartes inconnues, rejets de format}
+     */
+    private static long[] lire(FichierCompensation fichier, List<PartitionIds> partitions, IndexCartes index)
+            throws Exception {
+        long[] comptes = new long[3];
+        for (PartitionIds partition : partitions) {
+            MappedByteBuffer tampon = fichier.projeter(partition);
+            int nombre = (int) (partition.getFin() - partition.getDebut() + 1);
+            for (int i = 0; i < nombre; i++) {
+                int base = i * FichierCompensation.TAILLE_ENREGISTREMENT;
+                if (!CompensationCartesBatch.conforme(tampon, base)) {
+                    comptes[2]++;
+                } else if (index.chercher(tampon, base + FichierCompensation.POS_HASH) < 0) {
+                    comptes[1]++;
+                } else {
+                    comptes[0]++;
+                }
+            }
+        }
+        return comptes;
+    }
+}
@@ -0,0 +1,103 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.DonneesTest;
+import com.banque.eurobank.autorisation.EmpreinteCode;
+import com.banque.eurobank.dto.RapportCycleVieCartesDTO;
+import com.banque.eurobank.entity.Carte;
+import com.banque.eurobank.repository.CarteRepository;
+import com.banque.eurobank.repository.SuiviPartitionRepository;
+import com.banque.eurobank.service.NumerotationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Carte échue un jour sans traitement renouvelée au traitement suivant, et
+ * fragment d'une tentative annulée jamais repris dans le fichier de fabrication
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DonneesTest.class)
+class CycleVieCartesBatchTest {
+
+    @TempDir
+    Path repertoire;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ExecuteurPartitions executeurPartitions;
+
+    @Autowired
+    private SuiviPartitionRepository suiviPartitionRepository;
+
+    @Autowired
+    private NumerotationService numerotationService;
+
+    @Autowired
+    private EmpreinteCode empreinteCode;
+
+    @Autowired
+    private CarteRepository carteRepository;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    @Test
+    void carteEchueRenouveleeSansFragmentPerime() throws Exception {
+        LocalDate jour = LocalDate.now();
+        Carte carte = donnees.carte(donnees.compte(donnees.client(), "100.00"));
+        jdbcTemplate.update("UPDATE EB_CARTES SET date_expiration = ? WHERE id = ?",
+                Date.valueOf(jour.minusDays(10)), carte.getId());
+
+        // Partition unique : le fragment d'une tentative annulée est à son nom
+        long taillePartition = 1_000_000_000L;
+        Long premier = jdbcTemplate.queryForObject("SELECT MIN(id) FROM EB_CARTES", Long.class);
+        Path fragments = repertoire.resolve("FAB_" + jour.format(DateTimeFormatter.BASIC_ISO_DATE) + ".parts");
+        Path perime = FichierFabricationCartes.temporaire(FichierFabricationCartes.fragment(fragments,
+                new PartitionIds(premier, premier + taillePartition - 1)));
+        Files.createDirectories(fragments);
+        Files.write(perime, ("D" + "9".repeat(FichierFabricationCartes.TAILLE_ENREGISTREMENT - 2) + "\n")
+                .getBytes(StandardCharsets.US_ASCII));
+
+        RapportCycleVieCartesDTO rapport = new CycleVieCartesBatch(jdbcTemplate, transactionManager,
+                entityManagerFactory, executeurPartitions, suiviPartitionRepository, numerotationService,
+                empreinteCode, taillePartition, 45, 3, repertoire.toString(), "497010", "513100", "497011")
+                .executer(jour);
+
+        assertThat(carteRepository.findById(carte.getId()).orElseThrow().getStatut())
+                .isEqualTo(Carte.StatutCarte.EXPIREE);
+        Long remplacante = jdbcTemplate.queryForObject(
+                "SELECT id FROM EB_CARTES WHERE carte_precedente_id = ?", Long.class, carte.getId());
+        assertThat(carteRepository.findById(remplacante).orElseThrow().getDateExpiration())
+                .isAfter(jour.plusYears(2));
+
+        List<String> lignes = Files.readAllLines(Paths.get(rapport.getFichierFabrication()), StandardCharsets.US_ASCII);
+        assertThat(lignes).noneMatch(ligne -> ligne.startsWith("D999"));
+        assertThat(lignes).anyMatch(ligne -> ligne.startsWith(String.format("D%012d", remplacante)));
+    }
+}
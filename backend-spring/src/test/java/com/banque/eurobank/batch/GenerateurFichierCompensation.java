@@ -0,0 +1,244 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.entity.Carte;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Générateur de fichiers de compensation synthétiques au format de
+ * {@link FichierCompensation}, reproductible à graine égale.
+ *
+ * Les détails portent sur les cartes données, avec une part de cartes inconnues,
+ * d'enregistrements mal formés et de doublons. Un doublon reprend l'enregistrement
+ * précédent, valide, à une position impaire : il reste dans la même partition pour
+ * toute taille de partition paire. Un doublon distant reprend le premier
+ * enregistrement valide du fichier, dans une partition ultérieure.
+ */
+final class GenerateurFichierCompensation {
+
+    private static final int TAILLE_TAMPON = 1 << 20;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[][] COMMERCANTS = {
+            texte("CARREFOUR MARKET", 25), texte("SNCF VOYAGEURS", 25), texte("BOULANGERIE DU MARCHE", 25),
+            texte("AMAZON EU SARL", 25), texte("", 25)
+    };
+    private static final String[] MCC = {"5411", "4112", "5462", "5999", "6011"};
+
+    private final byte[][] cartes;
+    private double partInconnues;
+    private double partRejets;
+    private double partDoublons;
+    private double partDoublonsDistants;
+    private long graine = 42;
+
+    GenerateurFichierCompensation(List<String> hashes) {
+        this.cartes = new byte[hashes.size()][];
+        for (int i = 0; i < cartes.length; i++) {
+            cartes[i] = hashes.get(i).getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    GenerateurFichierCompensation inconnues(double part) {
+        this.partInconnues = part;
+        return this;
+    }
+
+    GenerateurFichierCompensation rejets(double part) {
+        this.partRejets = part;
+        return this;
+    }
+
+    GenerateurFichierCompensation doublons(double part) {
+        this.partDoublons = part;
+        return this;
+    }
+
+    GenerateurFichierCompensation doublonsDistants(double part) {
+        this.partDoublonsDistants = part;
+        return this;
+    }
+
+    GenerateurFichierCompensation graine(long graine) {
+        this.graine = graine;
+        return this;
+    }
+
+    /**
+     * Écrit l'en-tête, les détails et l'enregistrement de fin
+     *
+     * @return répartition attendue des détails
+     */
+    Contenu ecrire(Path fichier, Carte.ReseauCarte reseau, LocalDate dateCompensation, String numero,
+                   long nombreDetails) throws IOException {
+        SplittableRandom aleatoire = new SplittableRandom(graine);
+        Contenu contenu = new Contenu(nombreDetails);
+        byte[] enregistrement = new byte[FichierCompensation.TAILLE_ENREGISTREMENT];
+        byte[] precedent = new byte[FichierCompensation.TAILLE_ENREGISTREMENT];
+        boolean precedentValide = false;
+        byte[] premier = null;
+        byte[] inconnu = new byte[64];
+        long[] dates = new long[4];
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = dateNumerique(dateCompensation.minusDays(i));
+        }
+
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer tampon = ByteBuffer.allocate(TAILLE_TAMPON);
+
+            Arrays.fill(enregistrement, (byte) ' ');
+            enregistrement[0] = 'H';
+            copier(texte(reseau.name(), 10), enregistrement, 1);
+            copier(dateCompensation.format(DateTimeFormatter.BASIC_ISO_DATE).getBytes(StandardCharsets.US_ASCII),
+                    enregistrement, 11);
+            copier(texte(numero, 6), enregistrement, 19);
+            enregistrement[enregistrement.length - 1] = '\n';
+            ajouter(canal, tampon, enregistrement);
+
+            for (long n = 0; n < nombreDetails; n++) {
+                if (n % 2 == 1 && precedentValide && aleatoire.nextDouble() < partDoublons) {
+                    ajouter(canal, tampon, precedent);
+                    contenu.doublons++;
+                    precedentValide = false;
+                    continue;
+                }
+                if (premier != null && n >= nombreDetails / 2 && aleatoire.nextDouble() < partDoublonsDistants) {
+                    ajouter(canal, tampon, premier);
+                    contenu.doublons++;
+                    precedentValide = false;
+                    continue;
+                }
+
+                Arrays.fill(enregistrement, (byte) ' ');
+                enregistrement[0] = 'D';
+                chiffres(n, enregistrement, FichierCompensation.POS_ARN, FichierCompensation.LONGUEUR_ARN);
+                boolean connue = aleatoire.nextDouble() >= partInconnues;
+                if (connue) {
+                    copier(cartes[aleatoire.nextInt(cartes.length)], enregistrement, FichierCompensation.POS_HASH);
+                } else {
+                    for (int i = 0; i < inconnu.length; i++) {
+                        inconnu[i] = HEX[aleatoire.nextInt(16)];
+                    }
+                    copier(inconnu, enregistrement, FichierCompensation.POS_HASH);
+                }
+                boolean retrait = aleatoire.nextInt(10) == 0;
+                boolean credit = !retrait && aleatoire.nextInt(20) == 0;
+                long montant = 1 + aleatoire.nextInt(retrait ? 50_000 : 20_000);
+                enregistrement[FichierCompensation.POS_TYPE] = retrait
+                        ? FichierCompensation.TYPE_RETRAIT : FichierCompensation.TYPE_PAIEMENT;
+                enregistrement[FichierCompensation.POS_SENS] = credit ? FichierCompensation.SENS_CREDIT : (byte) 'D';
+                chiffres(montant, enregistrement, FichierCompensation.POS_MONTANT, 12);
+                chiffres(dates[aleatoire.nextInt(dates.length)], enregistrement, FichierCompensation.POS_DATE, 8);
+                int commerce = aleatoire.nextInt(COMMERCANTS.length);
+                copier(MCC[commerce].getBytes(StandardCharsets.US_ASCII), enregistrement, FichierCompensation.POS_MCC);
+                copier("FRA".getBytes(StandardCharsets.US_ASCII), enregistrement, FichierCompensation.POS_PAYS);
+                copier(COMMERCANTS[commerce], enregistrement, FichierCompensation.POS_COMMERCANT);
+
+                boolean rejete = aleatoire.nextDouble() < partRejets;
+                if (rejete) {
+                    enregistrement[FichierCompensation.POS_MONTANT + 5] = 'X';
+                    contenu.rejets++;
+                } else if (!connue) {
+                    contenu.inconnues++;
+                } else {
+                    contenu.passees++;
+                    contenu.montantNet += credit ? montant : -montant;
+                }
+                enregistrement[enregistrement.length - 1] = '\n';
+                ajouter(canal, tampon, enregistrement);
+
+                precedentValide = connue && !rejete;
+                if (precedentValide) {
+                    System.arraycopy(enregistrement, 0, precedent, 0, enregistrement.length);
+                    if (premier == null) {
+                        premier = enregistrement.clone();
+                    }
+                }
+            }
+
+            Arrays.fill(enregistrement, (byte) ' ');
+            enregistrement[0] = 'T';
+            chiffres(nombreDetails, enregistrement, 1, 12);
+            enregistrement[enregistrement.length - 1] = '\n';
+            ajouter(canal, tampon, enregistrement);
+            vider(canal, tampon);
+        }
+        return contenu;
+    }
+
+    private static void ajouter(FileChannel canal, ByteBuffer tampon, byte[] enregistrement) throws IOException {
+        if (tampon.remaining() < enregistrement.length) {
+            vider(canal, tampon);
+        }
+        tampon.put(enregistrement);
+    }
+
+    private static void vider(FileChannel canal, ByteBuffer tampon) throws IOException {
+        tampon.flip();
+        while (tampon.hasRemaining()) {
+            canal.write(tampon);
+        }
+        tampon.clear();
+    }
+
+    private static long dateNumerique(LocalDate date) {
+        return date.getYear() * 10_000L + date.getMonthValue() * 100L + date.getDayOfMonth();
+    }
+
+    private static void chiffres(long valeur, byte[] cible, int offset, int longueur) {
+        for (int i = offset + longueur - 1; i >= offset; i--) {
+            cible[i] = (byte) ('0' + valeur % 10);
+            valeur /= 10;
+        }
+    }
+
+    private static void copier(byte[] source, byte[] cible, int offset) {
+        System.arraycopy(source, 0, cible, offset, source.length);
+    }
+
+    private static byte[] texte(String valeur, int longueur) {
+        byte[] octets = new byte[longueur];
+        Arrays.fill(octets, (byte) ' ');
+        byte[] source = valeur.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(source, 0, octets, 0, Math.min(source.length, longueur));
+        return octets;
+    }
+
+    /**
+     * Hash de carte aléatoire (64 caractères hexadécimaux)
+     */
+    static String hashAleatoire(SplittableRandom aleatoire) {
+        byte[] hash = new byte[64];
+        for (int i = 0; i < hash.length; i++) {
+            hash[i] = HEX[aleatoire.nextInt(16)];
+        }
+        return new String(hash, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Répartition attendue des détails d'un fichier généré ; le montant net (en
+     * centimes, crédits moins débits) est celui des opérations à passer
+     */
+    static final class Contenu {
+        final long details;
+        long passees;
+        long inconnues;
+        long rejets;
+        long doublons;
+        long montantNet;
+
+        private Contenu(long details) {
+            this.details = details;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.banque.eurobank.batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Index des cartes chargé au-delà de sa capacité estimée : aucune carte n'est perdue
+ */
+class IndexCartesTest {
+
+    @Test
+    void cartesAuDelaDeLaCapaciteEstimee() {
+        SplittableRandom aleatoire = new SplittableRandom(7);
+        IndexCartes index = new IndexCartes(10);
+        List<String> hashes = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            String hash = GenerateurFichierCompensation.hashAleatoire(aleatoire);
+            hashes.add(hash);
+            assertThat(index.ajouter(hash, i, 10_000 + i, "XXXX " + i)).isTrue();
+        }
+        assertThat(index.ajouter(hashes.get(500), 0, 0, null)).isFalse();
+
+        assertThat(index.taille()).isEqualTo(1_000);
+        for (int i = 0; i < hashes.size(); i++) {
+            int position = index.chercher(ByteBuffer.wrap(hashes.get(i).getBytes(StandardCharsets.US_ASCII)), 0);
+            assertThat(index.carteId(position)).isEqualTo(i);
+            assertThat(index.compteId(position)).isEqualTo(10_000 + i);
+            assertThat(index.masque(position)).isEqualTo("XXXX " + i);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.banque.eurobank.batch;
+
+import com.banque.eurobank.DonneesTest;
+import com.banque.eurobank.entity.Compte;
+import com.banque.eurobank.entity.InteretCouru;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rattrapage des jours sans calcul : chaque jour couru sur son propre solde en
+ * date de valeur, nombre de jours couverts conservé
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DonneesTest.class)
+class InteretsBatchTest {
+
+    private static final LocalDate JOUR = LocalDate.of(2025, 6, 30);
+
+    @Autowired
+    private InteretsBatch interetsBatch;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    @Test
+    void joursManquesCourusSurLeSoldeDeChaqueJour() {
+        // 1 000 € jusqu'au 25, 2 000 € à partir du 26, 3 000 € après le jour calculé
+        Compte compte = livret("3000.00");
+        donnees.operation(compte, "1000.00", JOUR.minusDays(4));
+        donnees.operation(compte, "1000.00", JOUR.plusDays(1));
+        jdbcTemplate.update("INSERT INTO EB_INTERETS_COURUS (compte_id, interets_courus, date_dernier_calcul) " +
+                "VALUES (?, 0, ?)", compte.getId(), Date.valueOf(JOUR.minusDays(10)));
+
+        interetsBatch.calculerInteretsJournaliers(JOUR);
+
+        InteretCouru courus = courus(compte);
+        assertThat(courus.getJoursCourus()).isEqualTo(10);
+        assertThat(courus.getDateDernierCalcul()).isEqualTo(JOUR);
+        assertThat(courus.getInteretsCourus()).isEqualByComparingTo(interets(5 * 1000 + 5 * 2000));
+    }
+
+    @Test
+    void premierCalculDepuisLOuverture() {
+        Compte compte = livret("1000.00");
+        jdbcTemplate.update("UPDATE EB_COMPTES SET date_ouverture = ? WHERE id = ?",
+                Date.valueOf(JOUR.minusDays(2)), compte.getId());
+
+        interetsBatch.calculerInteretsJournaliers(JOUR);
+
+        InteretCouru courus = courus(compte);
+        assertThat(courus.getJoursCourus()).isEqualTo(3);
+        assertThat(courus.getInteretsCourus()).isEqualByComparingTo(interets(3 * 1000));
+    }
+
+    private Compte livret(String solde) {
+        Compte compte = donnees.compte(donnees.client(), solde);
+        jdbcTemplate.update("UPDATE EB_COMPTES SET type_compte = 'LIVRET_A', taux_interet = 0.03 WHERE id = ?",
+                compte.getId());
+        return compte;
+    }
+
+    private InteretCouru courus(Compte compte) {
+        return jdbcTemplate.queryForObject("SELECT * FROM EB_INTERETS_COURUS WHERE compte_id = ?",
+                new BeanPropertyRowMapper<>(InteretCouru.class), compte.getId());
+    }
+
+    private static BigDecimal interets(long sommeSoldes) {
+        return BigDecimal.valueOf(sommeSoldes).multiply(new BigDecimal("0.03"))
+                .divide(BigDecimal.valueOf(365), 6, RoundingMode.HALF_EVEN);
+    }
+}
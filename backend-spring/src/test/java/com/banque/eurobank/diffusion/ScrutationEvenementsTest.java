@@ -0,0 +1,88 @@
+package com.banque.eurobank.diffusion;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Marque haute et trous : un événement validé en retard, y compris sous le plus
+ * grand identifiant lu au démarrage, est appliqué une fois ; un événement déjà
+ * appliqué par ce nœud n'est pas rejoué
+ */
+class ScrutationEvenementsTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private final List<Long> appliques = new ArrayList<>();
+    private ScrutationEvenements<Long> scrutation;
+
+    @BeforeEach
+    void preparer() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE EVENEMENTS (id BIGINT PRIMARY KEY)");
+        scrutation = new ScrutationEvenements<>("Test", jdbcTemplate,
+                "SELECT COALESCE(MAX(id), 0) FROM EVENEMENTS", "SELECT id FROM EVENEMENTS WHERE id > ? ORDER BY id",
+                (rs, i) -> rs.getLong(1), Long::longValue, appliques::add, 100, 60_000);
+    }
+
+    @AfterEach
+    void fermer() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void evenementValideApresLeChargementSousLaMarqueLue() {
+        inserer(1, 2, 4);
+        // L'événement 3, pas encore validé, n'est pas dans l'état chargé
+        scrutation.demarrer(() -> { });
+
+        scrutation.scruter();
+        assertThat(appliques).isEmpty();
+        assertThat(scrutation.getHauteMarque()).isEqualTo(2);
+
+        inserer(3, 5);
+        scrutation.scruter();
+        assertThat(appliques).containsExactly(3L, 5L);
+        assertThat(scrutation.getHauteMarque()).isEqualTo(5);
+    }
+
+    @Test
+    void evenementAppliqueLocalementNonRejoue() {
+        scrutation.demarrer(() -> { });
+        inserer(1, 2);
+        scrutation.signalerApplique(1);
+
+        scrutation.scruter();
+        assertThat(appliques).containsExactly(2L);
+        assertThat(scrutation.getHauteMarque()).isEqualTo(2);
+    }
+
+    @Test
+    void evenementReluDerriereUnTrouAppliqueUneFois() {
+        scrutation.demarrer(() -> { });
+        inserer(1, 3);
+        scrutation.scruter();
+        scrutation.scruter();
+        assertThat(appliques).containsExactly(1L, 3L);
+        assertThat(scrutation.getHauteMarque()).isEqualTo(1);
+
+        inserer(2);
+        scrutation.scruter();
+        assertThat(appliques).containsExactly(1L, 3L, 2L);
+        assertThat(scrutation.getHauteMarque()).isEqualTo(3);
+    }
+
+    private void inserer(long... ids) {
+        for (long id : ids) {
+            jdbcTemplate.update("INSERT INTO EVENEMENTS (id) VALUES (?)", id);
+        }
+    }
+}
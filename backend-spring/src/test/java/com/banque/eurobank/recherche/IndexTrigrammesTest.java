@@ -0,0 +1,56 @@
+package com.banque.eurobank.recherche;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Correspondance des termes courts et classement par pertinence
+ */
+class IndexTrigrammesTest {
+
+    private static IndexTrigrammes index() {
+        IndexTrigrammes index = new IndexTrigrammes(8);
+        index.indexer(5, "BERDURAND Luc CLI0000005");
+        index.indexer(1, "DURAND Paul CLI0000001");
+        index.indexer(2, "ADAM Éloïse CLI0000002");
+        index.indexer(3, "DURANDEAU Marc CLI0000003");
+        index.indexer(4, "LEDUC Amandine CLI0000004");
+        return index;
+    }
+
+    private static Object[] chercher(IndexTrigrammes index, String recherche) {
+        return index.chercher(IndexTrigrammes.termes(recherche), 0, 10).getIds().toArray();
+    }
+
+    @Test
+    void termeDUnCaractereEnDebutDeMot() {
+        IndexTrigrammes index = index();
+        // « p » figure dans « paul » et nulle part ailleurs en début de mot
+        assertThat(chercher(index, "durand p")).containsExactly(1L);
+        // « a » est dans « durand » mais en début de mot seulement chez ADAM et Amandine
+        assertThat(chercher(index, "a dam")).containsExactly(2L);
+        assertThat(chercher(index, "duc a")).containsExactly(4L);
+    }
+
+    @Test
+    void termeDeDeuxCaracteresEnDebutDeMot() {
+        IndexTrigrammes index = index();
+        assertThat(chercher(index, "du cli")).containsExactly(1L, 3L);
+        assertThat(chercher(index, "uc cli")).isEmpty();
+    }
+
+    @Test
+    void termesDUnCaractereSeulementSansResultat() {
+        assertThat(chercher(index(), "d p")).isEmpty();
+    }
+
+    @Test
+    void motEntierAvantDebutDeMotAvantSousChaine() {
+        IndexTrigrammes index = index();
+        assertThat(chercher(index, "durand")).containsExactly(1L, 3L, 5L);
+        assertThat(chercher(index, "uran")).containsExactly(5L, 1L, 3L);
+        assertThat(chercher(index, "eloise")).containsExactly(2L);
+        assertThat(chercher(index, "and")).containsExactly(5L, 1L, 3L, 4L);
+    }
+}
@@ -0,0 +1,182 @@
+package com.banque.eurobank.security;
+
+import com.banque.eurobank.DonneesTest;
+import com.banque.eurobank.entity.Utilisateur;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.Key;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Coût de l'authentification d'une requête par token d'accès, ancien et nouveau
+ * chemin, sur le même token : temps moyen et requêtes SQL par requête HTTP.
+ *
+ * L'ancien chemin est rejoué par {@link AncienFiltre} : deux analyses du token avec
+ * un analyseur construit à chaque fois, puis lecture de l'utilisateur et de ses
+ * rôles en base. Le nouveau est le filtre de l'application : une analyse avec
+ * l'analyseur partagé, la liste des révocations et le statut en cache.
+ *
+ * Le nombre de requêtes SQL est vérifié dans la suite par défaut ; les temps,
+ * qui dépendent de la machine, sont mesurés par le banc (mvn test -Pbenchmark).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DonneesTest.class)
+@Slf4j
+class AuthentificationRequeteBenchmarkTest {
+
+    private static final int ITERATIONS = Integer.getInteger("authentification.iterations", 5_000);
+    private static final int PRECHAUFFE = 2_000;
+    private static final int ITERATIONS_COMPTAGE = 100;
+
+    @Value("${app.jwt.secret:eurobank-secret-key-for-jwt-token-generation-minimum-256-bits}")
+    private String jwtSecret;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    private String token;
+    private AncienFiltre ancienFiltre;
+
+    @BeforeEach
+    void preparer() {
+        Utilisateur utilisateur = donnees.utilisateur(donnees.client(), "Secret!2024");
+        token = jwtTokenProvider.generateAccessToken(utilisateur, jwtTokenProvider.nouvelleSession());
+        ancienFiltre = new AncienFiltre(Keys.hmacShaKeyFor(jwtSecret.getBytes()), userDetailsService);
+    }
+
+    @Test
+    void uneRequeteSqlParRequeteAvantAucuneApres() throws Exception {
+        Mesure ancien = mesurer(ancienFiltre, 1, ITERATIONS_COMPTAGE);
+        Mesure nouveau = mesurer(jwtAuthenticationFilter, 1, ITERATIONS_COMPTAGE);
+
+        assertThat(ancien.requetes).isEqualTo(ITERATIONS_COMPTAGE);
+        assertThat(nouveau.requetes).isZero();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void tempsParRequeteAvantApres() throws Exception {
+        Mesure ancien = mesurer(ancienFiltre, PRECHAUFFE, ITERATIONS);
+        Mesure nouveau = mesurer(jwtAuthenticationFilter, PRECHAUFFE, ITERATIONS);
+        log.info("Authentification d'une requête, {} itérations: ancien chemin {} µs et {} requête(s) SQL, "
+                        + "nouveau chemin {} µs et {} requête(s) SQL, rapport {}",
+                ITERATIONS, ancien.micro(ITERATIONS), (double) ancien.requetes / ITERATIONS,
+                nouveau.micro(ITERATIONS), (double) nouveau.requetes / ITERATIONS,
+                Math.round((double) ancien.nanos / Math.max(1, nouveau.nanos)));
+
+        assertThat(ancien.requetes).isEqualTo(ITERATIONS);
+        assertThat(nouveau.requetes).isZero();
+    }
+
+    /**
+     * Durée totale et requêtes SQL cumulées sur les itérations, après préchauffage
+     * (le statut de l'utilisateur est alors en cache pour le nouveau chemin)
+     */
+    private Mesure mesurer(OncePerRequestFilter filtre, int prechauffe, int iterations) throws Exception {
+        for (int i = 0; i < prechauffe; i++) {
+            Authentication authentification = authentifier(filtre, token);
+            assertThat(authentification).isNotNull();
+            assertThat(authentification.getName()).isEqualTo(jwtTokenProvider.lireTokenAcces(token).getUsername());
+        }
+        Statistics statistiques = donnees.statistiques();
+        statistiques.clear();
+        long debut = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            authentifier(filtre, token);
+        }
+        return new Mesure(System.nanoTime() - debut, statistiques.getPrepareStatementCount());
+    }
+
+    private static Authentication authentifier(OncePerRequestFilter filtre, String token) throws Exception {
+        MockHttpServletRequest requete = new MockHttpServletRequest("GET", "/api/v1/clients/1");
+        requete.addHeader("Authorization", "Bearer " + token);
+        try {
+            filtre.doFilter(requete, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    /**
+     * Filtre JWT antérieur : validation puis lecture du sujet, chacune avec son
+     * analyseur, et utilisateur relu en base à chaque requête
+     */
+    private static final class AncienFiltre extends OncePerRequestFilter {
+
+        private final Key key;
+        private final UserDetailsService userDetailsService;
+
+        private AncienFiltre(Key key, UserDetailsService userDetailsService) {
+            this.key = key;
+            this.userDetailsService = userDetailsService;
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                        FilterChain filterChain) throws ServletException, IOException {
+            String jwt = request.getHeader("Authorization").substring(7);
+            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(jwt);
+            String username = Jwts.parserBuilder().setSigningKey(key).build()
+                    .parseClaimsJws(jwt).getBody().getSubject();
+            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            UsernamePasswordAuthenticationToken authentication =
+                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private static final class Mesure {
+        private final long nanos;
+        private final long requetes;
+
+        private Mesure(long nanos, long requetes) {
+            this.nanos = nanos;
+            this.requetes = requetes;
+        }
+
+        /** Temps moyen par requête, en microsecondes au dixième */
+        private double micro(int iterations) {
+            return Math.round(nanos / 100.0 / iterations) / 10.0;
+        }
+    }
+}
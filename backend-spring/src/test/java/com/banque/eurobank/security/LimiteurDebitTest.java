@@ -0,0 +1,51 @@
+package com.banque.eurobank.security;
+
+import com.banque.eurobank.config.LimitationDebitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Seaux utilisateur et IP : une requête refusée par l'un ne consomme rien dans
+ * l'autre, et la purge ne remet pas à plein un seau entamé
+ */
+class LimiteurDebitTest {
+
+    private LimiteurDebit limiteurDebit;
+
+    @BeforeEach
+    void preparer() {
+        LimitationDebitProperties.Groupe groupe = new LimitationDebitProperties.Groupe();
+        groupe.setUtilisateur(limite(2));
+        groupe.setIp(limite(1));
+        LimitationDebitProperties proprietes = new LimitationDebitProperties();
+        proprietes.getGroupes().put(GroupeLimitation.VIREMENTS, groupe);
+        limiteurDebit = new LimiteurDebit(proprietes, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void refusParLeSeauIpSansJetonUtilisateurConsomme() {
+        assertThat(limiteurDebit.consommer(GroupeLimitation.VIREMENTS, "alice", "10.0.0.1")).isZero();
+        assertThat(limiteurDebit.consommer(GroupeLimitation.VIREMENTS, "alice", "10.0.0.1")).isPositive();
+
+        // Deuxième jeton de l'utilisateur encore disponible depuis une autre adresse
+        assertThat(limiteurDebit.consommer(GroupeLimitation.VIREMENTS, "alice", "10.0.0.2")).isZero();
+        assertThat(limiteurDebit.consommer(GroupeLimitation.VIREMENTS, "alice", "10.0.0.3")).isPositive();
+    }
+
+    @Test
+    void purgeConserveLesSeauxEntames() {
+        assertThat(limiteurDebit.consommer(GroupeLimitation.VIREMENTS, null, "10.0.0.1")).isZero();
+        limiteurDebit.purger();
+        assertThat(limiteurDebit.consommer(GroupeLimitation.VIREMENTS, null, "10.0.0.1")).isPositive();
+    }
+
+    private static LimitationDebitProperties.Limite limite(int capacite) {
+        LimitationDebitProperties.Limite limite = new LimitationDebitProperties.Limite();
+        limite.setCapacite(capacite);
+        limite.setParSeconde(0.001);
+        return limite;
+    }
+}
@@ -0,0 +1,85 @@
+package com.banque.eurobank.service;
+
+import com.banque.eurobank.dto.LoginRequestDTO;
+import com.banque.eurobank.dto.LoginResponseDTO;
+import com.banque.eurobank.entity.Utilisateur;
+import com.banque.eurobank.exception.ServiceIndisponibleException;
+import com.banque.eurobank.repository.UtilisateurRepository;
+import com.banque.eurobank.security.CustomUserDetailsService;
+import com.banque.eurobank.security.EchecsConnexion;
+import com.banque.eurobank.security.JwtTokenProvider;
+import com.banque.eurobank.security.ListeRevocations;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Connexion avec un hash à recalculer : un échec du recalcul, après un mot de
+ * passe vérifié, ne compte pas comme un échec de connexion
+ */
+class AuthServiceTest {
+
+    private static final String HASH_ANCIEN_COUT = "$2a$04$ancien";
+
+    private final CustomUserDetailsService userDetailsService = mock(CustomUserDetailsService.class);
+    private final JwtTokenProvider jwtTokenProvider = mock(JwtTokenProvider.class);
+    private final UtilisateurRepository utilisateurRepository = mock(UtilisateurRepository.class);
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private final EchecsConnexion echecsConnexion = mock(EchecsConnexion.class);
+    private final AuthService authService = new AuthService(userDetailsService, jwtTokenProvider,
+            utilisateurRepository, passwordEncoder, mock(ListeRevocations.class), echecsConnexion);
+
+    private Utilisateur utilisateur;
+
+    @BeforeEach
+    void preparer() {
+        utilisateur = Utilisateur.builder().id(1L).login("u1001").motDePasseHash(HASH_ANCIEN_COUT).build();
+        when(utilisateurRepository.findAvecClientByLogin("u1001")).thenReturn(Optional.of(utilisateur));
+        when(passwordEncoder.matches("Secret!2024", HASH_ANCIEN_COUT)).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding(HASH_ANCIEN_COUT)).thenReturn(true);
+        when(userDetailsService.versUserDetails(utilisateur))
+                .thenReturn(User.withUsername("u1001").password(HASH_ANCIEN_COUT).roles("CLIENT").build());
+        when(jwtTokenProvider.generateAccessToken(any(), any())).thenReturn("acces");
+        when(jwtTokenProvider.generateRefreshToken(any(), any())).thenReturn("rafraichissement");
+    }
+
+    @Test
+    void echecDEnregistrementDuHashSansEchecDeConnexion() {
+        when(passwordEncoder.encode("Secret!2024")).thenReturn("$2a$12$nouveau");
+        when(userDetailsService.updatePassword(any(), anyString()))
+                .thenThrow(new QueryTimeoutException("délai dépassé"));
+
+        LoginResponseDTO reponse = authService.authenticate(demande());
+
+        assertThat(reponse.getAccessToken()).isEqualTo("acces");
+        verify(echecsConnexion, never()).enregistrerEchec(any());
+        verify(echecsConnexion).reinitialiser("u1001");
+    }
+
+    @Test
+    void poolDeHachageSatureAuRecalculSansEchecDeConnexion() {
+        when(passwordEncoder.encode("Secret!2024")).thenThrow(new ServiceIndisponibleException("Pool saturé"));
+
+        LoginResponseDTO reponse = authService.authenticate(demande());
+
+        assertThat(reponse.getAccessToken()).isEqualTo("acces");
+        verify(echecsConnexion, never()).enregistrerEchec(any());
+        verify(userDetailsService, never()).updatePassword(any(), anyString());
+    }
+
+    private static LoginRequestDTO demande() {
+        return LoginRequestDTO.builder().login("u1001").motDePasse("Secret!2024").build();
+    }
+}
@@ -0,0 +1,82 @@
+package com.banque.eurobank.service;
+
+import com.banque.eurobank.DonneesTest;
+import com.banque.eurobank.dto.DashboardDTO;
+import com.banque.eurobank.entity.Client;
+import com.banque.eurobank.entity.Compte;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Nombre de requêtes du tableau de bord client : quatre lectures, quel que soit
+ * le nombre de comptes, de cartes et d'opérations
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DonneesTest.class)
+class DashboardStatementCountTest {
+
+    private static final int NOMBRE_TRANSACTIONS = 3;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private SoldeClientService soldeClientService;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    @Test
+    void quatreRequetesQuelQueSoitLeNombreDeComptes() {
+        Client client = donnees.client();
+        ajouterComptes(client, 2);
+        soldeClientService.initialiser(client.getId());
+
+        DashboardDTO dashboard = compter(client, 4);
+        assertThat(dashboard.getComptes()).hasSize(2);
+        assertThat(dashboard.getNombreCartes()).isEqualTo(4);
+        assertThat(dashboard.getComptes()).allSatisfy(compte ->
+                assertThat(compte.getDernieresTransactions()).hasSize(NOMBRE_TRANSACTIONS));
+
+        ajouterComptes(client, 6);
+
+        dashboard = compter(client, 4);
+        assertThat(dashboard.getComptes()).hasSize(8);
+        assertThat(dashboard.getNombreCartes()).isEqualTo(16);
+        assertThat(dashboard.getComptes()).allSatisfy(compte -> {
+            assertThat(compte.getCartes()).hasSize(2);
+            assertThat(compte.getDernieresTransactions()).hasSize(NOMBRE_TRANSACTIONS);
+        });
+    }
+
+    /**
+     * Comptes de deux cartes et cinq opérations chacun
+     */
+    private void ajouterComptes(Client client, int nombre) {
+        for (int i = 0; i < nombre; i++) {
+            Compte compte = donnees.compte(client, "1000.00");
+            donnees.carte(compte);
+            donnees.carte(compte);
+            for (int j = 0; j < 5; j++) {
+                donnees.operation(compte, "-12.50", LocalDate.now().minusDays(j));
+            }
+        }
+    }
+
+    private DashboardDTO compter(Client client, long requetesAttendues) {
+        Statistics statistiques = donnees.statistiques();
+        statistiques.clear();
+        DashboardDTO dashboard = dashboardService.getDashboard(client.getId(), NOMBRE_TRANSACTIONS);
+        assertThat(statistiques.getPrepareStatementCount()).isEqualTo(requetesAttendues);
+        return dashboard;
+    }
+}
@@ -0,0 +1,102 @@
+package com.banque.eurobank.service;
+
+import com.banque.eurobank.DonneesTest;
+import com.banque.eurobank.dto.DashboardDTO;
+import com.banque.eurobank.dto.VueClientDTO;
+import com.banque.eurobank.entity.Client;
+import com.banque.eurobank.repository.CarteRepository;
+import com.banque.eurobank.repository.ClientRepository;
+import com.banque.eurobank.repository.CompteRepository;
+import com.banque.eurobank.repository.TransactionRepository;
+import com.banque.eurobank.statistiques.StatistiquesAgences;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pool de lecture saturé : les parties de la vue client sont rejetées et signalées
+ * indisponibles sans attendre, le tableau de bord est lu sur le thread appelant
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DonneesTest.class)
+class LecturesPoolSatureTest {
+
+    private static final long DELAI_PARTIE_MS = 30_000;
+
+    @Autowired
+    private CompteRepository compteRepository;
+
+    @Autowired
+    private CarteRepository carteRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private SoldeClientService soldeClientService;
+
+    @Autowired
+    private StatistiquesAgences statistiquesAgences;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    @Test
+    void partiesRejeteesIndisponiblesEtTableauDeBordLuSurLAppelant() throws Exception {
+        Client client = donnees.client();
+        donnees.compte(client, "250.00");
+
+        // Un seul thread, sans file d'attente, occupé jusqu'à la fin du test
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        CountDownLatch liberation = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                liberation.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        DashboardService service = new DashboardService(compteRepository, carteRepository, transactionRepository,
+                clientRepository, clientService, soldeClientService, statistiquesAgences, executor,
+                transactionManager, DELAI_PARTIE_MS);
+
+        try {
+            long debut = System.nanoTime();
+            VueClientDTO vue = service.getVueClient(client.getId(), 3);
+            long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+            assertThat(vue.getPartiesIndisponibles())
+                    .containsExactly("CLIENT", "COMPTES", "CARTES", "TRANSACTIONS", "SOLDE_GLOBAL");
+            assertThat(dureeMs).isLessThan(DELAI_PARTIE_MS);
+
+            DashboardDTO dashboard = service.getDashboard(client.getId(), 3);
+            assertThat(dashboard.getComptes()).hasSize(1);
+        } finally {
+            liberation.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.banque.eurobank.service;
+
+import com.banque.eurobank.DonneesTest;
+import com.banque.eurobank.dto.CompteDTO;
+import com.banque.eurobank.dto.LoginRequestDTO;
+import com.banque.eurobank.dto.LoginResponseDTO;
+import com.banque.eurobank.entity.Carte;
+import com.banque.eurobank.entity.Client;
+import com.banque.eurobank.entity.Compte;
+import com.banque.eurobank.entity.Utilisateur;
+import com.banque.eurobank.repository.CarteRepository;
+import com.banque.eurobank.repository.CompteRepository;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Nombre de requêtes des lectures à plan de chargement fixé : détail de compte,
+ * compte émetteur verrouillé d'un virement, cartes d'un client ou d'un compte,
+ * utilisateur à la connexion et au rafraîchissement du token
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DonneesTest.class)
+class LecturesStatementCountTest {
+
+    private static final String MOT_DE_PASSE = "Secret!2024";
+
+    @Autowired
+    private CompteService compteService;
+
+    @Autowired
+    private CarteService carteService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private CompteRepository compteRepository;
+
+    @Autowired
+    private CarteRepository carteRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    @Test
+    void detailCompteAvecTitulaireEnUneRequete() {
+        Compte compte = donnees.compte(donnees.client(), "250.00");
+
+        CompteDTO dto = compter(1, () -> compteService.getCompteByIban(compte.getIban()));
+
+        assertThat(dto.getTitulaire().getNomComplet()).isEqualTo("Paul DURAND");
+    }
+
+    @Test
+    void compteEmetteurDuVirementVerrouilleEnUneRequete() {
+        Compte compte = donnees.compte(donnees.client(), "250.00");
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // Libellé "Virement de ..." du virement : le titulaire est lu avec le compte verrouillé
+        String titulaire = compter(1, () -> transaction.execute(status ->
+                compteRepository.findByIbanForUpdate(compte.getIban())
+                        .map(emetteur -> emetteur.getClient().getPrenom() + " " + emetteur.getClient().getNom())
+                        .orElseThrow()));
+
+        assertThat(titulaire).isEqualTo("Paul DURAND");
+    }
+
+    @Test
+    void cartesDuClientEtDuCompteEnUneRequete() {
+        Client client = donnees.client();
+        Compte premier = donnees.compte(client, "100.00");
+        Compte second = donnees.compte(client, "200.00");
+        donnees.carte(premier);
+        donnees.carte(premier);
+        donnees.carte(second);
+
+        List<Carte> cartes = compter(1, () -> new TransactionTemplate(transactionManager).execute(status -> {
+            List<Carte> lues = carteRepository.findByClientId(client.getId());
+            lues.forEach(carte -> carte.getCompte().getId());
+            return lues;
+        }));
+        assertThat(cartes).hasSize(3);
+
+        assertThat(compter(1, () -> carteService.getCartesByCompte(premier.getId()))).hasSize(2);
+    }
+
+    @Test
+    void utilisateurLuEnUneRequeteALaConnexionEtAuRafraichissement() {
+        Utilisateur utilisateur = donnees.utilisateur(donnees.client(), MOT_DE_PASSE);
+        LoginRequestDTO requete = new LoginRequestDTO();
+        requete.setLogin(utilisateur.getLogin());
+        requete.setMotDePasse(MOT_DE_PASSE);
+
+        // Utilisateur, rôles et client en une lecture, plus la date de dernière connexion
+        LoginResponseDTO connexion = compter(2, () -> authService.authenticate(requete));
+        assertThat(donnees.statistiques().getQueryExecutionCount()).isEqualTo(1);
+        assertThat(connexion.getUtilisateur().getNomComplet()).isEqualTo("Paul DURAND");
+
+        // Une lecture, plus la révocation du token présenté (séquence et insertion)
+        LoginResponseDTO rafraichissement = compter(3, () -> authService.refreshToken(connexion.getRefreshToken()));
+        assertThat(donnees.statistiques().getQueryExecutionCount()).isEqualTo(1);
+        assertThat(rafraichissement.getUtilisateur().getRoles()).containsExactly(Utilisateur.Role.ROLE_CLIENT);
+    }
+
+    private <T> T compter(long requetesAttendues, Supplier<T> lecture) {
+        Statistics statistiques = donnees.statistiques();
+        statistiques.clear();
+        T resultat = lecture.get();
+        assertThat(statistiques.getPrepareStatementCount()).isEqualTo(requetesAttendues);
+        return resultat;
+    }
+}
@@ -0,0 +1,154 @@
+package com.banque.eurobank.service;
+
+import com.banque.eurobank.repository.CompteurNumerotationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Attribution concurrente des numéros métier : unicité entre threads, entre nœuds
+ * et aux changements de bloc, format et clé de Luhn, et blocs jamais redistribués
+ * après un redémarrage. Le débit est journalisé sans être vérifié.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Slf4j
+class NumerotationServiceTest {
+
+    private static final int THREADS = 8;
+    private static final String BIN = "497010";
+
+    @Autowired
+    private NumerotationService numerotationService;
+
+    @Autowired
+    private CompteurNumerotationRepository compteurRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void numerosUniquesEntreThreadsNoeudsEtBlocs() throws Exception {
+        // Deux nœuds partageant les compteurs, blocs de 100 : un changement de bloc toutes les 100 valeurs
+        NumerotationService[] noeuds = {
+                new NumerotationService(compteurRepository, transactionManager, 100),
+                new NumerotationService(compteurRepository, transactionManager, 100)
+        };
+
+        List<String> comptes = generer(20_000, t -> noeuds[t % 2]::prochainNumeroCompte).numeros;
+        List<String> clients = generer(20_000, t -> noeuds[t % 2]::prochainNumeroClient).numeros;
+        List<String> cartes = generer(20_000, t -> () -> noeuds[t % 2].prochainNumeroCarte(BIN)).numeros;
+
+        assertThat(new HashSet<>(comptes)).hasSize(THREADS * 20_000);
+        assertThat(new HashSet<>(clients)).hasSize(THREADS * 20_000);
+        assertThat(new HashSet<>(cartes)).hasSize(THREADS * 20_000);
+        assertThat(comptes).allMatch(n -> n.matches("\\d{11}"));
+        assertThat(clients).allMatch(n -> n.matches("C\\d{13}") && luhnValide(n.substring(1)));
+        assertThat(cartes).allMatch(n -> n.matches(BIN + "\\d{10}") && luhnValide(n));
+    }
+
+    @Test
+    void numerosUniquesSurBlocsParDefaut() throws Exception {
+        mesurer("comptes", numerotationService::prochainNumeroCompte);
+        mesurer("clients", numerotationService::prochainNumeroClient);
+        mesurer("cartes", () -> numerotationService.prochainNumeroCarte(BIN));
+    }
+
+    @Test
+    void blocsNonRedistribuesApresRedemarrage() {
+        String cle = "REDEMARRAGE_" + System.nanoTime();
+        NumerotationService avant = new NumerotationService(compteurRepository, transactionManager, 100);
+        for (int i = 1; i <= 150; i++) {
+            assertThat(avant.prochaineValeur(cle)).isEqualTo(i);
+        }
+
+        // Nœud redémarré : le reste du bloc [101, 200] entamé avant l'arrêt est abandonné
+        NumerotationService apres = new NumerotationService(compteurRepository, transactionManager, 100);
+        assertThat(apres.prochaineValeur(cle)).isEqualTo(201);
+        // Le nœud encore en marche finit son bloc, puis en réserve un nouveau après celui du redémarré
+        assertThat(avant.prochaineValeur(cle)).isEqualTo(151);
+        for (int i = 152; i <= 200; i++) {
+            avant.prochaineValeur(cle);
+        }
+        assertThat(avant.prochaineValeur(cle)).isEqualTo(301);
+    }
+
+    private void mesurer(String libelle, Supplier<String> generateur) throws Exception {
+        Generation generation = generer(50_000, t -> generateur);
+        log.info("Numérotation {}: {} numéros en {} ms sur {} threads, {} numéros/s", libelle,
+                generation.numeros.size(), generation.dureeNanos / 1_000_000, THREADS,
+                Math.round(generation.numeros.size() * 1e9 / generation.dureeNanos));
+        assertThat(new HashSet<>(generation.numeros)).hasSize(generation.numeros.size());
+    }
+
+    /**
+     * Génère parThread numéros sur chacun des THREADS threads, partis ensemble
+     */
+    private static Generation generer(int parThread, IntFunction<Supplier<String>> generateurs) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch depart = new CountDownLatch(1);
+            List<Future<List<String>>> lots = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                Supplier<String> generateur = generateurs.apply(t);
+                lots.add(executor.submit(() -> {
+                    List<String> numeros = new ArrayList<>(parThread);
+                    depart.await();
+                    for (int i = 0; i < parThread; i++) {
+                        numeros.add(generateur.get());
+                    }
+                    return numeros;
+                }));
+            }
+            long debut = System.nanoTime();
+            depart.countDown();
+            List<String> numeros = new ArrayList<>(THREADS * parThread);
+            for (Future<List<String>> lot : lots) {
+                numeros.addAll(lot.get());
+            }
+            return new Generation(numeros, System.nanoTime() - debut);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static boolean luhnValide(String chiffres) {
+        int somme = 0;
+        boolean doubler = false;
+        for (int i = chiffres.length() - 1; i >= 0; i--) {
+            int d = chiffres.charAt(i) - '0';
+            if (doubler) {
+                d *= 2;
+                if (d > 9) d -= 9;
+            }
+            somme += d;
+            doubler = !doubler;
+        }
+        return somme % 10 == 0;
+    }
+
+    private static final class Generation {
+        private final List<String> numeros;
+        private final long dureeNanos;
+
+        private Generation(List<String> numeros, long dureeNanos) {
+            this.numeros = numeros;
+            this.dureeNanos = dureeNanos;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.banque.eurobank.service;
+
+import com.banque.eurobank.DonneesTest;
+import com.banque.eurobank.dto.ClientPortefeuilleDTO;
+import com.banque.eurobank.dto.PageCurseurResponse;
+import com.banque.eurobank.dto.TriPortefeuille;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Portefeuille par date de création parcouru page à page : les clients sans date
+ * de création (reprise de données) viennent après les autres, aucun n'est perdu
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DonneesTest.class)
+class PortefeuilleDateCreationTest {
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    @Test
+    void clientsSansDateDeCreationEnFinDePortefeuille() {
+        LocalDateTime reference = LocalDateTime.of(2024, 3, 1, 9, 0);
+        LocalDateTime[] dates = {reference, null, reference.minusDays(1), reference, null, reference.minusDays(2)};
+        long[] ids = new long[dates.length];
+        for (int i = 0; i < dates.length; i++) {
+            ids[i] = donnees.client().getId();
+        }
+        long conseillerId = 1_000_000 + ids[0];
+        for (int i = 0; i < dates.length; i++) {
+            jdbcTemplate.update("UPDATE EB_CLIENTS SET conseiller_id = ?, date_creation = ? WHERE id = ?",
+                    conseillerId, dates[i] != null ? Timestamp.valueOf(dates[i]) : null, ids[i]);
+        }
+
+        List<Long> parcourus = new ArrayList<>();
+        String curseur = null;
+        PageCurseurResponse<ClientPortefeuilleDTO> page;
+        do {
+            page = clientService.getPortefeuille(conseillerId, TriPortefeuille.DATE_CREATION, curseur, 2);
+            page.getContent().forEach(ligne -> parcourus.add(ligne.getId()));
+            curseur = page.getCurseurSuivant();
+        } while (!page.isDernier());
+
+        assertThat(parcourus).containsExactly(ids[0], ids[3], ids[2], ids[5], ids[1], ids[4]);
+    }
+}
@@ -290,3 +290,20 @@ public class OppositionCarteRequest
     public string Motif { get; set; } = string.Empty;
     public bool CommanderNouvelleCarte { get; set; }
 }
+
+// ==================== TABLEAU DE BORD ====================
+
+public class DashboardDto
+{
+    public long ClientId { get; set; }
+    public decimal SoldeGlobal { get; set; }
+    public int NombreCartes { get; set; }
+    public List<DashboardCompteDto> Comptes { get; set; } = new();
+}
+
+public class DashboardCompteDto
+{
+    public CompteResumeDto Compte { get; set; } = new();
+    public List<CarteResumeDto> Cartes { get; set; } = new();
+    public List<TransactionDto> DernieresTransactions { get; set; } = new();
+}
@@ -176,6 +176,7 @@ public interface ICompteService
     Task<CompteDto?> GetCompteAsync(string iban);
     Task<List<CompteResumeDto>> GetComptesClientAsync(long clientId);
     Task<decimal> GetSoldeGlobalAsync(long clientId);
+    Task<DashboardDto?> GetDashboardAsync(long clientId, int nombreTransactions = 5);
 }
 
 public class CompteService : ICompteService
@@ -217,6 +218,13 @@ public class CompteService : ICompteService
         var comptes = await GetComptesClientAsync(clientId);
         return comptes.Sum(c => c.Solde);
     }
+
+    public async Task<DashboardDto?> GetDashboardAsync(long clientId, int nombreTransactions = 5)
+    {
+        await SetAuthHeaderAsync();
+        var response = await _httpClient.GetFromJsonAsync<ApiResponse<DashboardDto>>($"api/v1/dashboard/client/{clientId}?nombreTransactions={nombreTransactions}");
+        return response?.Data;
+    }
 }
 
 // ==================== SERVICE DES VIREMENTS ====================